@@ -2,6 +2,8 @@ package numres.diginext.poc.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -13,11 +15,19 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable()) // Désactiver CSRF pour éviter les erreurs sur les requêtes POST
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/", "/analyze", "/static/**", "/templates/**").permitAll() // Autoriser les pages publiques
+                        .requestMatchers("/", "/analyze", "/static/**", "/templates/**").permitAll() // Autoriser les pages publiques (les cartographies restent authentifiées)
+                        .requestMatchers(HttpMethod.GET, "/api/search", "/api/components/*/occurrences").authenticated() // Recherche plein texte, restreinte à un client
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN") // Administration (enregistrements JFR, réévaluations)
+                        .requestMatchers(HttpMethod.POST, "/api/maps/import", "/api/maps/*/inventory/**",
+                                "/api/maps/*/probe", "/api/dictionary/reload", "/api/estates/*/graph").hasRole("ADMIN") // Imports, sondage réseau, rechargement
+                        .requestMatchers(HttpMethod.DELETE, "/api/maps/*").hasRole("ADMIN") // Suppression d'une cartographie
+                        .requestMatchers("/api/**").authenticated() // API des cartographies
+                        .requestMatchers("/actuator/health").permitAll() // Sonde de disponibilité
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN") // Métriques d'analyse et internes de la JVM
                         .anyRequest().authenticated() // Sécuriser toutes les autres pages
                 )
                 .formLogin(login -> login.disable()) // Désactiver le formulaire de login par défaut
-                .httpBasic(httpBasic -> httpBasic.disable()); // Désactiver l'authentification basique
+                .httpBasic(Customizer.withDefaults()); // Authentification basique pour l'API d'administration
 
         return http.build();
     }
@@ -0,0 +1,40 @@
+package numres.diginext.poc.config;
+
+import numres.diginext.poc.model.StorageScope;
+import numres.diginext.poc.repository.StorageScopeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Répertoire des fichiers dérivés de la base de données, propre à celle-ci (voir {@link StorageScope}).
+ */
+@Component
+public class StorageLocation {
+
+    private static final Long SCOPE_ID = 1L;
+
+    private final Path directory;
+
+    public StorageLocation(StorageScopeRepository storageScopeRepository,
+                           @Value("${diginext.storage.directory:${java.io.tmpdir}/diginext}") Path storageDirectory) {
+        StorageScope scope = storageScopeRepository.findById(SCOPE_ID).orElseGet(() -> {
+            StorageScope created = new StorageScope();
+            created.setId(SCOPE_ID);
+            created.setToken(UUID.randomUUID().toString());
+            return storageScopeRepository.save(created);
+        });
+        this.directory = storageDirectory.resolve("db-" + scope.getToken());
+    }
+
+    /**
+     * Sous-répertoire donné, créé s'il n'existe pas.
+     */
+    public Path directory(String name) throws IOException {
+        return Files.createDirectories(directory.resolve(name));
+    }
+}
@@ -0,0 +1,135 @@
+package numres.diginext.poc.controller;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.service.FlightRecordingService;
+import numres.diginext.poc.service.RecommendationRefreshService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * API d'administration, réservée aux utilisateurs authentifiés : profilage à la demande
+ * par enregistrements JDK Flight Recorder et réévaluation en masse des recommandations.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final FlightRecordingService flightRecordingService;
+    private final RecommendationRefreshService recommendationRefreshService;
+
+    /**
+     * Démarre un enregistrement JFR incluant les événements des étapes d'analyse.
+     */
+    @PostMapping("/recordings")
+    public FlightRecordingService.RecordingInfo startRecording(@RequestParam(defaultValue = "60s") Duration duration,
+                                                               @RequestParam(defaultValue = "default") String settings) throws IOException {
+        try {
+            return flightRecordingService.start(duration, settings);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/recordings")
+    public List<FlightRecordingService.RecordingInfo> recordings() {
+        return flightRecordingService.list();
+    }
+
+    @GetMapping("/recordings/{id}")
+    public FlightRecordingService.RecordingInfo recording(@PathVariable long id) {
+        try {
+            return flightRecordingService.info(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PostMapping("/recordings/{id}/stop")
+    public FlightRecordingService.RecordingInfo stopRecording(@PathVariable long id) {
+        try {
+            return flightRecordingService.stop(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Fichier .jfr d'un enregistrement terminé, à ouvrir avec JDK Mission Control ou {@code jfr print}.
+     */
+    @GetMapping("/recordings/{id}/file")
+    public ResponseEntity<Resource> recordingFile(@PathVariable long id) {
+        Path file;
+        try {
+            file = flightRecordingService.file(id);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Réévalue les recommandations de toutes les cartographies après une modification des règles.
+     *
+     * @param resume Reprend au dernier point de reprise plutôt que depuis la première cartographie
+     */
+    @PostMapping("/recommendations/refresh")
+    public RecommendationRefreshService.RefreshProgress startRecommendationRefresh(
+            @RequestParam(defaultValue = "true") boolean resume) throws IOException {
+        try {
+            return recommendationRefreshService.start(resume);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Réévalue les seules cartographies en échec lors de la dernière réévaluation.
+     */
+    @PostMapping("/recommendations/refresh/retry")
+    public RecommendationRefreshService.RefreshProgress retryRecommendationRefresh() {
+        try {
+            return recommendationRefreshService.retryFailed();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @GetMapping("/recommendations/refresh")
+    public RecommendationRefreshService.RefreshProgress recommendationRefresh() {
+        try {
+            return recommendationRefreshService.progress();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PostMapping("/recommendations/refresh/stop")
+    public RecommendationRefreshService.RefreshProgress stopRecommendationRefresh() {
+        try {
+            return recommendationRefreshService.stop();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package numres.diginext.poc.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.EstateComponent;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.EstateComponentRepository;
+import numres.diginext.poc.repository.EstateRelationshipRepository;
+import numres.diginext.poc.repository.SystemComponentRepository;
+import numres.diginext.poc.repository.SystemMapRepository;
+import numres.diginext.poc.service.DiagramFilterService;
+import numres.diginext.poc.service.DiagramGenerationService;
+import numres.diginext.poc.service.DocumentSearchService;
+import numres.diginext.poc.service.EstateGraphService;
+import numres.diginext.poc.service.ImpactAnalysisService;
+import numres.diginext.poc.service.InventoryIngestionService;
+import numres.diginext.poc.service.MapDiffService;
+import numres.diginext.poc.service.MapGraphService;
+import numres.diginext.poc.service.PatternDictionary;
+import numres.diginext.poc.service.PatternSnapshot;
+import numres.diginext.poc.service.RecommendationRefreshService;
+import numres.diginext.poc.service.RecommendationService;
+import numres.diginext.poc.service.ServiceProbeService;
+import numres.diginext.poc.service.SourceDocumentStore;
+import numres.diginext.poc.service.SystemMapDeletionService;
+import numres.diginext.poc.service.SystemMapExportService;
+import numres.diginext.poc.service.SystemMapImportService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * API REST d'accès aux cartographies enregistrées.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class SystemMapApiController {
+
+    private final SystemMapRepository systemMapRepository;
+    private final SystemComponentRepository systemComponentRepository;
+    private final SourceDocumentStore sourceDocumentStore;
+    private final DocumentSearchService documentSearchService;
+    private final RecommendationService recommendationService;
+    private final RecommendationRefreshService recommendationRefreshService;
+    private final SystemMapExportService systemMapExportService;
+    private final SystemMapImportService systemMapImportService;
+    private final SystemMapDeletionService systemMapDeletionService;
+    private final EstateComponentRepository estateComponentRepository;
+    private final EstateRelationshipRepository estateRelationshipRepository;
+    private final EstateGraphService estateGraphService;
+    private final DiagramGenerationService diagramGenerationService;
+    private final DiagramFilterService diagramFilterService;
+    private final MapGraphService mapGraphService;
+    private final ImpactAnalysisService impactAnalysisService;
+    private final InventoryIngestionService inventoryIngestionService;
+    private final ServiceProbeService serviceProbeService;
+    private final PatternDictionary patternDictionary;
+    private final MapDiffService mapDiffService;
+
+    /**
+     * Exporte une cartographie en flux au format JSON ou GraphML.
+     */
+    @GetMapping("/maps/{mapId}/export")
+    public void exportMap(@PathVariable Long mapId,
+                          @RequestParam(defaultValue = "json") String format,
+                          HttpServletResponse response) throws IOException {
+        SystemMap systemMap = findMap(mapId);
+        List<RecommendationService.Recommendation> recommendations =
+                recommendationRefreshService.recommendationsFor(systemMap, mapGraphService.graphFor(systemMap));
+
+        if ("graphml".equalsIgnoreCase(format)) {
+            response.setContentType("application/graphml+xml");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"map-" + mapId + ".graphml\"");
+            systemMapExportService.exportGraphMl(systemMap, recommendations, response.getOutputStream());
+        } else {
+            response.setContentType("application/json");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"map-" + mapId + ".json\"");
+            systemMapExportService.exportJson(systemMap, recommendations, response.getOutputStream());
+        }
+    }
+
+    /**
+     * Supprime une cartographie, ses recommandations et le texte de son document source.
+     */
+    @DeleteMapping("/maps/{mapId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteMap(@PathVariable Long mapId) throws IOException {
+        if (!systemMapDeletionService.delete(mapId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable");
+        }
+    }
+
+    /**
+     * Importe une cartographie exportée (JSON ou GraphML) sans relancer l'analyse.
+     */
+    @PostMapping("/maps/import")
+    public Map<String, Object> importMap(@RequestParam("file") MultipartFile file,
+                                         @RequestParam(value = "name", required = false) String name) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            SystemMapImportService.ImportedMap imported = systemMapImportService.importMap(in,
+                    file.getOriginalFilename(), name != null ? name : file.getOriginalFilename());
+            return Map.of("id", imported.id(),
+                    "components", imported.components(),
+                    "relationships", imported.relationships());
+        }
+    }
+
+    /**
+     * Applique à une cartographie un inventaire NDJSON envoyé par l'Agent Local DigiNext.
+     * Le corps est lu en flux : sa taille n'est pas limitée par la mémoire du serveur.
+     */
+    @PostMapping("/maps/{mapId}/inventory")
+    public InventoryIngestionService.IngestionResult ingestInventory(@PathVariable Long mapId,
+                                                                     HttpServletRequest request) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            return inventoryIngestionService.ingest(mapId, in);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Applique à une cartographie un inventaire CMDB exporté en XLSX ou CSV (une ligne par composant,
+     * colonnes nom, type, technologie, version, hôte et dépendances). Les lignes sont lues en flux.
+     */
+    @PostMapping("/maps/{mapId}/inventory/cmdb")
+    public InventoryIngestionService.IngestionResult ingestCmdbInventory(@PathVariable Long mapId,
+                                                                         @RequestParam("file") MultipartFile file) throws IOException {
+        if (!systemMapRepository.existsById(mapId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable: " + mapId);
+        }
+        try {
+            return inventoryIngestionService.ingestSpreadsheet(mapId, file);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Sonde les serveurs, bases de données et systèmes web d'une cartographie pour vérifier
+     * leur joignabilité et confirmer technologie et version.
+     */
+    @PostMapping("/maps/{mapId}/probe")
+    public List<ServiceProbeService.ComponentProbe> probeMap(@PathVariable Long mapId) throws IOException {
+        try {
+            return serviceProbeService.probeMap(mapId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Version et empreinte du dictionnaire d'extraction en vigueur.
+     */
+    @GetMapping("/dictionary")
+    public Map<String, Object> dictionary() {
+        return describe(patternDictionary.snapshot());
+    }
+
+    /**
+     * Recharge le dictionnaire d'extraction sans redémarrage. Les analyses en cours terminent
+     * avec l'instantané qu'elles ont obtenu ; un dictionnaire invalide laisse l'ancien en place.
+     */
+    @PostMapping("/dictionary/reload")
+    public Map<String, Object> reloadDictionary() {
+        try {
+            return describe(patternDictionary.reload());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruit à la demande les extraits de texte entourant les mentions d'un composant, limités
+     * aux documents consultables depuis sa cartographie (comme pour la recherche).
+     */
+    @GetMapping("/components/{componentId}/context")
+    public List<String> componentContext(@PathVariable Long componentId,
+                                         @RequestParam(defaultValue = "5") int limit) throws IOException {
+        SystemComponent component = systemComponentRepository.findById(componentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Composant introuvable"));
+        SystemMap map = systemMapRepository.findByComponentId(componentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable"));
+        int[] documents = documentSearchService.documentsOf(map);
+
+        int[] mentions = component.getMentions();
+        List<String> snippets = new ArrayList<>();
+        for (int i = 0; i + 2 < mentions.length && snippets.size() < limit; i += 3) {
+            if (Arrays.binarySearch(documents, mentions[i]) < 0) {
+                continue;
+            }
+            String snippet = sourceDocumentStore.snippet(mentions[i], mentions[i + 1], mentions[i + 2]);
+            if (!snippet.isEmpty()) {
+                snippets.add(snippet);
+            }
+        }
+        return snippets;
+    }
+
+    /**
+     * Occurrences du nom d'un composant, avec extraits surlignés, dans les documents du client
+     * de sa cartographie (ou dans le seul document de celle-ci).
+     */
+    @GetMapping("/components/{componentId}/occurrences")
+    public List<DocumentSearchService.SearchResult> componentOccurrences(@PathVariable Long componentId,
+                                                                         @RequestParam(defaultValue = "20") int limit) throws IOException {
+        SystemComponent component = systemComponentRepository.findById(componentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Composant introuvable"));
+        SystemMap map = systemMapRepository.findByComponentId(componentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable"));
+        return documentSearchService.occurrences(component, documentSearchService.documentsOf(map), Math.min(limit, 200));
+    }
+
+    /**
+     * Recherche plein texte dans les documents d'un client ou d'une cartographie ; une requête
+     * entre guillemets est une expression exacte.
+     */
+    @GetMapping("/search")
+    public List<DocumentSearchService.SearchResult> search(@RequestParam("q") String query,
+                                                           @RequestParam(required = false) String customer,
+                                                           @RequestParam(required = false) Long mapId,
+                                                           @RequestParam(defaultValue = "20") int limit) throws IOException {
+        int[] documents;
+        if (mapId != null) {
+            SystemMap map = systemMapRepository.findById(mapId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable"));
+            documents = documentSearchService.documentsOf(map);
+        } else if (customer != null && !customer.isBlank()) {
+            documents = documentSearchService.documentsOfCustomer(customer);
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Préciser le client (customer) ou la cartographie (mapId)");
+        }
+        return documentSearchService.search(query, documents, Math.min(limit, 200));
+    }
+
+    /**
+     * Évolutions entre une cartographie de référence et une nouvelle cartographie :
+     * composants et relations ajoutés, supprimés ou modifiés.
+     */
+    @GetMapping("/maps/{mapId}/diff/{otherMapId}")
+    public MapDiffService.MapComparison diff(@PathVariable Long mapId, @PathVariable Long otherMapId) throws IOException {
+        try {
+            return mapDiffService.compare(mapId, otherMapId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Diagramme PlantUML des seules évolutions entre deux cartographies.
+     */
+    @GetMapping(value = "/maps/{mapId}/diff/{otherMapId}/diagram.puml", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String diffDiagram(@PathVariable Long mapId, @PathVariable Long otherMapId) throws IOException {
+        try {
+            return mapDiffService.deltaDiagram(mapId, otherMapId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Diagramme PlantUML d'une vue filtrée de la cartographie : types de composants ou de relations
+     * (listes séparées par des virgules), voisinage à {@code depth} relations d'un composant, criticité.
+     */
+    @GetMapping(value = "/maps/{mapId}/diagram/filtered.puml", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String filteredDiagram(@PathVariable Long mapId,
+                                  @RequestParam(required = false) Set<String> types,
+                                  @RequestParam(required = false) Set<String> relations,
+                                  @RequestParam(required = false) Long focus,
+                                  @RequestParam(defaultValue = "2") int depth,
+                                  @RequestParam(defaultValue = "false") boolean critical) throws IOException {
+        try {
+            return diagramFilterService.plantUml(findMap(mapId),
+                    new DiagramFilterService.DiagramFilter(types, relations, focus, depth, critical));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Diagramme SVG natif d'une vue filtrée de la cartographie (mêmes critères que la source PlantUML).
+     */
+    @GetMapping(value = "/maps/{mapId}/diagram/filtered.svg", produces = "image/svg+xml")
+    public String filteredDiagramSvg(@PathVariable Long mapId,
+                                     @RequestParam(required = false) Set<String> types,
+                                     @RequestParam(required = false) Set<String> relations,
+                                     @RequestParam(required = false) Long focus,
+                                     @RequestParam(defaultValue = "2") int depth,
+                                     @RequestParam(defaultValue = "false") boolean critical) throws IOException {
+        try {
+            return diagramFilterService.svg(findMap(mapId),
+                    new DiagramFilterService.DiagramFilter(types, relations, focus, depth, critical));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Composants impactés par la défaillance d'un composant (dépendants transitifs).
+     */
+    @GetMapping("/maps/{mapId}/components/{componentId}/dependents")
+    public List<ImpactAnalysisService.ImpactNode> dependents(@PathVariable Long mapId, @PathVariable long componentId,
+                                                             @RequestParam(defaultValue = "-1") int maxDepth) throws IOException {
+        try {
+            return impactAnalysisService.dependents(findMap(mapId), componentId, maxDepth);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Dépendances transitives d'un composant.
+     */
+    @GetMapping("/maps/{mapId}/components/{componentId}/dependencies")
+    public List<ImpactAnalysisService.ImpactNode> dependencies(@PathVariable Long mapId, @PathVariable long componentId,
+                                                               @RequestParam(defaultValue = "-1") int maxDepth) throws IOException {
+        try {
+            return impactAnalysisService.dependencies(findMap(mapId), componentId, maxDepth);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Voisinage à k sauts d'un composant, sans tenir compte du sens des relations.
+     */
+    @GetMapping("/maps/{mapId}/components/{componentId}/neighborhood")
+    public List<ImpactAnalysisService.ImpactNode> neighborhood(@PathVariable Long mapId, @PathVariable long componentId,
+                                                               @RequestParam(defaultValue = "1") int hops) throws IOException {
+        try {
+            return impactAnalysisService.neighborhood(findMap(mapId), componentId, hops);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Plus court chemin entre deux composants d'une cartographie.
+     */
+    @GetMapping("/maps/{mapId}/path")
+    public List<ImpactAnalysisService.ImpactNode> shortestPath(@PathVariable Long mapId,
+                                                               @RequestParam long from, @RequestParam long to,
+                                                               @RequestParam(defaultValue = "true") boolean directed) throws IOException {
+        try {
+            return impactAnalysisService.shortestPath(findMap(mapId), from, to, directed);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Relations d'une cartographie avec leur confiance, par ordre d'identifiant : {@code after} est le
+     * dernier identifiant de la page précédente.
+     */
+    @GetMapping("/maps/{mapId}/relationships")
+    public List<RelationshipView> relationships(@PathVariable Long mapId,
+                                                @RequestParam(defaultValue = "0") long after,
+                                                @RequestParam(defaultValue = "500") int limit) {
+        if (!systemMapRepository.existsById(mapId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable");
+        }
+        List<RelationshipView> relationships = new ArrayList<>();
+        for (Object[] row : systemMapRepository.findRelationshipRowsAfter(mapId, after,
+                Pageable.ofSize(Math.min(5000, Math.max(1, limit))))) {
+            relationships.add(new RelationshipView((Long) row[0], (Long) row[1], (Long) row[2],
+                    (String) row[3], (String) row[4], (Double) row[5]));
+        }
+        return relationships;
+    }
+
+    /**
+     * Vue paginée du graphe global du SI d'un client.
+     */
+    @GetMapping("/estates/{customer}")
+    public Map<String, Object> estate(@PathVariable String customer,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "100") int size) {
+        Page<EstateComponent> components = estateComponentRepository.findByCustomer(customer,
+                PageRequest.of(Math.max(0, page), Math.min(500, Math.max(1, size)), Sort.by("normalizedName")));
+        return Map.of("customer", customer,
+                "componentCount", components.getTotalElements(),
+                "relationshipCount", estateRelationshipRepository.countByCustomer(customer),
+                "page", components.getNumber(),
+                "components", components.getContent());
+    }
+
+    /**
+     * Reconstruit l'instantané hors tas du graphe global d'un client.
+     */
+    @PostMapping("/estates/{customer}/graph")
+    public Map<String, Object> rebuildEstateGraph(@PathVariable String customer) throws IOException {
+        MapGraph graph = estateGraphService.writeGraphSnapshot(customer);
+        diagramFilterService.evictEstate(customer);
+        return Map.of("customer", customer, "components", graph.nodeCount(), "relationships", graph.edgeCount());
+    }
+
+    /**
+     * Recommandations calculées sur l'instantané du graphe global d'un client.
+     */
+    @GetMapping("/estates/{customer}/recommendations")
+    public List<RecommendationService.Recommendation> estateRecommendations(@PathVariable String customer) throws IOException {
+        return recommendationService.generateRecommendations(findEstateGraph(customer));
+    }
+
+    /**
+     * Diagramme PlantUML de l'instantané du graphe global d'un client.
+     */
+    @GetMapping(value = "/estates/{customer}/diagram.puml", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String estateDiagram(@PathVariable String customer) throws IOException {
+        return diagramGenerationService.generatePlantUML(customer, findEstateGraph(customer));
+    }
+
+    /**
+     * Diagramme SVG natif de l'instantané du graphe global d'un client.
+     */
+    @GetMapping(value = "/estates/{customer}/diagram.svg", produces = "image/svg+xml")
+    public String estateDiagramSvg(@PathVariable String customer) throws IOException {
+        return diagramFilterService.estateSvg(customer, findEstateGraph(customer));
+    }
+
+    private MapGraph findEstateGraph(String customer) throws IOException {
+        return estateGraphService.graphSnapshot(customer)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Aucun instantané du graphe global pour ce client"));
+    }
+
+    private SystemMap findMap(Long mapId) {
+        return systemMapRepository.findById(mapId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable"));
+    }
+
+    private static Map<String, Object> describe(PatternSnapshot snapshot) {
+        return Map.of("version", snapshot.getVersion(),
+                "checksum", snapshot.getChecksum(),
+                "componentRules", snapshot.getComponentRules().size(),
+                "relationshipRules", snapshot.getRelationshipRules().size());
+    }
+
+    /**
+     * Relation d'une cartographie : identifiants des composants source et cible, et confiance
+     * (1 si explicite, entre 0 et 1 si inférée, null si proposée par défaut).
+     */
+    public record RelationshipView(Long id, Long source, Long target, String type, String description,
+                                   Double confidence) {
+    }
+}
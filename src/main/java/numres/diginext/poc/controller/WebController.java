@@ -1,39 +1,80 @@
 package numres.diginext.poc.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.MapDiagram;
+import numres.diginext.poc.model.SystemComponent;
 import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemComponentRepository;
+import numres.diginext.poc.repository.SystemMapRepository;
+import numres.diginext.poc.service.AnalysisRejectedException;
+import numres.diginext.poc.service.AnalysisScheduler;
+import numres.diginext.poc.service.DiagramFilterService;
+import numres.diginext.poc.service.DiagramGenerationService;
 import numres.diginext.poc.service.DocumentAnalysisService;
+import numres.diginext.poc.service.MapGraphService;
+import numres.diginext.poc.service.RecommendationRefreshService;
 import numres.diginext.poc.service.RecommendationService;
+import numres.diginext.poc.service.SvgDiagramRenderer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
 
 @Controller
 @RequiredArgsConstructor
 public class WebController {
 
+    // Colonnes autorisées pour le tri du tableau des composants
+    private static final Set<String> SORTABLE_COLUMNS = Set.of("name", "type", "version");
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final DocumentAnalysisService documentAnalysisService;
-    private final RecommendationService recommendationService;
+    private final RecommendationRefreshService recommendationRefreshService;
+    private final AnalysisScheduler analysisScheduler;
+    private final SystemMapRepository systemMapRepository;
+    private final SystemComponentRepository systemComponentRepository;
+    private final MapGraphService mapGraphService;
+    private final SvgDiagramRenderer svgDiagramRenderer;
+    private final DiagramFilterService diagramFilterService;
 
     @GetMapping("/")
     public String index() {
         return "index";
     }
 
+    /**
+     * Analyse d'un document ; la fusion dans le graphe global d'un client est réservée aux
+     * utilisateurs authentifiés, le formulaire étant public.
+     */
     @PostMapping("/analyze")
     public String analyzeDocument(@RequestParam("file") MultipartFile file,
                                   @RequestParam("name") String name,
+                                  @RequestParam(value = "customer", required = false) String customer,
+                                  Principal principal,
                                   Model model) {
+        if (emptyToNull(customer) != null && principal == null) {
+            model.addAttribute("error", "Authentification requise pour fusionner une cartographie dans le graphe d'un client");
+            return "index";
+        }
         try {
-            SystemMap systemMap = documentAnalysisService.analyzeDocument(file, name);
-            model.addAttribute("systemMap", systemMap);
-            model.addAttribute("recommendations", recommendationService.generateRecommendations(systemMap));
-            return "result";
+            SystemMap systemMap = analysisScheduler.execute(file.getSize(),
+                    () -> documentAnalysisService.analyzeDocument(file, name, emptyToNull(customer)));
+            return "redirect:/maps/" + systemMap.getId();
         } catch (IOException e) {
             model.addAttribute("error", "Erreur lors de l'analyse du document: " + e.getMessage());
             return "index";
@@ -45,4 +86,125 @@ public class WebController {
     public String showAnalyzePage() {
         return "index";
     }
-}
\ No newline at end of file
+
+    /**
+     * Page de résultat : seules les métadonnées sont rendues, les onglets sont chargés à la demande.
+     */
+    @GetMapping("/maps/{mapId}")
+    public String showMap(@PathVariable Long mapId, Model model) {
+        int componentCount = systemMapRepository.countComponents(mapId);
+        model.addAttribute("systemMap", findMap(mapId));
+        model.addAttribute("componentCount", componentCount);
+        // Au-delà du seuil, le diagramme est rendu en SVG natif plutôt que par PlantUML
+        model.addAttribute("diagramFormat", svgDiagramRenderer.prefersSvg(componentCount) ? "svg" : "plantuml");
+        model.addAttribute("relationshipCount", systemMapRepository.countRelationships(mapId));
+        return "result";
+    }
+
+    /**
+     * Fragment paginé du tableau des composants, trié et filtré côté serveur.
+     */
+    @GetMapping("/maps/{mapId}/components")
+    public String componentsFragment(@PathVariable Long mapId,
+                                     @RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "50") int size,
+                                     @RequestParam(defaultValue = "name") String sort,
+                                     @RequestParam(defaultValue = "asc") String direction,
+                                     @RequestParam(required = false) String type,
+                                     @RequestParam(required = false) String search,
+                                     Model model) {
+        String sortColumn = SORTABLE_COLUMNS.contains(sort) ? sort : "name";
+        Sort.Direction sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        PageRequest pageRequest = PageRequest.of(Math.max(0, page), clampPageSize(size), Sort.by(sortDirection, sortColumn));
+
+        Page<SystemComponent> components = systemComponentRepository.findPageByMapId(
+                mapId, emptyToNull(type), emptyToNull(search), pageRequest);
+
+        model.addAttribute("mapId", mapId);
+        model.addAttribute("components", components);
+        model.addAttribute("sort", sortColumn);
+        model.addAttribute("direction", sortDirection.name().toLowerCase());
+        return "fragments/components :: components";
+    }
+
+    /**
+     * Fragment paginé des recommandations, filtrable par priorité.
+     */
+    @GetMapping("/maps/{mapId}/recommendations")
+    public String recommendationsFragment(@PathVariable Long mapId,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size,
+                                          @RequestParam(required = false) String priority,
+                                          Model model) throws IOException {
+        SystemMap systemMap = findMap(mapId);
+        List<RecommendationService.Recommendation> recommendations =
+                recommendationRefreshService.recommendationsFor(systemMap, mapGraphService.graphFor(systemMap)).stream()
+                        .filter(r -> priority == null || priority.isEmpty() || priority.equalsIgnoreCase(r.getPriority()))
+                        .toList();
+
+        PageRequest pageRequest = PageRequest.of(Math.max(0, page), clampPageSize(size));
+        int from = (int) Math.min(pageRequest.getOffset(), recommendations.size());
+        int to = Math.min(from + pageRequest.getPageSize(), recommendations.size());
+
+        model.addAttribute("mapId", mapId);
+        model.addAttribute("recommendations", new PageImpl<>(recommendations.subList(from, to), pageRequest, recommendations.size()));
+        return "fragments/recommendations :: recommendations";
+    }
+
+    /**
+     * Source PlantUML du diagramme, chargée uniquement lorsque l'onglet est affiché et
+     * décompressée directement dans la réponse.
+     */
+    @GetMapping("/maps/{mapId}/diagram.puml")
+    public void diagramSource(@PathVariable Long mapId, HttpServletResponse response) throws IOException {
+        byte[] compressed = findCompressedDiagram(mapId);
+        response.setContentType("text/plain;charset=UTF-8");
+        MapDiagram.inflate(compressed, response.getOutputStream());
+    }
+
+    /**
+     * Diagramme encodé pour une URL de serveur PlantUML, à partir de la source compressée stockée.
+     */
+    @GetMapping(value = "/maps/{mapId}/diagram.encoded", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String diagramEncoded(@PathVariable Long mapId) {
+        return DiagramGenerationService.encodeForUrl(findCompressedDiagram(mapId));
+    }
+
+    /**
+     * Diagramme SVG natif, pour les cartographies trop volumineuses pour PlantUML.
+     */
+    @GetMapping(value = "/maps/{mapId}/diagram.svg", produces = "image/svg+xml")
+    @ResponseBody
+    public String diagramSvg(@PathVariable Long mapId) throws IOException {
+        return diagramFilterService.svg(findMap(mapId));
+    }
+
+    /**
+     * Répond 503 avec un en-tête Retry-After lorsque l'ordonnanceur d'analyses est saturé.
+     */
+    @ExceptionHandler(AnalysisRejectedException.class)
+    public ResponseEntity<String> handleAnalysisRejected(AnalysisRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    private SystemMap findMap(Long mapId) {
+        return systemMapRepository.findById(mapId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cartographie introuvable"));
+    }
+
+    private byte[] findCompressedDiagram(Long mapId) {
+        return systemMapRepository.findCompressedDiagram(mapId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Diagramme introuvable"));
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.min(MAX_PAGE_SIZE, Math.max(1, size));
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
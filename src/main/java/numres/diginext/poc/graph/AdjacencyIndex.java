@@ -0,0 +1,169 @@
+package numres.diginext.poc.graph;
+
+import java.util.Arrays;
+
+/**
+ * Index d'adjacence précalculé pour les parcours d'impact : relations sortantes (celles du
+ * {@link MapGraph}), relations entrantes en CSR inverse et table identifiant persistant → composant.
+ * Les parcours n'utilisent que des tableaux primitifs.
+ */
+public final class AdjacencyIndex {
+
+    private final MapGraph graph;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final long[] sortedComponentIds;
+    private final int[] nodesBySortedId;
+
+    public AdjacencyIndex(MapGraph graph) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+
+        outOffsets = new int[n + 1];
+        outTargets = new int[m];
+        for (int node = 0; node < n; node++) {
+            outOffsets[node + 1] = graph.outEnd(node);
+        }
+        for (int edge = 0; edge < m; edge++) {
+            outTargets[edge] = graph.edgeTarget(edge);
+        }
+
+        inOffsets = new int[n + 1];
+        for (int edge = 0; edge < m; edge++) {
+            inOffsets[outTargets[edge] + 1]++;
+        }
+        for (int node = 0; node < n; node++) {
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        inSources = new int[m];
+        int[] cursor = Arrays.copyOf(inOffsets, n);
+        for (int edge = 0; edge < m; edge++) {
+            inSources[cursor[outTargets[edge]]++] = graph.edgeSource(edge);
+        }
+
+        // Table triée des identifiants persistants pour retrouver un composant par recherche dichotomique
+        Integer[] order = new Integer[n];
+        for (int node = 0; node < n; node++) {
+            order[node] = node;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(graph.componentId(a), graph.componentId(b)));
+        sortedComponentIds = new long[n];
+        nodesBySortedId = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodesBySortedId[i] = order[i];
+            sortedComponentIds[i] = graph.componentId(order[i]);
+        }
+    }
+
+    public MapGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Composant correspondant à un identifiant persistant, ou -1.
+     */
+    public int nodeOf(long componentId) {
+        int index = Arrays.binarySearch(sortedComponentIds, componentId);
+        return index >= 0 ? nodesBySortedId[index] : -1;
+    }
+
+    /**
+     * Parcours en largeur depuis un composant.
+     *
+     * @param start    Composant de départ
+     * @param maxDepth Profondeur maximale (négative pour un parcours complet)
+     * @param forward  Suivre les relations sortantes
+     * @param backward Suivre les relations entrantes
+     * @return La distance de chaque composant au départ, -1 s'il n'est pas atteint
+     */
+    public int[] breadthFirst(int start, int maxDepth, boolean forward, boolean backward) {
+        int[] depth = new int[graph.nodeCount()];
+        Arrays.fill(depth, -1);
+        int[] queue = new int[graph.nodeCount()];
+        int head = 0;
+        int tail = 0;
+        depth[start] = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int node = queue[head++];
+            if (maxDepth >= 0 && depth[node] >= maxDepth) {
+                continue;
+            }
+            if (forward) {
+                for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                    tail = visit(outTargets[i], depth[node] + 1, depth, queue, tail);
+                }
+            }
+            if (backward) {
+                for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+                    tail = visit(inSources[i], depth[node] + 1, depth, queue, tail);
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Plus court chemin (en nombre de relations) entre deux composants.
+     *
+     * @param directed Ne suivre que le sens des relations
+     * @return Les composants du chemin, vide s'il n'en existe pas
+     */
+    public int[] shortestPath(int from, int to, boolean directed) {
+        int n = graph.nodeCount();
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        parent[from] = from;
+        queue[tail++] = from;
+
+        while (head < tail && parent[to] < 0) {
+            int node = queue[head++];
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                tail = link(outTargets[i], node, parent, queue, tail);
+            }
+            if (!directed) {
+                for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+                    tail = link(inSources[i], node, parent, queue, tail);
+                }
+            }
+        }
+        if (parent[to] < 0) {
+            return new int[0];
+        }
+
+        int length = 1;
+        for (int node = to; node != from; node = parent[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int node = to;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = node;
+            node = parent[node];
+        }
+        return path;
+    }
+
+    private static int visit(int next, int nextDepth, int[] depth, int[] queue, int tail) {
+        if (depth[next] < 0) {
+            depth[next] = nextDepth;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    private static int link(int next, int node, int[] parent, int[] queue, int tail) {
+        if (parent[next] < 0) {
+            parent[next] = node;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+}
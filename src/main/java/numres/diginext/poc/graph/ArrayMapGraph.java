@@ -0,0 +1,134 @@
+package numres.diginext.poc.graph;
+
+/**
+ * Graphe stocké dans des colonnes de types primitifs en mémoire.
+ * Les chaînes sont dédupliquées dans une table commune et référencées par indice (-1 pour null).
+ */
+public final class ArrayMapGraph implements MapGraph {
+
+    final String[] strings;
+    final long[] componentIds;
+    final int[] names;
+    final int[] types;
+    final int[] descriptions;
+    final int[] technologies;
+    final int[] versions;
+    final int[] environments;
+    final boolean[] criticals;
+    final int[] inDegrees;
+    final int[] outOffsets;
+    final int[] edgeSources;
+    final int[] edgeTargets;
+    final int[] edgeTypes;
+    final int[] edgeDescriptions;
+
+    ArrayMapGraph(String[] strings, long[] componentIds, int[] names, int[] types, int[] descriptions,
+                  int[] technologies, int[] versions, int[] environments, boolean[] criticals,
+                  int[] inDegrees, int[] outOffsets, int[] edgeSources, int[] edgeTargets,
+                  int[] edgeTypes, int[] edgeDescriptions) {
+        this.strings = strings;
+        this.componentIds = componentIds;
+        this.names = names;
+        this.types = types;
+        this.descriptions = descriptions;
+        this.technologies = technologies;
+        this.versions = versions;
+        this.environments = environments;
+        this.criticals = criticals;
+        this.inDegrees = inDegrees;
+        this.outOffsets = outOffsets;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeTypes = edgeTypes;
+        this.edgeDescriptions = edgeDescriptions;
+    }
+
+    @Override
+    public int nodeCount() {
+        return names.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    @Override
+    public long componentId(int node) {
+        return componentIds[node];
+    }
+
+    @Override
+    public String name(int node) {
+        return string(names[node]);
+    }
+
+    @Override
+    public String type(int node) {
+        return string(types[node]);
+    }
+
+    @Override
+    public String description(int node) {
+        return string(descriptions[node]);
+    }
+
+    @Override
+    public String technology(int node) {
+        return string(technologies[node]);
+    }
+
+    @Override
+    public String version(int node) {
+        return string(versions[node]);
+    }
+
+    @Override
+    public String environment(int node) {
+        return string(environments[node]);
+    }
+
+    @Override
+    public boolean critical(int node) {
+        return criticals[node];
+    }
+
+    @Override
+    public int inDegree(int node) {
+        return inDegrees[node];
+    }
+
+    @Override
+    public int outStart(int node) {
+        return outOffsets[node];
+    }
+
+    @Override
+    public int outEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    @Override
+    public int edgeSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    @Override
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    @Override
+    public String edgeType(int edge) {
+        return string(edgeTypes[edge]);
+    }
+
+    @Override
+    public String edgeDescription(int edge) {
+        return string(edgeDescriptions[edge]);
+    }
+
+    private String string(int index) {
+        return index < 0 ? null : strings[index];
+    }
+}
@@ -0,0 +1,164 @@
+package numres.diginext.poc.graph;
+
+/**
+ * Sous-graphe d'un {@link MapGraph} : vue sur les composants et relations retenus, sans copie des
+ * attributs. Seules les tables de correspondance (nouvel indice → indice d'origine) sont allouées.
+ */
+public final class FilteredMapGraph implements MapGraph {
+
+    private final MapGraph base;
+    private final int[] nodes;
+    private final int[] edges;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final int[] outOffsets;
+    private final int[] inDegrees;
+
+    private FilteredMapGraph(MapGraph base, int[] nodes, int[] edges, int[] edgeSources, int[] edgeTargets,
+                             int[] outOffsets, int[] inDegrees) {
+        this.base = base;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.outOffsets = outOffsets;
+        this.inDegrees = inDegrees;
+    }
+
+    /**
+     * Construit le sous-graphe des composants retenus. Une relation est conservée si elle est retenue
+     * et que ses deux extrémités le sont.
+     *
+     * @param keepNode Composants retenus, indexés comme dans le graphe d'origine
+     * @param keepEdge Relations retenues, ou null pour toutes
+     */
+    public static FilteredMapGraph of(MapGraph base, boolean[] keepNode, boolean[] keepEdge) {
+        int[] renumbered = new int[base.nodeCount()];
+        int nodeCount = 0;
+        for (int node = 0; node < renumbered.length; node++) {
+            renumbered[node] = keepNode[node] ? nodeCount++ : -1;
+        }
+        int[] nodes = new int[nodeCount];
+        for (int node = 0; node < renumbered.length; node++) {
+            if (renumbered[node] >= 0) {
+                nodes[renumbered[node]] = node;
+            }
+        }
+
+        // Les relations d'origine sont rangées par source : l'ordre est conservé en parcourant les composants retenus
+        int edgeCount = 0;
+        for (int node : nodes) {
+            for (int edge = base.outStart(node); edge < base.outEnd(node); edge++) {
+                if ((keepEdge == null || keepEdge[edge]) && renumbered[base.edgeTarget(edge)] >= 0) {
+                    edgeCount++;
+                }
+            }
+        }
+        int[] edges = new int[edgeCount];
+        int[] edgeSources = new int[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] outOffsets = new int[nodeCount + 1];
+        int[] inDegrees = new int[nodeCount];
+        int e = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int node = nodes[i];
+            for (int edge = base.outStart(node); edge < base.outEnd(node); edge++) {
+                int target = renumbered[base.edgeTarget(edge)];
+                if ((keepEdge == null || keepEdge[edge]) && target >= 0) {
+                    edges[e] = edge;
+                    edgeSources[e] = i;
+                    edgeTargets[e] = target;
+                    inDegrees[target]++;
+                    e++;
+                }
+            }
+            outOffsets[i + 1] = e;
+        }
+        return new FilteredMapGraph(base, nodes, edges, edgeSources, edgeTargets, outOffsets, inDegrees);
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    @Override
+    public long componentId(int node) {
+        return base.componentId(nodes[node]);
+    }
+
+    @Override
+    public String name(int node) {
+        return base.name(nodes[node]);
+    }
+
+    @Override
+    public String type(int node) {
+        return base.type(nodes[node]);
+    }
+
+    @Override
+    public String description(int node) {
+        return base.description(nodes[node]);
+    }
+
+    @Override
+    public String technology(int node) {
+        return base.technology(nodes[node]);
+    }
+
+    @Override
+    public String version(int node) {
+        return base.version(nodes[node]);
+    }
+
+    @Override
+    public String environment(int node) {
+        return base.environment(nodes[node]);
+    }
+
+    @Override
+    public boolean critical(int node) {
+        return base.critical(nodes[node]);
+    }
+
+    @Override
+    public int inDegree(int node) {
+        return inDegrees[node];
+    }
+
+    @Override
+    public int outStart(int node) {
+        return outOffsets[node];
+    }
+
+    @Override
+    public int outEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    @Override
+    public int edgeSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    @Override
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    @Override
+    public String edgeType(int edge) {
+        return base.edgeType(edges[edge]);
+    }
+
+    @Override
+    public String edgeDescription(int edge) {
+        return base.edgeDescription(edges[edge]);
+    }
+}
@@ -0,0 +1,240 @@
+package numres.diginext.poc.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Placement dirigé par les forces (Fruchterman-Reingold) d'un {@link MapGraph}.
+ * La répulsion est approchée par un quadtree de Barnes-Hut reconstruit à chaque itération :
+ * un groupe de composants suffisamment éloigné agit comme un seul composant placé en son barycentre.
+ * Une itération coûte ainsi O(n log n + m) au lieu de O(n²).
+ */
+public final class ForceLayout {
+
+    // Distance idéale entre deux composants reliés, en pixels
+    private static final double IDEAL_DISTANCE = 90;
+
+    // Critère d'ouverture de Barnes-Hut : taille de la cellule / distance au barycentre
+    private static final double THETA = 0.9;
+
+    // Attraction vers le centre : équilibre la répulsion globale à une distance de l'ordre de IDEAL_DISTANCE * √n
+    private static final double GRAVITY = 1.0;
+
+    // Profondeur maximale du quadtree (les composants confondus partagent une feuille)
+    private static final int MAX_DEPTH = 24;
+
+    private ForceLayout() {
+    }
+
+    /**
+     * Calcule la position des composants.
+     *
+     * @param graph      Graphe à placer
+     * @param iterations Nombre d'itérations (la température décroît linéairement jusqu'à la dernière)
+     * @return Les coordonnées {x0, y0, x1, y1, ...} des centres des composants
+     */
+    public static double[] layout(MapGraph graph, int iterations) {
+        int n = graph.nodeCount();
+        double[] positions = new double[2 * n];
+        if (n == 0) {
+            return positions;
+        }
+
+        // Position initiale déterministe dans un carré dont l'aire est proportionnelle au nombre de composants
+        double side = IDEAL_DISTANCE * Math.sqrt(n);
+        Random random = new Random(n);
+        for (int i = 0; i < 2 * n; i++) {
+            positions[i] = random.nextDouble() * side;
+        }
+
+        double[] displacement = new double[2 * n];
+        QuadTree tree = new QuadTree(n);
+        double k2 = IDEAL_DISTANCE * IDEAL_DISTANCE;
+        double center = side / 2;
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double temperature = side / 10 * (1 - iteration / (double) iterations) + 1;
+            Arrays.fill(displacement, 0);
+
+            // 1. Répulsion k²/d, approchée par le quadtree
+            tree.build(positions, n);
+            for (int node = 0; node < n; node++) {
+                tree.repulsion(node, positions, k2, displacement);
+            }
+
+            // 2. Attraction le long des relations : force d²/k
+            for (int edge = 0; edge < graph.edgeCount(); edge++) {
+                int source = graph.edgeSource(edge);
+                int target = graph.edgeTarget(edge);
+                if (source == target) {
+                    continue;
+                }
+                double dx = positions[2 * source] - positions[2 * target];
+                double dy = positions[2 * source + 1] - positions[2 * target + 1];
+                double factor = Math.sqrt(dx * dx + dy * dy) / IDEAL_DISTANCE;
+                displacement[2 * source] -= dx * factor;
+                displacement[2 * source + 1] -= dy * factor;
+                displacement[2 * target] += dx * factor;
+                displacement[2 * target + 1] += dy * factor;
+            }
+
+            // 3. Gravité et déplacement borné par la température
+            for (int node = 0; node < n; node++) {
+                double dx = displacement[2 * node] - (positions[2 * node] - center) * GRAVITY;
+                double dy = displacement[2 * node + 1] - (positions[2 * node + 1] - center) * GRAVITY;
+                double length = Math.sqrt(dx * dx + dy * dy);
+                if (length > 0) {
+                    double step = Math.min(length, temperature) / length;
+                    positions[2 * node] += dx * step;
+                    positions[2 * node + 1] += dy * step;
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Quadtree en tableaux primitifs, réutilisé d'une itération à l'autre.
+     * Chaque cellule mémorise le nombre de composants qu'elle contient et la somme de leurs positions.
+     */
+    private static final class QuadTree {
+        private int size;
+        private int[] firstChild;
+        private int[] point;
+        private int[] count;
+        private double[] sumX;
+        private double[] sumY;
+        private double[] originX;
+        private double[] originY;
+        private double[] width;
+        private int[] stack = new int[64];
+
+        QuadTree(int n) {
+            allocate(4 * n + 4);
+        }
+
+        void build(double[] positions, int n) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, positions[2 * i]);
+                maxX = Math.max(maxX, positions[2 * i]);
+                minY = Math.min(minY, positions[2 * i + 1]);
+                maxY = Math.max(maxY, positions[2 * i + 1]);
+            }
+            size = 0;
+            newCell(minX, minY, Math.max(maxX - minX, maxY - minY) + 1);
+            for (int i = 0; i < n; i++) {
+                insert(i, positions[2 * i], positions[2 * i + 1]);
+            }
+        }
+
+        private void insert(int i, double x, double y) {
+            int cell = 0;
+            for (int depth = 0; ; depth++) {
+                count[cell]++;
+                sumX[cell] += x;
+                sumY[cell] += y;
+                if (firstChild[cell] >= 0) {
+                    cell = firstChild[cell] + quadrant(cell, x, y);
+                    continue;
+                }
+                if (count[cell] == 1) {
+                    point[cell] = i;
+                    return;
+                }
+                if (depth == MAX_DEPTH) {
+                    point[cell] = -1;
+                    return;
+                }
+
+                // Subdivision : le composant déjà présent descend dans la sous-cellule qui le contient
+                int existing = point[cell];
+                double half = width[cell] / 2;
+                int first = size;
+                newCell(originX[cell], originY[cell], half);
+                newCell(originX[cell] + half, originY[cell], half);
+                newCell(originX[cell], originY[cell] + half, half);
+                newCell(originX[cell] + half, originY[cell] + half, half);
+                firstChild[cell] = first;
+                point[cell] = -1;
+
+                double existingX = sumX[cell] - x;
+                double existingY = sumY[cell] - y;
+                int child = first + quadrant(cell, existingX, existingY);
+                count[child] = 1;
+                sumX[child] = existingX;
+                sumY[child] = existingY;
+                point[child] = existing;
+
+                cell = first + quadrant(cell, x, y);
+            }
+        }
+
+        void repulsion(int node, double[] positions, double k2, double[] displacement) {
+            double x = positions[2 * node];
+            double y = positions[2 * node + 1];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int cell = stack[--top];
+                int cellCount = count[cell];
+                if (cellCount == 0 || (cellCount == 1 && point[cell] == node)) {
+                    continue;
+                }
+                double dx = x - sumX[cell] / cellCount;
+                double dy = y - sumY[cell] / cellCount;
+                double d2 = dx * dx + dy * dy;
+                boolean leaf = firstChild[cell] < 0;
+                if (leaf || width[cell] * width[cell] < THETA * THETA * d2) {
+                    if (d2 < 0.01) {
+                        // Composants confondus : écartement arbitraire mais déterministe
+                        dx = (node % 7 - 3) * 0.1 + 0.05;
+                        dy = (node % 5 - 2) * 0.1 + 0.05;
+                        d2 = dx * dx + dy * dy;
+                    }
+                    // Force k²/d selon la direction (dx, dy)/d, pondérée par le nombre de composants
+                    displacement[2 * node] += cellCount * dx * k2 / d2;
+                    displacement[2 * node + 1] += cellCount * dy * k2 / d2;
+                } else {
+                    if (top + 4 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    for (int child = firstChild[cell]; child < firstChild[cell] + 4; child++) {
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+
+        private int quadrant(int cell, double x, double y) {
+            double half = width[cell] / 2;
+            return (x >= originX[cell] + half ? 1 : 0) + (y >= originY[cell] + half ? 2 : 0);
+        }
+
+        private void newCell(double x, double y, double cellWidth) {
+            if (size == firstChild.length) {
+                allocate(firstChild.length * 2);
+            }
+            firstChild[size] = -1;
+            point[size] = -1;
+            count[size] = 0;
+            sumX[size] = 0;
+            sumY[size] = 0;
+            originX[size] = x;
+            originY[size] = y;
+            width[size] = cellWidth;
+            size++;
+        }
+
+        private void allocate(int capacity) {
+            firstChild = firstChild == null ? new int[capacity] : Arrays.copyOf(firstChild, capacity);
+            point = point == null ? new int[capacity] : Arrays.copyOf(point, capacity);
+            count = count == null ? new int[capacity] : Arrays.copyOf(count, capacity);
+            sumX = sumX == null ? new double[capacity] : Arrays.copyOf(sumX, capacity);
+            sumY = sumY == null ? new double[capacity] : Arrays.copyOf(sumY, capacity);
+            originX = originX == null ? new double[capacity] : Arrays.copyOf(originX, capacity);
+            originY = originY == null ? new double[capacity] : Arrays.copyOf(originY, capacity);
+            width = width == null ? new double[capacity] : Arrays.copyOf(width, capacity);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package numres.diginext.poc.graph;
+
+import numres.diginext.poc.model.ComponentRelationship;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Construit un {@link ArrayMapGraph} à partir de composants et de relations ajoutés dans un ordre quelconque.
+ * Les relations sont accumulées dans des tableaux primitifs puis rangées par source (tri par dénombrement).
+ */
+public class GraphBuilder {
+
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private int nodeCount;
+    private long[] componentIds = new long[16];
+    private int[] names = new int[16];
+    private int[] types = new int[16];
+    private int[] descriptions = new int[16];
+    private int[] technologies = new int[16];
+    private int[] versions = new int[16];
+    private int[] environments = new int[16];
+    private boolean[] criticals = new boolean[16];
+
+    private int edgeCount;
+    private int[] sources = new int[16];
+    private int[] targets = new int[16];
+    private int[] edgeTypes = new int[16];
+    private int[] edgeDescriptions = new int[16];
+
+    /**
+     * Construit le graphe d'une cartographie.
+     */
+    public static ArrayMapGraph fromSystemMap(SystemMap systemMap) {
+        GraphBuilder builder = new GraphBuilder();
+        Map<SystemComponent, Integer> nodes = new IdentityHashMap<>();
+        for (SystemComponent component : systemMap.getComponents()) {
+            nodes.put(component, builder.addNode(component));
+        }
+        for (ComponentRelationship relationship : systemMap.getRelationships()) {
+            Integer source = nodes.get(relationship.getSource());
+            Integer target = nodes.get(relationship.getTarget());
+            if (source != null && target != null) {
+                builder.addEdge(source, target, relationship.getType(), relationship.getDescription());
+            }
+        }
+        return builder.build();
+    }
+
+    public int addNode(SystemComponent component) {
+        return addNode(component.getId() != null ? component.getId() : -1, component.getName(), component.getType(),
+                component.getDescription(), component.getTechnology(), component.getVersion(),
+                component.getEnvironment(), component.isCritical());
+    }
+
+    public int addNode(long componentId, String name, String type, String description, String technology,
+                       String version, String environment, boolean critical) {
+        if (nodeCount == names.length) {
+            int capacity = nodeCount * 2;
+            componentIds = Arrays.copyOf(componentIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            technologies = Arrays.copyOf(technologies, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            environments = Arrays.copyOf(environments, capacity);
+            criticals = Arrays.copyOf(criticals, capacity);
+        }
+        componentIds[nodeCount] = componentId;
+        names[nodeCount] = intern(name);
+        types[nodeCount] = intern(type);
+        descriptions[nodeCount] = intern(description);
+        technologies[nodeCount] = intern(technology);
+        versions[nodeCount] = intern(version);
+        environments[nodeCount] = intern(environment);
+        criticals[nodeCount] = critical;
+        return nodeCount++;
+    }
+
+    public void addEdge(int source, int target, String type, String description) {
+        if (edgeCount == sources.length) {
+            int capacity = edgeCount * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            edgeTypes = Arrays.copyOf(edgeTypes, capacity);
+            edgeDescriptions = Arrays.copyOf(edgeDescriptions, capacity);
+        }
+        sources[edgeCount] = source;
+        targets[edgeCount] = target;
+        edgeTypes[edgeCount] = intern(type);
+        edgeDescriptions[edgeCount] = intern(description);
+        edgeCount++;
+    }
+
+    public ArrayMapGraph build() {
+        // Adjacence CSR : décalages par source puis placement des relations (tri par dénombrement)
+        int[] outOffsets = new int[nodeCount + 1];
+        int[] inDegrees = new int[nodeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[sources[e] + 1]++;
+            inDegrees[targets[e]]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            outOffsets[n + 1] += outOffsets[n];
+        }
+
+        int[] cursor = Arrays.copyOf(outOffsets, nodeCount);
+        int[] sortedSources = new int[edgeCount];
+        int[] sortedTargets = new int[edgeCount];
+        int[] sortedTypes = new int[edgeCount];
+        int[] sortedDescriptions = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = cursor[sources[e]]++;
+            sortedSources[slot] = sources[e];
+            sortedTargets[slot] = targets[e];
+            sortedTypes[slot] = edgeTypes[e];
+            sortedDescriptions[slot] = edgeDescriptions[e];
+        }
+
+        return new ArrayMapGraph(strings.toArray(new String[0]),
+                Arrays.copyOf(componentIds, nodeCount), Arrays.copyOf(names, nodeCount),
+                Arrays.copyOf(types, nodeCount), Arrays.copyOf(descriptions, nodeCount),
+                Arrays.copyOf(technologies, nodeCount), Arrays.copyOf(versions, nodeCount),
+                Arrays.copyOf(environments, nodeCount), Arrays.copyOf(criticals, nodeCount),
+                inDegrees, outOffsets, sortedSources, sortedTargets, sortedTypes, sortedDescriptions);
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,228 @@
+package numres.diginext.poc.graph;
+
+import numres.diginext.poc.config.StorageLocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stockage hors tas des graphes de cartographie : colonnes primitives et adjacence CSR
+ * écrites dans un fichier par graphe, puis relues par mappage mémoire.
+ * L'ouverture d'un graphe ne fait que mapper le fichier, sans désérialisation.
+ * <p>
+ * L'en-tête de chaque fichier porte la version du format et la révision des données dont il est issu :
+ * un fichier d'un autre format ou d'une autre révision est ignoré, et l'appelant le reconstruit.
+ * Les fichiers sont rangés dans le répertoire propre à la base de données ({@link StorageLocation}).
+ * <p>
+ * Les derniers graphes ouverts restent mappés dans un cache borné (LRU). Un graphe évincé n'est pas
+ * démappé explicitement : il peut encore être parcouru par un appelant (index d'adjacence, diagramme
+ * en cache) ; son mappage est libéré avec le tampon par le ramasse-miettes. Les lectures ponctuelles
+ * en masse ({@code cached = false}) ne passent pas par le cache.
+ */
+@Component
+public class GraphStore {
+
+    private static final String GRAPH_SUFFIX = ".graph";
+
+    private static final int DEFAULT_OPEN_CACHE_SIZE = 64;
+
+    // Graphes ouverts les plus récemment utilisés, par nom de fichier (voir fileName)
+    private final Map<String, MappedMapGraph> openGraphs;
+
+    private final Path graphsDirectory;
+
+    @Autowired
+    public GraphStore(StorageLocation storageLocation,
+                      @Value("${diginext.graph.open-cache-size:64}") int openCacheSize) throws IOException {
+        this(storageLocation.directory("graphs"), openCacheSize);
+    }
+
+    GraphStore(Path graphsDirectory) {
+        this(graphsDirectory, DEFAULT_OPEN_CACHE_SIZE);
+    }
+
+    GraphStore(Path graphsDirectory, int openCacheSize) {
+        this.graphsDirectory = graphsDirectory;
+        this.openGraphs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MappedMapGraph> eldest) {
+                return size() > openCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Écrit un graphe sous le nom donné (remplacement atomique du fichier existant) et retourne sa vue mappée.
+     *
+     * @param revision Révision des données dont le graphe est issu, vérifiée à l'ouverture
+     */
+    public MapGraph write(String graphName, long revision, ArrayMapGraph graph) throws IOException {
+        return write(graphName, revision, graph, true);
+    }
+
+    /**
+     * Écrit un graphe ; sa vue mappée n'est conservée dans le cache que si {@code cached}.
+     */
+    public MapGraph write(String graphName, long revision, ArrayMapGraph graph, boolean cached) throws IOException {
+        byte[][] encodedStrings = new byte[graph.strings.length][];
+        long stringBytes = 0;
+        for (int i = 0; i < encodedStrings.length; i++) {
+            encodedStrings[i] = graph.strings[i].getBytes(StandardCharsets.UTF_8);
+            stringBytes += encodedStrings[i].length;
+        }
+
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        long fileSize = MappedMapGraph.HEADER_SIZE + (long) (encodedStrings.length + 1) * Integer.BYTES
+                + (long) n * 7 * Integer.BYTES + (long) (n + 1) * Integer.BYTES + (long) m * 4 * Integer.BYTES
+                + (long) n * Long.BYTES + n + stringBytes;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Graphe trop volumineux pour un fichier unique: " + fileSize + " octets");
+        }
+
+        String key = fileName(graphName);
+        Path target = graphPath(key);
+        Path temporary = Files.createTempFile(graphsDirectory, "graph-", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary), 1 << 16))) {
+            out.write(MappedMapGraph.header(revision, n, m, encodedStrings.length, (int) stringBytes).array());
+
+            int offset = 0;
+            out.writeInt(0);
+            for (byte[] encoded : encodedStrings) {
+                offset += encoded.length;
+                out.writeInt(offset);
+            }
+            writeInts(out, graph.names);
+            writeInts(out, graph.types);
+            writeInts(out, graph.descriptions);
+            writeInts(out, graph.technologies);
+            writeInts(out, graph.versions);
+            writeInts(out, graph.environments);
+            writeInts(out, graph.inDegrees);
+            writeInts(out, graph.outOffsets);
+            writeInts(out, graph.edgeSources);
+            writeInts(out, graph.edgeTargets);
+            writeInts(out, graph.edgeTypes);
+            writeInts(out, graph.edgeDescriptions);
+            for (long componentId : graph.componentIds) {
+                out.writeLong(componentId);
+            }
+            for (boolean critical : graph.criticals) {
+                out.writeByte(critical ? 1 : 0);
+            }
+            for (byte[] encoded : encodedStrings) {
+                out.write(encoded);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        MappedMapGraph mapped = map(target);
+        if (cached) {
+            openGraphs.put(key, mapped);
+        } else {
+            // Une version antérieure en cache ne doit pas survivre à la réécriture du fichier
+            openGraphs.remove(key);
+        }
+        return mapped;
+    }
+
+    /**
+     * Ouvre un graphe déjà écrit pour la révision donnée.
+     *
+     * @return Le graphe, ou vide s'il n'a pas été écrit, s'il l'a été pour une autre révision
+     * ou dans un format antérieur
+     */
+    public Optional<MapGraph> open(String graphName, long revision) throws IOException {
+        return open(graphName, revision, true);
+    }
+
+    /**
+     * Ouvre un graphe déjà écrit ; s'il n'est pas déjà en cache, il n'y est ajouté que si {@code cached}.
+     */
+    public Optional<MapGraph> open(String graphName, long revision, boolean cached) throws IOException {
+        String key = fileName(graphName);
+        MappedMapGraph graph = openGraphs.get(key);
+        if (graph != null && graph.revision() == revision) {
+            return Optional.of(graph);
+        }
+        Path path = graphPath(key);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        MappedMapGraph mapped;
+        try {
+            mapped = map(path);
+        } catch (IllegalStateException e) {
+            return Optional.empty();
+        }
+        if (mapped.revision() != revision) {
+            return Optional.empty();
+        }
+        if (cached) {
+            openGraphs.put(key, mapped);
+        }
+        return Optional.of(mapped);
+    }
+
+    int cachedGraphCount() {
+        return openGraphs.size();
+    }
+
+    /**
+     * Nom du graphe associé à une cartographie enregistrée.
+     */
+    public static String mapGraphName(Long systemMapId) {
+        return "map-" + systemMapId;
+    }
+
+    private MappedMapGraph map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedMapGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private Path graphPath(String key) {
+        return graphsDirectory.resolve(key + GRAPH_SUFFIX);
+    }
+
+    /**
+     * Nom de fichier injectif du graphe, sûr même sur un système de fichiers insensible à la casse :
+     * minuscules, chiffres et tirets sont conservés, tout autre octet UTF-8 devient "_" suivi de
+     * deux chiffres hexadécimaux ("estate-Acme Corp" donne "estate-_41cme_20_43orp").
+     */
+    static String fileName(String graphName) {
+        StringBuilder name = new StringBuilder(graphName.length() + 8);
+        for (byte b : graphName.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '-') {
+                name.append((char) b);
+            } else {
+                name.append('_').append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        }
+        return name.toString();
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package numres.diginext.poc.graph;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Différence entre deux versions d'une cartographie, calculée en temps linéaire.
+ * <p>
+ * Un composant est identifié par une empreinte canonique de son nom normalisé (casse repliée, sans
+ * espaces) et de son type ; une relation par les empreintes de sa source et de sa cible et par son
+ * type. Les empreintes de la première version sont rangées dans une table à adressage ouvert,
+ * interrogée une fois par élément de la seconde : le coût est O(n + m). Une empreinte égale est
+ * toujours confirmée par comparaison des clés, une collision ne peut donc pas apparier deux éléments
+ * distincts. Empreintes et comparaisons replient la casse de la même façon ({@link #fold}) : deux clés
+ * égales ont toujours la même empreinte. Dans une même version, les doublons d'une clé sont confondus
+ * avec leur première occurrence.
+ */
+public final class MapDiff {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int[] afterOfBefore;
+    private final int[] beforeOfAfter;
+    private final int[] addedComponents;
+    private final int[] removedComponents;
+    private final int[] changedComponents;
+    private final int[] addedRelationships;
+    private final int[] removedRelationships;
+    private final int[] changedRelationships;
+
+    private MapDiff(int[] afterOfBefore, int[] beforeOfAfter,
+                    int[] addedComponents, int[] removedComponents, int[] changedComponents,
+                    int[] addedRelationships, int[] removedRelationships, int[] changedRelationships) {
+        this.afterOfBefore = afterOfBefore;
+        this.beforeOfAfter = beforeOfAfter;
+        this.addedComponents = addedComponents;
+        this.removedComponents = removedComponents;
+        this.changedComponents = changedComponents;
+        this.addedRelationships = addedRelationships;
+        this.removedRelationships = removedRelationships;
+        this.changedRelationships = changedRelationships;
+    }
+
+    /**
+     * Compare deux versions d'une cartographie.
+     *
+     * @param before Version de référence
+     * @param after  Nouvelle version
+     */
+    public static MapDiff compute(MapGraph before, MapGraph after) {
+        int beforeNodes = before.nodeCount();
+        int afterNodes = after.nodeCount();
+
+        // 1. Composants : table des empreintes de la version de référence
+        long[] beforeHashes = componentHashes(before);
+        long[] afterHashes = componentHashes(after);
+        HashTable beforeTable = new HashTable(beforeNodes);
+        int[] beforeCanonical = new int[beforeNodes];
+        for (int node = 0; node < beforeNodes; node++) {
+            int current = node;
+            int first = beforeTable.find(beforeHashes[node], other -> sameComponent(before, other, before, current));
+            if (first < 0) {
+                beforeTable.put(beforeHashes[node], node);
+                first = node;
+            }
+            beforeCanonical[node] = first;
+        }
+
+        // 2. Appariement des composants de la nouvelle version (doublons confondus avec leur première occurrence)
+        int[] afterOfBefore = new int[beforeNodes];
+        Arrays.fill(afterOfBefore, -1);
+        int[] beforeOfAfter = new int[afterNodes];
+        IntList added = new IntList();
+        IntList changed = new IntList();
+        for (int node = 0; node < afterNodes; node++) {
+            int current = node;
+            int match = beforeTable.find(afterHashes[node], other -> sameComponent(before, other, after, current));
+            beforeOfAfter[node] = match;
+            if (match < 0) {
+                added.add(node);
+            } else if (afterOfBefore[match] < 0) {
+                afterOfBefore[match] = node;
+                if (!sameContent(before, match, after, node)) {
+                    changed.add(node);
+                }
+            }
+        }
+        IntList removed = new IntList();
+        for (int node = 0; node < beforeNodes; node++) {
+            int canonical = beforeCanonical[node];
+            afterOfBefore[node] = afterOfBefore[canonical];
+            if (canonical == node && afterOfBefore[node] < 0) {
+                removed.add(node);
+            }
+        }
+
+        // 3. Relations : source et cible canoniques de la version de référence, puis type
+        int beforeEdges = before.edgeCount();
+        int afterEdges = after.edgeCount();
+        HashTable edgeTable = new HashTable(beforeEdges);
+        for (int edge = 0; edge < beforeEdges; edge++) {
+            int current = edge;
+            long hash = relationshipHash(beforeHashes, before, edge);
+            if (edgeTable.find(hash, other -> sameRelationship(before, other, beforeCanonical, before, current, beforeCanonical)) < 0) {
+                edgeTable.put(hash, edge);
+            }
+        }
+
+        boolean[] matchedEdges = new boolean[beforeEdges];
+        IntList addedEdges = new IntList();
+        IntList changedEdges = new IntList();
+        for (int edge = 0; edge < afterEdges; edge++) {
+            int current = edge;
+            int sourceBefore = beforeOfAfter[after.edgeSource(edge)];
+            int targetBefore = beforeOfAfter[after.edgeTarget(edge)];
+            if (sourceBefore < 0 || targetBefore < 0) {
+                addedEdges.add(edge);
+                continue;
+            }
+            long hash = relationshipHash(afterHashes, after, edge);
+            int match = edgeTable.find(hash, other -> beforeCanonical[before.edgeSource(other)] == beforeCanonical[sourceBefore]
+                    && beforeCanonical[before.edgeTarget(other)] == beforeCanonical[targetBefore]
+                    && sameText(before.edgeType(other), after.edgeType(current)));
+            if (match < 0) {
+                addedEdges.add(edge);
+            } else if (!matchedEdges[match]) {
+                matchedEdges[match] = true;
+                if (!Objects.equals(before.edgeDescription(match), after.edgeDescription(edge))) {
+                    changedEdges.add(edge);
+                }
+            }
+        }
+
+        IntList removedEdges = new IntList();
+        for (int edge = 0; edge < beforeEdges; edge++) {
+            int current = edge;
+            long hash = relationshipHash(beforeHashes, before, edge);
+            int canonical = edgeTable.find(hash, other -> sameRelationship(before, other, beforeCanonical, before, current, beforeCanonical));
+            if (canonical == edge && !matchedEdges[edge]) {
+                removedEdges.add(edge);
+            }
+        }
+
+        return new MapDiff(afterOfBefore, beforeOfAfter,
+                added.toArray(), removed.toArray(), changed.toArray(),
+                addedEdges.toArray(), removedEdges.toArray(), changedEdges.toArray());
+    }
+
+    /**
+     * Composant de la nouvelle version apparié au composant donné de la version de référence, ou -1.
+     */
+    public int afterOf(int beforeNode) {
+        return afterOfBefore[beforeNode];
+    }
+
+    /**
+     * Composant de la version de référence apparié au composant donné de la nouvelle version, ou -1.
+     */
+    public int beforeOf(int afterNode) {
+        return beforeOfAfter[afterNode];
+    }
+
+    /**
+     * Composants de la nouvelle version absents de la version de référence.
+     */
+    public int[] addedComponents() {
+        return addedComponents;
+    }
+
+    /**
+     * Composants de la version de référence absents de la nouvelle version.
+     */
+    public int[] removedComponents() {
+        return removedComponents;
+    }
+
+    /**
+     * Composants de la nouvelle version dont la description, la technologie, la version,
+     * l'environnement ou la criticité a changé.
+     */
+    public int[] changedComponents() {
+        return changedComponents;
+    }
+
+    /**
+     * Relations de la nouvelle version absentes de la version de référence.
+     */
+    public int[] addedRelationships() {
+        return addedRelationships;
+    }
+
+    /**
+     * Relations de la version de référence absentes de la nouvelle version.
+     */
+    public int[] removedRelationships() {
+        return removedRelationships;
+    }
+
+    /**
+     * Relations de la nouvelle version dont la description a changé.
+     */
+    public int[] changedRelationships() {
+        return changedRelationships;
+    }
+
+    public boolean isEmpty() {
+        return addedComponents.length == 0 && removedComponents.length == 0 && changedComponents.length == 0
+                && addedRelationships.length == 0 && removedRelationships.length == 0 && changedRelationships.length == 0;
+    }
+
+    private static long[] componentHashes(MapGraph graph) {
+        long[] hashes = new long[graph.nodeCount()];
+        for (int node = 0; node < hashes.length; node++) {
+            long hash = FNV_OFFSET;
+            String name = graph.name(node);
+            if (name != null) {
+                for (int i = 0; i < name.length(); i++) {
+                    char c = name.charAt(i);
+                    if (!Character.isWhitespace(c)) {
+                        hash = (hash ^ fold(c)) * FNV_PRIME;
+                    }
+                }
+            }
+            hash = (hash ^ 0xFFFF) * FNV_PRIME;
+            hashes[node] = textHash(hash, graph.type(node));
+        }
+        return hashes;
+    }
+
+    private static long relationshipHash(long[] componentHashes, MapGraph graph, int edge) {
+        long hash = componentHashes[graph.edgeSource(edge)] * 31 + componentHashes[graph.edgeTarget(edge)];
+        return textHash(hash * FNV_PRIME, graph.edgeType(edge));
+    }
+
+    private static long textHash(long hash, String text) {
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ fold(text.charAt(i))) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static boolean sameComponent(MapGraph a, int nodeA, MapGraph b, int nodeB) {
+        return sameText(a.type(nodeA), b.type(nodeB)) && sameName(a.name(nodeA), b.name(nodeB));
+    }
+
+    private static boolean sameRelationship(MapGraph a, int edgeA, int[] canonicalA,
+                                            MapGraph b, int edgeB, int[] canonicalB) {
+        return canonicalA[a.edgeSource(edgeA)] == canonicalB[b.edgeSource(edgeB)]
+                && canonicalA[a.edgeTarget(edgeA)] == canonicalB[b.edgeTarget(edgeB)]
+                && sameText(a.edgeType(edgeA), b.edgeType(edgeB));
+    }
+
+    private static boolean sameContent(MapGraph a, int nodeA, MapGraph b, int nodeB) {
+        return Objects.equals(a.description(nodeA), b.description(nodeB))
+                && Objects.equals(a.technology(nodeA), b.technology(nodeB))
+                && Objects.equals(a.version(nodeA), b.version(nodeB))
+                && Objects.equals(a.environment(nodeA), b.environment(nodeB))
+                && a.critical(nodeA) == b.critical(nodeB);
+    }
+
+    private static boolean sameText(String a, String b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (fold(a.charAt(i)) != fold(b.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Égalité des noms normalisés, sans construire les chaînes normalisées.
+     */
+    private static boolean sameName(String a, String b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < a.length() && Character.isWhitespace(a.charAt(i))) {
+                i++;
+            }
+            while (j < b.length() && Character.isWhitespace(b.charAt(j))) {
+                j++;
+            }
+            if (i == a.length() || j == b.length()) {
+                return i == a.length() && j == b.length();
+            }
+            if (fold(a.charAt(i++)) != fold(b.charAt(j++))) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Repliement de casse commun aux empreintes et aux comparaisons, équivalent à celui de
+     * {@link String#equalsIgnoreCase} ("ı" et "I" sont confondus, comme "K" et le signe kelvin).
+     */
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Table à adressage ouvert empreinte → indice, en tableaux primitifs.
+     * Plusieurs entrées peuvent partager une empreinte : la recherche confirme chaque candidat.
+     */
+    static final class HashTable {
+        private final long[] hashes;
+        private final int[] values;
+        private final int mask;
+
+        HashTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+            hashes = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+            mask = capacity - 1;
+        }
+
+        void put(long hash, int value) {
+            int slot = slot(hash);
+            while (values[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            values[slot] = value;
+        }
+
+        int find(long hash, IntPredicate same) {
+            for (int slot = slot(hash); values[slot] >= 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && same.test(values[slot])) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        private int slot(long hash) {
+            long mixed = hash ^ (hash >>> 29);
+            return (int) (mixed ^ (mixed >>> 32)) & mask;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package numres.diginext.poc.graph;
+
+/**
+ * Vue en lecture seule d'une cartographie sous forme de graphe compact.
+ * Les composants sont numérotés de 0 à {@link #nodeCount()} - 1 et les relations sont rangées
+ * par composant source (adjacence CSR) : les relations sortantes du composant {@code n}
+ * occupent les indices {@code [outStart(n), outEnd(n))}.
+ */
+public interface MapGraph {
+
+    int nodeCount();
+
+    int edgeCount();
+
+    /**
+     * Identifiant persistant du composant, ou -1 s'il n'en a pas.
+     */
+    long componentId(int node);
+
+    String name(int node);
+
+    String type(int node);
+
+    String description(int node);
+
+    String technology(int node);
+
+    String version(int node);
+
+    String environment(int node);
+
+    boolean critical(int node);
+
+    int inDegree(int node);
+
+    int outStart(int node);
+
+    int outEnd(int node);
+
+    int edgeSource(int edge);
+
+    int edgeTarget(int edge);
+
+    String edgeType(int edge);
+
+    String edgeDescription(int edge);
+
+    default int outDegree(int node) {
+        return outEnd(node) - outStart(node);
+    }
+
+    /**
+     * Nombre total de relations entrantes et sortantes du composant.
+     */
+    default int degree(int node) {
+        return inDegree(node) + outDegree(node);
+    }
+}
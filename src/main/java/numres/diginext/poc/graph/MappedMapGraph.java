@@ -0,0 +1,201 @@
+package numres.diginext.poc.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Graphe lu directement depuis un fichier mémoire-mappé écrit par {@link GraphStore}.
+ * Aucune donnée n'est désérialisée à l'ouverture : les colonnes sont des vues sur le fichier
+ * et seules les chaînes demandées sont décodées.
+ */
+final class MappedMapGraph implements MapGraph {
+
+    static final int MAGIC = 0x44474E31; // "DGN1"
+    // Version du format de fichier : un fichier d'un autre format est reconstruit
+    static final int FORMAT_VERSION = 2;
+    // Magique, format, nombres de composants, de relations et de chaînes, taille des chaînes, révision
+    static final int HEADER_SIZE = 6 * Integer.BYTES + Long.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final long revision;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final IntBuffer stringOffsets;
+    private final IntBuffer names;
+    private final IntBuffer types;
+    private final IntBuffer descriptions;
+    private final IntBuffer technologies;
+    private final IntBuffer versions;
+    private final IntBuffer environments;
+    private final IntBuffer inDegrees;
+    private final IntBuffer outOffsets;
+    private final IntBuffer edgeSources;
+    private final IntBuffer edgeTargets;
+    private final IntBuffer edgeTypes;
+    private final IntBuffer edgeDescriptions;
+    private final LongBuffer componentIds;
+    private final int criticalsOffset;
+    private final int stringBytesOffset;
+
+    MappedMapGraph(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Fichier de graphe invalide ou d'un format antérieur");
+        }
+        this.revision = buffer.getLong(24);
+        this.nodeCount = buffer.getInt(8);
+        this.edgeCount = buffer.getInt(12);
+        int stringCount = buffer.getInt(16);
+
+        int offset = HEADER_SIZE;
+        stringOffsets = ints(offset, stringCount + 1);
+        offset += (stringCount + 1) * Integer.BYTES;
+        names = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        types = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        descriptions = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        technologies = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        versions = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        environments = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        inDegrees = ints(offset, nodeCount);
+        offset += nodeCount * Integer.BYTES;
+        outOffsets = ints(offset, nodeCount + 1);
+        offset += (nodeCount + 1) * Integer.BYTES;
+        edgeSources = ints(offset, edgeCount);
+        offset += edgeCount * Integer.BYTES;
+        edgeTargets = ints(offset, edgeCount);
+        offset += edgeCount * Integer.BYTES;
+        edgeTypes = ints(offset, edgeCount);
+        offset += edgeCount * Integer.BYTES;
+        edgeDescriptions = ints(offset, edgeCount);
+        offset += edgeCount * Integer.BYTES;
+        componentIds = buffer.slice(offset, nodeCount * Long.BYTES).asLongBuffer();
+        offset += nodeCount * Long.BYTES;
+        criticalsOffset = offset;
+        offset += nodeCount;
+        stringBytesOffset = offset;
+    }
+
+    /**
+     * Révision de la cartographie à partir de laquelle le graphe a été écrit.
+     */
+    long revision() {
+        return revision;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public long componentId(int node) {
+        return componentIds.get(node);
+    }
+
+    @Override
+    public String name(int node) {
+        return string(names.get(node));
+    }
+
+    @Override
+    public String type(int node) {
+        return string(types.get(node));
+    }
+
+    @Override
+    public String description(int node) {
+        return string(descriptions.get(node));
+    }
+
+    @Override
+    public String technology(int node) {
+        return string(technologies.get(node));
+    }
+
+    @Override
+    public String version(int node) {
+        return string(versions.get(node));
+    }
+
+    @Override
+    public String environment(int node) {
+        return string(environments.get(node));
+    }
+
+    @Override
+    public boolean critical(int node) {
+        return buffer.get(criticalsOffset + node) != 0;
+    }
+
+    @Override
+    public int inDegree(int node) {
+        return inDegrees.get(node);
+    }
+
+    @Override
+    public int outStart(int node) {
+        return outOffsets.get(node);
+    }
+
+    @Override
+    public int outEnd(int node) {
+        return outOffsets.get(node + 1);
+    }
+
+    @Override
+    public int edgeSource(int edge) {
+        return edgeSources.get(edge);
+    }
+
+    @Override
+    public int edgeTarget(int edge) {
+        return edgeTargets.get(edge);
+    }
+
+    @Override
+    public String edgeType(int edge) {
+        return string(edgeTypes.get(edge));
+    }
+
+    @Override
+    public String edgeDescription(int edge) {
+        return string(edgeDescriptions.get(edge));
+    }
+
+    private IntBuffer ints(int offset, int count) {
+        return buffer.slice(offset, count * Integer.BYTES).asIntBuffer();
+    }
+
+    private String string(int index) {
+        if (index < 0) {
+            return null;
+        }
+        int start = stringOffsets.get(index);
+        int length = stringOffsets.get(index + 1) - start;
+        byte[] bytes = new byte[length];
+        buffer.get(stringBytesOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer header(long revision, int nodeCount, int edgeCount, int stringCount, int stringBytes) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodeCount).putInt(edgeCount).putInt(stringCount)
+                .putInt(stringBytes).putLong(revision);
+        header.flip();
+        return header;
+    }
+}
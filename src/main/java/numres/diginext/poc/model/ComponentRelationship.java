@@ -7,8 +7,9 @@ import numres.diginext.poc.model.SystemComponent;
 @Entity
 @Data
 public class ComponentRelationship {
+    // Identifiants par séquence pour permettre l'insertion par lots (ingestion d'inventaires)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @ManyToOne
@@ -19,4 +20,8 @@ public class ComponentRelationship {
 
     private String type; // DEPENDS_ON, COMMUNICATES_WITH, etc.
     private String description;
+
+    // Confiance dans la relation : 1 si elle est explicite dans le texte, entre 0 et 1 si elle est
+    // inférée par cooccurrence, null si elle est proposée par défaut
+    private Double confidence;
 }
@@ -0,0 +1,31 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Composant du graphe global d'un client : fusion de tous les composants portant
+ * le même nom normalisé dans les cartographies analysées pour ce client.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_estate_component_key", columnList = "customer, normalizedName", unique = true))
+public class EstateComponent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String customer;
+    private String normalizedName;
+
+    private String name;
+    private String type;
+    private String technology;
+    private String version;
+    private String environment;
+    private boolean critical;
+
+    // Nombre de cartographies dans lesquelles le composant a été retrouvé
+    private int occurrences;
+    private Long lastSystemMapId;
+}
@@ -0,0 +1,25 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Relation du graphe global d'un client entre deux {@link EstateComponent}.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_estate_relationship_key",
+        columnList = "customer, sourceId, targetId, type", unique = true))
+public class EstateRelationship {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String customer;
+    private Long sourceId;
+    private Long targetId;
+    private String type;
+
+    // Nombre de cartographies dans lesquelles la relation a été retrouvée
+    private int occurrences;
+}
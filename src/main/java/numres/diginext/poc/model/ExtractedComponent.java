@@ -0,0 +1,52 @@
+package numres.diginext.poc.model;
+
+/**
+ * Composant identifié pendant l'analyse d'un document, avant persistance.
+ * <p>
+ * Immuable et comparé par son numéro dans l'analyse ({@code id}, de 0 à n - 1) : les insertions dans
+ * les ensembles et tables ne parcourent ni les champs ni le graphe d'objets. Les types, de faible
+ * cardinalité, sont internés. Le tableau des mentions est copié à la construction et à la lecture.
+ * La conversion en {@link SystemComponent} n'a lieu qu'à l'enregistrement.
+ *
+ * @param mentions Mentions dans le document source : triplets (documentId, début, fin)
+ */
+public record ExtractedComponent(int id, String name, String type, String description, String version,
+                                 String environment, boolean critical, int[] mentions) {
+
+    public ExtractedComponent {
+        type = type != null ? type.intern() : null;
+        mentions = mentions != null ? mentions.clone() : new int[0];
+    }
+
+    @Override
+    public int[] mentions() {
+        return mentions.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof ExtractedComponent component && component.id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ExtractedComponent[" + id + ", " + type + ", " + name + "]";
+    }
+
+    public SystemComponent toEntity() {
+        SystemComponent component = new SystemComponent();
+        component.setName(name);
+        component.setType(type);
+        component.setDescription(description);
+        component.setVersion(version);
+        component.setEnvironment(environment);
+        component.setCritical(critical);
+        component.setMentions(mentions.clone());
+        return component;
+    }
+}
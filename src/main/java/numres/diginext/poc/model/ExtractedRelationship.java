@@ -0,0 +1,44 @@
+package numres.diginext.poc.model;
+
+/**
+ * Relation identifiée pendant l'analyse d'un document, avant persistance. Deux relations sont
+ * égales si elles relient les mêmes composants par le même type, quelles que soient leur description
+ * et leur confiance : le hachage ne porte que sur les numéros des composants et le type interné.
+ *
+ * @param confidence 1 si la relation est explicite dans le texte, entre 0 et 1 si elle est inférée
+ *                   par cooccurrence, null si elle est proposée par défaut
+ */
+public record ExtractedRelationship(ExtractedComponent source, ExtractedComponent target, String type,
+                                    String description, Double confidence) {
+
+    public ExtractedRelationship {
+        type = type.intern();
+        description = description != null ? description.intern() : null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof ExtractedRelationship relationship
+                && relationship.source.equals(source) && relationship.target.equals(target)
+                && relationship.type.equals(type);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * source.hashCode() + target.hashCode()) * 31 + type.hashCode();
+    }
+
+    /**
+     * Convertit la relation en entité, les composants ayant été convertis au préalable
+     * (tableau indexé par numéro de composant).
+     */
+    public ComponentRelationship toEntity(SystemComponent[] components) {
+        ComponentRelationship relationship = new ComponentRelationship();
+        relationship.setSource(components[source.id()]);
+        relationship.setTarget(components[target.id()]);
+        relationship.setType(type);
+        relationship.setDescription(description);
+        relationship.setConfidence(confidence);
+        return relationship;
+    }
+}
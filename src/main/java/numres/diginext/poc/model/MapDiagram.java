@@ -0,0 +1,94 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.ToString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Source PlantUML d'une cartographie, stockée compressée en deflate brut (l'encodage des URL
+ * PlantUML). Portée par une entité distincte pour n'être chargée qu'à l'affichage du diagramme.
+ */
+@Entity
+@Data
+public class MapDiagram {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Chargé avec l'entité : sans amélioration du bytecode, un @Basic paresseux serait ignoré ; c'est
+    // l'association paresseuse depuis SystemMap qui diffère le chargement
+    @Lob
+    @ToString.Exclude
+    private byte[] compressedSource;
+
+    // Taille de la source décompressée, en octets UTF-8
+    private int sourceLength;
+
+    public static MapDiagram of(String source) {
+        MapDiagram diagram = new MapDiagram();
+        diagram.setSource(source);
+        return diagram;
+    }
+
+    public void setSource(String source) {
+        byte[] bytes = source != null ? source.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        this.compressedSource = deflate(bytes);
+        this.sourceLength = bytes.length;
+    }
+
+    /**
+     * Décompresse la source directement dans le flux fourni (réponse HTTP, moteur de rendu).
+     */
+    public void writeSource(OutputStream out) throws IOException {
+        inflate(compressedSource, out);
+    }
+
+    public String getSource() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sourceLength);
+        try {
+            writeSource(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 8));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static void inflate(byte[] compressed, OutputStream out) throws IOException {
+        if (compressed == null || compressed.length == 0) {
+            return;
+        }
+        Inflater inflater = new Inflater(true);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed), inflater, 8192)) {
+            in.transferTo(out);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Recommandation enregistrée pour une cartographie, avec la version des règles et la révision
+ * de la cartographie qui l'ont produite : elle est périmée dès que l'une des deux change.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "mapId"))
+public class MapRecommendation {
+    // Identifiants par séquence pour permettre l'insertion par lots (réévaluation en masse)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    private Long mapId;
+    private Long mapRevision;
+    private int rulesetVersion;
+
+    // Témoin d'une évaluation sans recommandation : distingue "évaluée, vide" de "jamais évaluée"
+    private boolean noRecommendation;
+
+    private String title;
+    @Column(length = 2000)
+    private String description;
+    private String priority;
+}
@@ -0,0 +1,94 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Stocke les mentions (documentId, début, fin) sous forme compacte : chaque triplet est
+ * encodé en varints, le début étant exprimé en écart par rapport à la mention précédente
+ * du même document et la fin en longueur.
+ */
+@Converter
+public class MentionSpansConverter implements AttributeConverter<int[], byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(int[] mentions) {
+        if (mentions == null || mentions.length == 0) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(mentions.length * 2);
+        int previousDocument = -1;
+        int previousStart = 0;
+        for (int i = 0; i + 2 < mentions.length; i += 3) {
+            int documentId = mentions[i];
+            int start = mentions[i + 1];
+            int end = mentions[i + 2];
+            if (documentId != previousDocument) {
+                previousStart = 0;
+            }
+            writeVarint(out, documentId);
+            writeVarint(out, zigZag(start - previousStart));
+            writeVarint(out, end - start);
+            previousDocument = documentId;
+            previousStart = start;
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public int[] convertToEntityAttribute(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new int[0];
+        }
+        int[] mentions = new int[data.length];
+        int count = 0;
+        int[] position = {0};
+        int previousDocument = -1;
+        int previousStart = 0;
+        while (position[0] < data.length) {
+            int documentId = readVarint(data, position);
+            if (documentId != previousDocument) {
+                previousStart = 0;
+            }
+            int start = previousStart + unZigZag(readVarint(data, position));
+            int end = start + readVarint(data, position);
+            mentions[count++] = documentId;
+            mentions[count++] = start;
+            mentions[count++] = end;
+            previousDocument = documentId;
+            previousStart = start;
+        }
+        return Arrays.copyOf(mentions, count);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
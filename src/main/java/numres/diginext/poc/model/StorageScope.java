@@ -0,0 +1,20 @@
+package numres.diginext.poc.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Identité de la base de données, tirée au hasard lors de sa première utilisation. Les fichiers
+ * dérivés des données (graphes compacts, index) sont rangés sous cette identité : une base recréée,
+ * comme la base H2 en mémoire à chaque démarrage, ne relit pas les fichiers d'une base précédente
+ * dont les identifiants repartiraient de 1.
+ */
+@Entity
+@Data
+public class StorageScope {
+    @Id
+    private Long id;
+
+    private String token;
+}
@@ -2,14 +2,18 @@ package numres.diginext.poc.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Data
 public class SystemComponent {
+    // Identifiants par séquence pour permettre l'insertion par lots (ingestion d'inventaires)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     private String name;
@@ -17,11 +21,31 @@ public class SystemComponent {
     private String description;
     private String technology;
     private String version;
+    private String environment;
+    private boolean critical;
+
+    // Résultat du dernier sondage réseau (null si le composant n'a pas été sondé)
+    private Boolean reachable;
+    private String probeBanner;
+
+    // Mentions du composant dans les documents sources : triplets (documentId, début, fin)
+    // Les extraits de contexte sont reconstruits à la demande à partir de ces positions
+    @Lob
+    @Convert(converter = MentionSpansConverter.class)
+    private int[] mentions = new int[0];
 
     // Correction : mappedBy doit correspondre au nom du champ dans ComponentRelationship
     @OneToMany(mappedBy = "target", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<ComponentRelationship> incomingRelationships = new HashSet<>();
 
     @OneToMany(mappedBy = "source", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<ComponentRelationship> outgoingRelationships = new HashSet<>();
-}
\ No newline at end of file
+
+    public int getMentionCount() {
+        return mentions.length / 3;
+    }
+}
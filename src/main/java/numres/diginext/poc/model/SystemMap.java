@@ -2,6 +2,8 @@ package numres.diginext.poc.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import numres.diginext.poc.model.SystemComponent;
 import numres.diginext.poc.model.ComponentRelationship;
 import java.util.HashSet;
@@ -14,16 +16,41 @@ public class SystemMap {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Révision de la cartographie, incrémentée à chaque modification (invalide les index d'impact)
+    @Version
+    private Long revision;
+
     private String name;
     private String description;
     private String createdBy;
     private String createdDate;
 
+    // Client auquel appartient la cartographie (graphe global du SI), optionnel
+    private String customer;
+
+    // Document source analysé (absent pour une cartographie importée), seul consultable par la recherche
+    private Integer sourceDocumentId;
+
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<SystemComponent> components = new HashSet<>();
 
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<ComponentRelationship> relationships = new HashSet<>();
 
-    private String plantUmlDiagram;
+    // Source PlantUML compressée, chargée uniquement à l'affichage du diagramme
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private MapDiagram diagram;
+
+    /**
+     * Remplace la source PlantUML du diagramme, compressée à l'enregistrement.
+     */
+    public void setPlantUmlDiagram(String source) {
+        if (diagram == null) {
+            diagram = MapDiagram.of(source);
+        } else {
+            diagram.setSource(source);
+        }
+    }
 }
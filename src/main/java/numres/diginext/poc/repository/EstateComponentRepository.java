@@ -0,0 +1,22 @@
+package numres.diginext.poc.repository;
+
+import numres.diginext.poc.model.EstateComponent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EstateComponentRepository extends JpaRepository<EstateComponent, Long> {
+
+    List<EstateComponent> findByCustomerAndNormalizedNameIn(String customer, Collection<String> normalizedNames);
+
+    Page<EstateComponent> findByCustomer(String customer, Pageable pageable);
+
+    List<EstateComponent> findByCustomerAndIdGreaterThanOrderByIdAsc(String customer, Long lastId, Pageable pageable);
+
+    long countByCustomer(String customer);
+}
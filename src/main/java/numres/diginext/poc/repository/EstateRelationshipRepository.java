@@ -0,0 +1,19 @@
+package numres.diginext.poc.repository;
+
+import numres.diginext.poc.model.EstateRelationship;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EstateRelationshipRepository extends JpaRepository<EstateRelationship, Long> {
+
+    List<EstateRelationship> findByCustomerAndSourceIdIn(String customer, Collection<Long> sourceIds);
+
+    List<EstateRelationship> findByCustomerAndIdGreaterThanOrderByIdAsc(String customer, Long lastId, Pageable pageable);
+
+    long countByCustomer(String customer);
+}
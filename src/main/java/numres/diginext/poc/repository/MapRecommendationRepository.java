@@ -0,0 +1,22 @@
+package numres.diginext.poc.repository;
+
+import numres.diginext.poc.model.MapRecommendation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MapRecommendationRepository extends JpaRepository<MapRecommendation, Long> {
+
+    List<MapRecommendation> findByMapIdOrderById(Long mapId);
+
+    // Suppression en une requête, sans charger les entités
+    @Modifying
+    @Query("delete from MapRecommendation r where r.mapId in :mapIds")
+    int deleteByMapIds(@Param("mapIds") Collection<Long> mapIds);
+}
@@ -0,0 +1,9 @@
+package numres.diginext.poc.repository;
+
+import numres.diginext.poc.model.StorageScope;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StorageScopeRepository extends JpaRepository<StorageScope, Long> {
+}
@@ -0,0 +1,29 @@
+package numres.diginext.poc.repository;
+
+import numres.diginext.poc.model.SystemComponent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SystemComponentRepository extends JpaRepository<SystemComponent, Long> {
+
+    /**
+     * Page de composants d'une cartographie, filtrée par type et par nom.
+     */
+    @Query(value = "select c from SystemComponent c " +
+            "where c in (select mc from SystemMap m join m.components mc where m.id = :mapId) " +
+            "and (:type is null or c.type = :type) " +
+            "and (:search is null or lower(c.name) like lower(concat('%', :search, '%')))",
+            countQuery = "select count(c) from SystemComponent c " +
+                    "where c in (select mc from SystemMap m join m.components mc where m.id = :mapId) " +
+                    "and (:type is null or c.type = :type) " +
+                    "and (:search is null or lower(c.name) like lower(concat('%', :search, '%')))")
+    Page<SystemComponent> findPageByMapId(@Param("mapId") Long mapId,
+                                          @Param("type") String type,
+                                          @Param("search") String search,
+                                          Pageable pageable);
+}
@@ -0,0 +1,88 @@
+package numres.diginext.poc.repository;
+
+import jakarta.persistence.LockModeType;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SystemMapRepository extends JpaRepository<SystemMap, Long> {
+
+    @Query("select size(m.components) from SystemMap m where m.id = :mapId")
+    int countComponents(@Param("mapId") Long mapId);
+
+    @Query("select size(m.relationships) from SystemMap m where m.id = :mapId")
+    int countRelationships(@Param("mapId") Long mapId);
+
+    // Documents sources des cartographies d'un client, périmètre de la recherche plein texte
+    @Query("select m.sourceDocumentId from SystemMap m " +
+            "where m.customer = :customer and m.sourceDocumentId is not null order by m.sourceDocumentId")
+    List<Integer> findSourceDocumentIds(@Param("customer") String customer);
+
+    @Query("select m from SystemMap m join m.components c where c.id = :componentId")
+    Optional<SystemMap> findByComponentId(@Param("componentId") Long componentId);
+
+    // Composants d'une cartographie dont le nom en minuscules et sans espaces figure parmi les clés données
+    @Query("select c from SystemMap m join m.components c " +
+            "where m.id = :mapId and lower(replace(c.name, ' ', '')) in (:keys) order by c.id")
+    List<SystemComponent> findComponentsByNameKeys(@Param("mapId") Long mapId, @Param("keys") Collection<String> keys);
+
+    // Triplets (source, cible, type) des relations d'une cartographie partant des composants donnés
+    @Query("select r.source.id, r.target.id, r.type from SystemMap m join m.relationships r " +
+            "where m.id = :mapId and r.source.id in (:sourceIds)")
+    List<Object[]> findRelationshipKeys(@Param("mapId") Long mapId, @Param("sourceIds") Collection<Long> sourceIds);
+
+    // Rattachement à une cartographie de composants et de relations déjà enregistrés, sans charger ses collections
+    @Modifying
+    @Query(value = "insert into system_map_components (system_map_id, components_id) " +
+            "select :mapId, c.id from system_component c where c.id in (:componentIds)", nativeQuery = true)
+    void attachComponents(@Param("mapId") Long mapId, @Param("componentIds") Collection<Long> componentIds);
+
+    @Modifying
+    @Query(value = "insert into system_map_relationships (system_map_id, relationships_id) " +
+            "select :mapId, r.id from component_relationship r where r.id in (:relationshipIds)", nativeQuery = true)
+    void attachRelationships(@Param("mapId") Long mapId, @Param("relationshipIds") Collection<Long> relationshipIds);
+
+    // Révision courante d'une cartographie, sans la charger
+    @Query("select m.revision from SystemMap m where m.id = :mapId")
+    Optional<Long> findRevision(@Param("mapId") Long mapId);
+
+    // Colonnes des composants d'une cartographie d'identifiant supérieur, par ordre d'identifiant
+    // (id, nom, type, description, technologie, version, environnement, criticité)
+    @Query("select c.id, c.name, c.type, c.description, c.technology, c.version, c.environment, c.critical " +
+            "from SystemMap m join m.components c where m.id = :mapId and c.id > :afterId order by c.id")
+    List<Object[]> findComponentRowsAfter(@Param("mapId") Long mapId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Colonnes des relations d'une cartographie d'identifiant supérieur, par ordre d'identifiant
+    // (id, source, cible, type, description, confiance)
+    @Query("select r.id, r.source.id, r.target.id, r.type, r.description, r.confidence " +
+            "from SystemMap m join m.relationships r where m.id = :mapId and r.id > :afterId order by r.id")
+    List<Object[]> findRelationshipRowsAfter(@Param("mapId") Long mapId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Paires (id, révision) des cartographies d'identifiant supérieur, par ordre d'identifiant (pagination par clé)
+    @Query("select m.id, m.revision from SystemMap m where m.id > :afterId order by m.id")
+    List<Object[]> findRevisionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Paires (id, révision) des cartographies données, par ordre d'identifiant
+    @Query("select m.id, m.revision from SystemMap m where m.id in (:mapIds) order by m.id")
+    List<Object[]> findRevisions(@Param("mapIds") Collection<Long> mapIds);
+
+    // Source PlantUML compressée du diagramme, sans charger la cartographie
+    @Query("select d.compressedSource from SystemMap m join m.diagram d where m.id = :mapId")
+    Optional<byte[]> findCompressedDiagram(@Param("mapId") Long mapId);
+
+    // Charge la cartographie en forçant l'incrément de sa révision à la fin de la transaction
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select m from SystemMap m where m.id = :mapId")
+    Optional<SystemMap> findForRevision(@Param("mapId") Long mapId);
+}
@@ -0,0 +1,225 @@
+package numres.diginext.poc.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Segment immuable de l'index plein texte, lu par mappage mémoire sans désérialisation.
+ * <p>
+ * Disposition du fichier : en-tête, table des termes (nombre de documents, début et longueur des
+ * postings), décalages des termes, termes en UTF-8 triés par octets, identifiants des documents,
+ * puis postings compressés en entiers variables (voir {@link SegmentWriter}).
+ * Les lectures sont absolues : un segment peut être interrogé par plusieurs threads à la fois.
+ */
+final class IndexSegment {
+
+    static final int MAGIC = 0x44584958; // "DXIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8 * Integer.BYTES;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int level;
+    private final int termCount;
+    private final int documentCount;
+    private final int termOffsetsStart;
+    private final int termBytesStart;
+    private final int documentsStart;
+
+    private IndexSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Segment d'index invalide: " + path);
+        }
+        this.level = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.documentCount = buffer.getInt(16);
+        this.termOffsetsStart = HEADER_SIZE + termCount * 3 * Integer.BYTES;
+        this.termBytesStart = termOffsetsStart + (termCount + 1) * Integer.BYTES;
+        this.documentsStart = termBytesStart + buffer.getInt(termOffsetsStart + termCount * Integer.BYTES);
+    }
+
+    static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new IndexSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int level() {
+        return level;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    int document(int index) {
+        return buffer.getInt(documentsStart + index * Integer.BYTES);
+    }
+
+    /**
+     * Recherche dichotomique d'un terme.
+     *
+     * @return L'indice du terme, ou -1 s'il est absent du segment
+     */
+    int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareTerm(middle, term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    byte[] term(int index) {
+        int start = termBytesStart + buffer.getInt(termOffsetsStart + index * Integer.BYTES);
+        int end = termBytesStart + buffer.getInt(termOffsetsStart + (index + 1) * Integer.BYTES);
+        byte[] term = new byte[end - start];
+        buffer.get(start, term);
+        return term;
+    }
+
+    int docFreq(int index) {
+        return buffer.getInt(HEADER_SIZE + index * 3 * Integer.BYTES);
+    }
+
+    PostingsCursor postings(int index) {
+        int entry = HEADER_SIZE + index * 3 * Integer.BYTES;
+        int start = buffer.getInt(entry + Integer.BYTES);
+        return new PostingsCursor(buffer, start, start + buffer.getInt(entry + 2 * Integer.BYTES));
+    }
+
+    private int compareTerm(int index, byte[] term) {
+        int start = termBytesStart + buffer.getInt(termOffsetsStart + index * Integer.BYTES);
+        int end = termBytesStart + buffer.getInt(termOffsetsStart + (index + 1) * Integer.BYTES);
+        int length = Math.min(end - start, term.length);
+        for (int i = 0; i < length; i++) {
+            int comparison = Integer.compare(buffer.get(start + i) & 0xFF, term[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(end - start, term.length);
+    }
+
+    static byte[] encode(String term) {
+        return term.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parcours des postings d'un terme : documents par identifiant croissant, puis occurrences
+     * (position, début, fin) du document courant. Les occurrences non lues sont sautées au document suivant.
+     */
+    static final class PostingsCursor {
+        private final MappedByteBuffer buffer;
+        private final int end;
+        private int offset;
+
+        private boolean started;
+        private int document;
+        private int freq;
+        private int remaining;
+        private int position;
+        private int start;
+        private int length;
+
+        PostingsCursor(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.offset = start;
+            this.end = end;
+        }
+
+        /**
+         * Passe au document suivant.
+         *
+         * @return L'identifiant du document, ou -1 à la fin des postings
+         */
+        int nextDocument() {
+            started = true;
+            while (remaining > 0) {
+                nextPosition();
+            }
+            if (offset >= end) {
+                document = -1;
+                return -1;
+            }
+            document += readVarint();
+            freq = readVarint();
+            remaining = freq;
+            position = 0;
+            start = 0;
+            return document;
+        }
+
+        /**
+         * Avance jusqu'au premier document d'identifiant supérieur ou égal à {@code target}.
+         */
+        int advance(int target) {
+            int current = started ? document : nextDocument();
+            while (current != -1 && current < target) {
+                current = nextDocument();
+            }
+            return current;
+        }
+
+        int document() {
+            return document;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        void nextPosition() {
+            position += readVarint();
+            start += readVarint();
+            length = readVarint();
+            remaining--;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int start() {
+            return start;
+        }
+
+        int end() {
+            return start + length;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(offset++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
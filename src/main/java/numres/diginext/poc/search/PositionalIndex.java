@@ -0,0 +1,464 @@
+package numres.diginext.poc.search;
+
+import jakarta.annotation.PostConstruct;
+import numres.diginext.poc.config.StorageLocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Index inversé positionnel des documents analysés, hors tas.
+ * <p>
+ * Chaque document indexé produit un petit segment immuable ; dès que {@code merge-factor} segments
+ * d'un même niveau existent, ils sont fusionnés en un segment du niveau supérieur (fusion en flux,
+ * terme par terme). Le nombre de segments reste ainsi logarithmique en nombre de documents. La liste
+ * des segments est remplacée en bloc : les recherches en cours continuent sur l'ancienne.
+ * <p>
+ * Les fichiers sont rangés dans le répertoire propre à la base de données ({@link StorageLocation}) :
+ * l'index ne survit pas aux données et n'est jamais partagé avec une autre instance.
+ * <p>
+ * Une requête est une suite de termes, tous requis, ou une expression dont les termes doivent être
+ * consécutifs. Chaque document retenu est renvoyé avec les bornes en caractères des correspondances.
+ */
+@Component
+public class PositionalIndex {
+
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String MANIFEST = "segments";
+
+    private final Path indexDirectory;
+    private final int mergeFactor;
+    private long nextSegment;
+    private volatile List<IndexSegment> segments = List.of();
+
+    @Autowired
+    public PositionalIndex(StorageLocation storageLocation,
+                           @Value("${diginext.search.merge-factor:10}") int mergeFactor) throws IOException {
+        this(storageLocation.directory("index"), mergeFactor);
+    }
+
+    PositionalIndex(Path indexDirectory, int mergeFactor) {
+        this.indexDirectory = indexDirectory;
+        this.mergeFactor = mergeFactor;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(indexDirectory);
+        Path manifest = indexDirectory.resolve(MANIFEST);
+        List<IndexSegment> opened = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        if (Files.exists(manifest)) {
+            for (String name : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!name.isBlank()) {
+                    opened.add(IndexSegment.open(indexDirectory.resolve(name)));
+                    names.add(name);
+                    nextSegment = Math.max(nextSegment, parseSegmentNumber(name) + 1);
+                }
+            }
+        }
+        // Segments non référencés : écriture ou fusion interrompue
+        try (Stream<Path> files = Files.list(indexDirectory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!name.equals(MANIFEST) && !names.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        segments = List.copyOf(opened);
+    }
+
+    /**
+     * Indexe le texte d'un document ; il est consultable dès le retour de la méthode.
+     */
+    public void add(int documentId, CharSequence text) throws IOException {
+        add(documentId, TextSegmentation.of(text));
+    }
+
+    /**
+     * Indexe un document à partir de son découpage en mots, déjà calculé pour l'analyse.
+     */
+    public synchronized void add(int documentId, TextSegmentation document) throws IOException {
+        // Occurrences du document regroupées par terme : triplets (position, début, fin)
+        Map<String, int[]> occurrences = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        int position = 0;
+        for (int token = 0; token < document.tokenCount(); token++) {
+            String key = document.term(token);
+            if (key == null) {
+                continue;
+            }
+            int count = counts.merge(key, 1, Integer::sum);
+            int[] spans = occurrences.get(key);
+            if (spans == null || spans.length < count * 3) {
+                spans = Arrays.copyOf(spans != null ? spans : new int[0], Math.max(6, count * 6));
+                occurrences.put(key, spans);
+            }
+            spans[count * 3 - 3] = position++;
+            spans[count * 3 - 2] = document.tokenStart(token);
+            spans[count * 3 - 1] = document.tokenEnd(token);
+        }
+
+        byte[][] terms = new byte[occurrences.size()][];
+        String[] keys = occurrences.keySet().toArray(new String[0]);
+        for (int i = 0; i < keys.length; i++) {
+            terms[i] = IndexSegment.encode(keys[i]);
+        }
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(terms[a], terms[b]));
+
+        Path path = newSegmentPath();
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+            for (int i : order) {
+                int count = counts.get(keys[i]);
+                int[] spans = occurrences.get(keys[i]);
+                writer.startTerm(terms[i]);
+                writer.startDocument(documentId, count);
+                for (int j = 0; j < count * 3; j += 3) {
+                    writer.addPosition(spans[j], spans[j + 1], spans[j + 2]);
+                }
+            }
+            writer.addDocument(documentId);
+            writer.finish(0);
+        }
+
+        List<IndexSegment> updated = new ArrayList<>(segments);
+        updated.add(IndexSegment.open(path));
+        publish(updated);
+        mergeFullLevels();
+    }
+
+    /**
+     * Documents contenant tous les termes (ou l'expression, si {@code phrase}), du plus grand nombre
+     * de correspondances au plus petit.
+     *
+     * @param terms     Termes normalisés par {@link TextTokenizer#terms}
+     * @param documents Identifiants triés des documents consultables, ou null pour tous
+     */
+    public List<DocumentMatches> search(List<String> terms, boolean phrase, int[] documents, int limit) {
+        if (terms.isEmpty() || documents != null && documents.length == 0) {
+            return List.of();
+        }
+        byte[][] encoded = new byte[terms.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = IndexSegment.encode(terms.get(i));
+        }
+
+        List<DocumentMatches> results = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            IndexSegment.PostingsCursor[] cursors = new IndexSegment.PostingsCursor[encoded.length];
+            boolean complete = true;
+            for (int i = 0; i < encoded.length && complete; i++) {
+                int term = segment.findTerm(encoded[i]);
+                complete = term >= 0;
+                if (complete) {
+                    cursors[i] = segment.postings(term);
+                }
+            }
+            if (complete) {
+                collectMatches(cursors, phrase, documents, results);
+            }
+        }
+        results.sort(Comparator.comparingInt(DocumentMatches::count).reversed()
+                .thenComparing(Comparator.comparingInt(DocumentMatches::documentId).reversed()));
+        return results.size() > limit ? List.copyOf(results.subList(0, limit)) : results;
+    }
+
+    public int documentCount() {
+        int count = 0;
+        for (IndexSegment segment : segments) {
+            count += segment.documentCount();
+        }
+        return count;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Intersection des postings (avance alternée des curseurs), puis vérification des positions.
+     * Les documents hors périmètre sont sautés avant toute lecture de leurs occurrences.
+     */
+    private void collectMatches(IndexSegment.PostingsCursor[] cursors, boolean phrase, int[] documents,
+                                List<DocumentMatches> results) {
+        int candidate = cursors[0].advance(0);
+        while (candidate != -1) {
+            if (documents != null) {
+                int allowed = nextAllowed(documents, candidate);
+                if (allowed == -1) {
+                    return;
+                }
+                if (allowed != candidate) {
+                    candidate = cursors[0].advance(allowed);
+                    continue;
+                }
+            }
+            boolean aligned = true;
+            for (int i = 0; i < cursors.length; i++) {
+                int document = cursors[i].advance(candidate);
+                if (document == -1) {
+                    return;
+                }
+                if (document != candidate) {
+                    candidate = document;
+                    aligned = false;
+                    break;
+                }
+            }
+            if (!aligned) {
+                continue;
+            }
+
+            int[][] occurrences = new int[cursors.length][];
+            for (int i = 0; i < cursors.length; i++) {
+                occurrences[i] = readOccurrences(cursors[i]);
+            }
+            int[] spans = phrase ? phraseSpans(occurrences) : termSpans(occurrences);
+            if (spans.length > 0) {
+                results.add(new DocumentMatches(candidate, spans));
+            }
+            candidate = cursors[0].nextDocument();
+        }
+    }
+
+    /**
+     * Premier document du périmètre d'identifiant supérieur ou égal à {@code document}, ou -1.
+     */
+    private static int nextAllowed(int[] documents, int document) {
+        int index = Arrays.binarySearch(documents, document);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < documents.length ? documents[index] : -1;
+    }
+
+    private static int[] readOccurrences(IndexSegment.PostingsCursor cursor) {
+        int[] occurrences = new int[cursor.freq() * 3];
+        for (int j = 0; j < occurrences.length; j += 3) {
+            cursor.nextPosition();
+            occurrences[j] = cursor.position();
+            occurrences[j + 1] = cursor.start();
+            occurrences[j + 2] = cursor.end();
+        }
+        return occurrences;
+    }
+
+    /**
+     * Bornes des occurrences de l'expression : le premier terme à la position p, le suivant à p + 1, etc.
+     */
+    private static int[] phraseSpans(int[][] occurrences) {
+        int[] spans = new int[0];
+        int count = 0;
+        int[] next = new int[occurrences.length];
+        for (int j = 0; j < occurrences[0].length; j += 3) {
+            int position = occurrences[0][j];
+            int end = occurrences[0][j + 2];
+            boolean matched = true;
+            for (int i = 1; i < occurrences.length && matched; i++) {
+                // Les positions sont croissantes : chaque terme reprend là où il s'était arrêté
+                int[] terms = occurrences[i];
+                while (next[i] < terms.length && terms[next[i]] < position + i) {
+                    next[i] += 3;
+                }
+                matched = next[i] < terms.length && terms[next[i]] == position + i;
+                if (matched) {
+                    end = terms[next[i] + 2];
+                }
+            }
+            if (matched) {
+                if (count * 2 == spans.length) {
+                    spans = Arrays.copyOf(spans, Math.max(8, spans.length * 2));
+                }
+                spans[count * 2] = occurrences[0][j + 1];
+                spans[count * 2 + 1] = end;
+                count++;
+            }
+        }
+        return Arrays.copyOf(spans, count * 2);
+    }
+
+    /**
+     * Bornes de toutes les occurrences des termes, par ordre de début.
+     */
+    private static int[] termSpans(int[][] occurrences) {
+        int total = 0;
+        for (int[] terms : occurrences) {
+            total += terms.length / 3;
+        }
+        long[] sorted = new long[total];
+        int k = 0;
+        for (int[] terms : occurrences) {
+            for (int j = 0; j < terms.length; j += 3) {
+                sorted[k++] = ((long) terms[j + 1] << 32) | terms[j + 2];
+            }
+        }
+        Arrays.sort(sorted);
+        int[] spans = new int[total * 2];
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            int start = (int) (sorted[i] >>> 32);
+            // Un terme répété dans la requête ne compte qu'une fois par occurrence
+            if (count > 0 && spans[count * 2 - 2] == start) {
+                continue;
+            }
+            spans[count * 2] = start;
+            spans[count * 2 + 1] = (int) sorted[i];
+            count++;
+        }
+        return Arrays.copyOf(spans, count * 2);
+    }
+
+    /**
+     * Fusionne les segments des niveaux pleins, du plus bas au plus haut.
+     */
+    private void mergeFullLevels() throws IOException {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            Map<Integer, List<IndexSegment>> levels = new TreeMap<>();
+            for (IndexSegment segment : segments) {
+                levels.computeIfAbsent(segment.level(), level -> new ArrayList<>()).add(segment);
+            }
+            for (Map.Entry<Integer, List<IndexSegment>> level : levels.entrySet()) {
+                if (level.getValue().size() >= Math.max(2, mergeFactor)) {
+                    merge(level.getValue(), level.getKey() + 1);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void merge(List<IndexSegment> sources, int level) throws IOException {
+        Path path = newSegmentPath();
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+            // Fusion des dictionnaires triés : file de priorité sur le terme courant de chaque segment
+            int[] nextTerm = new int[sources.size()];
+            byte[][] currentTerm = new byte[sources.size()][];
+            PriorityQueue<Integer> queue = new PriorityQueue<>(
+                    (a, b) -> Arrays.compareUnsigned(currentTerm[a], currentTerm[b]));
+            for (int s = 0; s < sources.size(); s++) {
+                if (sources.get(s).termCount() > 0) {
+                    currentTerm[s] = sources.get(s).term(0);
+                    queue.add(s);
+                }
+            }
+
+            List<IndexSegment.PostingsCursor> cursors = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                byte[] term = currentTerm[queue.peek()];
+                cursors.clear();
+                while (!queue.isEmpty() && Arrays.equals(currentTerm[queue.peek()], term)) {
+                    int s = queue.poll();
+                    cursors.add(sources.get(s).postings(nextTerm[s]));
+                    if (++nextTerm[s] < sources.get(s).termCount()) {
+                        currentTerm[s] = sources.get(s).term(nextTerm[s]);
+                        queue.add(s);
+                    }
+                }
+                writer.startTerm(term);
+                mergePostings(cursors, writer);
+            }
+
+            int[] documents = new int[sources.stream().mapToInt(IndexSegment::documentCount).sum()];
+            int k = 0;
+            for (IndexSegment source : sources) {
+                for (int i = 0; i < source.documentCount(); i++) {
+                    documents[k++] = source.document(i);
+                }
+            }
+            Arrays.sort(documents);
+            for (int document : documents) {
+                writer.addDocument(document);
+            }
+            writer.finish(level);
+        }
+
+        List<IndexSegment> updated = new ArrayList<>(segments);
+        updated.removeAll(sources);
+        updated.add(IndexSegment.open(path));
+        publish(updated);
+        for (IndexSegment source : sources) {
+            Files.deleteIfExists(source.path());
+        }
+    }
+
+    /**
+     * Recopie les postings d'un terme présents dans plusieurs segments, par document croissant
+     * (les segments fusionnés ne partagent aucun document).
+     */
+    private static void mergePostings(List<IndexSegment.PostingsCursor> cursors, SegmentWriter writer) throws IOException {
+        int[] documents = new int[cursors.size()];
+        for (int c = 0; c < cursors.size(); c++) {
+            documents[c] = cursors.get(c).nextDocument();
+        }
+        while (true) {
+            int smallest = -1;
+            for (int c = 0; c < documents.length; c++) {
+                if (documents[c] != -1 && (smallest == -1 || documents[c] < documents[smallest])) {
+                    smallest = c;
+                }
+            }
+            if (smallest == -1) {
+                return;
+            }
+            IndexSegment.PostingsCursor cursor = cursors.get(smallest);
+            int freq = cursor.freq();
+            writer.startDocument(documents[smallest], freq);
+            for (int j = 0; j < freq; j++) {
+                cursor.nextPosition();
+                writer.addPosition(cursor.position(), cursor.start(), cursor.end());
+            }
+            documents[smallest] = cursor.nextDocument();
+        }
+    }
+
+    /**
+     * Publie une nouvelle liste de segments : manifeste remplacé atomiquement, puis liste en mémoire.
+     */
+    private void publish(List<IndexSegment> updated) throws IOException {
+        Path manifest = indexDirectory.resolve(MANIFEST);
+        Path temporary = indexDirectory.resolve(MANIFEST + ".tmp");
+        List<String> names = updated.stream().map(segment -> segment.path().getFileName().toString()).toList();
+        Files.write(temporary, names, StandardCharsets.UTF_8);
+        Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segments = List.copyOf(updated);
+    }
+
+    private Path newSegmentPath() {
+        return indexDirectory.resolve("segment-" + (nextSegment++) + SEGMENT_SUFFIX);
+    }
+
+    private static long parseSegmentNumber(String name) {
+        try {
+            return Long.parseLong(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Document retenu par une recherche.
+     *
+     * @param spans Bornes (début, fin) en caractères des correspondances, par ordre de début
+     */
+    public record DocumentMatches(int documentId, int[] spans) {
+
+        public int count() {
+            return spans.length / 2;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package numres.diginext.poc.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Écriture d'un segment d'index. Les termes doivent être fournis dans l'ordre de leurs octets UTF-8
+ * et, pour chaque terme, les documents par identifiant croissant puis les positions dans l'ordre.
+ * Les postings sont écrits au fil de l'eau dans un fichier temporaire : seule la table des termes
+ * reste en mémoire, ce qui permet de fusionner des segments plus gros que le tas.
+ * <p>
+ * Format d'un document dans les postings d'un terme (entiers variables) : écart avec le document
+ * précédent, nombre d'occurrences, puis pour chaque occurrence l'écart de position, l'écart de
+ * début en caractères et la longueur.
+ */
+final class SegmentWriter implements AutoCloseable {
+
+    private final Path target;
+    private final Path postingsFile;
+    private final OutputStream postings;
+    private final byte[] varint = new byte[5];
+
+    private byte[][] terms = new byte[1024][];
+    private int[] docFreqs = new int[1024];
+    private int[] postingsOffsets = new int[1024];
+    private int termCount;
+    private long postingsSize;
+
+    private int[] documents = new int[256];
+    private int documentCount;
+
+    private int lastDoc;
+    private int lastPosition;
+    private int lastStart;
+    private int pendingPositions;
+
+    SegmentWriter(Path target) throws IOException {
+        this.target = target;
+        this.postingsFile = target.resolveSibling(target.getFileName() + ".postings");
+        this.postings = new BufferedOutputStream(Files.newOutputStream(postingsFile), 64 * 1024);
+    }
+
+    void startTerm(byte[] term) {
+        if (termCount > 0 && Arrays.compareUnsigned(terms[termCount - 1], term) >= 0) {
+            throw new IllegalArgumentException("Termes non ordonnés");
+        }
+        if (termCount == terms.length) {
+            terms = Arrays.copyOf(terms, termCount * 2);
+            docFreqs = Arrays.copyOf(docFreqs, termCount * 2);
+            postingsOffsets = Arrays.copyOf(postingsOffsets, termCount * 2);
+        }
+        terms[termCount] = term;
+        postingsOffsets[termCount] = (int) postingsSize;
+        termCount++;
+        lastDoc = 0;
+    }
+
+    void startDocument(int documentId, int freq) throws IOException {
+        if (pendingPositions != 0) {
+            throw new IllegalStateException("Occurrences manquantes pour le document précédent");
+        }
+        writeVarint(documentId - lastDoc);
+        writeVarint(freq);
+        docFreqs[termCount - 1]++;
+        lastDoc = documentId;
+        lastPosition = 0;
+        lastStart = 0;
+        pendingPositions = freq;
+    }
+
+    void addPosition(int position, int start, int end) throws IOException {
+        writeVarint(position - lastPosition);
+        writeVarint(start - lastStart);
+        writeVarint(end - start);
+        lastPosition = position;
+        lastStart = start;
+        pendingPositions--;
+    }
+
+    /**
+     * Déclare un document du segment ; les documents sont déclarés par identifiant croissant.
+     */
+    void addDocument(int documentId) {
+        if (documentCount == documents.length) {
+            documents = Arrays.copyOf(documents, documentCount * 2);
+        }
+        documents[documentCount++] = documentId;
+    }
+
+    /**
+     * Écrit le segment complet (en-tête, table des termes, termes, documents, postings) et le renomme
+     * atomiquement sous son nom définitif.
+     */
+    void finish(int level) throws IOException {
+        postings.close();
+
+        long termBytes = 0;
+        for (int i = 0; i < termCount; i++) {
+            termBytes += terms[i].length;
+        }
+        long postingsBase = IndexSegment.HEADER_SIZE + (long) termCount * 3 * Integer.BYTES
+                + (long) (termCount + 1) * Integer.BYTES + termBytes + (long) documentCount * Integer.BYTES;
+        if (postingsBase + postingsSize > Integer.MAX_VALUE) {
+            throw new IOException("Segment d'index trop volumineux: " + (postingsBase + postingsSize) + " octets");
+        }
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+            out.writeInt(IndexSegment.MAGIC);
+            out.writeInt(IndexSegment.VERSION);
+            out.writeInt(level);
+            out.writeInt(termCount);
+            out.writeInt(documentCount);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            for (int i = 0; i < termCount; i++) {
+                long end = i + 1 < termCount ? postingsOffsets[i + 1] : postingsSize;
+                out.writeInt(docFreqs[i]);
+                out.writeInt((int) (postingsBase + postingsOffsets[i]));
+                out.writeInt((int) (end - postingsOffsets[i]));
+            }
+            int offset = 0;
+            for (int i = 0; i < termCount; i++) {
+                out.writeInt(offset);
+                offset += terms[i].length;
+            }
+            out.writeInt(offset);
+            for (int i = 0; i < termCount; i++) {
+                out.write(terms[i]);
+            }
+            for (int i = 0; i < documentCount; i++) {
+                out.writeInt(documents[i]);
+            }
+        }
+
+        try (FileChannel source = FileChannel.open(postingsFile, StandardOpenOption.READ);
+             FileChannel destination = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long transferred = 0;
+            while (transferred < source.size()) {
+                transferred += source.transferTo(transferred, source.size() - transferred, destination);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(postingsFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        postings.close();
+        Files.deleteIfExists(postingsFile);
+        Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".tmp"));
+    }
+
+    private void writeVarint(int value) throws IOException {
+        int length = 0;
+        while ((value & ~0x7F) != 0) {
+            varint[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        varint[length++] = (byte) value;
+        postings.write(varint, 0, length);
+        postingsSize += length;
+        if (postingsSize > Integer.MAX_VALUE) {
+            throw new IOException("Segment d'index trop volumineux");
+        }
+    }
+}
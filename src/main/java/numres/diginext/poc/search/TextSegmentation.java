@@ -0,0 +1,178 @@
+package numres.diginext.poc.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Découpage d'un document en mots, phrases et paragraphes, calculé en un seul passage et partagé
+ * par les étapes de l'analyse (indexation, métadonnées des composants, inférence par cooccurrence).
+ * Seules les bornes sont conservées, dans des tableaux d'entiers : aucune sous-chaîne n'est créée.
+ * <p>
+ * Un mot est une suite de lettres et de chiffres, normalisée selon les règles de {@link TextTokenizer}. Une phrase se
+ * termine par un saut de ligne ou par '.', '!' ou '?' suivi d'un blanc : "Oracle 19.3" ou
+ * "srv.prod.local" ne coupent pas la phrase. Un paragraphe se termine par un saut de ligne.
+ */
+public final class TextSegmentation {
+
+    private final CharSequence text;
+    private final int length;
+    private final int[] tokenStarts;
+    private final int[] tokenEnds;
+    private final int tokenCount;
+    private final int[] sentenceEnds;
+    private final int sentenceCount;
+    private final int[] paragraphEnds;
+    private final int paragraphCount;
+    private final Set<String> terms;
+
+    private TextSegmentation(CharSequence text, int length, int[] tokenStarts, int[] tokenEnds, int tokenCount,
+                             int[] sentenceEnds, int sentenceCount, int[] paragraphEnds, int paragraphCount) {
+        this.text = text;
+        this.length = length;
+        this.tokenStarts = tokenStarts;
+        this.tokenEnds = tokenEnds;
+        this.tokenCount = tokenCount;
+        this.sentenceEnds = sentenceEnds;
+        this.sentenceCount = sentenceCount;
+        this.paragraphEnds = paragraphEnds;
+        this.paragraphCount = paragraphCount;
+        // Calculé d'emblée : la segmentation est immuable et peut être partagée entre threads
+        Set<String> distinct = new HashSet<>();
+        for (int token = 0; token < tokenCount; token++) {
+            String term = term(token);
+            if (term != null) {
+                distinct.add(term);
+            }
+        }
+        this.terms = Collections.unmodifiableSet(distinct);
+    }
+
+    public static TextSegmentation of(CharSequence text) {
+        int length = text.length();
+        // Estimation initiale : un mot pour six caractères environ, une phrase pour cent
+        int[] tokenStarts = new int[Math.max(16, length / 6)];
+        int[] tokenEnds = new int[tokenStarts.length];
+        int tokenCount = 0;
+        int[] sentenceEnds = new int[Math.max(16, length / 100)];
+        int sentenceCount = 0;
+        int[] paragraphEnds = new int[16];
+        int paragraphCount = 0;
+
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (TextTokenizer.isTermChar(c)) {
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                if (tokenCount == tokenStarts.length) {
+                    tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+                    tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+                }
+                tokenStarts[tokenCount] = start;
+                tokenEnds[tokenCount++] = i;
+                start = -1;
+            }
+            boolean paragraphEnd = c == '\n';
+            if (paragraphEnd || (c == '.' || c == '!' || c == '?')
+                    && (i + 1 == length || Character.isWhitespace(text.charAt(i + 1)))) {
+                if (sentenceCount == sentenceEnds.length) {
+                    sentenceEnds = Arrays.copyOf(sentenceEnds, sentenceCount * 2);
+                }
+                sentenceEnds[sentenceCount++] = i + 1;
+            }
+            if (paragraphEnd) {
+                if (paragraphCount == paragraphEnds.length) {
+                    paragraphEnds = Arrays.copyOf(paragraphEnds, paragraphCount * 2);
+                }
+                paragraphEnds[paragraphCount++] = i + 1;
+            }
+        }
+        if (start >= 0) {
+            if (tokenCount == tokenStarts.length) {
+                tokenStarts = Arrays.copyOf(tokenStarts, tokenCount + 1);
+                tokenEnds = Arrays.copyOf(tokenEnds, tokenCount + 1);
+            }
+            tokenStarts[tokenCount] = start;
+            tokenEnds[tokenCount++] = length;
+        }
+        return new TextSegmentation(text, length, tokenStarts, tokenEnds, tokenCount,
+                sentenceEnds, sentenceCount, paragraphEnds, paragraphCount);
+    }
+
+    public CharSequence text() {
+        return text;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    public int tokenStart(int token) {
+        return tokenStarts[token];
+    }
+
+    public int tokenEnd(int token) {
+        return tokenEnds[token];
+    }
+
+    /**
+     * Mot normalisé comme par {@link TextTokenizer} (minuscules, sans accents), ou null s'il dépasse
+     * la longueur maximale d'un terme.
+     */
+    public String term(int token) {
+        return TextTokenizer.term(text, tokenStarts[token], tokenEnds[token]);
+    }
+
+    /**
+     * Ensemble des termes normalisés du document. Il permet d'écarter sans parcourir le texte les
+     * règles d'extraction dont aucun mot-clé n'apparaît.
+     */
+    public Set<String> terms() {
+        return terms;
+    }
+
+    /**
+     * Nombre de phrases ; la dernière peut ne pas être terminée par une ponctuation.
+     */
+    public int sentenceCount() {
+        return sentenceCount + 1;
+    }
+
+    /**
+     * Numéro de la phrase contenant la position donnée.
+     */
+    public int sentenceAt(int offset) {
+        return boundaryIndex(sentenceEnds, sentenceCount, offset);
+    }
+
+    public int sentenceStart(int sentence) {
+        return sentence == 0 ? 0 : sentenceEnds[sentence - 1];
+    }
+
+    public int sentenceEnd(int sentence) {
+        return sentence < sentenceCount ? sentenceEnds[sentence] : length;
+    }
+
+    /**
+     * Numéro du paragraphe contenant la position donnée.
+     */
+    public int paragraphAt(int offset) {
+        return boundaryIndex(paragraphEnds, paragraphCount, offset);
+    }
+
+    // Nombre de bornes inférieures ou égales à la position : indice du segment qui la contient
+    private static int boundaryIndex(int[] ends, int count, int offset) {
+        int index = Arrays.binarySearch(ends, 0, count, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,67 @@
+package numres.diginext.poc.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Règles des termes indexables : suites de lettres et de chiffres, mises en minuscules et débarrassées
+ * de leurs accents ("Sécurité" et "securite" donnent le même terme). Le découpage lui-même est fait
+ * par {@link TextSegmentation}, pour les documents comme pour les requêtes.
+ */
+public final class TextTokenizer {
+
+    // Au-delà, un terme est ignoré (identifiants générés, chaînes encodées)
+    static final int MAX_TERM_LENGTH = 64;
+
+    // Repli des caractères latins accentués (jusqu'à U+024F) sur leur lettre de base en minuscule
+    private static final char[] FOLDED = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLDED[c] = Character.toLowerCase(base.charAt(0));
+        }
+    }
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Termes normalisés d'une requête, dans l'ordre. Le découpage est celui de
+     * {@link TextSegmentation}, utilisé à l'indexation : requête et documents donnent les mêmes termes.
+     */
+    public static List<String> terms(CharSequence text) {
+        TextSegmentation segmentation = TextSegmentation.of(text);
+        List<String> terms = new ArrayList<>(segmentation.tokenCount());
+        for (int token = 0; token < segmentation.tokenCount(); token++) {
+            String term = segmentation.term(token);
+            if (term != null) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Terme normalisé des caractères [start, end[ du texte, ou null s'il dépasse la longueur maximale.
+     */
+    static String term(CharSequence text, int start, int end) {
+        if (end - start > MAX_TERM_LENGTH) {
+            return null;
+        }
+        char[] term = new char[end - start];
+        for (int i = start; i < end; i++) {
+            term[i - start] = fold(text.charAt(i));
+        }
+        return new String(term);
+    }
+
+    static char fold(char c) {
+        return c < FOLDED.length ? FOLDED[c] : Character.toLowerCase(c);
+    }
+}
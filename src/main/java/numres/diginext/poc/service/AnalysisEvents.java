@@ -0,0 +1,149 @@
+package numres.diginext.poc.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Événements JDK Flight Recorder du pipeline d'analyse : une étape du pipeline, ou une famille de
+ * patterns de l'extraction des composants, avec sa durée et les octets alloués par le thread.
+ * <p>
+ * Hors enregistrement, un événement n'est pas validé et le compteur d'allocations n'est pas lu :
+ * le coût se réduit à un test. Les enregistrements sont pilotés par {@link FlightRecordingService}.
+ */
+public final class AnalysisEvents {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private AnalysisEvents() {
+    }
+
+    /**
+     * Début d'une étape du pipeline d'analyse, à fermer par try-with-resources pour que l'étape soit
+     * terminée même si elle échoue.
+     *
+     * @param documentId Identifiant du document analysé, -1 s'il n'est pas encore attribué
+     * @param stage      Nom de l'étape
+     */
+    public static StageEvent beginStage(int documentId, String stage) {
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.documentId = documentId;
+            event.stage = stage;
+            event.allocationStart = allocatedBytes();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Début de l'application d'une famille de patterns (un type de composant) à un document.
+     */
+    public static PatternFamilyEvent beginPatternFamily(int documentId, String family) {
+        PatternFamilyEvent event = new PatternFamilyEvent();
+        if (event.isEnabled()) {
+            event.documentId = documentId;
+            event.family = family;
+            event.allocationStart = allocatedBytes();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Octets alloués depuis le démarrage par le thread courant, ou 0 si la mesure n'est pas disponible.
+     */
+    private static long allocatedBytes() {
+        return THREADS != null ? Math.max(0, THREADS.getCurrentThreadAllocatedBytes()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    @Name("numres.diginext.AnalysisStage")
+    @Label("Étape d'analyse")
+    @Description("Durée et allocations d'une étape du pipeline d'analyse d'un document")
+    @Category({"DigiNext", "Analyse"})
+    @StackTrace(false)
+    public static final class StageEvent extends Event implements AutoCloseable {
+
+        @Label("Document")
+        int documentId;
+
+        @Label("Étape")
+        String stage;
+
+        @Label("Octets alloués")
+        @DataAmount
+        long allocatedBytes;
+
+        transient long allocationStart;
+
+        /**
+         * Précise l'identifiant du document, attribué en cours d'étape.
+         */
+        public void setDocumentId(int documentId) {
+            this.documentId = documentId;
+        }
+
+        /**
+         * Termine l'étape et valide l'événement s'il est enregistré.
+         */
+        @Override
+        public void close() {
+            if (isEnabled()) {
+                end();
+                if (shouldCommit()) {
+                    allocatedBytes = allocatedBytes() - allocationStart;
+                    commit();
+                }
+            }
+        }
+    }
+
+    @Name("numres.diginext.PatternFamily")
+    @Label("Famille de patterns")
+    @Description("Durée, nombre de correspondances et allocations d'une famille de patterns d'extraction")
+    @Category({"DigiNext", "Analyse"})
+    @StackTrace(false)
+    public static final class PatternFamilyEvent extends Event {
+
+        @Label("Document")
+        int documentId;
+
+        @Label("Famille")
+        String family;
+
+        @Label("Correspondances")
+        int matches;
+
+        @Label("Octets alloués")
+        @DataAmount
+        long allocatedBytes;
+
+        transient long allocationStart;
+
+        public void finish(int matches) {
+            if (isEnabled()) {
+                end();
+                if (shouldCommit()) {
+                    this.matches = matches;
+                    allocatedBytes = allocatedBytes() - allocationStart;
+                    commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package numres.diginext.poc.service;
+
+/**
+ * Levée lorsque l'ordonnanceur d'analyses est saturé et ne peut pas accepter de nouveau document.
+ */
+public class AnalysisRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AnalysisRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
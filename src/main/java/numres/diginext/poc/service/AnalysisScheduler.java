@@ -0,0 +1,153 @@
+package numres.diginext.poc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+/**
+ * Ordonnanceur placé devant {@link DocumentAnalysisService}.
+ * Les analyses sont réparties sur deux voies (petits et gros documents) dont la concurrence
+ * totale est bornée par le nombre de processeurs et dont les files d'attente sont bornées.
+ * Lorsqu'une voie est saturée, la demande est rejetée avec une estimation du délai de reprise.
+ */
+@Service
+public class AnalysisScheduler {
+
+    private final Lane smallLane;
+    private final Lane largeLane;
+    private final long largeDocumentThreshold;
+    private final Counter rejectedCounter;
+
+    public AnalysisScheduler(MeterRegistry meterRegistry,
+                             @Value("${diginext.analysis.large-document-threshold:5MB}") DataSize largeDocumentThreshold,
+                             @Value("${diginext.analysis.small-queue-capacity:64}") int smallQueueCapacity,
+                             @Value("${diginext.analysis.large-queue-capacity:8}") int largeQueueCapacity) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        // Les gros documents n'occupent qu'une fraction des coeurs pour ne jamais bloquer les petits
+        int largeThreads = Math.max(1, processors / 4);
+        int smallThreads = Math.max(1, processors - largeThreads);
+
+        this.largeDocumentThreshold = largeDocumentThreshold.toBytes();
+        this.smallLane = new Lane("small", smallThreads, smallQueueCapacity, meterRegistry);
+        this.largeLane = new Lane("large", largeThreads, largeQueueCapacity, meterRegistry);
+        this.rejectedCounter = Counter.builder("diginext.analysis.rejected")
+                .description("Analyses refusées faute de capacité")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exécute une analyse dans la voie correspondant à la taille du document et attend son résultat.
+     *
+     * @param documentSize Taille du document uploadé en octets
+     * @param analysis     Traitement à exécuter
+     * @return Le résultat de l'analyse
+     * @throws AnalysisRejectedException si la voie est saturée
+     */
+    public <T> T execute(long documentSize, AnalysisTask<T> analysis) throws IOException {
+        Lane lane = documentSize >= largeDocumentThreshold ? largeLane : smallLane;
+        Future<T> future = lane.submit(analysis);
+        if (future == null) {
+            rejectedCounter.increment();
+            throw new AnalysisRejectedException(
+                    "Trop d'analyses en cours, veuillez réessayer plus tard.", lane.estimateRetryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Analyse interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Erreur lors de l'analyse", cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        smallLane.executor.shutdownNow();
+        largeLane.executor.shutdownNow();
+    }
+
+    /**
+     * Traitement d'analyse pouvant lever une {@link IOException}.
+     */
+    @FunctionalInterface
+    public interface AnalysisTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Voie d'exécution : un pool de taille fixe avec une file bornée et ses métriques.
+     */
+    private static final class Lane {
+        private final ThreadPoolExecutor executor;
+        private final Timer waitTimer;
+        private final Timer executionTimer;
+
+        Lane(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    new CustomizableThreadFactory("analysis-" + name + "-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+
+            Gauge.builder("diginext.analysis.queue.depth", executor, e -> e.getQueue().size())
+                    .description("Analyses en attente d'exécution")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("diginext.analysis.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .description("Analyses en cours d'exécution")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("diginext.analysis.wait")
+                    .description("Temps d'attente avant le début de l'analyse")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.executionTimer = Timer.builder("diginext.analysis.duration")
+                    .description("Durée d'exécution de l'analyse")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Soumet une analyse, ou retourne null si la file est pleine.
+         */
+        <T> Future<T> submit(AnalysisTask<T> analysis) {
+            long submittedAt = System.nanoTime();
+            try {
+                return executor.submit(() -> {
+                    waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                    return executionTimer.recordCallable(analysis::run);
+                });
+            } catch (RejectedExecutionException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Estime le délai avant qu'une place se libère, à partir de la durée moyenne des analyses.
+         */
+        long estimateRetryAfterSeconds() {
+            double meanSeconds = executionTimer.mean(TimeUnit.SECONDS);
+            int pending = executor.getQueue().size() + 1;
+            double estimate = meanSeconds * pending / executor.getMaximumPoolSize();
+            return Math.max(1, (long) Math.ceil(estimate));
+        }
+    }
+}
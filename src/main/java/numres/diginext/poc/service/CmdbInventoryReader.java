@@ -0,0 +1,366 @@
+package numres.diginext.poc.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Lecture en flux des inventaires CMDB exportés en tableur, convertis en enregistrements d'inventaire.
+ * <p>
+ * La première ligne non vide donne les en-têtes, reconnus en français ou en anglais (nom, type,
+ * technologie, version, environnement, hôte, dépendances). Chaque ligne produit un composant, une
+ * relation « est déployé sur » vers son hôte et une relation « dépend de » par dépendance listée.
+ * Les XLSX sont lus par l'API SAX de POI (feuille parcourue sans modèle objet en mémoire), les CSV
+ * par un analyseur caractère par caractère : seule la ligne courante est conservée.
+ */
+final class CmdbInventoryReader {
+
+    enum Column { NAME, TYPE, TECHNOLOGY, VERSION, ENVIRONMENT, HOST, DEPENDENCIES }
+
+    // En-têtes reconnus, normalisés (minuscules, sans accents ni séparateurs)
+    private static final Map<String, Column> HEADERS = new HashMap<>();
+
+    // Types de composants courants des CMDB, normalisés comme les en-têtes
+    private static final Map<String, String> TYPES = new HashMap<>();
+
+    static {
+        for (String header : List.of("name", "nom", "composant", "component", "ci", "ciname", "nomduci", "hostname", "element")) {
+            HEADERS.put(header, Column.NAME);
+        }
+        for (String header : List.of("type", "categorie", "category", "class", "classe", "citype", "typedeci")) {
+            HEADERS.put(header, Column.TYPE);
+        }
+        for (String header : List.of("technology", "technologie", "produit", "product", "editeur", "vendor")) {
+            HEADERS.put(header, Column.TECHNOLOGY);
+        }
+        for (String header : List.of("version", "release")) {
+            HEADERS.put(header, Column.VERSION);
+        }
+        for (String header : List.of("environment", "environnement", "env")) {
+            HEADERS.put(header, Column.ENVIRONMENT);
+        }
+        for (String header : List.of("host", "hote", "serveur", "server", "deployedon", "deploiesur", "hebergesur", "runson")) {
+            HEADERS.put(header, Column.HOST);
+        }
+        for (String header : List.of("dependencies", "dependances", "dependson", "dependde", "dependsof", "uses", "utilise")) {
+            HEADERS.put(header, Column.DEPENDENCIES);
+        }
+
+        for (String type : List.of("server", "serveur", "host", "vm", "machinevirtuelle", "virtualmachine")) {
+            TYPES.put(type, "SERVER");
+        }
+        for (String type : List.of("database", "basededonnees", "bdd", "db", "sgbd")) {
+            TYPES.put(type, "DATABASE");
+        }
+        for (String type : List.of("application", "app", "logiciel", "software", "businessapplication")) {
+            TYPES.put(type, "APPLICATION");
+        }
+        for (String type : List.of("middleware", "esb", "broker", "messagebroker")) {
+            TYPES.put(type, "MIDDLEWARE");
+        }
+        for (String type : List.of("web", "siteweb", "website", "webserver", "serveurweb", "applicationweb")) {
+            TYPES.put(type, "WEB_SYSTEM");
+        }
+        for (String type : List.of("network", "reseau", "router", "routeur", "switch", "firewall", "parefeu", "loadbalancer")) {
+            TYPES.put(type, "NETWORK_DEVICE");
+        }
+    }
+
+    private CmdbInventoryReader() {
+    }
+
+    /**
+     * Indique si le fichier est un inventaire structuré : tout classeur XLSX, ou un CSV dont
+     * la première ligne comporte une colonne de nom reconnue.
+     */
+    static boolean isInventory(Path file, String fileName) throws IOException {
+        String lowerName = fileName != null ? fileName.toLowerCase() : "";
+        if (lowerName.endsWith(".xlsx")) {
+            return true;
+        }
+        if (!lowerName.endsWith(".csv")) {
+            return false;
+        }
+        try (BufferedReader reader = utf8Reader(file)) {
+            String header = stripBom(reader.readLine());
+            if (header == null) {
+                return false;
+            }
+            for (String cell : header.split(String.valueOf(separatorOf(header)))) {
+                if (HEADERS.get(normalize(cell.replace("\"", ""))) == Column.NAME) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Lecteur d'inventaire adapté à l'extension du fichier.
+     *
+     * @throws IllegalArgumentException si le format n'est ni XLSX ni CSV
+     */
+    static InventoryIngestionService.RecordReader forFile(Path file, String fileName) {
+        String lowerName = fileName != null ? fileName.toLowerCase() : "";
+        if (lowerName.endsWith(".xlsx")) {
+            return sink -> readXlsx(file, new RowMapper(sink));
+        } else if (lowerName.endsWith(".csv")) {
+            return sink -> readCsv(file, new RowMapper(sink));
+        }
+        throw new IllegalArgumentException("Format d'inventaire non supporté (XLSX ou CSV attendu): " + fileName);
+    }
+
+    /**
+     * Première feuille d'un classeur XLSX, lue par événements SAX. Seule la table des chaînes
+     * partagées est chargée en mémoire.
+     */
+    private static void readXlsx(Path file, RowMapper mapper) throws IOException {
+        try (OPCPackage workbook = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(workbook);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(workbook, false);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("Classeur sans feuille");
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+                        new SheetHandler(mapper), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Classeur XLSX illisible: " + e.getMessage(), e);
+        }
+        mapper.finish();
+    }
+
+    /**
+     * CSV (séparateur « ; », « , » ou tabulation, détecté sur l'en-tête), avec champs entre guillemets
+     * pouvant contenir séparateurs, guillemets doublés et retours à la ligne.
+     */
+    private static void readCsv(Path file, RowMapper mapper) throws IOException {
+        char separator;
+        try (BufferedReader headerReader = utf8Reader(file)) {
+            separator = separatorOf(Objects.requireNonNullElse(stripBom(headerReader.readLine()), ""));
+        }
+
+        try (Reader reader = utf8Reader(file)) {
+            List<String> row = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean first = true;
+            while (readCsvRow(reader, separator, row, field)) {
+                if (first) {
+                    row.set(0, stripBom(row.get(0)));
+                    first = false;
+                }
+                mapper.row(row);
+            }
+        }
+        mapper.finish();
+    }
+
+    /**
+     * Lit une ligne CSV dans {@code row}. Retourne false en fin de fichier.
+     */
+    private static boolean readCsvRow(Reader reader, char separator, List<String> row, StringBuilder field) throws IOException {
+        row.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == separator) {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return false;
+        }
+        row.add(field.toString());
+        return true;
+    }
+
+    /**
+     * Lecteur UTF-8 tolérant : les caractères mal encodés (exports Windows-1252) sont remplacés.
+     */
+    private static BufferedReader utf8Reader(Path file) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static char separatorOf(String header) {
+        char best = ',';
+        long bestCount = 0;
+        for (char candidate : new char[]{';', ',', '\t'}) {
+            long count = header.chars().filter(ch -> ch == candidate).count();
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static String stripBom(String value) {
+        return value != null && value.startsWith("\uFEFF") ? value.substring(1) : value;
+    }
+
+    /**
+     * Minuscules, sans accents ni caractères autres que lettres et chiffres : "Dépend de" → "dependde".
+     */
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Conversion des lignes en enregistrements, une fois les en-têtes reconnus.
+     */
+    private static final class RowMapper {
+        private final InventoryIngestionService.RecordSink sink;
+        private Column[] columns;
+
+        RowMapper(InventoryIngestionService.RecordSink sink) {
+            this.sink = sink;
+        }
+
+        void row(List<String> cells) throws IOException {
+            if (columns == null) {
+                if (cells.stream().allMatch(String::isBlank)) {
+                    return;
+                }
+                columns = new Column[cells.size()];
+                for (int i = 0; i < cells.size(); i++) {
+                    columns[i] = HEADERS.get(normalize(cells.get(i)));
+                }
+                if (Arrays.stream(columns).noneMatch(column -> column == Column.NAME)) {
+                    throw new IOException("Colonne du nom introuvable dans l'en-tête (name, nom, composant, ci...)");
+                }
+                return;
+            }
+
+            EnumMap<Column, String> values = new EnumMap<>(Column.class);
+            for (int i = 0; i < cells.size() && i < columns.length; i++) {
+                String value = cells.get(i).trim();
+                if (columns[i] != null && !value.isEmpty()) {
+                    values.putIfAbsent(columns[i], value);
+                }
+            }
+            if (values.isEmpty()) {
+                return;
+            }
+
+            String name = values.get(Column.NAME);
+            sink.accept(new InventoryIngestionService.InventoryRecord("component", name, typeOf(values.get(Column.TYPE)),
+                    values.get(Column.HOST), values.get(Column.TECHNOLOGY), values.get(Column.VERSION),
+                    values.get(Column.ENVIRONMENT), null, null, null, null));
+
+            String dependencies = values.get(Column.DEPENDENCIES);
+            if (name != null && dependencies != null) {
+                for (String dependency : dependencies.split("[;,|\\n]")) {
+                    if (!dependency.isBlank()) {
+                        sink.accept(new InventoryIngestionService.InventoryRecord("dependency", null, null, null, null,
+                                null, null, name, dependency.trim(), null, null));
+                    }
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            if (columns == null) {
+                throw new IOException("Inventaire vide : aucune ligne d'en-tête");
+            }
+        }
+
+        private static String typeOf(String value) {
+            if (value == null) {
+                return null;
+            }
+            String type = TYPES.get(normalize(value));
+            return type != null ? type : value.trim().toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]+", "_");
+        }
+    }
+
+    /**
+     * Reconstitue les lignes de la feuille à partir des cellules non vides signalées par POI.
+     */
+    private static final class SheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowMapper mapper;
+        private final List<String> row = new ArrayList<>();
+
+        SheetHandler(RowMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            row.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            try {
+                mapper.row(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : row.size();
+            while (row.size() < column) {
+                row.add("");
+            }
+            row.add(formattedValue != null ? formattedValue : "");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package numres.diginext.poc.service;
+
+/**
+ * Normalisation des noms de composants utilisée pour rapprocher les mentions d'un même élément.
+ */
+public final class ComponentNames {
+
+    private ComponentNames() {
+    }
+
+    /**
+     * Nom en minuscules.
+     */
+    public static String lowerCase(String name) {
+        return name.toLowerCase();
+    }
+
+    /**
+     * Nom en minuscules et sans espaces : "Serveur SRV-APP01" et "serveur  srv-app01" ont la même clé.
+     */
+    public static String normalize(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+}
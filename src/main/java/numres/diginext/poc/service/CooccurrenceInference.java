@@ -0,0 +1,269 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.model.ExtractedComponent;
+import numres.diginext.poc.search.TextSegmentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Inférence de relations par cooccurrence pondérée des mentions de composants.
+ * <p>
+ * Les mentions sont parcourues dans l'ordre du texte : chacune est associée aux
+ * {@code max-neighbors} suivantes du même paragraphe, avec un poids plein dans la même phrase,
+ * réduit au-delà, et décroissant avec la distance en caractères. Les poids sont cumulés dans une
+ * matrice creuse à clés primitives dont la taille est bornée : une fois pleine, les paires les plus
+ * faibles sont élaguées. Une paire est retenue si son poids atteint {@code min-weight} et si sa
+ * confiance (poids de la paire rapporté à la moyenne géométrique des poids de ses deux composants)
+ * atteint {@code min-confidence}.
+ */
+@Component
+public class CooccurrenceInference {
+
+    // Poids d'une cooccurrence dans le même paragraphe mais pas dans la même phrase
+    private static final double PARAGRAPH_WEIGHT = 0.4;
+
+    // Distance (en caractères) à laquelle le poids d'une cooccurrence est divisé par deux
+    private static final double DISTANCE_SCALE = 80;
+
+    private final double minWeight;
+    private final double minConfidence;
+    private final int maxNeighbors;
+    private final int maxPairs;
+
+    public CooccurrenceInference(@Value("${diginext.inference.min-weight:0.75}") double minWeight,
+                                 @Value("${diginext.inference.min-confidence:0.2}") double minConfidence,
+                                 @Value("${diginext.inference.max-neighbors:8}") int maxNeighbors,
+                                 @Value("${diginext.inference.max-pairs:500000}") int maxPairs) {
+        this.minWeight = minWeight;
+        this.minConfidence = minConfidence;
+        this.maxNeighbors = Math.max(1, maxNeighbors);
+        this.maxPairs = Math.max(16, maxPairs);
+    }
+
+    /**
+     * Paires de composants significativement associées dans le texte, par confiance décroissante.
+     * Le premier composant d'une paire est celui dont la première mention précède l'autre.
+     *
+     * @param text       Texte du document dont proviennent les positions des mentions
+     * @param components Composants extraits, avec leurs mentions (triplets documentId, début, fin)
+     */
+    public List<InferredPair> infer(String text, Iterable<ExtractedComponent> components) {
+        return infer(TextSegmentation.of(text), components);
+    }
+
+    /**
+     * Variante utilisant le découpage en phrases et paragraphes déjà calculé pour le document.
+     */
+    public List<InferredPair> infer(TextSegmentation document, Iterable<ExtractedComponent> components) {
+        // 1. Composants mentionnés, numérotés par ordre de première mention (mentions lues une seule fois)
+        List<Mentioned> mentioned = new ArrayList<>();
+        int mentionCount = 0;
+        for (ExtractedComponent component : components) {
+            int[] spans = component.mentions();
+            if (spans.length >= 3) {
+                mentioned.add(new Mentioned(component, spans, firstStart(spans)));
+                mentionCount += spans.length / 3;
+            }
+        }
+        if (mentioned.size() < 2) {
+            return List.of();
+        }
+        mentioned.sort(Comparator.comparingInt(Mentioned::firstStart));
+        List<ExtractedComponent> indexed = mentioned.stream().map(Mentioned::component).toList();
+
+        // Mentions triées par position : (début << 32 | indice de la mention)
+        int[] componentOfSpan = new int[mentionCount];
+        int[] endOfSpan = new int[mentionCount];
+        long[] sorted = new long[mentionCount];
+        int span = 0;
+        for (int c = 0; c < mentioned.size(); c++) {
+            int[] spans = mentioned.get(c).spans();
+            for (int i = 0; i + 2 < spans.length; i += 3) {
+                componentOfSpan[span] = c;
+                endOfSpan[span] = spans[i + 2];
+                sorted[span] = ((long) spans[i + 1] << 32) | span;
+                span++;
+            }
+        }
+        Arrays.sort(sorted);
+
+        int[] start = new int[mentionCount];
+        int[] end = new int[mentionCount];
+        int[] componentOf = new int[mentionCount];
+        for (int m = 0; m < mentionCount; m++) {
+            int index = (int) sorted[m];
+            start[m] = (int) (sorted[m] >>> 32);
+            end[m] = endOfSpan[index];
+            componentOf[m] = componentOfSpan[index];
+        }
+
+        // 2. Numéros de phrase et de paragraphe de chaque mention, lus dans le découpage du document
+        int[] sentence = new int[mentionCount];
+        int[] paragraph = new int[mentionCount];
+        for (int m = 0; m < mentionCount; m++) {
+            sentence[m] = document.sentenceAt(start[m]);
+            paragraph[m] = document.paragraphAt(start[m]);
+        }
+
+        // 3. Cumul des cooccurrences pondérées dans la matrice creuse
+        PairMatrix matrix = new PairMatrix(maxPairs);
+        double[] marginal = new double[indexed.size()];
+        for (int i = 0; i < mentionCount; i++) {
+            for (int j = i + 1; j < mentionCount && j <= i + maxNeighbors && paragraph[j] == paragraph[i]; j++) {
+                int a = componentOf[i];
+                int b = componentOf[j];
+                // Même composant, ou deux composants extraits des mêmes mots : pas une cooccurrence
+                if (a == b || start[j] < end[i]) {
+                    continue;
+                }
+                double weight = (sentence[j] == sentence[i] ? 1.0 : PARAGRAPH_WEIGHT)
+                        / (1 + (start[j] - end[i]) / DISTANCE_SCALE);
+                matrix.add(Math.min(a, b), Math.max(a, b), (float) weight);
+                marginal[a] += weight;
+                marginal[b] += weight;
+            }
+        }
+
+        // 4. Paires significatives
+        List<InferredPair> pairs = new ArrayList<>();
+        matrix.forEach((a, b, weight) -> {
+            if (weight >= minWeight) {
+                double confidence = weight / Math.sqrt(marginal[a] * marginal[b]);
+                if (confidence >= minConfidence) {
+                    pairs.add(new InferredPair(indexed.get(a), indexed.get(b), Math.min(1.0, confidence)));
+                }
+            }
+        });
+        pairs.sort(Comparator.comparingDouble(InferredPair::confidence).reversed());
+        return pairs;
+    }
+
+    private static int firstStart(int[] spans) {
+        int first = Integer.MAX_VALUE;
+        for (int i = 1; i < spans.length; i += 3) {
+            first = Math.min(first, spans[i]);
+        }
+        return first;
+    }
+
+    /**
+     * Paire de composants associés, avec la confiance de l'association (entre 0 et 1).
+     */
+    public record InferredPair(ExtractedComponent first, ExtractedComponent second, double confidence) {
+    }
+
+    private record Mentioned(ExtractedComponent component, int[] spans, int firstStart) {
+    }
+
+    @FunctionalInterface
+    interface PairConsumer {
+        void accept(int a, int b, double weight);
+    }
+
+    /**
+     * Matrice creuse symétrique des poids de cooccurrence : table à adressage ouvert indexée par
+     * la paire (a, b) codée sur un long, sans objets intermédiaires. Le nombre de paires est borné :
+     * une table pleine est élaguée de ses paires les plus faibles, avec un seuil qui double à chaque fois.
+     */
+    static final class PairMatrix {
+        private static final long EMPTY = -1L;
+
+        private final int maxPairs;
+        private long[] keys;
+        private float[] weights;
+        private int size;
+        private float pruneThreshold = 0.25f;
+
+        PairMatrix(int maxPairs) {
+            this.maxPairs = maxPairs;
+            allocate(1024);
+        }
+
+        void add(int a, int b, float weight) {
+            long key = ((long) a << 32) | b;
+            int slot = find(key);
+            if (keys[slot] == key) {
+                weights[slot] += weight;
+                return;
+            }
+            // Taux de remplissage maximal 1/2 : la table grandit jusqu'à maxPairs, puis est élaguée
+            if (size >= keys.length / 2) {
+                if (keys.length / 2 < maxPairs) {
+                    rehash(keys.length * 2, 0);
+                } else {
+                    prune();
+                }
+                slot = find(key);
+            }
+            keys[slot] = key;
+            weights[slot] = weight;
+            size++;
+        }
+
+        void forEach(PairConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    consumer.accept((int) (keys[slot] >>> 32), (int) keys[slot], weights[slot]);
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void prune() {
+            // Relève le seuil jusqu'à libérer au moins un quart de la table
+            int target = keys.length / 2 * 3 / 4;
+            while (true) {
+                int kept = 0;
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] != EMPTY && weights[slot] >= pruneThreshold) {
+                        kept++;
+                    }
+                }
+                if (kept <= target) {
+                    rehash(keys.length, pruneThreshold);
+                    return;
+                }
+                pruneThreshold *= 2;
+            }
+        }
+
+        private void rehash(int capacity, float minWeight) {
+            long[] oldKeys = keys;
+            float[] oldWeights = weights;
+            allocate(capacity);
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY && oldWeights[slot] >= minWeight) {
+                    int target = find(oldKeys[slot]);
+                    keys[target] = oldKeys[slot];
+                    weights[target] = oldWeights[slot];
+                    size++;
+                }
+            }
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (mixed >>> 32) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            weights = new float[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.AdjacencyIndex;
+import numres.diginext.poc.graph.FilteredMapGraph;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.SystemMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Vues filtrées du diagramme d'une cartographie (types de composants, types de relations,
+ * voisinage d'un composant, criticité). Le filtrage s'applique au graphe compact déjà en cache
+ * pour l'analyse d'impact : ni extraction ni inférence ne sont rejouées, seul le diagramme
+ * du sous-graphe est régénéré. Les diagrammes produits sont conservés par révision et par filtre,
+ * comme les diagrammes SVG complets, dont la disposition (Barnes-Hut) est la plus coûteuse à calculer.
+ */
+@Service
+@RequiredArgsConstructor
+public class DiagramFilterService {
+
+    private final ImpactAnalysisService impactAnalysisService;
+    private final DiagramGenerationService diagramGenerationService;
+    private final SvgDiagramRenderer svgDiagramRenderer;
+    private final MapGraphService mapGraphService;
+
+    @Value("${diginext.diagram.filter-cache-size:200}")
+    private int filterCacheSize;
+
+    private final Map<String, String> diagrams = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > filterCacheSize;
+                }
+            });
+
+    /**
+     * Sous-graphe de la cartographie correspondant au filtre.
+     *
+     * @throws IllegalArgumentException si le composant central est absent de la cartographie
+     */
+    public MapGraph filter(SystemMap systemMap, DiagramFilter filter) throws IOException {
+        AdjacencyIndex index = impactAnalysisService.indexFor(systemMap);
+        MapGraph graph = index.graph();
+
+        int[] depth = null;
+        int focus = -1;
+        if (filter.focusComponentId() != null) {
+            focus = index.nodeOf(filter.focusComponentId());
+            if (focus < 0) {
+                throw new IllegalArgumentException("Composant absent de la cartographie: " + filter.focusComponentId());
+            }
+            depth = index.breadthFirst(focus, Math.max(0, filter.depth()), true, true);
+        }
+
+        boolean[] keepNode = new boolean[graph.nodeCount()];
+        for (int node = 0; node < keepNode.length; node++) {
+            // Le composant central reste affiché même s'il ne satisfait pas les autres critères
+            keepNode[node] = node == focus || (depth == null || depth[node] >= 0)
+                    && (!filter.criticalOnly() || graph.critical(node))
+                    && matches(filter.types(), graph.type(node));
+        }
+
+        boolean[] keepEdge = null;
+        if (!filter.relationTypes().isEmpty()) {
+            keepEdge = new boolean[graph.edgeCount()];
+            for (int edge = 0; edge < keepEdge.length; edge++) {
+                keepEdge[edge] = matches(filter.relationTypes(), graph.edgeType(edge));
+            }
+        }
+        return FilteredMapGraph.of(graph, keepNode, keepEdge);
+    }
+
+    /**
+     * Source PlantUML du diagramme filtré.
+     */
+    public String plantUml(SystemMap systemMap, DiagramFilter filter) throws IOException {
+        String key = cacheKey(systemMap, "puml", filter);
+        String cached = diagrams.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String diagram = diagramGenerationService.generatePlantUML(systemMap.getName(), filter(systemMap, filter));
+        diagrams.put(key, diagram);
+        return diagram;
+    }
+
+    /**
+     * Diagramme SVG natif du sous-graphe filtré.
+     */
+    public String svg(SystemMap systemMap, DiagramFilter filter) throws IOException {
+        String key = cacheKey(systemMap, "svg", filter);
+        String cached = diagrams.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String diagram = svgDiagramRenderer.render(systemMap.getName(), filter(systemMap, filter));
+        diagrams.put(key, diagram);
+        return diagram;
+    }
+
+    /**
+     * Diagramme SVG complet d'une cartographie.
+     */
+    public String svg(SystemMap systemMap) throws IOException {
+        String key = systemMap.getId() + "/" + systemMap.getRevision() + "/svg";
+        String cached = diagrams.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String diagram = svgDiagramRenderer.render(systemMap.getName(), mapGraphService.graphFor(systemMap));
+        diagrams.put(key, diagram);
+        return diagram;
+    }
+
+    /**
+     * Diagramme SVG de l'instantané du graphe global d'un client, conservé jusqu'à la réécriture
+     * de l'instantané ({@link #evictEstate}).
+     */
+    public String estateSvg(String customer, MapGraph snapshot) {
+        String key = estateKeyPrefix(customer) + "svg";
+        String cached = diagrams.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String diagram = svgDiagramRenderer.render(customer, snapshot);
+        diagrams.put(key, diagram);
+        return diagram;
+    }
+
+    /**
+     * Oublie les diagrammes de l'instantané d'un client, qui vient d'être réécrit.
+     */
+    public void evictEstate(String customer) {
+        String prefix = estateKeyPrefix(customer);
+        synchronized (diagrams) {
+            diagrams.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private static String estateKeyPrefix(String customer) {
+        return "estate/" + customer + "/";
+    }
+
+    private static boolean matches(Set<String> accepted, String value) {
+        return accepted.isEmpty() || value != null && accepted.contains(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static String cacheKey(SystemMap systemMap, String format, DiagramFilter filter) {
+        return systemMap.getId() + "/" + systemMap.getRevision() + "/" + format + "/" + filter;
+    }
+
+    /**
+     * Critères de filtrage ; un ensemble vide n'impose aucune contrainte.
+     *
+     * @param types            Types de composants retenus
+     * @param relationTypes    Types de relations retenus
+     * @param focusComponentId Composant central du voisinage, ou null pour toute la cartographie
+     * @param depth            Nombre de relations au plus entre un composant et le composant central
+     * @param criticalOnly     Ne retenir que les composants critiques
+     */
+    public record DiagramFilter(Set<String> types, Set<String> relationTypes, Long focusComponentId,
+                                int depth, boolean criticalOnly) {
+
+        public DiagramFilter {
+            types = normalize(types);
+            relationTypes = normalize(relationTypes);
+        }
+
+        // Valeurs en majuscules et triées : deux filtres équivalents partagent la même entrée de cache
+        private static Set<String> normalize(Set<String> values) {
+            Set<String> normalized = new TreeSet<>();
+            if (values != null) {
+                for (String value : values) {
+                    if (value != null && !value.isBlank()) {
+                        normalized.add(value.trim().toUpperCase(Locale.ROOT));
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(normalized);
+        }
+    }
+}
@@ -1,23 +1,36 @@
 package numres.diginext.poc.service;
 
+import numres.diginext.poc.graph.GraphBuilder;
+import numres.diginext.poc.graph.MapDiff;
+import numres.diginext.poc.graph.MapGraph;
 import org.springframework.stereotype.Service;
 import numres.diginext.poc.model.SystemMap;
-import numres.diginext.poc.model.SystemComponent;
-import numres.diginext.poc.model.ComponentRelationship;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
 
 @Service
 public class DiagramGenerationService {
 
+    // Alphabet base 64 des URL PlantUML
+    private static final String PLANTUML_ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_";
+
     /**
      * Génère un diagramme PlantUML à partir d'une cartographie de système
      * @param systemMap La cartographie du système à représenter
      * @return Le code PlantUML généré
      */
     public String generatePlantUML(SystemMap systemMap) {
+        return generatePlantUML(systemMap.getName(), GraphBuilder.fromSystemMap(systemMap));
+    }
+
+    /**
+     * Génère un diagramme PlantUML à partir du graphe compact d'une cartographie
+     * @param title Le nom de la cartographie
+     * @param graph Le graphe à représenter (en mémoire ou mappé depuis le stockage)
+     * @return Le code PlantUML généré
+     */
+    public String generatePlantUML(String title, MapGraph graph) {
         StringBuilder plantUml = new StringBuilder();
 
         // En-tête du diagramme avec configuration avancée
@@ -29,21 +42,19 @@ public class DiagramGenerationService {
         plantUml.append("skinparam defaultTextAlignment center\n");
 
         // Titre et légende
-        plantUml.append("title ").append(systemMap.getName()).append(" - Cartographie du SI\n\n");
+        plantUml.append("title ").append(title).append(" - Cartographie du SI\n\n");
 
         // Définition des styles personnalisés pour les différents types de composants
         configureSkinParams(plantUml);
 
-        // Création d'une map pour stocker les identifiants des composants
-        Map<SystemComponent, String> componentIds = new HashMap<>();
-
         // Définition des composants avec styles adaptés selon leur type
-        defineComponents(systemMap, plantUml, componentIds);
+        // (l'identifiant PlantUML d'un composant est dérivé de son numéro dans le graphe)
+        defineComponents(graph, plantUml);
 
         plantUml.append("\n");
 
         // Définition des relations entre composants
-        defineRelationships(systemMap, plantUml, componentIds);
+        defineRelationships(graph, plantUml);
 
         // Légende
         addLegend(plantUml);
@@ -54,6 +65,133 @@ public class DiagramGenerationService {
         return plantUml.toString();
     }
 
+    /**
+     * Génère un diagramme PlantUML des seules différences entre deux versions d'une cartographie :
+     * éléments ajoutés en vert, supprimés en rouge et barrés, modifiés en orange. Les extrémités
+     * inchangées des relations concernées sont affichées en gris pour donner le contexte.
+     * @param title Le titre du diagramme
+     * @param before La version de référence
+     * @param after La nouvelle version
+     * @param diff La différence calculée entre les deux versions
+     * @return Le code PlantUML généré
+     */
+    public String generateDeltaPlantUML(String title, MapGraph before, MapGraph after, MapDiff diff) {
+        StringBuilder plantUml = new StringBuilder();
+        plantUml.append("@startuml\n");
+        plantUml.append("skinparam componentStyle uml2\n");
+        plantUml.append("skinparam backgroundColor white\n");
+        plantUml.append("title ").append(title).append(" - Évolutions de la cartographie\n\n");
+
+        // Composants ajoutés, modifiés et supprimés
+        boolean[] declaredAfter = new boolean[after.nodeCount()];
+        boolean[] declaredBefore = new boolean[before.nodeCount()];
+        plantUml.append("' Composants ajoutés, modifiés ou supprimés\n");
+        for (int node : diff.addedComponents()) {
+            declaredAfter[node] = true;
+            appendDeltaComponent(plantUml, after.name(node), "after_" + node, "<<Ajouté>>", "#C8F7C5");
+        }
+        for (int node : diff.changedComponents()) {
+            declaredAfter[node] = true;
+            appendDeltaComponent(plantUml, after.name(node), "after_" + node, "<<Modifié>>", "#FFE0B2");
+            String note = describeChange(before, diff.beforeOf(node), after, node);
+            if (!note.isEmpty()) {
+                plantUml.append("note right of after_").append(node).append(" : ").append(note).append("\n");
+            }
+        }
+        for (int node : diff.removedComponents()) {
+            declaredBefore[node] = true;
+            appendDeltaComponent(plantUml, "--" + before.name(node) + "--", "before_" + node, "<<Supprimé>>", "#F7C5C5");
+        }
+
+        // Relations ajoutées et modifiées (nouvelle version), puis supprimées (version de référence)
+        StringBuilder relationships = new StringBuilder("\n' Relations ajoutées, modifiées ou supprimées\n");
+        for (int edge : diff.addedRelationships()) {
+            appendDeltaRelationship(relationships, after, edge, "#2E7D32",
+                    deltaNode(plantUml, after, after.edgeSource(edge), declaredAfter),
+                    deltaNode(plantUml, after, after.edgeTarget(edge), declaredAfter));
+        }
+        for (int edge : diff.changedRelationships()) {
+            appendDeltaRelationship(relationships, after, edge, "#EF6C00",
+                    deltaNode(plantUml, after, after.edgeSource(edge), declaredAfter),
+                    deltaNode(plantUml, after, after.edgeTarget(edge), declaredAfter));
+        }
+        for (int edge : diff.removedRelationships()) {
+            appendDeltaRelationship(relationships, before, edge, "#C62828,dashed",
+                    removedEdgeEnd(plantUml, before, after, diff, before.edgeSource(edge), declaredBefore, declaredAfter),
+                    removedEdgeEnd(plantUml, before, after, diff, before.edgeTarget(edge), declaredBefore, declaredAfter));
+        }
+        plantUml.append(relationships);
+
+        plantUml.append("\nlegend right\n");
+        plantUml.append("  <back:#C8F7C5> ajouté </back>  <back:#FFE0B2> modifié </back>  <back:#F7C5C5> supprimé </back>\n");
+        plantUml.append("endlegend\n");
+        plantUml.append("@enduml");
+        return plantUml.toString();
+    }
+
+    private void appendDeltaComponent(StringBuilder plantUml, String name, String id, String stereotype, String color) {
+        plantUml.append("component \"").append(name).append("\" as ").append(id)
+                .append(" ").append(stereotype).append(" ").append(color).append("\n");
+    }
+
+    /**
+     * Identifiant d'un composant de la nouvelle version, déclaré en gris s'il est inchangé et pas encore affiché.
+     */
+    private String deltaNode(StringBuilder plantUml, MapGraph after, int node, boolean[] declaredAfter) {
+        if (!declaredAfter[node]) {
+            declaredAfter[node] = true;
+            appendDeltaComponent(plantUml, after.name(node), "after_" + node, "<<Inchangé>>", "#EEEEEE");
+        }
+        return "after_" + node;
+    }
+
+    /**
+     * Extrémité d'une relation supprimée : le composant correspondant de la nouvelle version s'il existe encore.
+     */
+    private String removedEdgeEnd(StringBuilder plantUml, MapGraph before, MapGraph after, MapDiff diff, int node,
+                                  boolean[] declaredBefore, boolean[] declaredAfter) {
+        int afterNode = diff.afterOf(node);
+        if (afterNode >= 0) {
+            return deltaNode(plantUml, after, afterNode, declaredAfter);
+        }
+        if (!declaredBefore[node]) {
+            declaredBefore[node] = true;
+            appendDeltaComponent(plantUml, "--" + before.name(node) + "--", "before_" + node, "<<Supprimé>>", "#F7C5C5");
+        }
+        return "before_" + node;
+    }
+
+    private void appendDeltaRelationship(StringBuilder plantUml, MapGraph graph, int edge, String style,
+                                         String source, String target) {
+        plantUml.append(source).append(" -[").append(style).append("]-> ").append(target);
+        String type = graph.edgeType(edge);
+        if (type != null && !type.isEmpty()) {
+            plantUml.append(" : \"").append(type).append("\"");
+        }
+        plantUml.append("\n");
+    }
+
+    /**
+     * Résume les métadonnées modifiées d'un composant, par exemple "version 1.2 → 2.0"
+     */
+    private String describeChange(MapGraph before, int beforeNode, MapGraph after, int afterNode) {
+        StringBuilder note = new StringBuilder();
+        appendChange(note, "technologie", before.technology(beforeNode), after.technology(afterNode));
+        appendChange(note, "version", before.version(beforeNode), after.version(afterNode));
+        appendChange(note, "environnement", before.environment(beforeNode), after.environment(afterNode));
+        if (before.critical(beforeNode) != after.critical(afterNode)) {
+            appendSeparator(note).append(after.critical(afterNode) ? "devient CRITIQUE" : "n'est plus critique");
+        }
+        return note.toString();
+    }
+
+    private void appendChange(StringBuilder note, String label, String previous, String current) {
+        if (!Objects.equals(previous, current)) {
+            appendSeparator(note).append(label).append(" ")
+                    .append(previous != null ? previous : "?").append(" → ").append(current != null ? current : "?");
+        }
+    }
+
     /**
      * Configure les paramètres d'apparence du diagramme
      */
@@ -95,81 +233,130 @@ public class DiagramGenerationService {
     /**
      * Définit les composants du système dans le diagramme
      */
-    private void defineComponents(SystemMap systemMap, StringBuilder plantUml, Map<SystemComponent, String> componentIds) {
+    private void defineComponents(MapGraph graph, StringBuilder plantUml) {
         plantUml.append("' Définition des composants du système\n");
 
-        for (SystemComponent component : systemMap.getComponents()) {
-            String type = component.getType() != null ? component.getType().toUpperCase() : "UNKNOWN";
-            String componentId = "comp_" + UUID.randomUUID().toString().substring(0, 8);
-            componentIds.put(component, componentId);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            String type = graph.type(node) != null ? graph.type(node).toUpperCase() : "UNKNOWN";
+            String componentId = componentId(node);
+            String name = graph.name(node);
 
             // Sélection du style de composant en fonction du type
             switch (type) {
                 case "DATABASE":
                 case "BASE DE DONNÉES":
-                    plantUml.append("database \"").append(component.getName()).append("\" as ")
+                    plantUml.append("database \"").append(name).append("\" as ")
                             .append(componentId).append(" <<Base de données>>\n");
                     break;
                 case "SERVER":
                 case "SERVEUR":
-                    plantUml.append("node \"").append(component.getName()).append("\" as ")
+                    plantUml.append("node \"").append(name).append("\" as ")
                             .append(componentId).append(" <<Serveur>>\n");
                     break;
                 case "APPLICATION":
                 case "APP":
-                    plantUml.append("rectangle \"").append(component.getName()).append("\" as ")
+                    plantUml.append("rectangle \"").append(name).append("\" as ")
                             .append(componentId).append(" <<Application>>\n");
                     break;
                 case "SAAS":
-                    plantUml.append("component \"").append(component.getName()).append("\" as ")
+                    plantUml.append("component \"").append(name).append("\" as ")
                             .append(componentId).append(" <<SaaS>>\n");
                     break;
                 default:
-                    plantUml.append("component \"").append(component.getName()).append("\" as ")
+                    plantUml.append("component \"").append(name).append("\" as ")
                             .append(componentId).append(" <<Système>>\n");
             }
 
-            // Ajouter une description sous forme de note si disponible
-            if (component.getDescription() != null && !component.getDescription().isEmpty()) {
+            // Ajouter les métadonnées sous forme de note compacte si disponibles
+            // (la description générique est déjà portée par le stéréotype)
+            String note = buildComponentNote(graph, node);
+            if (!note.isEmpty()) {
                 plantUml.append("note right of ").append(componentId)
-                        .append(" : ").append(component.getDescription()).append("\n");
+                        .append(" : ").append(note).append("\n");
             }
         }
     }
 
     /**
-     * Définit les relations entre les composants du système
+     * Construit la note d'un composant à partir de sa version, de son environnement et de sa criticité
      */
-    private void defineRelationships(SystemMap systemMap, StringBuilder plantUml, Map<SystemComponent, String> componentIds) {
-        plantUml.append("' Définition des relations entre composants\n");
+    private String buildComponentNote(MapGraph graph, int node) {
+        StringBuilder note = new StringBuilder();
+        String technology = graph.technology(node);
+        String version = graph.version(node);
+        String environment = graph.environment(node);
+        if (technology != null && !technology.isEmpty()) {
+            note.append(technology);
+        }
+        if (version != null && !version.isEmpty()) {
+            appendSeparator(note).append("v").append(version);
+        }
+        if (environment != null && !environment.isEmpty()) {
+            appendSeparator(note).append(environment);
+        }
+        if (graph.critical(node)) {
+            appendSeparator(note).append("CRITIQUE");
+        }
+        return note.toString();
+    }
 
-        for (ComponentRelationship relationship : systemMap.getRelationships()) {
-            String sourceId = componentIds.get(relationship.getSource());
-            String targetId = componentIds.get(relationship.getTarget());
+    private StringBuilder appendSeparator(StringBuilder note) {
+        return note.length() > 0 ? note.append(" | ") : note;
+    }
 
-            if (sourceId != null && targetId != null) {
-                plantUml.append(sourceId).append(" --> ").append(targetId);
+    /**
+     * Définit les relations entre les composants du système
+     */
+    private void defineRelationships(MapGraph graph, StringBuilder plantUml) {
+        plantUml.append("' Définition des relations entre composants\n");
 
-                // Ajouter le type et/ou la description de la relation si disponible
-                String label = "";
-                if (relationship.getType() != null && !relationship.getType().isEmpty()) {
-                    label = relationship.getType();
-                }
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            plantUml.append(componentId(graph.edgeSource(edge))).append(" --> ")
+                    .append(componentId(graph.edgeTarget(edge)));
 
-                if (relationship.getDescription() != null && !relationship.getDescription().isEmpty()) {
-                    if (!label.isEmpty()) {
-                        label += "\\n";
-                    }
-                    label += relationship.getDescription();
-                }
+            // Ajouter le type et/ou la description de la relation si disponible
+            String type = graph.edgeType(edge);
+            String description = graph.edgeDescription(edge);
+            String label = "";
+            if (type != null && !type.isEmpty()) {
+                label = type;
+            }
 
+            if (description != null && !description.isEmpty() && !description.equals(label)) {
                 if (!label.isEmpty()) {
-                    plantUml.append(" : \"").append(label).append("\"");
+                    label += "\\n";
                 }
+                label += description;
+            }
 
-                plantUml.append("\n");
+            if (!label.isEmpty()) {
+                plantUml.append(" : \"").append(label).append("\"");
             }
+
+            plantUml.append("\n");
+        }
+    }
+
+    private static String componentId(int node) {
+        return "comp_" + node;
+    }
+
+    /**
+     * Encode une source PlantUML déjà compressée en deflate brut pour une URL de serveur PlantUML
+     * (base 64 propre à PlantUML) : la source stockée n'a pas à être décompressée puis recompressée.
+     */
+    public static String encodeForUrl(byte[] deflated) {
+        StringBuilder encoded = new StringBuilder((deflated.length + 2) / 3 * 4);
+        for (int i = 0; i < deflated.length; i += 3) {
+            int b1 = deflated[i] & 0xFF;
+            int b2 = i + 1 < deflated.length ? deflated[i + 1] & 0xFF : 0;
+            int b3 = i + 2 < deflated.length ? deflated[i + 2] & 0xFF : 0;
+            encoded.append(PLANTUML_ALPHABET.charAt(b1 >> 2))
+                    .append(PLANTUML_ALPHABET.charAt(((b1 & 0x3) << 4) | (b2 >> 4)))
+                    .append(PLANTUML_ALPHABET.charAt(((b2 & 0xF) << 2) | (b3 >> 6)))
+                    .append(PLANTUML_ALPHABET.charAt(b3 & 0x3F));
         }
+        return encoded.toString();
     }
 
     /**
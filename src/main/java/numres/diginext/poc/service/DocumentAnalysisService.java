@@ -1,18 +1,40 @@
 package numres.diginext.poc.service;
 
 import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.ExtractedComponent;
+import numres.diginext.poc.model.ExtractedRelationship;
 import numres.diginext.poc.model.SystemMap;
 import numres.diginext.poc.model.SystemComponent;
-import numres.diginext.poc.model.ComponentRelationship;
+import numres.diginext.poc.repository.SystemMapRepository;
+import numres.diginext.poc.search.TextSegmentation;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -23,76 +45,278 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class DocumentAnalysisService {
 
+    private static final Logger log = LoggerFactory.getLogger(DocumentAnalysisService.class);
+
     private final ComponentExtractionService componentExtractionService;
     private final RelationshipExtractionService relationshipExtractionService;
+    private final PatternDictionary patternDictionary;
     private final DiagramGenerationService diagramGenerationService;
+    private final SourceDocumentStore sourceDocumentStore;
+    private final DocumentSearchService documentSearchService;
+    private final SystemMapRepository systemMapRepository;
+    private final EstateGraphService estateGraphService;
+    private final MapGraphService mapGraphService;
+    private final InventoryIngestionService inventoryIngestionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Taille du tampon de caractères utilisé pour le décodage UTF-8 en flux
+    private static final int DECODE_BUFFER_SIZE = 64 * 1024;
+
+    // Capacité initiale du texte décodé, bornée : elle ne dépend pas de la taille du fichier
+    private static final int INITIAL_TEXT_CAPACITY = 1024 * 1024;
+
+    @Value("${diginext.upload.mapped-window-size:16MB}")
+    private DataSize mappedWindowSize;
 
     public SystemMap analyzeDocument(MultipartFile document, String documentName) throws IOException {
-        String text = extractTextFromDocument(document);
+        return analyzeDocument(document, documentName, null);
+    }
 
-        System.out.println("Texte extrait :\n" + text);
+    /**
+     * Analyse un document et, si un client est précisé, fusionne la cartographie
+     * obtenue dans le graphe global de ce client.
+     */
+    public SystemMap analyzeDocument(MultipartFile document, String documentName, String customer) throws IOException {
+        String fileName = document.getOriginalFilename();
+        Path spooledFile = null;
+        String text;
+        try {
+            try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(-1, "texte")) {
+                spooledFile = spoolToDisk(document);
+                text = CmdbInventoryReader.isInventory(spooledFile, fileName)
+                        ? null : extractTextFromDocument(spooledFile, fileName);
+            }
+            // Les inventaires CMDB (XLSX, CSV avec une colonne de nom) sont importés tels quels, sans extraction
+            if (text == null) {
+                return importInventory(spooledFile, fileName, documentName, customer);
+            }
+        } finally {
+            if (spooledFile != null) {
+                Files.deleteIfExists(spooledFile);
+            }
+        }
+
+        // Conservation du texte source pour reconstruire le contexte des mentions à la demande
+        int documentId;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(-1, "stockage")) {
+            documentId = sourceDocumentStore.store(text);
+            stage.setDocumentId(documentId);
+        }
+
+        // Découpage en mots, phrases et paragraphes, en un seul passage partagé par les étapes suivantes
+        TextSegmentation segments;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "segmentation")) {
+            segments = TextSegmentation.of(text);
+        }
+
+        // Indexation plein texte, pour la recherche et les occurrences des composants
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "indexation")) {
+            documentSearchService.index(documentId, segments);
+        }
+
+        // Un seul instantané du dictionnaire pour toute l'analyse, même en cas de rechargement concurrent,
+        // restreint aux règles de la langue du document (règles complètes pour un document mixte)
+        PatternSnapshot.Language language;
+        PatternSnapshot patterns;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "langue")) {
+            language = LanguageDetector.detect(text);
+            patterns = patternDictionary.snapshot().forLanguage(language);
+        }
 
         // Extraction des composants du SI
-        Set<SystemComponent> components = componentExtractionService.extractComponents(text);
+        List<ExtractedComponent> components;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "composants")) {
+            components = componentExtractionService.extractComponents(segments, documentId, patterns);
+        }
 
         // Identification des relations entre composants
-        Set<ComponentRelationship> relationships =
-                relationshipExtractionService.extractRelationships(text, components);
+        Set<ExtractedRelationship> relationships;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "relations")) {
+            relationships = relationshipExtractionService.extractRelationships(segments, components, patterns);
+        }
 
-        // Création de la cartographie
+        // Création de la cartographie : conversion en entités, une seule fois, juste avant l'enregistrement
         SystemMap systemMap = new SystemMap();
         systemMap.setName(documentName);
         systemMap.setDescription("Cartographie générée à partir de " + document.getOriginalFilename());
         systemMap.setCreatedBy("DigiNext POC");
         systemMap.setCreatedDate(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        systemMap.setComponents(components);
-        systemMap.setRelationships(relationships);
+        systemMap.setCustomer(customer);
+        systemMap.setSourceDocumentId(documentId);
+        SystemComponent[] entities = new SystemComponent[components.size()];
+        for (ExtractedComponent component : components) {
+            entities[component.id()] = component.toEntity();
+            systemMap.getComponents().add(entities[component.id()]);
+        }
+        for (ExtractedRelationship relationship : relationships) {
+            systemMap.getRelationships().add(relationship.toEntity(entities));
+        }
 
         // Génération du diagramme PlantUML
-        String plantUmlDiagram = diagramGenerationService.generatePlantUML(systemMap);
-        systemMap.setPlantUmlDiagram(plantUmlDiagram);
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "diagramme")) {
+            systemMap.setPlantUmlDiagram(diagramGenerationService.generatePlantUML(systemMap));
+        }
 
-        return systemMap;
+        SystemMap savedMap;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "persistance")) {
+            savedMap = systemMapRepository.save(systemMap);
+        }
+
+        // Écriture du graphe compact hors tas, relu ensuite sans passer par les entités
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "graphe")) {
+            mapGraphService.write(savedMap);
+        }
+
+        // Fusion dans le graphe global du client
+        if (customer != null) {
+            try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(documentId, "fusion")) {
+                estateGraphService.merge(customer, savedMap);
+            }
+        }
+
+        return savedMap;
     }
 
     /**
-     * Extrait le texte brut du document fourni.
+     * Crée une cartographie à partir d'un inventaire CMDB. Les lignes sont lues en flux et
+     * appliquées par lots par {@link InventoryIngestionService}, à mémoire constante.
      */
-    private String extractTextFromDocument(MultipartFile document) throws IOException {
-        String fileName = document.getOriginalFilename();
-        if (fileName != null) {
-            if (fileName.toLowerCase().endsWith(".pdf")) {
-                return extractTextFromPdf(document);
-            } else if (fileName.toLowerCase().endsWith(".docx")) {
-                return extractTextFromDocx(document);
+    private SystemMap importInventory(Path file, String fileName, String documentName, String customer) throws IOException {
+        SystemMap systemMap = new SystemMap();
+        systemMap.setName(documentName);
+        systemMap.setDescription("Cartographie importée de l'inventaire " + fileName);
+        systemMap.setCreatedBy("DigiNext POC");
+        systemMap.setCreatedDate(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        systemMap.setCustomer(customer);
+        systemMap.setPlantUmlDiagram(diagramGenerationService.generatePlantUML(systemMap));
+        SystemMap savedMap = systemMapRepository.save(systemMap);
+        Long mapId = savedMap.getId();
+
+        InventoryIngestionService.IngestionResult result;
+        try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(-1, "inventaire")) {
+            result = inventoryIngestionService.ingestSpreadsheet(mapId, file, fileName);
+        }
+        log.info("Inventaire {} importé : {} lignes en {} ms", fileName, result.records(), result.durationMillis());
+
+        // Fusion dans le graphe global du client, sur la cartographie rechargée
+        if (customer != null) {
+            try (AnalysisEvents.StageEvent stage = AnalysisEvents.beginStage(-1, "fusion")) {
+                transactionTemplate.executeWithoutResult(status -> estateGraphService.merge(customer,
+                        systemMapRepository.findById(mapId).orElseThrow()));
             }
         }
-        return new String(document.getBytes(), StandardCharsets.UTF_8);
+        return systemMapRepository.findById(mapId).orElseThrow();
     }
 
     /**
-     * Extraction de texte depuis un PDF avec Apache PDFBox.
+     * Extrait le texte brut du document déposé sur disque, afin que les lecteurs
+     * travaillent sur le fichier plutôt que sur une copie complète en mémoire.
      */
-    private String extractTextFromPdf(MultipartFile document) throws IOException {
-        try (InputStream inputStream = document.getInputStream();
-             PDDocument pdfDocument = PDDocument.load(inputStream)) {
+    private String extractTextFromDocument(Path spooledFile, String fileName) throws IOException {
+        String lowerName = fileName != null ? fileName.toLowerCase() : "";
+        if (lowerName.endsWith(".pdf")) {
+            return extractTextFromPdf(spooledFile);
+        } else if (lowerName.endsWith(".docx")) {
+            return extractTextFromDocx(spooledFile);
+        }
+        // Les autres formats (.txt, .md, .csv...) sont lus comme du texte UTF-8
+        return extractTextFromPlainFile(spooledFile);
+    }
 
+    /**
+     * Dépose le fichier uploadé sur disque. Lorsque le multipart est déjà stocké dans un
+     * fichier temporaire, le conteneur se contente de le déplacer.
+     */
+    private Path spoolToDisk(MultipartFile document) throws IOException {
+        Path spooledFile = Files.createTempFile("diginext-upload-", ".tmp");
+        try {
+            Files.deleteIfExists(spooledFile);
+            document.transferTo(spooledFile);
+            return spooledFile;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooledFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Extraction de texte depuis un PDF avec Apache PDFBox, en utilisant uniquement
+     * des fichiers temporaires pour les structures internes du document.
+     */
+    private String extractTextFromPdf(Path file) throws IOException {
+        try (PDDocument pdfDocument = PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
             PDFTextStripper pdfStripper = new PDFTextStripper();
             return pdfStripper.getText(pdfDocument);
         }
     }
 
     /**
-     * Extraction de texte depuis un DOCX avec Apache POI.
+     * Extraction de texte depuis un DOCX avec Apache POI, en ouvrant l'archive
+     * directement depuis le fichier plutôt que depuis un flux mis en mémoire.
      */
-    private String extractTextFromDocx(MultipartFile document) throws IOException {
-        try (InputStream inputStream = document.getInputStream();
-             XWPFDocument docxDocument = new XWPFDocument(inputStream)) {
-
+    private String extractTextFromDocx(Path file) throws IOException {
+        try (XWPFDocument docxDocument = new XWPFDocument(OPCPackage.open(file.toFile(), PackageAccess.READ))) {
             List<XWPFParagraph> paragraphs = docxDocument.getParagraphs();
             return paragraphs.stream()
                     .map(XWPFParagraph::getText)
                     .collect(Collectors.joining("\n"));
+        } catch (InvalidFormatException e) {
+            throw new IOException("Document DOCX invalide: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Lecture d'un fichier texte par fenêtres mémoire-mappées successives avec un décodage
+     * UTF-8 en flux : aucun tableau d'octets de la taille du fichier n'est alloué.
+     * Une séquence UTF-8 coupée en fin de fenêtre est reprise au début de la suivante.
+     */
+    private String extractTextFromPlainFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowSize = Math.max(DECODE_BUFFER_SIZE, mappedWindowSize.toBytes());
+
+            StringBuilder text = new StringBuilder((int) Math.min(size, INITIAL_TEXT_CAPACITY));
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                boolean lastWindow = position + length >= size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                decodeInto(decoder, window, chars, text, lastWindow);
+                position += window.position();
+            }
+
+            CoderResult result;
+            do {
+                result = decoder.flush(chars);
+                drain(chars, text);
+            } while (result.isOverflow());
+
+            // Ignorer un éventuel BOM UTF-8
+            if (text.length() > 0 && text.charAt(0) == '\uFEFF') {
+                text.deleteCharAt(0);
+            }
+            return text.toString();
+        }
+    }
+
+    private void decodeInto(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars,
+                            StringBuilder text, boolean endOfInput) {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chars, endOfInput);
+            drain(chars, text);
+        } while (result.isOverflow());
+    }
+
+    private void drain(CharBuffer chars, StringBuilder text) {
+        chars.flip();
+        text.append(chars);
+        chars.clear();
+    }
+}
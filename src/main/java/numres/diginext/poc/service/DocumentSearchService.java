@@ -0,0 +1,149 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import numres.diginext.poc.search.PositionalIndex;
+import numres.diginext.poc.search.TextSegmentation;
+import numres.diginext.poc.search.TextTokenizer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recherche plein texte dans les documents analysés, à partir de l'index positionnel et du texte
+ * conservé par {@link SourceDocumentStore}.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentSearchService {
+
+    // Nombre de caractères affichés de chaque côté d'une correspondance
+    private static final int SNIPPET_RADIUS = 60;
+    private static final int SNIPPETS_PER_DOCUMENT = 3;
+
+    private final PositionalIndex positionalIndex;
+    private final SourceDocumentStore sourceDocumentStore;
+    private final SystemMapRepository systemMapRepository;
+
+    public void index(int documentId, TextSegmentation document) throws IOException {
+        positionalIndex.add(documentId, document);
+    }
+
+    /**
+     * Documents consultables depuis une cartographie : ceux de son client, ou à défaut le sien.
+     */
+    public int[] documentsOf(SystemMap map) {
+        if (map.getCustomer() != null) {
+            return documentsOfCustomer(map.getCustomer());
+        }
+        return map.getSourceDocumentId() != null ? new int[]{map.getSourceDocumentId()} : new int[0];
+    }
+
+    /**
+     * Documents analysés pour un client, triés par identifiant.
+     */
+    public int[] documentsOfCustomer(String customer) {
+        return systemMapRepository.findSourceDocumentIds(customer).stream()
+                .mapToInt(Integer::intValue).distinct().toArray();
+    }
+
+    /**
+     * Recherche, parmi les documents donnés, ceux contenant tous les termes de la requête. Une requête
+     * entre guillemets est recherchée comme une expression exacte (termes consécutifs).
+     *
+     * @param documents Identifiants triés des documents consultables
+     */
+    public List<SearchResult> search(String query, int[] documents, int limit) throws IOException {
+        String trimmed = query == null ? "" : query.trim();
+        boolean phrase = trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"");
+        return toResults(positionalIndex.search(TextTokenizer.terms(trimmed), phrase, documents, limit));
+    }
+
+    /**
+     * Occurrences du nom d'un composant dans les documents donnés, y compris ceux où l'extraction
+     * ne l'a pas reconnu.
+     */
+    public List<SearchResult> occurrences(SystemComponent component, int[] documents, int limit) throws IOException {
+        return toResults(positionalIndex.search(TextTokenizer.terms(component.getName()), true, documents, limit));
+    }
+
+    private List<SearchResult> toResults(List<PositionalIndex.DocumentMatches> matches) throws IOException {
+        List<SearchResult> results = new ArrayList<>(matches.size());
+        for (PositionalIndex.DocumentMatches match : matches) {
+            results.add(new SearchResult(match.documentId(), match.count(), snippets(match)));
+        }
+        return results;
+    }
+
+    /**
+     * Extraits autour des premières correspondances ; les correspondances proches partagent un extrait.
+     */
+    private List<Snippet> snippets(PositionalIndex.DocumentMatches match) throws IOException {
+        int[] spans = match.spans();
+        List<Snippet> snippets = new ArrayList<>();
+        int i = 0;
+        while (i < spans.length && snippets.size() < SNIPPETS_PER_DOCUMENT) {
+            int from = Math.max(0, spans[i] - SNIPPET_RADIUS);
+            int last = i;
+            while (last + 2 < spans.length && spans[last + 2] - spans[last + 1] < SNIPPET_RADIUS) {
+                last += 2;
+            }
+            int to = spans[last + 1] + SNIPPET_RADIUS;
+            String excerpt = sourceDocumentStore.excerpt(match.documentId(), from, to);
+            if (excerpt.isEmpty()) {
+                break;
+            }
+            snippets.add(highlight(excerpt, from, spans, i, last));
+            i = last + 2;
+        }
+        return snippets;
+    }
+
+    private Snippet highlight(String excerpt, int offset, int[] spans, int first, int last) {
+        StringBuilder html = new StringBuilder(excerpt.length() + 16 * (last - first + 2));
+        int cursor = 0;
+        for (int i = first; i <= last; i += 2) {
+            int start = Math.min(excerpt.length(), Math.max(cursor, spans[i] - offset));
+            int end = Math.min(excerpt.length(), spans[i + 1] - offset);
+            html.append(HtmlUtils.htmlEscape(excerpt.substring(cursor, start)))
+                    .append("<mark>")
+                    .append(HtmlUtils.htmlEscape(excerpt.substring(start, Math.max(start, end))))
+                    .append("</mark>");
+            cursor = Math.max(start, end);
+        }
+        html.append(HtmlUtils.htmlEscape(excerpt.substring(cursor)));
+        return new Snippet(normalizeWhitespace(excerpt), normalizeWhitespace(html));
+    }
+
+    private static String normalizeWhitespace(CharSequence chars) {
+        StringBuilder normalized = new StringBuilder(chars.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Extrait de document : texte brut et version HTML avec les correspondances surlignées.
+     */
+    public record Snippet(String text, String html) {
+    }
+
+    public record SearchResult(int documentId, int matchCount, List<Snippet> snippets) {
+    }
+}
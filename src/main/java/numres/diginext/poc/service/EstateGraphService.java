@@ -0,0 +1,211 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.GraphBuilder;
+import numres.diginext.poc.graph.GraphStore;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.*;
+import numres.diginext.poc.repository.EstateComponentRepository;
+import numres.diginext.poc.repository.EstateRelationshipRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Graphe global du SI d'un client, alimenté par chaque nouvelle cartographie analysée.
+ * La résolution d'entités repose sur le nom normalisé des composants ({@link ComponentNames#normalize}) :
+ * une fusion ne charge que les éléments du graphe global correspondant à la nouvelle cartographie,
+ * son coût dépend donc de la taille de celle-ci et non du volume déjà accumulé.
+ */
+@Service
+@RequiredArgsConstructor
+public class EstateGraphService {
+
+    // Taille maximale des clauses IN envoyées à la base
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    // Taille des pages lues pour reconstruire l'instantané du graphe global
+    private static final int SNAPSHOT_PAGE_SIZE = 5000;
+
+    // L'instantané n'est réécrit qu'à la demande : sa révision ne sert qu'à écarter les fichiers
+    // d'un autre format, et son répertoire propre à la base les fichiers d'une base précédente
+    private static final long SNAPSHOT_REVISION = 0;
+
+    private final EstateComponentRepository estateComponentRepository;
+    private final EstateRelationshipRepository estateRelationshipRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphStore graphStore;
+
+    // Les fusions d'un même client sont sérialisées pour respecter l'unicité des clés
+    private final Map<String, Object> customerLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Fusionne une cartographie dans le graphe global du client.
+     */
+    public void merge(String customer, SystemMap systemMap) {
+        Object lock = customerLocks.computeIfAbsent(customer, c -> new Object());
+        synchronized (lock) {
+            transactionTemplate.executeWithoutResult(status -> doMerge(customer, systemMap));
+        }
+    }
+
+    private void doMerge(String customer, SystemMap systemMap) {
+        // 1. Résolution des composants par nom normalisé
+        Map<SystemComponent, String> keys = new IdentityHashMap<>();
+        for (SystemComponent component : systemMap.getComponents()) {
+            keys.put(component, ComponentNames.normalize(component.getName()));
+        }
+
+        Map<String, EstateComponent> index = new HashMap<>();
+        for (List<String> batch : batches(new ArrayList<>(new HashSet<>(keys.values())))) {
+            for (EstateComponent existing : estateComponentRepository.findByCustomerAndNormalizedNameIn(customer, batch)) {
+                index.put(existing.getNormalizedName(), existing);
+            }
+        }
+
+        Set<String> mergedKeys = new HashSet<>();
+        for (Map.Entry<SystemComponent, String> entry : keys.entrySet()) {
+            SystemComponent component = entry.getKey();
+            EstateComponent estateComponent = index.computeIfAbsent(entry.getValue(), key -> newEstateComponent(customer, key, component));
+            // Un composant n'est compté qu'une fois par cartographie
+            if (mergedKeys.add(entry.getValue())) {
+                mergeComponent(estateComponent, component, systemMap.getId());
+            }
+        }
+        estateComponentRepository.saveAll(index.values());
+
+        // 2. Résolution des relations entre composants globaux
+        Map<String, EstateRelationship> relationshipIndex = new HashMap<>();
+        Set<Long> componentIds = new HashSet<>();
+        index.values().forEach(c -> componentIds.add(c.getId()));
+        // Requête par lot de sources seulement (préfixe de l'index unique) : les cibles sont filtrées ici,
+        // pour que chaque clause IN reste bornée quelle que soit la taille de la cartographie
+        for (List<Long> batch : batches(new ArrayList<>(componentIds))) {
+            for (EstateRelationship existing : estateRelationshipRepository.findByCustomerAndSourceIdIn(customer, batch)) {
+                if (componentIds.contains(existing.getTargetId())) {
+                    relationshipIndex.put(relationshipKey(existing.getSourceId(), existing.getTargetId(), existing.getType()), existing);
+                }
+            }
+        }
+
+        Set<String> mergedRelationships = new HashSet<>();
+        for (ComponentRelationship relationship : systemMap.getRelationships()) {
+            String sourceKey = keys.get(relationship.getSource());
+            String targetKey = keys.get(relationship.getTarget());
+            if (sourceKey == null || targetKey == null) {
+                continue;
+            }
+            Long sourceId = index.get(sourceKey).getId();
+            Long targetId = index.get(targetKey).getId();
+            if (sourceId.equals(targetId)) {
+                continue;
+            }
+            String key = relationshipKey(sourceId, targetId, relationship.getType());
+            EstateRelationship estateRelationship = relationshipIndex.computeIfAbsent(key, k -> {
+                EstateRelationship created = new EstateRelationship();
+                created.setCustomer(customer);
+                created.setSourceId(sourceId);
+                created.setTargetId(targetId);
+                created.setType(relationship.getType());
+                return created;
+            });
+            if (mergedRelationships.add(key)) {
+                estateRelationship.setOccurrences(estateRelationship.getOccurrences() + 1);
+            }
+        }
+        estateRelationshipRepository.saveAll(relationshipIndex.values());
+    }
+
+    /**
+     * Reconstruit l'instantané hors tas du graphe global du client, lu par pages successives.
+     */
+    public MapGraph writeGraphSnapshot(String customer) throws IOException {
+        GraphBuilder builder = new GraphBuilder();
+        Map<Long, Integer> nodes = new HashMap<>();
+
+        long lastId = 0;
+        List<EstateComponent> components;
+        do {
+            components = estateComponentRepository.findByCustomerAndIdGreaterThanOrderByIdAsc(
+                    customer, lastId, Pageable.ofSize(SNAPSHOT_PAGE_SIZE));
+            for (EstateComponent component : components) {
+                nodes.put(component.getId(), builder.addNode(component.getId(), component.getName(),
+                        component.getType(), null, component.getTechnology(), component.getVersion(),
+                        component.getEnvironment(), component.isCritical()));
+                lastId = component.getId();
+            }
+        } while (components.size() == SNAPSHOT_PAGE_SIZE);
+
+        lastId = 0;
+        List<EstateRelationship> relationships;
+        do {
+            relationships = estateRelationshipRepository.findByCustomerAndIdGreaterThanOrderByIdAsc(
+                    customer, lastId, Pageable.ofSize(SNAPSHOT_PAGE_SIZE));
+            for (EstateRelationship relationship : relationships) {
+                Integer source = nodes.get(relationship.getSourceId());
+                Integer target = nodes.get(relationship.getTargetId());
+                if (source != null && target != null) {
+                    builder.addEdge(source, target, relationship.getType(), null);
+                }
+                lastId = relationship.getId();
+            }
+        } while (relationships.size() == SNAPSHOT_PAGE_SIZE);
+
+        return graphStore.write(estateGraphName(customer), SNAPSHOT_REVISION, builder.build());
+    }
+
+    /**
+     * Instantané du graphe global du client, ouvert sans désérialisation s'il existe déjà.
+     */
+    public Optional<MapGraph> graphSnapshot(String customer) throws IOException {
+        return graphStore.open(estateGraphName(customer), SNAPSHOT_REVISION);
+    }
+
+    private static String estateGraphName(String customer) {
+        return "estate-" + customer;
+    }
+
+    private EstateComponent newEstateComponent(String customer, String normalizedName, SystemComponent component) {
+        EstateComponent estateComponent = new EstateComponent();
+        estateComponent.setCustomer(customer);
+        estateComponent.setNormalizedName(normalizedName);
+        estateComponent.setName(component.getName());
+        estateComponent.setType(component.getType());
+        return estateComponent;
+    }
+
+    /**
+     * Complète le composant global avec les informations de la nouvelle cartographie,
+     * les valeurs connues les plus récentes l'emportant.
+     */
+    private void mergeComponent(EstateComponent estateComponent, SystemComponent component, Long systemMapId) {
+        estateComponent.setOccurrences(estateComponent.getOccurrences() + 1);
+        estateComponent.setLastSystemMapId(systemMapId);
+        if (component.getTechnology() != null) {
+            estateComponent.setTechnology(component.getTechnology());
+        }
+        if (component.getVersion() != null) {
+            estateComponent.setVersion(component.getVersion());
+        }
+        if (component.getEnvironment() != null) {
+            estateComponent.setEnvironment(component.getEnvironment());
+        }
+        estateComponent.setCritical(estateComponent.isCritical() || component.isCritical());
+    }
+
+    private static String relationshipKey(Long sourceId, Long targetId, String type) {
+        return sourceId + ">" + targetId + ":" + type;
+    }
+
+    private static <T> List<List<T>> batches(List<T> values) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += LOOKUP_BATCH_SIZE) {
+            batches.add(values.subList(i, Math.min(values.size(), i + LOOKUP_BATCH_SIZE)));
+        }
+        return batches;
+    }
+}
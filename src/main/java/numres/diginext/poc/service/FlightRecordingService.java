@@ -0,0 +1,162 @@
+package numres.diginext.poc.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enregistrements JDK Flight Recorder à la demande, pour profiler le trafic de production.
+ * Un seul enregistrement peut être en cours ; sa durée est bornée et son fichier est écrit dans
+ * le répertoire de stockage à la fin. Les événements {@link AnalysisEvents} y sont toujours inclus.
+ */
+@Service
+public class FlightRecordingService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecordingService.class);
+
+    private final Path directory;
+    private final Duration maxDuration;
+    private final int maxRecordings;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    public FlightRecordingService(@Value("${diginext.storage.directory:${java.io.tmpdir}/diginext}") Path storageDirectory,
+                                  @Value("${diginext.profiling.max-duration:10m}") Duration maxDuration,
+                                  @Value("${diginext.profiling.max-recordings:5}") int maxRecordings) {
+        this.directory = storageDirectory.resolve("recordings");
+        this.maxDuration = maxDuration;
+        this.maxRecordings = Math.max(1, maxRecordings);
+    }
+
+    /**
+     * Démarre un enregistrement.
+     *
+     * @param duration Durée souhaitée, ramenée à {@code diginext.profiling.max-duration}
+     * @param settings Configuration JFR : "default" (surcoût d'environ 1 %) ou "profile" (plus détaillée)
+     * @throws IllegalStateException    si un enregistrement est déjà en cours
+     * @throws IllegalArgumentException si la configuration est inconnue
+     */
+    public synchronized RecordingInfo start(Duration duration, String settings) throws IOException {
+        if (recordings.values().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING)) {
+            throw new IllegalStateException("Un enregistrement est déjà en cours");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (ParseException | IOException e) {
+            throw new IllegalArgumentException("Configuration JFR inconnue: " + settings);
+        }
+        purgeOldRecordings();
+        Files.createDirectories(directory);
+
+        Recording recording = new Recording(configuration);
+        recording.setName("diginext-analyse");
+        recording.enable(AnalysisEvents.StageEvent.class);
+        recording.enable(AnalysisEvents.PatternFamilyEvent.class);
+        recording.setDuration(duration.compareTo(maxDuration) > 0 || duration.isNegative() || duration.isZero()
+                ? maxDuration : duration);
+        recording.setToDisk(true);
+        recording.setDestination(directory.resolve("recording-" + recording.getId() + ".jfr"));
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        log.info("Enregistrement JFR {} démarré pour {}", recording.getId(), recording.getDuration());
+        return describe(recording);
+    }
+
+    /**
+     * Arrête un enregistrement avant son terme ; son fichier est alors écrit.
+     */
+    public RecordingInfo stop(long id) {
+        Recording recording = find(id);
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return describe(recording);
+    }
+
+    public RecordingInfo info(long id) {
+        return describe(find(id));
+    }
+
+    public List<RecordingInfo> list() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .map(this::describe)
+                .toList();
+    }
+
+    /**
+     * Fichier d'un enregistrement terminé.
+     *
+     * @throws IllegalStateException si l'enregistrement est encore en cours
+     */
+    public Path file(long id) {
+        Recording recording = find(id);
+        if (recording.getState() == RecordingState.NEW || recording.getState() == RecordingState.DELAYED
+                || recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Enregistrement en cours");
+        }
+        Path destination = recording.getDestination();
+        if (destination == null || !Files.exists(destination)) {
+            throw new IllegalArgumentException("Fichier d'enregistrement introuvable");
+        }
+        return destination;
+    }
+
+    /**
+     * Ne conserve que les {@code maxRecordings} - 1 enregistrements terminés les plus récents.
+     */
+    private void purgeOldRecordings() throws IOException {
+        List<Recording> finished = new ArrayList<>(recordings.values().stream()
+                .filter(r -> r.getState() != RecordingState.RUNNING)
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .toList());
+        while (finished.size() >= maxRecordings) {
+            Recording oldest = finished.remove(0);
+            recordings.remove(oldest.getId());
+            Path destination = oldest.getDestination();
+            oldest.close();
+            if (destination != null) {
+                Files.deleteIfExists(destination);
+            }
+        }
+    }
+
+    private Recording find(long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            throw new IllegalArgumentException("Enregistrement introuvable: " + id);
+        }
+        return recording;
+    }
+
+    private RecordingInfo describe(Recording recording) {
+        Path destination = recording.getDestination();
+        long size = 0;
+        try {
+            size = destination != null && Files.exists(destination) ? Files.size(destination) : 0;
+        } catch (IOException e) {
+            // Taille inconnue : le fichier est en cours d'écriture
+        }
+        return new RecordingInfo(recording.getId(), recording.getState().name(), recording.getStartTime(),
+                recording.getDuration(), size);
+    }
+
+    public record RecordingInfo(long id, String state, Instant startTime, Duration duration, long size) {
+    }
+}
@@ -0,0 +1,158 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.AdjacencyIndex;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.SystemMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Analyse d'impact sur les cartographies enregistrées : dépendants et dépendances transitifs,
+ * plus courts chemins et voisinages à k sauts. Les parcours s'exécutent sur un index d'adjacence
+ * précalculé ; index et résultats sont mis en cache par révision de cartographie.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImpactAnalysisService {
+
+    private final MapGraphService mapGraphService;
+
+    @Value("${diginext.impact.index-cache-size:32}")
+    private int indexCacheSize;
+
+    @Value("${diginext.impact.result-cache-size:1000}")
+    private int resultCacheSize;
+
+    // Index des cartographies les plus récemment interrogées (tableaux CSR sur le tas)
+    private final Map<Long, CachedIndex> indexes = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedIndex> eldest) {
+                    return size() > indexCacheSize;
+                }
+            });
+
+    private final Map<String, List<ImpactNode>> results = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<ImpactNode>> eldest) {
+                    return size() > resultCacheSize;
+                }
+            });
+
+    /**
+     * Composants qui dépendent (directement ou non) du composant donné : ceux qui sont impactés s'il tombe.
+     */
+    public List<ImpactNode> dependents(SystemMap systemMap, long componentId, int maxDepth) throws IOException {
+        return traverse(systemMap, "dependents", componentId, maxDepth, false, true);
+    }
+
+    /**
+     * Composants dont le composant donné dépend (directement ou non).
+     */
+    public List<ImpactNode> dependencies(SystemMap systemMap, long componentId, int maxDepth) throws IOException {
+        return traverse(systemMap, "dependencies", componentId, maxDepth, true, false);
+    }
+
+    /**
+     * Composants à au plus {@code hops} relations du composant donné, quel que soit leur sens.
+     */
+    public List<ImpactNode> neighborhood(SystemMap systemMap, long componentId, int hops) throws IOException {
+        return traverse(systemMap, "neighborhood", componentId, Math.max(0, hops), true, true);
+    }
+
+    /**
+     * Plus court chemin entre deux composants, vide s'ils ne sont pas reliés.
+     */
+    public List<ImpactNode> shortestPath(SystemMap systemMap, long fromId, long toId, boolean directed) throws IOException {
+        AdjacencyIndex index = indexFor(systemMap);
+        String key = cacheKey(systemMap, "path-" + directed, fromId, toId);
+        List<ImpactNode> cached = results.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        int[] path = index.shortestPath(nodeOf(index, fromId), nodeOf(index, toId), directed);
+        List<ImpactNode> nodes = new ArrayList<>(path.length);
+        for (int i = 0; i < path.length; i++) {
+            nodes.add(toImpactNode(index.graph(), path[i], i));
+        }
+        nodes = Collections.unmodifiableList(nodes);
+        results.put(key, nodes);
+        return nodes;
+    }
+
+    private List<ImpactNode> traverse(SystemMap systemMap, String query, long componentId, int maxDepth,
+                                      boolean forward, boolean backward) throws IOException {
+        AdjacencyIndex index = indexFor(systemMap);
+        String key = cacheKey(systemMap, query, componentId, maxDepth);
+        List<ImpactNode> cached = results.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        int start = nodeOf(index, componentId);
+        int[] depth = index.breadthFirst(start, maxDepth, forward, backward);
+        List<ImpactNode> nodes = new ArrayList<>();
+        for (int node = 0; node < depth.length; node++) {
+            if (depth[node] > 0) {
+                nodes.add(toImpactNode(index.graph(), node, depth[node]));
+            }
+        }
+        nodes.sort((a, b) -> a.depth() != b.depth()
+                ? Integer.compare(a.depth(), b.depth())
+                : String.valueOf(a.name()).compareTo(String.valueOf(b.name())));
+        nodes = Collections.unmodifiableList(nodes);
+        results.put(key, nodes);
+        return nodes;
+    }
+
+    /**
+     * Index d'adjacence de la révision courante d'une cartographie, partagé avec le filtrage des diagrammes.
+     */
+    AdjacencyIndex indexFor(SystemMap systemMap) throws IOException {
+        CachedIndex cached = indexes.get(systemMap.getId());
+        if (cached != null && Objects.equals(cached.revision(), systemMap.getRevision())) {
+            return cached.index();
+        }
+
+        AdjacencyIndex index = new AdjacencyIndex(mapGraphService.graphFor(systemMap));
+        indexes.put(systemMap.getId(), new CachedIndex(systemMap.getRevision(), index));
+        return index;
+    }
+
+    private static int nodeOf(AdjacencyIndex index, long componentId) {
+        int node = index.nodeOf(componentId);
+        if (node < 0) {
+            throw new IllegalArgumentException("Composant absent de la cartographie: " + componentId);
+        }
+        return node;
+    }
+
+    private static String cacheKey(SystemMap systemMap, String query, long componentId, long parameter) {
+        return systemMap.getId() + "/" + systemMap.getRevision() + "/" + query + "/" + componentId + "/" + parameter;
+    }
+
+    private static ImpactNode toImpactNode(MapGraph graph, int node, int depth) {
+        return new ImpactNode(graph.componentId(node), graph.name(node), graph.type(node),
+                graph.critical(node), depth);
+    }
+
+    private record CachedIndex(Long revision, AdjacencyIndex index) {
+    }
+
+    /**
+     * Composant atteint par une requête d'impact, avec sa distance au composant interrogé.
+     */
+    public record ImpactNode(long id, String name, String type, boolean critical, int depth) {
+    }
+}
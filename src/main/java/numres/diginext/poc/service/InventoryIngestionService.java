@@ -0,0 +1,547 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import numres.diginext.poc.graph.ArrayMapGraph;
+import numres.diginext.poc.model.ComponentRelationship;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.ComponentRelationshipRepository;
+import numres.diginext.poc.repository.SystemComponentRepository;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Ingestion des inventaires envoyés par l'Agent Local DigiNext au format NDJSON
+ * (un objet JSON par ligne : hôte, service ou connexion découverts), ou exportés
+ * d'une CMDB en tableur XLSX ou CSV (voir {@link CmdbInventoryReader}).
+ * <p>
+ * Le corps de la requête est lu en flux par le thread appelant, découpé en lots et transmis
+ * par une file bornée à un thread d'écriture qui applique chaque lot dans sa propre transaction.
+ * Lorsque la base ne suit pas, la file se remplit et la lecture de la requête est suspendue
+ * (contre-pression jusqu'au client). Les composants et relations existants sont recherchés en base
+ * pour chaque lot : la mémoire de l'ingestion ne dépend pas de la taille de la cartographie.
+ */
+@Service
+public class InventoryIngestionService {
+
+    // Marqueur de fin de flux transmis au thread d'écriture
+    private static final List<InventoryRecord> END_OF_STREAM = List.of();
+
+    // Description des composants créés, selon l'origine de l'inventaire
+    private static final String AGENT_ORIGIN = "Découvert par l'Agent Local DigiNext";
+    private static final String CMDB_ORIGIN = "Importé d'un inventaire CMDB";
+
+    private final ObjectMapper objectMapper;
+    private final SystemMapRepository systemMapRepository;
+    private final SystemComponentRepository systemComponentRepository;
+    private final ComponentRelationshipRepository componentRelationshipRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DiagramGenerationService diagramGenerationService;
+    private final MapGraphService mapGraphService;
+    private final ExecutorService writers;
+    private final Counter recordCounter;
+    private final Timer batchTimer;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    // Les ingestions d'une même cartographie sont sérialisées
+    private final MapLocks mapLocks = new MapLocks();
+
+    public InventoryIngestionService(ObjectMapper objectMapper,
+                                     SystemMapRepository systemMapRepository,
+                                     SystemComponentRepository systemComponentRepository,
+                                     ComponentRelationshipRepository componentRelationshipRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     DiagramGenerationService diagramGenerationService,
+                                     MapGraphService mapGraphService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${diginext.ingestion.batch-size:1000}") int batchSize,
+                                     @Value("${diginext.ingestion.queue-capacity:8}") int queueCapacity,
+                                     @Value("${diginext.ingestion.writer-threads:2}") int writerThreads) {
+        this.objectMapper = objectMapper;
+        this.systemMapRepository = systemMapRepository;
+        this.systemComponentRepository = systemComponentRepository;
+        this.componentRelationshipRepository = componentRelationshipRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.diagramGenerationService = diagramGenerationService;
+        this.mapGraphService = mapGraphService;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.writers = Executors.newFixedThreadPool(writerThreads, new CustomizableThreadFactory("ingestion-writer-"));
+        this.recordCounter = Counter.builder("diginext.ingestion.records")
+                .description("Enregistrements d'inventaire reçus")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("diginext.ingestion.batch")
+                .description("Durée d'application d'un lot d'inventaire")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdownNow();
+    }
+
+    /**
+     * Lit un flux NDJSON et l'applique à une cartographie enregistrée.
+     *
+     * @param mapId Cartographie à enrichir
+     * @param in    Corps de la requête, lu en flux
+     * @return Le bilan de l'ingestion
+     */
+    public IngestionResult ingest(Long mapId, InputStream in) throws IOException {
+        return ingest(mapId, sink -> readNdjson(in, sink));
+    }
+
+    /**
+     * Applique à une cartographie un inventaire CMDB exporté en tableur (XLSX ou CSV), lu en flux.
+     *
+     * @param mapId    Cartographie à enrichir
+     * @param file     Fichier déposé sur disque
+     * @param fileName Nom d'origine, dont l'extension détermine le format
+     * @throws IllegalArgumentException si la cartographie n'existe pas ou si le format n'est pas supporté
+     */
+    public IngestionResult ingestSpreadsheet(Long mapId, Path file, String fileName) throws IOException {
+        return ingest(mapId, CmdbInventoryReader.forFile(file, fileName));
+    }
+
+    /**
+     * Variante pour un fichier reçu en multipart, déposé sur disque le temps de la lecture.
+     */
+    public IngestionResult ingestSpreadsheet(Long mapId, MultipartFile file) throws IOException {
+        Path spooledFile = Files.createTempFile("diginext-inventory-", ".tmp");
+        try {
+            Files.deleteIfExists(spooledFile);
+            file.transferTo(spooledFile);
+            return ingestSpreadsheet(mapId, spooledFile, file.getOriginalFilename());
+        } finally {
+            Files.deleteIfExists(spooledFile);
+        }
+    }
+
+    private IngestionResult ingest(Long mapId, RecordReader reader) throws IOException {
+        if (!systemMapRepository.existsById(mapId)) {
+            throw new IllegalArgumentException("Cartographie introuvable: " + mapId);
+        }
+
+        long start = System.currentTimeMillis();
+        BlockingQueue<List<InventoryRecord>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Future<IngestionResult> writer = writers.submit(() -> write(mapId, queue, start));
+
+        Exception readError = null;
+        try {
+            BatchingSink sink = new BatchingSink(queue, writer);
+            reader.read(sink);
+            sink.flush();
+        } catch (IOException | RuntimeException e) {
+            // Les lots non encore appliqués sont abandonnés, ceux déjà validés sont conservés
+            // (fichier illisible : NotOfficeXmlFileException de POI, par exemple)
+            queue.clear();
+            readError = e;
+        } finally {
+            // Toujours transmise : sans elle, l'écrivain resterait bloqué en gardant le verrou de la cartographie
+            enqueue(queue, END_OF_STREAM, writer);
+        }
+
+        IngestionResult result = awaitWriter(writer);
+        if (readError instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (readError != null) {
+            throw new IOException(readError.getMessage() + " (" + result.records() + " enregistrements appliqués)", readError);
+        }
+        return result;
+    }
+
+    private void readNdjson(InputStream in, RecordSink sink) throws IOException {
+        try (JsonParser json = objectMapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = json.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Ligne " + json.currentLocation().getLineNr() + " invalide: objet JSON attendu");
+                }
+                sink.accept(readRecord(json));
+            }
+        }
+    }
+
+    private void enqueue(BlockingQueue<List<InventoryRecord>> queue, List<InventoryRecord> batch,
+                         Future<IngestionResult> writer) throws IOException {
+        try {
+            // Attente bornée tant que la file est pleine : c'est elle qui ralentit la lecture de la requête
+            while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+                if (writer.isDone()) {
+                    awaitWriter(writer);
+                    throw new IOException("Écriture de l'inventaire interrompue");
+                }
+            }
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Ingestion interrompue", e);
+        }
+    }
+
+    private IngestionResult awaitWriter(Future<IngestionResult> writer) throws IOException {
+        try {
+            return writer.get();
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Ingestion interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Erreur lors de l'écriture de l'inventaire", cause);
+        }
+    }
+
+    private InventoryRecord readRecord(JsonParser json) throws IOException {
+        String kind = null, name = null, category = null, host = null, technology = null;
+        String version = null, environment = null, source = null, target = null, protocol = null, port = null;
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.currentName();
+            JsonToken value = json.nextToken();
+            if (!value.isScalarValue()) {
+                json.skipChildren();
+                continue;
+            }
+            String text = value == JsonToken.VALUE_NULL ? null : json.getValueAsString();
+            switch (field) {
+                case "kind" -> kind = text;
+                case "name" -> name = text;
+                case "category" -> category = text;
+                case "host" -> host = text;
+                case "technology" -> technology = text;
+                case "version" -> version = text;
+                case "environment" -> environment = text;
+                case "source" -> source = text;
+                case "target" -> target = text;
+                case "protocol" -> protocol = text;
+                case "port" -> port = text;
+                default -> {
+                }
+            }
+        }
+        return new InventoryRecord(kind, name, category, host, technology, version, environment,
+                source, target, protocol, port);
+    }
+
+    private IngestionResult write(Long mapId, BlockingQueue<List<InventoryRecord>> queue, long start)
+            throws InterruptedException, IOException {
+        try (MapLocks.Held held = mapLocks.lock(mapId)) {
+            IngestionState state = new IngestionState();
+            try {
+                List<InventoryRecord> batch;
+                while ((batch = queue.take()) != END_OF_STREAM) {
+                    List<InventoryRecord> records = batch;
+                    IngestionState applied = new IngestionState();
+                    Timer.Sample sample = Timer.start();
+                    transactionTemplate.executeWithoutResult(status -> applyBatch(mapId, records, applied));
+                    sample.stop(batchTimer);
+                    // Les compteurs d'un lot annulé ne sont pas intégrés au bilan
+                    state.add(applied);
+                    recordCounter.increment(records.size());
+                }
+            } finally {
+                // La révision, le diagramme et le graphe sont mis à jour même après une ingestion partielle ;
+                // le graphe est écrit après validation, pour la révision enregistrée
+                if (state.records > 0) {
+                    ArrayMapGraph graph = transactionTemplate.execute(status -> refreshMap(mapId));
+                    mapGraphService.write(mapId, graph);
+                }
+            }
+
+            return new IngestionResult(mapId, state.records, state.ignored, state.createdComponents,
+                    state.updatedComponents, state.createdRelationships, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Applique un lot dans la transaction courante. Les compteurs du lot sont portés par {@code applied},
+     * intégré au bilan une fois le lot validé.
+     */
+    private void applyBatch(Long mapId, List<InventoryRecord> records, IngestionState applied) {
+        // 1. Composants : mises à jour des existants (les seuls noms du lot, chargés en une requête) et créations
+        Set<String> keys = new HashSet<>();
+        for (InventoryRecord record : records) {
+            for (String name : record.componentNames()) {
+                keys.add(ComponentNames.normalize(name));
+            }
+        }
+        Map<String, SystemComponent> touched = new HashMap<>();
+        if (!keys.isEmpty()) {
+            // En cas de doublons dans la cartographie, le plus ancien composant est retenu
+            for (SystemComponent component : systemMapRepository.findComponentsByNameKeys(mapId, keys)) {
+                touched.putIfAbsent(ComponentNames.normalize(component.getName()), component);
+            }
+        }
+
+        List<SystemComponent> created = new ArrayList<>();
+        Set<SystemComponent> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PendingRelationship> pendingRelationships = new ArrayList<>();
+        for (InventoryRecord record : records) {
+            applied.records++;
+            switch (record.kind() != null ? record.kind().toLowerCase() : "") {
+                case "host" -> {
+                    if (record.name() == null) {
+                        applied.ignored++;
+                        continue;
+                    }
+                    applyComponent(component(record.name(), "SERVER", AGENT_ORIGIN, touched, created), record, updated);
+                }
+                case "service" -> {
+                    if (record.name() == null) {
+                        applied.ignored++;
+                        continue;
+                    }
+                    String type = record.category() != null ? record.category().toUpperCase() : "APPLICATION";
+                    SystemComponent service = component(record.name(), type, AGENT_ORIGIN, touched, created);
+                    applyComponent(service, record, updated);
+                    if (record.host() != null) {
+                        SystemComponent host = component(record.host(), "SERVER", AGENT_ORIGIN, touched, created);
+                        pendingRelationships.add(new PendingRelationship(service, host, "est déployé sur", "est déployé sur"));
+                    }
+                }
+                case "connection" -> {
+                    if (record.source() == null || record.target() == null) {
+                        applied.ignored++;
+                        continue;
+                    }
+                    SystemComponent source = component(record.source(), "APPLICATION", AGENT_ORIGIN, touched, created);
+                    SystemComponent target = component(record.target(), "APPLICATION", AGENT_ORIGIN, touched, created);
+                    pendingRelationships.add(new PendingRelationship(source, target, "communique avec",
+                            connectionDescription(record)));
+                }
+                // Lignes d'inventaires CMDB (XLSX, CSV)
+                case "component" -> {
+                    if (record.name() == null) {
+                        applied.ignored++;
+                        continue;
+                    }
+                    String type = record.category() != null ? record.category() : "APPLICATION";
+                    SystemComponent component = component(record.name(), type, CMDB_ORIGIN, touched, created);
+                    applyComponent(component, record, updated);
+                    if (record.host() != null) {
+                        SystemComponent host = component(record.host(), "SERVER", CMDB_ORIGIN, touched, created);
+                        pendingRelationships.add(new PendingRelationship(component, host, "est déployé sur", "est déployé sur"));
+                    }
+                }
+                case "dependency" -> {
+                    if (record.source() == null || record.target() == null) {
+                        applied.ignored++;
+                        continue;
+                    }
+                    SystemComponent source = component(record.source(), "APPLICATION", CMDB_ORIGIN, touched, created);
+                    SystemComponent target = component(record.target(), "APPLICATION", CMDB_ORIGIN, touched, created);
+                    pendingRelationships.add(new PendingRelationship(source, target, "dépend de", "dépend de"));
+                }
+                default -> applied.ignored++;
+            }
+        }
+
+        systemComponentRepository.saveAll(created);
+        updated.removeAll(created);
+        applied.createdComponents += created.size();
+        applied.updatedComponents += updated.size();
+
+        // 2. Relations, dédoublonnées par (source, cible, type) avec celles de la cartographie partant des
+        // mêmes sources, et entre elles
+        Set<String> relationshipKeys = new HashSet<>();
+        Set<Long> sourceIds = new HashSet<>();
+        for (PendingRelationship pending : pendingRelationships) {
+            sourceIds.add(pending.source().getId());
+        }
+        if (!sourceIds.isEmpty()) {
+            for (Object[] row : systemMapRepository.findRelationshipKeys(mapId, sourceIds)) {
+                relationshipKeys.add(relationshipKey((Long) row[0], (Long) row[1], (String) row[2]));
+            }
+        }
+        List<ComponentRelationship> relationships = new ArrayList<>();
+        for (PendingRelationship pending : pendingRelationships) {
+            String key = relationshipKey(pending.source().getId(), pending.target().getId(), pending.type());
+            if (pending.source() == pending.target() || !relationshipKeys.add(key)) {
+                continue;
+            }
+            ComponentRelationship relationship = new ComponentRelationship();
+            relationship.setSource(pending.source());
+            relationship.setTarget(pending.target());
+            relationship.setType(pending.type());
+            relationship.setDescription(pending.description());
+            relationships.add(relationship);
+        }
+        componentRelationshipRepository.saveAll(relationships);
+        applied.createdRelationships += relationships.size();
+
+        // 3. Rattachement à la cartographie par le référentiel, sans charger ses collections complètes
+        componentRelationshipRepository.flush();
+        if (!created.isEmpty()) {
+            systemMapRepository.attachComponents(mapId, created.stream().map(SystemComponent::getId).toList());
+        }
+        if (!relationships.isEmpty()) {
+            systemMapRepository.attachRelationships(mapId,
+                    relationships.stream().map(ComponentRelationship::getId).toList());
+        }
+    }
+
+    private SystemComponent component(String name, String type, String origin, Map<String, SystemComponent> touched,
+                                      List<SystemComponent> created) {
+        return touched.computeIfAbsent(ComponentNames.normalize(name), key -> {
+            SystemComponent component = new SystemComponent();
+            component.setName(name);
+            component.setType(type);
+            component.setDescription(origin);
+            created.add(component);
+            return component;
+        });
+    }
+
+    private static void applyComponent(SystemComponent component, InventoryRecord record, Set<SystemComponent> updated) {
+        if (record.technology() != null && !record.technology().equals(component.getTechnology())) {
+            component.setTechnology(record.technology());
+            updated.add(component);
+        }
+        if (record.version() != null && !record.version().equals(component.getVersion())) {
+            component.setVersion(record.version());
+            updated.add(component);
+        }
+        if (record.environment() != null && !record.environment().equals(component.getEnvironment())) {
+            component.setEnvironment(record.environment());
+            updated.add(component);
+        }
+    }
+
+    private static String connectionDescription(InventoryRecord record) {
+        if (record.protocol() == null && record.port() == null) {
+            return "communique avec";
+        }
+        return "communique avec (" + (record.protocol() != null ? record.protocol() : "")
+                + (record.port() != null ? ":" + record.port() : "") + ")";
+    }
+
+    /**
+     * Incrémente la révision de la cartographie et régénère son diagramme à partir du graphe compact,
+     * construit depuis les colonnes enregistrées sans charger les collections de la cartographie.
+     *
+     * @return Le graphe, à écrire une fois la transaction validée
+     */
+    private ArrayMapGraph refreshMap(Long mapId) {
+        SystemMap systemMap = systemMapRepository.findForRevision(mapId)
+                .orElseThrow(() -> new IllegalArgumentException("Cartographie introuvable: " + mapId));
+        ArrayMapGraph graph = mapGraphService.build(mapId);
+        systemMap.setPlantUmlDiagram(diagramGenerationService.generatePlantUML(systemMap.getName(), graph));
+        return graph;
+    }
+
+    private static String relationshipKey(Long sourceId, Long targetId, String type) {
+        return sourceId + "|" + targetId + "|" + type;
+    }
+
+    /**
+     * Source d'enregistrements d'inventaire lue en flux par le thread appelant.
+     */
+    @FunctionalInterface
+    interface RecordReader {
+        void read(RecordSink sink) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RecordSink {
+        void accept(InventoryRecord record) throws IOException;
+    }
+
+    /**
+     * Regroupe les enregistrements en lots et les transmet au thread d'écriture (bloque si la file est pleine).
+     */
+    private final class BatchingSink implements RecordSink {
+        private final BlockingQueue<List<InventoryRecord>> queue;
+        private final Future<IngestionResult> writer;
+        private List<InventoryRecord> batch = new ArrayList<>(batchSize);
+
+        BatchingSink(BlockingQueue<List<InventoryRecord>> queue, Future<IngestionResult> writer) {
+            this.queue = queue;
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(InventoryRecord record) throws IOException {
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                enqueue(queue, batch, writer);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        void flush() throws IOException {
+            if (!batch.isEmpty()) {
+                enqueue(queue, batch, writer);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Ligne d'inventaire. {@code kind} vaut {@code host}, {@code service} ou {@code connection} pour
+     * l'Agent Local (NDJSON), {@code component} ou {@code dependency} pour les inventaires CMDB.
+     */
+    record InventoryRecord(String kind, String name, String category, String host, String technology,
+                           String version, String environment, String source, String target,
+                           String protocol, String port) {
+
+        List<String> componentNames() {
+            List<String> names = new ArrayList<>(2);
+            for (String name : new String[]{this.name, host, source, target}) {
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+    }
+
+    private record PendingRelationship(SystemComponent source, SystemComponent target, String type, String description) {
+    }
+
+    // Bilan d'une ingestion, manipulé uniquement par son thread d'écriture
+    private static class IngestionState {
+        long records;
+        long ignored;
+        long createdComponents;
+        long updatedComponents;
+        long createdRelationships;
+
+        // Intègre l'apport d'un lot validé
+        void add(IngestionState batch) {
+            records += batch.records;
+            ignored += batch.ignored;
+            createdComponents += batch.createdComponents;
+            updatedComponents += batch.updatedComponents;
+            createdRelationships += batch.createdRelationships;
+        }
+    }
+
+    /**
+     * Bilan d'une ingestion d'inventaire.
+     */
+    public record IngestionResult(Long mapId, long records, long ignored, long createdComponents,
+                                  long updatedComponents, long createdRelationships, long durationMillis) {
+    }
+}
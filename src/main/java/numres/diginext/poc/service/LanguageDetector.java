@@ -0,0 +1,145 @@
+package numres.diginext.poc.service;
+
+/**
+ * Détection de la langue d'un document (français ou anglais) à partir d'un profil de trigrammes de
+ * caractères : mots outils ("de ", " le", "the", "and"...) et lettres accentuées, propres au français.
+ * Des fenêtres réparties sur tout le texte (début, milieu, annexes) sont classées séparément ; un
+ * document n'est attribué à une langue que si toutes ses fenêtres concordent, sinon il est mixte.
+ */
+public final class LanguageDetector {
+
+    // Nombre de fenêtres examinées, quelle que soit la taille du document, et taille d'une fenêtre
+    static final int WINDOW_COUNT = 8;
+    static final int WINDOW_LENGTH = 4_000;
+
+    // Nombre de trigrammes reconnus en deçà duquel une fenêtre n'est pas classée (tableaux, listes de noms)
+    private static final int MIN_HITS = 30;
+
+    // Part minimale des trigrammes d'une langue pour attribuer une fenêtre à cette langue
+    private static final double DOMINANT_SHARE = 0.75;
+
+    private static final String FRENCH_TRIGRAMS = "de | le| la|la |les|des| et| du|du |que| qu|ue | un|une|par"
+            + "|our|ux | au|aux|eau| ce|ait|ais|ont| d'| l'|eur|ur |ne |ons|vec|ui |eux|dan";
+    private static final String ENGLISH_TRIGRAMS = " th|the|he | an|and|nd |ing|ng | to|to | of|of | is|hat|tha"
+            + "| wh|wit|ith|th | fo|for| be|ly |ed | wi|are| ar| it|it |ll | we|ere|ey |ow | by|by |ich";
+
+    // Alphabet réduit : espace, a-z, lettres accentuées du français, autre lettre
+    private static final String ACCENTS = "éèàçêùâîôûëïœ";
+    private static final int ALPHABET_SIZE = 1 + 26 + ACCENTS.length() + 1;
+    private static final int OTHER_LETTER = ALPHABET_SIZE - 1;
+
+    private static final byte FRENCH = 1;
+    private static final byte ENGLISH = 2;
+    private static final byte[] PROFILE = new byte[ALPHABET_SIZE * ALPHABET_SIZE * ALPHABET_SIZE];
+
+    static {
+        for (String trigram : FRENCH_TRIGRAMS.split("\\|")) {
+            PROFILE[index(trigram)] |= FRENCH;
+        }
+        for (String trigram : ENGLISH_TRIGRAMS.split("\\|")) {
+            PROFILE[index(trigram)] |= ENGLISH;
+        }
+        // Tout trigramme contenant une lettre accentuée du français compte pour le français
+        for (int i = 0; i < PROFILE.length; i++) {
+            if (isAccent(i / (ALPHABET_SIZE * ALPHABET_SIZE)) || isAccent(i / ALPHABET_SIZE % ALPHABET_SIZE)
+                    || isAccent(i % ALPHABET_SIZE)) {
+                PROFILE[i] = FRENCH;
+            }
+        }
+    }
+
+    private LanguageDetector() {
+    }
+
+    /**
+     * Langue du document, {@link PatternSnapshot.Language#MIXED} si elle est mêlée ou indéterminée.
+     */
+    public static PatternSnapshot.Language detect(CharSequence text) {
+        int length = text.length();
+        // Fenêtres contiguës pour un texte court, sinon régulièrement espacées du début à la fin
+        int windows = Math.min(WINDOW_COUNT, (length + WINDOW_LENGTH - 1) / WINDOW_LENGTH);
+        long stride = windows > 1 ? (long) (length - WINDOW_LENGTH) / (windows - 1) : 0;
+        boolean french = false;
+        boolean english = false;
+        for (int w = 0; w < windows; w++) {
+            int from = (int) (w * stride);
+            PatternSnapshot.Language window = classify(text, from, Math.min(length, from + WINDOW_LENGTH));
+            if (window == PatternSnapshot.Language.MIXED) {
+                return PatternSnapshot.Language.MIXED;
+            }
+            french |= window == PatternSnapshot.Language.FR;
+            english |= window == PatternSnapshot.Language.EN;
+        }
+        if (french == english) {
+            // Les deux langues, ou aucune fenêtre classée
+            return PatternSnapshot.Language.MIXED;
+        }
+        return french ? PatternSnapshot.Language.FR : PatternSnapshot.Language.EN;
+    }
+
+    /**
+     * Classe une fenêtre du texte.
+     *
+     * @return La langue dominante, {@link PatternSnapshot.Language#MIXED} si aucune ne domine,
+     * ou null si la fenêtre contient trop peu de texte courant
+     */
+    private static PatternSnapshot.Language classify(CharSequence text, int from, int to) {
+        int frenchHits = 0;
+        int englishHits = 0;
+        // Les séparateurs consécutifs sont réduits à un espace, comme entre deux mots
+        int previous = 0;
+        int beforePrevious = 0;
+        for (int i = from; i < to; i++) {
+            int symbol = symbol(text.charAt(i));
+            if (symbol == 0 && previous == 0) {
+                continue;
+            }
+            byte languages = PROFILE[(beforePrevious * ALPHABET_SIZE + previous) * ALPHABET_SIZE + symbol];
+            if ((languages & FRENCH) != 0) {
+                frenchHits++;
+            }
+            if ((languages & ENGLISH) != 0) {
+                englishHits++;
+            }
+            beforePrevious = previous;
+            previous = symbol;
+        }
+
+        int hits = frenchHits + englishHits;
+        if (hits < MIN_HITS) {
+            return null;
+        }
+        if (frenchHits >= hits * DOMINANT_SHARE) {
+            return PatternSnapshot.Language.FR;
+        }
+        if (englishHits >= hits * DOMINANT_SHARE) {
+            return PatternSnapshot.Language.EN;
+        }
+        return PatternSnapshot.Language.MIXED;
+    }
+
+    private static int symbol(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower >= 'a' && lower <= 'z') {
+            return 1 + lower - 'a';
+        }
+        int accent = ACCENTS.indexOf(lower);
+        if (accent >= 0) {
+            return 27 + accent;
+        }
+        // L'apostrophe fait partie des trigrammes ("d'", "l'") ; les autres séparateurs valent un espace
+        if (c == '\'' || c == '’') {
+            return OTHER_LETTER;
+        }
+        return Character.isLetter(c) ? OTHER_LETTER : 0;
+    }
+
+    private static int index(String trigram) {
+        return (symbol(trigram.charAt(0)) * ALPHABET_SIZE + symbol(trigram.charAt(1))) * ALPHABET_SIZE
+                + symbol(trigram.charAt(2));
+    }
+
+    private static boolean isAccent(int symbol) {
+        return symbol >= 27 && symbol < OTHER_LETTER;
+    }
+}
@@ -0,0 +1,96 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.MapDiff;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comparaison de deux cartographies, par exemple avant et après une mise à jour de la documentation
+ * d'un client. La différence est calculée sur les graphes compacts, sans charger les entités.
+ */
+@Service
+@RequiredArgsConstructor
+public class MapDiffService {
+
+    private final SystemMapRepository systemMapRepository;
+    private final MapGraphService mapGraphService;
+    private final DiagramGenerationService diagramGenerationService;
+
+    /**
+     * Éléments ajoutés, supprimés et modifiés entre une cartographie de référence et une nouvelle.
+     */
+    public MapComparison compare(Long beforeMapId, Long afterMapId) throws IOException {
+        MapGraph before = mapGraphService.graphFor(findMap(beforeMapId));
+        MapGraph after = mapGraphService.graphFor(findMap(afterMapId));
+        MapDiff diff = MapDiff.compute(before, after);
+
+        return new MapComparison(beforeMapId, afterMapId,
+                components(after, diff.addedComponents()),
+                components(before, diff.removedComponents()),
+                components(after, diff.changedComponents()),
+                relationships(after, diff.addedRelationships()),
+                relationships(before, diff.removedRelationships()),
+                relationships(after, diff.changedRelationships()));
+    }
+
+    /**
+     * Diagramme PlantUML limité aux évolutions entre les deux cartographies.
+     */
+    public String deltaDiagram(Long beforeMapId, Long afterMapId) throws IOException {
+        SystemMap beforeMap = findMap(beforeMapId);
+        SystemMap afterMap = findMap(afterMapId);
+        MapGraph before = mapGraphService.graphFor(beforeMap);
+        MapGraph after = mapGraphService.graphFor(afterMap);
+        return diagramGenerationService.generateDeltaPlantUML(
+                beforeMap.getName() + " → " + afterMap.getName(), before, after, MapDiff.compute(before, after));
+    }
+
+    private List<ComponentChange> components(MapGraph graph, int[] nodes) {
+        List<ComponentChange> changes = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            changes.add(new ComponentChange(graph.componentId(node), graph.name(node), graph.type(node),
+                    graph.version(node), graph.environment(node)));
+        }
+        return changes;
+    }
+
+    private List<RelationshipChange> relationships(MapGraph graph, int[] edges) {
+        List<RelationshipChange> changes = new ArrayList<>(edges.length);
+        for (int edge : edges) {
+            changes.add(new RelationshipChange(graph.name(graph.edgeSource(edge)), graph.name(graph.edgeTarget(edge)),
+                    graph.edgeType(edge), graph.edgeDescription(edge)));
+        }
+        return changes;
+    }
+
+    private SystemMap findMap(Long mapId) {
+        return systemMapRepository.findById(mapId)
+                .orElseThrow(() -> new IllegalArgumentException("Cartographie introuvable: " + mapId));
+    }
+
+    /**
+     * Composant ajouté, supprimé ou modifié, tel qu'il figure dans la version où il existe
+     * (la nouvelle version pour un composant modifié).
+     */
+    public record ComponentChange(long id, String name, String type, String version, String environment) {
+    }
+
+    public record RelationshipChange(String source, String target, String type, String description) {
+    }
+
+    public record MapComparison(Long beforeMapId, Long afterMapId,
+                                List<ComponentChange> addedComponents,
+                                List<ComponentChange> removedComponents,
+                                List<ComponentChange> changedComponents,
+                                List<RelationshipChange> addedRelationships,
+                                List<RelationshipChange> removedRelationships,
+                                List<RelationshipChange> changedRelationships) {
+    }
+}
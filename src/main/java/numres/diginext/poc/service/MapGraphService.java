@@ -0,0 +1,128 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.ArrayMapGraph;
+import numres.diginext.poc.graph.GraphBuilder;
+import numres.diginext.poc.graph.GraphStore;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Graphes compacts des cartographies enregistrées. Le fichier d'un graphe porte la révision de la
+ * cartographie dont il est issu ; s'il manque ou s'il a été écrit pour une autre révision, il est
+ * reconstruit à partir des colonnes des composants et des relations lues par pages, sans charger les entités.
+ */
+@Service
+@RequiredArgsConstructor
+public class MapGraphService {
+
+    // Taille des pages lues pour reconstruire un graphe
+    private static final int PAGE_SIZE = 5000;
+
+    private final SystemMapRepository systemMapRepository;
+    private final GraphStore graphStore;
+
+    /**
+     * Graphe de la révision courante d'une cartographie.
+     */
+    public MapGraph graphFor(SystemMap systemMap) throws IOException {
+        return graphFor(systemMap.getId(), revisionOf(systemMap));
+    }
+
+    /**
+     * Graphe de la révision enregistrée d'une cartographie, lue sans charger la cartographie.
+     */
+    public MapGraph graphFor(Long mapId) throws IOException {
+        return graphFor(mapId, revisionOf(mapId));
+    }
+
+    /**
+     * Graphe d'une cartographie pour la révision donnée, reconstruit si le fichier existant est d'une autre révision.
+     */
+    public MapGraph graphFor(Long mapId, long revision) throws IOException {
+        return graphFor(mapId, revision, true);
+    }
+
+    /**
+     * Graphe lu une seule fois, par exemple lors d'une réévaluation en masse : il n'est pas conservé
+     * dans le cache des graphes ouverts.
+     */
+    public MapGraph oneShotGraphFor(Long mapId, long revision) throws IOException {
+        return graphFor(mapId, revision, false);
+    }
+
+    private MapGraph graphFor(Long mapId, long revision, boolean cached) throws IOException {
+        String graphName = GraphStore.mapGraphName(mapId);
+        Optional<MapGraph> existing = graphStore.open(graphName, revision, cached);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        return graphStore.write(graphName, revision, build(mapId), cached);
+    }
+
+    /**
+     * Écrit le graphe d'une cartographie qui vient d'être enregistrée et dont les entités sont déjà en mémoire.
+     */
+    public MapGraph write(SystemMap savedMap) throws IOException {
+        return graphStore.write(GraphStore.mapGraphName(savedMap.getId()), revisionOf(savedMap),
+                GraphBuilder.fromSystemMap(savedMap));
+    }
+
+    /**
+     * Écrit un graphe déjà construit pour la révision enregistrée de la cartographie, lue après validation.
+     */
+    public MapGraph write(Long mapId, ArrayMapGraph graph) throws IOException {
+        return graphStore.write(GraphStore.mapGraphName(mapId), revisionOf(mapId), graph);
+    }
+
+    /**
+     * Construit le graphe d'une cartographie enregistrée à partir de ses colonnes, lues par pages.
+     */
+    public ArrayMapGraph build(Long mapId) {
+        GraphBuilder builder = new GraphBuilder();
+        Map<Long, Integer> nodes = new HashMap<>();
+
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            rows = systemMapRepository.findComponentRowsAfter(mapId, lastId, Pageable.ofSize(PAGE_SIZE));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                nodes.put(lastId, builder.addNode(lastId, (String) row[1], (String) row[2], (String) row[3],
+                        (String) row[4], (String) row[5], (String) row[6], (Boolean) row[7]));
+            }
+        } while (rows.size() == PAGE_SIZE);
+
+        lastId = 0;
+        do {
+            rows = systemMapRepository.findRelationshipRowsAfter(mapId, lastId, Pageable.ofSize(PAGE_SIZE));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                Integer source = nodes.get((Long) row[1]);
+                Integer target = nodes.get((Long) row[2]);
+                if (source != null && target != null) {
+                    builder.addEdge(source, target, (String) row[3], (String) row[4]);
+                }
+            }
+        } while (rows.size() == PAGE_SIZE);
+        return builder.build();
+    }
+
+    private long revisionOf(Long mapId) {
+        return systemMapRepository.findRevision(mapId)
+                .orElseThrow(() -> new IllegalArgumentException("Cartographie introuvable: " + mapId));
+    }
+
+    private static long revisionOf(SystemMap systemMap) {
+        return systemMap.getRevision() != null ? systemMap.getRevision() : 0;
+    }
+}
@@ -0,0 +1,42 @@
+package numres.diginext.poc.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verrous exclusifs par cartographie, créés à la demande et retirés dès qu'ils sont libérés :
+ * leur nombre est borné par celui des cartographies en cours de traitement.
+ */
+final class MapLocks {
+
+    private final Map<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Attend le verrou de la cartographie, à libérer par {@link Held#close()} (try-with-resources).
+     */
+    Held lock(Long mapId) {
+        while (true) {
+            ReentrantLock lock = locks.computeIfAbsent(mapId, id -> new ReentrantLock());
+            lock.lock();
+            // Un verrou retiré par son détenteur précédent pendant l'attente a pu être remplacé
+            if (locks.get(mapId) == lock) {
+                return () -> {
+                    if (lock.getHoldCount() == 1) {
+                        locks.remove(mapId, lock);
+                    }
+                    lock.unlock();
+                };
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Verrou détenu sur une cartographie.
+     */
+    interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
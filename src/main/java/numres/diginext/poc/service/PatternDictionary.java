@@ -0,0 +1,88 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Dictionnaire des vocabulaires d'extraction, chargé depuis un fichier versionné
+ * ({@code diginext.dictionary.location}) plutôt que codé en dur.
+ * <p>
+ * L'instantané compilé est publié par une {@link AtomicReference} : la lecture par les analyses
+ * est une simple lecture volatile, sans verrou, et un rechargement remplace l'instantané d'un bloc.
+ * L'empreinte du fichier source évite de recompiler un dictionnaire inchangé.
+ */
+@Component
+public class PatternDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(PatternDictionary.class);
+
+    private final AtomicReference<PatternSnapshot> current = new AtomicReference<>();
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String location;
+
+    public PatternDictionary(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                             @Value("${diginext.dictionary.location:classpath:dictionaries/extraction.json}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.location = location;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        reload();
+    }
+
+    /**
+     * Instantané courant. Une analyse doit l'obtenir une seule fois et l'utiliser jusqu'à la fin.
+     */
+    public PatternSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Recharge le dictionnaire et publie le nouvel instantané. En cas d'erreur, l'instantané courant est conservé.
+     *
+     * @return L'instantané en vigueur après le rechargement
+     */
+    public synchronized PatternSnapshot reload() throws IOException {
+        byte[] json;
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            json = in.readAllBytes();
+        }
+        String checksum = checksum(json);
+
+        PatternSnapshot previous = current.get();
+        if (previous != null && previous.getChecksum().equals(checksum)) {
+            return previous;
+        }
+
+        PatternSnapshot snapshot = PatternSnapshot.compile(json, checksum, objectMapper);
+        current.set(snapshot);
+        log.info("Dictionnaire d'extraction version {} chargé ({} règles de composants, {} règles de relations)",
+                snapshot.getVersion(), snapshot.getComponentRules().size(), snapshot.getRelationshipRules().size());
+        return snapshot;
+    }
+
+    private static String checksum(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
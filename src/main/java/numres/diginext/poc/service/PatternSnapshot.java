@@ -0,0 +1,249 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import numres.diginext.poc.search.TextTokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Instantané immuable des vocabulaires d'extraction, compilés en expressions régulières.
+ * Un instantané n'est jamais modifié : un nouveau dictionnaire produit un nouvel instantané,
+ * ce qui permet aux analyses en cours de continuer avec celui qu'elles ont obtenu au départ.
+ * <p>
+ * Les termes d'une règle sont neutres (noms de produits, sigles, anglicismes courants en français
+ * comme "server" ou "database") ou propres à une langue ({@code localized}). Chaque langue dispose
+ * de son propre jeu de règles, limité aux termes neutres et à ceux de la langue ; le jeu complet
+ * reste utilisé pour les documents mixtes ou indéterminés.
+ * Chaque règle retient aussi le premier mot normalisé de ses termes : une règle dont aucun de ces
+ * mots n'apparaît dans le document n'a pas besoin d'être appliquée.
+ */
+public final class PatternSnapshot {
+
+    // Nom qui suit le mot-clé d'un composant (ex. "serveur srv-app-01")
+    private static final String NAME_GROUP = "([A-Za-z0-9_.-]{2,})";
+
+    // Mot de part et d'autre d'une tournure de relation (ex. "app-01 dépend de db-02")
+    private static final String WORD_GROUP = "([A-Za-z0-9_-]+)";
+
+    private final String version;
+    private final String checksum;
+    private final Language language;
+    private final List<ComponentRule> componentRules;
+    private final List<RelationshipRule> relationshipRules;
+    private final Map<Language, PatternSnapshot> variants;
+
+    private PatternSnapshot(String version, String checksum, Language language,
+                            List<ComponentRule> componentRules, List<RelationshipRule> relationshipRules,
+                            Map<Language, PatternSnapshot> variants) {
+        this.version = version;
+        this.checksum = checksum;
+        this.language = language;
+        this.componentRules = List.copyOf(componentRules);
+        this.relationshipRules = List.copyOf(relationshipRules);
+        this.variants = variants;
+    }
+
+    /**
+     * Compile un dictionnaire JSON (voir {@code dictionaries/extraction.json}).
+     *
+     * @param json     Contenu du dictionnaire
+     * @param checksum Empreinte du fichier source, qui permet de reconnaître un dictionnaire inchangé
+     * @throws IOException si le dictionnaire est invalide (champ manquant, valeur inconnue, expression incorrecte)
+     */
+    public static PatternSnapshot compile(byte[] json, String checksum, ObjectMapper objectMapper) throws IOException {
+        JsonNode root = objectMapper.readTree(json);
+        if (root == null || !root.hasNonNull("version")) {
+            throw new IOException("Dictionnaire d'extraction invalide: version manquante");
+        }
+
+        String version = root.get("version").asText();
+        // Une même expression n'est compilée qu'une fois, même si elle figure dans plusieurs jeux de règles
+        Map<String, Pattern> compiled = new HashMap<>();
+        Map<Language, PatternSnapshot> variants = new EnumMap<>(Language.class);
+        for (Language language : Language.values()) {
+            List<ComponentRule> componentRules = new ArrayList<>();
+            for (JsonNode entry : root.path("components")) {
+                String type = requiredText(entry, "type");
+                NameMode nameMode = nameMode(entry);
+                Set<String> anchors = new HashSet<>();
+                String keywords = alternation(entry, "keywords", language, anchors);
+                if (keywords.isEmpty()) {
+                    continue;
+                }
+                String regex = switch (nameMode) {
+                    case REQUIRED -> "\\b(" + keywords + ")\\s+" + NAME_GROUP + "\\b";
+                    case OPTIONAL -> "\\b(" + keywords + ")\\s+" + NAME_GROUP + "?\\b";
+                    case NONE -> "\\b(" + keywords + ")\\b";
+                };
+                componentRules.add(new ComponentRule(type, requiredText(entry, "description"), nameMode,
+                        compiled.computeIfAbsent(regex, r -> Pattern.compile(r, Pattern.CASE_INSENSITIVE)),
+                        Set.copyOf(anchors)));
+            }
+
+            List<RelationshipRule> relationshipRules = new ArrayList<>();
+            for (JsonNode entry : root.path("relationships")) {
+                String type = requiredText(entry, "type");
+                Set<String> anchors = new HashSet<>();
+                String phrases = alternation(entry, "phrases", language, anchors);
+                if (phrases.isEmpty()) {
+                    continue;
+                }
+                String regex = "\\b" + WORD_GROUP + "\\s+(" + phrases + ")\\s+" + WORD_GROUP + "\\b";
+                relationshipRules.add(new RelationshipRule(type,
+                        compiled.computeIfAbsent(regex, r -> Pattern.compile(r, Pattern.CASE_INSENSITIVE)),
+                        Set.copyOf(anchors)));
+            }
+            variants.put(language, new PatternSnapshot(version, checksum, language, componentRules, relationshipRules, Map.of()));
+        }
+
+        PatternSnapshot mixed = variants.get(Language.MIXED);
+        return new PatternSnapshot(version, checksum, Language.MIXED, mixed.componentRules, mixed.relationshipRules, variants);
+    }
+
+    /**
+     * Jeu de règles d'une langue : termes neutres et termes de cette langue uniquement.
+     * Le jeu complet est retourné pour {@link Language#MIXED}.
+     */
+    public PatternSnapshot forLanguage(Language language) {
+        return variants.getOrDefault(language, this);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public Language getLanguage() {
+        return language;
+    }
+
+    public List<ComponentRule> getComponentRules() {
+        return componentRules;
+    }
+
+    public List<RelationshipRule> getRelationshipRules() {
+        return relationshipRules;
+    }
+
+    /**
+     * Alternative des termes neutres d'une règle et de ceux de la langue (de toutes les langues pour
+     * {@link Language#MIXED}).
+     *
+     * @param anchors Premiers mots normalisés des termes ; vidé si un terme ne contient aucun mot
+     * @return L'alternative, vide si la règle n'a aucun terme pour cette langue
+     */
+    private static String alternation(JsonNode entry, String field, Language language, Set<String> anchors) throws IOException {
+        StringJoiner alternation = new StringJoiner("|");
+        boolean anchored = addTerms(alternation, entry.path(field), anchors);
+        for (Language localized : Language.values()) {
+            if (localized != Language.MIXED && (language == Language.MIXED || language == localized)) {
+                anchored &= addTerms(alternation, entry.path("localized").path(localized.code()), anchors);
+            }
+        }
+        if (!anchored) {
+            anchors.clear();
+        }
+        if (language == Language.MIXED && alternation.length() == 0) {
+            throw new IOException("Dictionnaire d'extraction invalide: aucun terme pour " + requiredText(entry, "type"));
+        }
+        return alternation.toString();
+    }
+
+    private static boolean addTerms(StringJoiner alternation, JsonNode terms, Set<String> anchors) {
+        boolean anchored = true;
+        for (JsonNode term : terms) {
+            // Les termes sont littéraux : un client peut ajouter "C++" ou "S3 (archive)" sans échappement
+            alternation.add(Pattern.quote(term.asText()));
+            List<String> words = TextTokenizer.terms(term.asText());
+            if (words.isEmpty()) {
+                anchored = false;
+            } else {
+                anchors.add(words.get(0));
+            }
+        }
+        return anchored;
+    }
+
+    private static NameMode nameMode(JsonNode entry) throws IOException {
+        String value = entry.path("name").asText("required");
+        try {
+            return NameMode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Dictionnaire d'extraction invalide: mode de nom '" + value + "' inconnu pour "
+                    + requiredText(entry, "type"), e);
+        }
+    }
+
+    private static String requiredText(JsonNode entry, String field) throws IOException {
+        if (!entry.hasNonNull(field)) {
+            throw new IOException("Dictionnaire d'extraction invalide: champ '" + field + "' manquant");
+        }
+        return entry.get(field).asText();
+    }
+
+    /**
+     * Langue d'un document et du jeu de règles associé.
+     */
+    public enum Language {
+        FR("fr"), EN("en"), MIXED("*");
+
+        private final String code;
+
+        Language(String code) {
+            this.code = code;
+        }
+
+        public String code() {
+            return code;
+        }
+    }
+
+    /**
+     * Présence d'un nom après le mot-clé d'un composant.
+     */
+    public enum NameMode {
+        REQUIRED, OPTIONAL, NONE
+    }
+
+    /**
+     * Règle d'extraction d'un type de composant.
+     *
+     * @param anchors Premiers mots normalisés des mots-clés, vide si la règle doit toujours être appliquée
+     */
+    public record ComponentRule(String type, String description, NameMode nameMode, Pattern pattern,
+                                Set<String> anchors) {
+
+        /**
+         * Faux si aucun mot-clé de la règle ne peut apparaître dans un document de ces termes.
+         */
+        public boolean appliesTo(Set<String> documentTerms) {
+            return anchors.isEmpty() || anchors.stream().anyMatch(documentTerms::contains);
+        }
+    }
+
+    /**
+     * Règle d'extraction d'un type de relation explicite.
+     *
+     * @param anchors Premiers mots normalisés des tournures, vide si la règle doit toujours être appliquée
+     */
+    public record RelationshipRule(String type, Pattern pattern, Set<String> anchors) {
+
+        public boolean appliesTo(Set<String> documentTerms) {
+            return anchors.isEmpty() || anchors.stream().anyMatch(documentTerms::contains);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package numres.diginext.poc.service;
+
+import jakarta.annotation.PreDestroy;
+import numres.diginext.poc.config.StorageLocation;
+import numres.diginext.poc.graph.MapGraph;
+import numres.diginext.poc.model.MapRecommendation;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.MapRecommendationRepository;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Recommandations enregistrées des cartographies et leur réévaluation en masse.
+ * <p>
+ * Une recommandation enregistrée n'est servie que si elle a été produite par la version courante
+ * des règles ({@link RecommendationService#RULESET_VERSION}) sur la révision courante de la
+ * cartographie ; sinon elle est recalculée à la lecture. Après une modification des règles, la
+ * réévaluation parcourt toutes les cartographies par pages (pagination par identifiant), évalue
+ * chaque page en parallèle sur un nombre borné de threads à partir des graphes compacts, écrit
+ * la page en un lot, puis enregistre un point de reprise dans le répertoire propre à la base. Les
+ * cartographies en échec sont conservées pour être réévaluées seules ({@link #retryFailed()}) ;
+ * une cartographie modifiée pendant son évaluation est laissée au recalcul à la lecture.
+ */
+@Service
+public class RecommendationRefreshService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationRefreshService.class);
+
+    private final SystemMapRepository systemMapRepository;
+    private final MapRecommendationRepository mapRecommendationRepository;
+    private final RecommendationService recommendationService;
+    private final MapGraphService mapGraphService;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageLocation storageLocation;
+    private final int pageSize;
+    private final ExecutorService evaluators;
+    private final ExecutorService coordinator =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("recommendation-refresh-"));
+
+    // Les lectures concurrentes d'une même cartographie ne recalculent qu'une fois
+    private final MapLocks mapLocks = new MapLocks();
+
+    private volatile RefreshJob currentJob;
+
+    public RecommendationRefreshService(SystemMapRepository systemMapRepository,
+                                        MapRecommendationRepository mapRecommendationRepository,
+                                        RecommendationService recommendationService,
+                                        MapGraphService mapGraphService,
+                                        TransactionTemplate transactionTemplate,
+                                        StorageLocation storageLocation,
+                                        @Value("${diginext.recommendations.refresh.page-size:500}") int pageSize,
+                                        @Value("${diginext.recommendations.refresh.parallelism:0}") int parallelism) {
+        this.systemMapRepository = systemMapRepository;
+        this.mapRecommendationRepository = mapRecommendationRepository;
+        this.recommendationService = recommendationService;
+        this.mapGraphService = mapGraphService;
+        this.transactionTemplate = transactionTemplate;
+        this.storageLocation = storageLocation;
+        this.pageSize = Math.max(1, pageSize);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.evaluators = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("recommendation-eval-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        evaluators.shutdownNow();
+    }
+
+    /**
+     * Recommandations d'une cartographie : celles enregistrées si elles sont à jour, sinon
+     * recalculées sur le graphe fourni et enregistrées.
+     */
+    public List<RecommendationService.Recommendation> recommendationsFor(SystemMap systemMap, MapGraph graph) {
+        Long mapId = systemMap.getId();
+        try (MapLocks.Held held = mapLocks.lock(mapId)) {
+            List<MapRecommendation> stored = mapRecommendationRepository.findByMapIdOrderById(mapId);
+            if (!stored.isEmpty() && isCurrent(stored.get(0), systemMap.getRevision())) {
+                return stored.stream()
+                        .filter(r -> !r.isNoRecommendation())
+                        .map(r -> new RecommendationService.Recommendation(r.getTitle(), r.getDescription(), r.getPriority()))
+                        .toList();
+            }
+            List<RecommendationService.Recommendation> recommendations = recommendationService.generateRecommendations(graph);
+            // Pendant une réévaluation, seule celle-ci écrit : pas d'écritures concurrentes sur une même cartographie
+            RefreshJob job = currentJob;
+            if (job == null || job.state != RefreshState.RUNNING) {
+                transactionTemplate.executeWithoutResult(status -> replace(
+                        List.of(new Evaluation(mapId, systemMap.getRevision(), recommendations))));
+            }
+            return recommendations;
+        }
+    }
+
+    /**
+     * Lance la réévaluation de toutes les cartographies en tâche de fond.
+     *
+     * @param resume Reprend après la dernière page écrite si le point de reprise correspond à la version courante des règles
+     * @throws IllegalStateException si une réévaluation est déjà en cours
+     */
+    public synchronized RefreshProgress start(boolean resume) throws IOException {
+        if (currentJob != null && currentJob.state == RefreshState.RUNNING) {
+            throw new IllegalStateException("Une réévaluation est déjà en cours");
+        }
+        long afterId = resume ? readCheckpoint() : 0;
+        RefreshJob job = new RefreshJob(afterId, systemMapRepository.count(), null);
+        currentJob = job;
+        coordinator.submit(() -> run(job));
+        log.info("Réévaluation des recommandations (règles v{}) démarrée après la cartographie {}",
+                RecommendationService.RULESET_VERSION, afterId);
+        return job.progress();
+    }
+
+    /**
+     * Réévalue en tâche de fond les seules cartographies en échec lors de la dernière réévaluation,
+     * sans toucher au point de reprise.
+     *
+     * @throws IllegalStateException    si une réévaluation est déjà en cours
+     * @throws IllegalArgumentException si aucune cartographie n'est en échec
+     */
+    public synchronized RefreshProgress retryFailed() {
+        RefreshJob previous = currentJob;
+        if (previous != null && previous.state == RefreshState.RUNNING) {
+            throw new IllegalStateException("Une réévaluation est déjà en cours");
+        }
+        if (previous == null || previous.failedMapIds.isEmpty()) {
+            throw new IllegalArgumentException("Aucune cartographie en échec à réévaluer");
+        }
+        List<Long> mapIds = previous.failedMapIds.stream().sorted().toList();
+        RefreshJob job = new RefreshJob(0, mapIds.size(), mapIds);
+        currentJob = job;
+        coordinator.submit(() -> run(job));
+        return job.progress();
+    }
+
+    /**
+     * Demande l'arrêt de la réévaluation à la fin de la page en cours ; elle pourra être reprise.
+     */
+    public RefreshProgress stop() {
+        RefreshJob job = currentJob;
+        if (job == null) {
+            throw new IllegalArgumentException("Aucune réévaluation lancée");
+        }
+        job.stopRequested = true;
+        return job.progress();
+    }
+
+    public RefreshProgress progress() {
+        RefreshJob job = currentJob;
+        if (job == null) {
+            throw new IllegalArgumentException("Aucune réévaluation lancée");
+        }
+        return job.progress();
+    }
+
+    private void run(RefreshJob job) {
+        try {
+            List<Object[]> page;
+            while (!job.stopRequested && !(page = nextPage(job)).isEmpty()) {
+                // 1. Évaluation parallèle de la page, bornée par le nombre de threads d'évaluation
+                List<Future<Evaluation>> futures = new ArrayList<>(page.size());
+                for (Object[] row : page) {
+                    Long mapId = (Long) row[0];
+                    Long revision = (Long) row[1];
+                    futures.add(evaluators.submit(() -> evaluate(mapId, revision)));
+                }
+                List<Evaluation> evaluations = new ArrayList<>(page.size());
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        Evaluation evaluation = futures.get(i).get();
+                        if (evaluation != null) {
+                            evaluations.add(evaluation);
+                        }
+                    } catch (ExecutionException e) {
+                        job.failed++;
+                        job.failedMapIds.add((Long) page.get(i)[0]);
+                        log.warn("Réévaluation de la cartographie {} en échec", page.get(i)[0], e.getCause());
+                    }
+                }
+
+                // 2. Écriture de la page en un lot, puis point de reprise (réévaluation complète uniquement)
+                transactionTemplate.executeWithoutResult(status -> replace(evaluations));
+                job.lastMapId = (Long) page.get(page.size() - 1)[0];
+                job.processed += page.size();
+                job.recommendations += evaluations.stream().mapToLong(e -> e.recommendations().size()).sum();
+                if (job.retriedMapIds == null) {
+                    writeCheckpoint(job.lastMapId);
+                }
+            }
+            if (job.stopRequested) {
+                job.state = RefreshState.STOPPED;
+            } else {
+                job.state = RefreshState.COMPLETED;
+                if (job.retriedMapIds == null) {
+                    Files.deleteIfExists(checkpointFile());
+                }
+            }
+        } catch (InterruptedException e) {
+            job.state = RefreshState.STOPPED;
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            job.state = RefreshState.FAILED;
+            job.error = e.getMessage();
+            log.warn("Réévaluation des recommandations interrompue", e);
+        } finally {
+            job.finishedAt = Instant.now();
+            RefreshProgress progress = job.progress();
+            log.info("Réévaluation des recommandations {} : {} cartographies ({} en échec), {} cartographies/s",
+                    progress.state(), progress.processedMaps(), progress.failedMaps(),
+                    String.format(Locale.ROOT, "%.1f", progress.mapsPerSecond()));
+        }
+    }
+
+    /**
+     * Page suivante de paires (id, révision) : toutes les cartographies pour une réévaluation complète,
+     * les seules cartographies en échec pour une reprise des échecs.
+     */
+    private List<Object[]> nextPage(RefreshJob job) {
+        if (job.retriedMapIds == null) {
+            return systemMapRepository.findRevisionsAfter(job.lastMapId, PageRequest.of(0, pageSize));
+        }
+        List<Long> mapIds = job.retriedMapIds.stream().filter(id -> id > job.lastMapId).limit(pageSize).toList();
+        if (mapIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> page = systemMapRepository.findRevisions(mapIds);
+        if (page.isEmpty()) {
+            // Cartographies supprimées depuis l'échec : la page est sautée
+            job.lastMapId = mapIds.get(mapIds.size() - 1);
+            return nextPage(job);
+        }
+        return page;
+    }
+
+    /**
+     * Évalue une cartographie sur le graphe de la révision lue dans la page.
+     *
+     * @return L'évaluation, ou null si la cartographie a changé entre-temps : elle sera recalculée à la lecture
+     */
+    private Evaluation evaluate(Long mapId, Long revision) throws IOException {
+        MapGraph mapGraph = mapGraphService.oneShotGraphFor(mapId, revision);
+        List<RecommendationService.Recommendation> recommendations = recommendationService.generateRecommendations(mapGraph);
+        // Un graphe reconstruit à partir de lignes d'une révision ultérieure ne doit pas être enregistré sous celle-ci
+        if (!systemMapRepository.findRevision(mapId).map(revision::equals).orElse(false)) {
+            return null;
+        }
+        return new Evaluation(mapId, revision, recommendations);
+    }
+
+    private void replace(List<Evaluation> evaluations) {
+        if (evaluations.isEmpty()) {
+            return;
+        }
+        mapRecommendationRepository.deleteByMapIds(evaluations.stream().map(Evaluation::mapId).toList());
+        List<MapRecommendation> rows = new ArrayList<>();
+        for (Evaluation evaluation : evaluations) {
+            if (evaluation.recommendations().isEmpty()) {
+                MapRecommendation marker = new MapRecommendation();
+                marker.setMapId(evaluation.mapId());
+                marker.setMapRevision(evaluation.revision());
+                marker.setRulesetVersion(RecommendationService.RULESET_VERSION);
+                marker.setNoRecommendation(true);
+                rows.add(marker);
+            }
+            for (RecommendationService.Recommendation recommendation : evaluation.recommendations()) {
+                MapRecommendation row = new MapRecommendation();
+                row.setMapId(evaluation.mapId());
+                row.setMapRevision(evaluation.revision());
+                row.setRulesetVersion(RecommendationService.RULESET_VERSION);
+                row.setTitle(recommendation.getTitle());
+                row.setDescription(recommendation.getDescription());
+                row.setPriority(recommendation.getPriority());
+                rows.add(row);
+            }
+        }
+        mapRecommendationRepository.saveAll(rows);
+    }
+
+    private static boolean isCurrent(MapRecommendation stored, Long revision) {
+        return stored.getRulesetVersion() == RecommendationService.RULESET_VERSION
+                && Objects.equals(stored.getMapRevision(), revision);
+    }
+
+    /**
+     * Point de reprise : "version des règles;dernière cartographie écrite". Il est ignoré s'il a été
+     * écrit pour une autre version des règles.
+     */
+    private long readCheckpoint() throws IOException {
+        Path checkpointFile = checkpointFile();
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        String[] fields = Files.readString(checkpointFile, StandardCharsets.UTF_8).trim().split(";");
+        try {
+            if (fields.length == 2 && Integer.parseInt(fields[0]) == RecommendationService.RULESET_VERSION) {
+                return Long.parseLong(fields[1]);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Point de reprise illisible, réévaluation complète : {}", checkpointFile, e);
+        }
+        return 0;
+    }
+
+    private void writeCheckpoint(long lastMapId) throws IOException {
+        Path checkpointFile = checkpointFile();
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.writeString(temporary, RecommendationService.RULESET_VERSION + ";" + lastMapId, StandardCharsets.UTF_8);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Point de reprise, dans le répertoire propre à la base : les identifiants qu'il contient n'ont
+     * de sens que pour celle-ci.
+     */
+    private Path checkpointFile() throws IOException {
+        return storageLocation.directory("recommendations").resolve("refresh.checkpoint");
+    }
+
+    private record Evaluation(Long mapId, Long revision, List<RecommendationService.Recommendation> recommendations) {
+    }
+
+    public enum RefreshState { RUNNING, COMPLETED, STOPPED, FAILED }
+
+    /**
+     * Avancement d'une réévaluation. Le débit est calculé depuis le démarrage.
+     */
+    public record RefreshProgress(RefreshState state, int rulesetVersion, long totalMaps, long processedMaps,
+                                  long failedMaps, long lastMapId, long recommendations, Instant startedAt,
+                                  long elapsedMillis, double mapsPerSecond, String error) {
+    }
+
+    private static final class RefreshJob {
+        private final Instant startedAt = Instant.now();
+        private final long totalMaps;
+        // Cartographies réévaluées lors d'une reprise des échecs, null pour une réévaluation complète
+        private final List<Long> retriedMapIds;
+        // Cartographies en échec, conservées pour une reprise (écrites par le seul thread de coordination)
+        private final Set<Long> failedMapIds = ConcurrentHashMap.newKeySet();
+        private volatile RefreshState state = RefreshState.RUNNING;
+        private volatile boolean stopRequested;
+        private volatile long lastMapId;
+        private volatile long processed;
+        private volatile long failed;
+        private volatile long recommendations;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        RefreshJob(long afterId, long totalMaps, List<Long> retriedMapIds) {
+            this.lastMapId = afterId;
+            this.totalMaps = totalMaps;
+            this.retriedMapIds = retriedMapIds;
+        }
+
+        RefreshProgress progress() {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long elapsed = Math.max(0, end.toEpochMilli() - startedAt.toEpochMilli());
+            double rate = elapsed > 0 ? processed * 1000.0 / elapsed : 0;
+            return new RefreshProgress(state, RecommendationService.RULESET_VERSION, totalMaps, processed, failed,
+                    lastMapId, recommendations, startedAt, elapsed, rate, error);
+        }
+    }
+}
@@ -1,21 +1,22 @@
 package numres.diginext.poc.service;
 
 import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.GraphBuilder;
+import numres.diginext.poc.graph.MapGraph;
 import numres.diginext.poc.model.SystemMap;
-import numres.diginext.poc.model.SystemComponent;
-import numres.diginext.poc.model.ComponentRelationship;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RecommendationService {
 
+    // Version des règles de recommandation : à incrémenter à chaque modification des règles pour que
+    // les recommandations enregistrées soient réévaluées (voir RecommendationRefreshService)
+    public static final int RULESET_VERSION = 1;
+
     /**
      * Génère des recommandations basées sur l'analyse de la cartographie du système
      *
@@ -23,22 +24,33 @@ public class RecommendationService {
      * @return Une liste de recommandations
      */
     public List<Recommendation> generateRecommendations(SystemMap systemMap) {
+        return generateRecommendations(GraphBuilder.fromSystemMap(systemMap));
+    }
+
+    /**
+     * Génère des recommandations à partir du graphe compact d'une cartographie
+     * (en mémoire ou mappé depuis le {@link numres.diginext.poc.graph.GraphStore})
+     *
+     * @param graph Le graphe de la cartographie analysée
+     * @return Une liste de recommandations
+     */
+    public List<Recommendation> generateRecommendations(MapGraph graph) {
         List<Recommendation> recommendations = new ArrayList<>();
 
         // Analyse des composants critiques (avec beaucoup de connexions)
-        identifyCriticalComponents(systemMap, recommendations);
+        identifyCriticalComponents(graph, recommendations);
 
         // Détection des composants isolés
-        identifyIsolatedComponents(systemMap, recommendations);
+        identifyIsolatedComponents(graph, recommendations);
 
         // Analyse des technologies obsolètes ou à risque
-        identifyRiskyTechnologies(systemMap, recommendations);
+        identifyRiskyTechnologies(graph, recommendations);
 
         // Recommandations pour l'optimisation de l'architecture
-        generateArchitectureRecommendations(systemMap, recommendations);
+        generateArchitectureRecommendations(graph, recommendations);
 
         // Recommandations de sécurité
-        generateSecurityRecommendations(systemMap, recommendations);
+        generateSecurityRecommendations(graph, recommendations);
 
         return recommendations;
     }
@@ -46,57 +58,31 @@ public class RecommendationService {
     /**
      * Identifie les composants critiques (avec beaucoup de connexions)
      */
-    private void identifyCriticalComponents(SystemMap systemMap, List<Recommendation> recommendations) {
-        // Compter les connexions pour chaque composant
-        Map<SystemComponent, Integer> connectionCounts = systemMap.getComponents().stream()
-                .collect(Collectors.toMap(
-                        component -> component,
-                        component -> countConnections(component, systemMap.getRelationships())
-                ));
-
+    private void identifyCriticalComponents(MapGraph graph, List<Recommendation> recommendations) {
+        // Le degré de chaque composant est lu directement dans l'adjacence du graphe
         // Identifier les composants avec beaucoup de connexions (seuil arbitraire de 3)
-        connectionCounts.entrySet().stream()
-                .filter(entry -> entry.getValue() > 3)
-                .forEach(entry -> {
-                    recommendations.add(new Recommendation(
-                            "Composant critique identifié",
-                            "Le composant '" + entry.getKey().getName() + "' est un point critique avec " +
-                                    entry.getValue() + " connexions. Envisagez une redondance ou une répartition de charge.",
-                            "HIGH"
-                    ));
-                });
-    }
-
-    /**
-     * Compte le nombre de connexions pour un composant
-     */
-    private int countConnections(SystemComponent component, Set<ComponentRelationship> relationships) {
-        int count = 0;
-        for (ComponentRelationship relationship : relationships) {
-            if (relationship.getSource().equals(component) || relationship.getTarget().equals(component)) {
-                count++;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            int connections = graph.degree(node);
+            if (connections > 3) {
+                recommendations.add(new Recommendation(
+                        "Composant critique identifié",
+                        "Le composant '" + graph.name(node) + "' est un point critique avec " +
+                                connections + " connexions. Envisagez une redondance ou une répartition de charge.",
+                        "HIGH"
+                ));
             }
         }
-        return count;
     }
 
     /**
      * Identifie les composants isolés (sans connexions)
      */
-    private void identifyIsolatedComponents(SystemMap systemMap, List<Recommendation> recommendations) {
-        for (SystemComponent component : systemMap.getComponents()) {
-            boolean hasConnections = false;
-            for (ComponentRelationship relationship : systemMap.getRelationships()) {
-                if (relationship.getSource().equals(component) || relationship.getTarget().equals(component)) {
-                    hasConnections = true;
-                    break;
-                }
-            }
-
-            if (!hasConnections) {
+    private void identifyIsolatedComponents(MapGraph graph, List<Recommendation> recommendations) {
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (graph.degree(node) == 0) {
                 recommendations.add(new Recommendation(
                         "Composant isolé détecté",
-                        "Le composant '" + component.getName() + "' n'a aucune connexion avec d'autres composants. " +
+                        "Le composant '" + graph.name(node) + "' n'a aucune connexion avec d'autres composants. " +
                                 "Vérifiez s'il s'agit d'un composant orphelin ou si des connexions manquent dans la documentation.",
                         "MEDIUM"
                 ));
@@ -107,7 +93,7 @@ public class RecommendationService {
     /**
      * Identifie les technologies potentiellement obsolètes ou à risque
      */
-    private void identifyRiskyTechnologies(SystemMap systemMap, List<Recommendation> recommendations) {
+    private void identifyRiskyTechnologies(MapGraph graph, List<Recommendation> recommendations) {
         // Liste de technologies potentiellement obsolètes ou à risque
         List<String> riskyTechnologies = List.of(
                 "windows xp", "windows 7", "windows server 2008", "windows server 2003",
@@ -115,14 +101,15 @@ public class RecommendationService {
                 "internet explorer", "flash", "silverlight"
         );
 
-        for (SystemComponent component : systemMap.getComponents()) {
-            String technology = component.getTechnology();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            String technology = graph.technology(node);
             if (technology != null && !technology.isEmpty()) {
+                String lowerTechnology = technology.toLowerCase();
                 for (String riskyTech : riskyTechnologies) {
-                    if (technology.toLowerCase().contains(riskyTech)) {
+                    if (lowerTechnology.contains(riskyTech)) {
                         recommendations.add(new Recommendation(
                                 "Technologie obsolète détectée",
-                                "Le composant '" + component.getName() + "' utilise " + technology +
+                                "Le composant '" + graph.name(node) + "' utilise " + technology +
                                         ", qui est potentiellement obsolète ou présente des risques de sécurité. " +
                                         "Envisagez une mise à niveau.",
                                 "HIGH"
@@ -137,12 +124,12 @@ public class RecommendationService {
     /**
      * Génère des recommandations pour l'optimisation de l'architecture
      */
-    private void generateArchitectureRecommendations(SystemMap systemMap, List<Recommendation> recommendations) {
+    private void generateArchitectureRecommendations(MapGraph graph, List<Recommendation> recommendations) {
         // Vérifier si le système a beaucoup de composants
-        if (systemMap.getComponents().size() > 10) {
+        if (graph.nodeCount() > 10) {
             recommendations.add(new Recommendation(
                     "Complexité architecturale",
-                    "Le système comporte " + systemMap.getComponents().size() +
+                    "Le système comporte " + graph.nodeCount() +
                             " composants, ce qui peut indiquer une complexité élevée. " +
                             "Envisagez une refactorisation pour simplifier l'architecture.",
                     "MEDIUM"
@@ -150,13 +137,13 @@ public class RecommendationService {
         }
 
         // Vérifier les dépendances circulaires
-        checkCircularDependencies(systemMap, recommendations);
+        checkCircularDependencies(graph, recommendations);
     }
 
     /**
      * Vérifie les dépendances circulaires entre composants
      */
-    private void checkCircularDependencies(SystemMap systemMap, List<Recommendation> recommendations) {
+    private void checkCircularDependencies(MapGraph graph, List<Recommendation> recommendations) {
         // Implémentation simplifiée pour le POC
         // Une analyse plus approfondie nécessiterait un algorithme de détection de cycle dans un graphe
         recommendations.add(new Recommendation(
@@ -170,16 +157,17 @@ public class RecommendationService {
     /**
      * Génère des recommandations de sécurité
      */
-    private void generateSecurityRecommendations(SystemMap systemMap, List<Recommendation> recommendations) {
+    private void generateSecurityRecommendations(MapGraph graph, List<Recommendation> recommendations) {
         // Vérifier les composants exposés à l'extérieur
-        for (SystemComponent component : systemMap.getComponents()) {
-            if (component.getType() != null &&
-                    (component.getType().equalsIgnoreCase("SERVER") ||
-                            component.getType().equalsIgnoreCase("APPLICATION"))) {
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            String type = graph.type(node);
+            if (type != null &&
+                    (type.equalsIgnoreCase("SERVER") ||
+                            type.equalsIgnoreCase("APPLICATION"))) {
 
                 recommendations.add(new Recommendation(
                         "Vérification de sécurité recommandée",
-                        "Assurez-vous que le composant '" + component.getName() +
+                        "Assurez-vous que le composant '" + graph.name(node) +
                                 "' dispose des mesures de sécurité appropriées, notamment des pare-feu, " +
                                 "des mises à jour régulières et une surveillance des vulnérabilités.",
                         "MEDIUM"
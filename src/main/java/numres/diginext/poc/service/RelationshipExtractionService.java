@@ -1,7 +1,10 @@
 package numres.diginext.poc.service;
 
-import numres.diginext.poc.model.ComponentRelationship;
-import numres.diginext.poc.model.SystemComponent;
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.ExtractedComponent;
+import numres.diginext.poc.model.ExtractedRelationship;
+import numres.diginext.poc.search.TextSegmentation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -9,18 +12,19 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
+@RequiredArgsConstructor
 public class RelationshipExtractionService {
 
-    // Patterns pour les relations spécifiques
-    private static final Pattern CONNECTS_TO_PATTERN =
-            Pattern.compile("\\b([A-Za-z0-9_-]+)\\s+(se connecte à|connects to|communique avec|accède à|utilise)\\s+([A-Za-z0-9_-]+)\\b",
-                    Pattern.CASE_INSENSITIVE);
-    private static final Pattern DEPENDS_ON_PATTERN =
-            Pattern.compile("\\b([A-Za-z0-9_-]+)\\s+(dépend de|depends on|requiert|requires|utilise|uses)\\s+([A-Za-z0-9_-]+)\\b",
-                    Pattern.CASE_INSENSITIVE);
-    private static final Pattern DEPLOYED_ON_PATTERN =
-            Pattern.compile("\\b([A-Za-z0-9_-]+)\\s+(est déployé sur|is deployed on|s'exécute sur|runs on|hébergé sur|hosted on)\\s+([A-Za-z0-9_-]+)\\b",
-                    Pattern.CASE_INSENSITIVE);
+    // Vocabulaires des relations explicites, chargés depuis un fichier versionné
+    private final PatternDictionary patternDictionary;
+
+    // Inférence des relations implicites par cooccurrence pondérée des mentions
+    private final CooccurrenceInference cooccurrenceInference;
+
+    // Relations proposées par heuristiques de noms lorsque le texte en fournit trop peu (sans confiance),
+    // désactivées par défaut
+    @Value("${diginext.inference.heuristic-fallback:false}")
+    private boolean heuristicFallback;
 
     // Catégories de relations pour générer des diagrammes plus informatifs
     private static final String[] RELATION_TYPES = {
@@ -29,36 +33,57 @@ public class RelationshipExtractionService {
             "interroge", "alimente", "gère", "administre", "surveille"
     };
 
-    public Set<ComponentRelationship> extractRelationships(String text, Set<SystemComponent> components) {
-        Set<ComponentRelationship> relationships = new HashSet<>();
-        Map<String, SystemComponent> componentMap = createComponentMap(components);
+    public Set<ExtractedRelationship> extractRelationships(String text, List<ExtractedComponent> components) {
+        return extractRelationships(text, components, patternDictionary.snapshot());
+    }
+
+    /**
+     * Extrait les relations entre composants avec un instantané donné du dictionnaire,
+     * le même que celui utilisé pour l'extraction des composants.
+     */
+    public Set<ExtractedRelationship> extractRelationships(String text, List<ExtractedComponent> components,
+                                                           PatternSnapshot patterns) {
+        return extractRelationships(TextSegmentation.of(text), components, patterns);
+    }
+
+    /**
+     * Extrait les relations en réutilisant le découpage du document (mots, phrases et paragraphes).
+     */
+    public Set<ExtractedRelationship> extractRelationships(TextSegmentation document,
+                                                           List<ExtractedComponent> components,
+                                                           PatternSnapshot patterns) {
+        Set<ExtractedRelationship> relationships = new HashSet<>();
+        Map<String, ExtractedComponent> componentMap = createComponentMap(components);
 
         // Limiter le nombre de composants pour éviter des diagrammes trop volumineux
-        List<SystemComponent> limitedComponents = new ArrayList<>(components);
+        List<ExtractedComponent> limitedComponents = new ArrayList<>(components);
         if (limitedComponents.size() > 15) {
             // Trier les composants par type pour garder une représentation équilibrée
-            limitedComponents.sort(Comparator.comparing(SystemComponent::getType));
+            limitedComponents.sort(Comparator.comparing(ExtractedComponent::type));
             limitedComponents = limitedComponents.subList(0, 15);
         }
 
         // Extraction des relations explicites du texte
-        extractExplicitRelationships(text, componentMap, relationships);
+        extractExplicitRelationships(document, patterns, componentMap, relationships);
+
+        // Relations implicites inférées par cooccurrence, avec leur confiance
+        inferCooccurrenceRelationships(document, components, relationships);
 
         // Si peu de relations trouvées, générer des relations pertinentes entre composants clés
-        if (relationships.size() < 10) {
+        if (heuristicFallback && relationships.size() < 10) {
             generateMeaningfulRelationships(limitedComponents, relationships);
         }
 
         return relationships;
     }
 
-    private Map<String, SystemComponent> createComponentMap(Set<SystemComponent> components) {
-        Map<String, SystemComponent> componentMap = new HashMap<>();
-        for (SystemComponent component : components) {
-            componentMap.put(component.getName().toLowerCase(), component);
+    private Map<String, ExtractedComponent> createComponentMap(List<ExtractedComponent> components) {
+        Map<String, ExtractedComponent> componentMap = new HashMap<>();
+        for (ExtractedComponent component : components) {
+            componentMap.put(ComponentNames.lowerCase(component.name()), component);
 
             // Ajouter également des versions sans espaces du nom pour augmenter les correspondances
-            String simplifiedName = component.getName().toLowerCase().replaceAll("\\s+", "");
+            String simplifiedName = ComponentNames.normalize(component.name());
             if (!componentMap.containsKey(simplifiedName)) {
                 componentMap.put(simplifiedName, component);
             }
@@ -66,87 +91,85 @@ public class RelationshipExtractionService {
         return componentMap;
     }
 
-    private void extractExplicitRelationships(String text, Map<String, SystemComponent> componentMap,
-                                              Set<ComponentRelationship> relationships) {
-        // Extraction des relations de connexion
-        extractPatternRelationships(text, CONNECTS_TO_PATTERN, "communique avec", componentMap, relationships);
-
-        // Extraction des relations de dépendance
-        extractPatternRelationships(text, DEPENDS_ON_PATTERN, "dépend de", componentMap, relationships);
-
-        // Extraction des relations de déploiement
-        extractPatternRelationships(text, DEPLOYED_ON_PATTERN, "est déployé sur", componentMap, relationships);
-
-        // Extraction des relations basées sur la proximité dans le texte
-        extractProximityRelationships(text, componentMap, relationships);
+    private void extractExplicitRelationships(TextSegmentation document, PatternSnapshot patterns,
+                                              Map<String, ExtractedComponent> componentMap,
+                                              Set<ExtractedRelationship> relationships) {
+        // Extraction des relations de connexion, de dépendance et de déploiement
+        for (PatternSnapshot.RelationshipRule rule : patterns.getRelationshipRules()) {
+            if (!rule.appliesTo(document.terms())) {
+                continue;
+            }
+            extractPatternRelationships(document.text(), rule.pattern(), rule.type(), componentMap, relationships);
+        }
     }
 
-    private void extractPatternRelationships(String text, Pattern pattern, String type,
-                                             Map<String, SystemComponent> componentMap,
-                                             Set<ComponentRelationship> relationships) {
+    private void extractPatternRelationships(CharSequence text, Pattern pattern, String type,
+                                             Map<String, ExtractedComponent> componentMap,
+                                             Set<ExtractedRelationship> relationships) {
         Matcher matcher = pattern.matcher(text);
         while (matcher.find()) {
             String sourceName = matcher.group(1).toLowerCase();
             String targetName = matcher.group(3).toLowerCase();
 
-            SystemComponent source = findComponentByApproximateName(sourceName, componentMap);
-            SystemComponent target = findComponentByApproximateName(targetName, componentMap);
+            ExtractedComponent source = findComponentByApproximateName(sourceName, componentMap);
+            ExtractedComponent target = findComponentByApproximateName(targetName, componentMap);
 
-            if (source != null && target != null && !source.equals(target)) {
-                ComponentRelationship relationship = new ComponentRelationship();
-                relationship.setSource(source);
-                relationship.setTarget(target);
-                relationship.setType(type);
-                relationship.setDescription(type);
-                relationships.add(relationship);
+            if (source != null && target != null && source.id() != target.id()) {
+                relationships.add(new ExtractedRelationship(source, target, type, type, 1.0));
             }
         }
     }
 
-    private void extractProximityRelationships(String text, Map<String, SystemComponent> componentMap,
-                                               Set<ComponentRelationship> relationships) {
-        // Diviser le texte en phrases
-        String[] sentences = text.split("[.!?]");
-
-        for (String sentence : sentences) {
-            List<SystemComponent> componentsInSentence = new ArrayList<>();
-
-            // Trouver tous les composants mentionnés dans cette phrase
-            for (String componentName : componentMap.keySet()) {
-                if (sentence.toLowerCase().contains(componentName)) {
-                    SystemComponent component = componentMap.get(componentName);
-                    if (!componentsInSentence.contains(component)) {
-                        componentsInSentence.add(component);
-                    }
-                }
-            }
+    private void inferCooccurrenceRelationships(TextSegmentation document, List<ExtractedComponent> components,
+                                                Set<ExtractedRelationship> relationships) {
+        // Paires déjà reliées explicitement, dans un sens ou dans l'autre (numéros des composants)
+        Set<Long> linked = new HashSet<>();
+        for (ExtractedRelationship relationship : relationships) {
+            linked.add(pairKey(relationship.source(), relationship.target()));
+        }
 
-            // S'il y a exactement 2 composants dans la phrase, établir une relation
-            if (componentsInSentence.size() == 2) {
-                SystemComponent source = componentsInSentence.get(0);
-                SystemComponent target = componentsInSentence.get(1);
+        for (CooccurrenceInference.InferredPair pair : cooccurrenceInference.infer(document, components)) {
+            if (linked.contains(pairKey(pair.first(), pair.second()))) {
+                continue;
+            }
+            // Le sens est donné par les types des composants, sinon par l'ordre d'apparition dans le texte
+            ExtractedComponent source = pair.first();
+            ExtractedComponent target = pair.second();
+            String relationType = knownRelationType(source, target);
+            if (relationType == null && knownRelationType(target, source) != null) {
+                source = pair.second();
+                target = pair.first();
+                relationType = knownRelationType(source, target);
+            }
+            if (relationType == null) {
+                relationType = "est lié à";
+            }
 
-                // Éviter les relations réflexives
-                if (source != target) {
-                    ComponentRelationship relationship = new ComponentRelationship();
-                    relationship.setSource(source);
-                    relationship.setTarget(target);
+            relationships.add(new ExtractedRelationship(source, target, relationType, relationType, pair.confidence()));
+        }
+    }
 
-                    // Déterminer le type de relation en fonction des types de composants
-                    String relationType = determineRelationType(source, target);
-                    relationship.setType(relationType);
-                    relationship.setDescription(relationType);
+    private static long pairKey(ExtractedComponent a, ExtractedComponent b) {
+        return ((long) Math.min(a.id(), b.id()) << 32) | Math.max(a.id(), b.id());
+    }
 
-                    relationships.add(relationship);
-                }
-            }
+    private String determineRelationType(ExtractedComponent source, ExtractedComponent target) {
+        String relationType = knownRelationType(source, target);
+        if (relationType != null) {
+            return relationType;
         }
+
+        // Relation par défaut: choisir aléatoirement parmi les types de relations pertinents
+        return RELATION_TYPES[new Random().nextInt(RELATION_TYPES.length)];
     }
 
-    private String determineRelationType(SystemComponent source, SystemComponent target) {
+    /**
+     * Type de relation logique déduit des types des composants, ou null si aucune règle ne s'applique.
+     */
+    private String knownRelationType(ExtractedComponent source, ExtractedComponent target) {
         // Déterminer le type de relation logique en fonction des types de composants
-        String sourceType = source.getType();
-        String targetType = target.getType();
+        String sourceType = source.type();
+        String targetType = target.type();
 
         // Relations application -> base de données
         if ((sourceType.equals("APPLICATION") || sourceType.equals("WEB_SYSTEM")) &&
@@ -176,18 +199,17 @@ public class RelationshipExtractionService {
             return "surveille";
         }
 
-        // Relation par défaut: choisir aléatoirement parmi les types de relations pertinents
-        return RELATION_TYPES[new Random().nextInt(RELATION_TYPES.length)];
+        return null;
     }
 
-    private SystemComponent findComponentByApproximateName(String name, Map<String, SystemComponent> componentMap) {
+    private ExtractedComponent findComponentByApproximateName(String name, Map<String, ExtractedComponent> componentMap) {
         // Recherche exacte
         if (componentMap.containsKey(name)) {
             return componentMap.get(name);
         }
 
         // Recherche par contenance
-        for (Map.Entry<String, SystemComponent> entry : componentMap.entrySet()) {
+        for (Map.Entry<String, ExtractedComponent> entry : componentMap.entrySet()) {
             String key = entry.getKey();
             if (key.contains(name) || name.contains(key)) {
                 return entry.getValue();
@@ -197,18 +219,18 @@ public class RelationshipExtractionService {
         return null;
     }
 
-    private void generateMeaningfulRelationships(List<SystemComponent> components, Set<ComponentRelationship> relationships) {
+    private void generateMeaningfulRelationships(List<ExtractedComponent> components, Set<ExtractedRelationship> relationships) {
         // Trouver des composants DigiNext spécifiques
-        SystemComponent saasComponent = null;
-        SystemComponent agentComponent = null;
-        SystemComponent nlpComponent = null;
-        SystemComponent umlComponent = null;
-        SystemComponent clientComponent = null;
+        ExtractedComponent saasComponent = null;
+        ExtractedComponent agentComponent = null;
+        ExtractedComponent nlpComponent = null;
+        ExtractedComponent umlComponent = null;
+        ExtractedComponent clientComponent = null;
 
         // Identifier les composants DigiNext par leur nom ou type
-        for (SystemComponent component : components) {
-            String name = component.getName().toLowerCase();
-            String type = component.getType();
+        for (ExtractedComponent component : components) {
+            String name = component.name().toLowerCase();
+            String type = component.type();
 
             if (name.contains("saas") || name.contains("diginext")) {
                 saasComponent = component;
@@ -230,14 +252,14 @@ public class RelationshipExtractionService {
         addRemainingRelationships(components, relationships);
     }
 
-    private void createDigiNextRelationships(SystemComponent saas, SystemComponent agent,
-                                             SystemComponent nlp, SystemComponent uml,
-                                             SystemComponent client, List<SystemComponent> components,
-                                             Set<ComponentRelationship> relationships) {
+    private void createDigiNextRelationships(ExtractedComponent saas, ExtractedComponent agent,
+                                             ExtractedComponent nlp, ExtractedComponent uml,
+                                             ExtractedComponent client, List<ExtractedComponent> components,
+                                             Set<ExtractedRelationship> relationships) {
         // Créer des composants par défaut si nécessaire
         if (saas == null && !components.isEmpty()) {
-            for (SystemComponent comp : components) {
-                if (comp.getType().equals("SAAS") || comp.getType().contains("SAAS")) {
+            for (ExtractedComponent comp : components) {
+                if (comp.type().equals("SAAS") || comp.type().contains("SAAS")) {
                     saas = comp;
                     break;
                 }
@@ -248,8 +270,8 @@ public class RelationshipExtractionService {
         }
 
         if (agent == null && components.size() > 1) {
-            for (SystemComponent comp : components) {
-                if (comp.getType().equals("AGENT") || comp.getType().contains("AGENT")) {
+            for (ExtractedComponent comp : components) {
+                if (comp.type().equals("AGENT") || comp.type().contains("AGENT")) {
                     agent = comp;
                     break;
                 }
@@ -277,7 +299,7 @@ public class RelationshipExtractionService {
         }
     }
 
-    private void addRemainingRelationships(List<SystemComponent> components, Set<ComponentRelationship> relationships) {
+    private void addRemainingRelationships(List<ExtractedComponent> components, Set<ExtractedRelationship> relationships) {
         // Assurer un nombre minimum de relations pour un diagramme intéressant
         int existingRelationships = relationships.size();
         int maxAdditionalRelationships = Math.min(10, components.size() * 2) - existingRelationships;
@@ -288,16 +310,16 @@ public class RelationshipExtractionService {
 
         // Créer des relations supplémentaires entre les composants
         Random random = new Random();
-        List<SystemComponent> remainingComponents = new ArrayList<>(components);
+        List<ExtractedComponent> remainingComponents = new ArrayList<>(components);
 
         for (int i = 0; i < maxAdditionalRelationships && remainingComponents.size() >= 2; i++) {
             // Sélectionner aléatoirement source et cible
             int sourceIndex = random.nextInt(remainingComponents.size());
-            SystemComponent source = remainingComponents.get(sourceIndex);
+            ExtractedComponent source = remainingComponents.get(sourceIndex);
             remainingComponents.remove(sourceIndex);
 
             int targetIndex = random.nextInt(remainingComponents.size());
-            SystemComponent target = remainingComponents.get(targetIndex);
+            ExtractedComponent target = remainingComponents.get(targetIndex);
             remainingComponents.remove(targetIndex);
 
             // Déterminer un type de relation logique
@@ -308,13 +330,8 @@ public class RelationshipExtractionService {
         }
     }
 
-    private void addRelationship(SystemComponent source, SystemComponent target,
-                                 String type, Set<ComponentRelationship> relationships) {
-        ComponentRelationship relationship = new ComponentRelationship();
-        relationship.setSource(source);
-        relationship.setTarget(target);
-        relationship.setType(type);
-        relationship.setDescription(type);
-        relationships.add(relationship);
+    private void addRelationship(ExtractedComponent source, ExtractedComponent target,
+                                 String type, Set<ExtractedRelationship> relationships) {
+        relationships.add(new ExtractedRelationship(source, target, type, type, null));
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Enrichissement optionnel d'une cartographie par sondage réseau des composants SERVER, DATABASE
+ * et WEB_SYSTEM : la joignabilité et la bannière sont enregistrées, et la technologie ou la version
+ * extraites du texte sont confirmées ou corrigées par celles annoncées par le service.
+ */
+@Service
+@RequiredArgsConstructor
+public class ServiceProbeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceProbeService.class);
+
+    private static final Set<String> PROBED_TYPES = Set.of("SERVER", "DATABASE", "WEB_SYSTEM");
+
+    // Nom de composant utilisable comme nom d'hôte, éventuellement suivi d'un port
+    private static final Pattern HOST_AND_PORT =
+            Pattern.compile("^([A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?(?:\\.[A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?)*)(?::(\\d{1,5}))?$");
+
+    // Ports par défaut des bases de données selon la technologie
+    private static final Map<String, Integer> DATABASE_PORTS = Map.of(
+            "postgres", 5432, "mysql", 3306, "mariadb", 3306, "oracle", 1521,
+            "sql server", 1433, "mongodb", 27017, "redis", 6379);
+
+    private final ServiceProber serviceProber;
+    private final SystemMapRepository systemMapRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DiagramGenerationService diagramGenerationService;
+    private final MapGraphService mapGraphService;
+
+    // Désactivé par défaut : le serveur ouvre des connexions vers les hôtes cités dans les documents
+    @Value("${diginext.probe.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Sonde les composants d'une cartographie et met à jour ceux qui ont répondu.
+     *
+     * @return Le résultat de chaque sonde, par composant
+     */
+    public List<ComponentProbe> probeMap(Long mapId) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Le sondage réseau est désactivé (diginext.probe.enabled)");
+        }
+
+        // 1. Cibles à sonder, lues dans une transaction courte
+        Map<Long, List<ServiceProber.ProbeTarget>> targetsByComponent = transactionTemplate.execute(status -> {
+            SystemMap systemMap = systemMapRepository.findById(mapId)
+                    .orElseThrow(() -> new IllegalArgumentException("Cartographie introuvable: " + mapId));
+            Map<Long, List<ServiceProber.ProbeTarget>> targets = new LinkedHashMap<>();
+            for (SystemComponent component : systemMap.getComponents()) {
+                List<ServiceProber.ProbeTarget> componentTargets = targetsFor(component);
+                if (!componentTargets.isEmpty()) {
+                    targets.put(component.getId(), componentTargets);
+                }
+            }
+            return targets;
+        });
+
+        // 2. Sondage hors transaction
+        List<ServiceProber.ProbeTarget> targets = new ArrayList<>();
+        targetsByComponent.values().forEach(targets::addAll);
+        long start = System.currentTimeMillis();
+        Iterator<ServiceProber.ProbeResult> results = serviceProber.probe(targets).iterator();
+        log.info("Sondage de {} services en {} ms", targets.size(), System.currentTimeMillis() - start);
+
+        List<ComponentProbe> probes = new ArrayList<>();
+        for (Map.Entry<Long, List<ServiceProber.ProbeTarget>> entry : targetsByComponent.entrySet()) {
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                probes.add(new ComponentProbe(entry.getKey(), results.next()));
+            }
+        }
+
+        // 3. Enregistrement des résultats ; la révision est incrémentée car technologie et version peuvent changer
+        transactionTemplate.executeWithoutResult(status -> {
+            SystemMap systemMap = systemMapRepository.findForRevision(mapId)
+                    .orElseThrow(() -> new IllegalArgumentException("Cartographie introuvable: " + mapId));
+            Map<Long, List<ServiceProber.ProbeResult>> resultsByComponent = new HashMap<>();
+            for (ComponentProbe probe : probes) {
+                resultsByComponent.computeIfAbsent(probe.componentId(), id -> new ArrayList<>()).add(probe.result());
+            }
+            for (SystemComponent component : systemMap.getComponents()) {
+                List<ServiceProber.ProbeResult> componentResults = resultsByComponent.get(component.getId());
+                if (componentResults != null) {
+                    applyResults(component, componentResults);
+                }
+            }
+            systemMap.setPlantUmlDiagram(diagramGenerationService.generatePlantUML(systemMap));
+        });
+        // Le graphe est réécrit après validation, pour la nouvelle révision
+        mapGraphService.graphFor(mapId);
+        return probes;
+    }
+
+    /**
+     * Cibles d'un composant : hôte et port explicites dans son nom, sinon ports usuels de son type.
+     */
+    static List<ServiceProber.ProbeTarget> targetsFor(SystemComponent component) {
+        if (!PROBED_TYPES.contains(component.getType()) || component.getName() == null) {
+            return List.of();
+        }
+        Matcher matcher = HOST_AND_PORT.matcher(component.getName().trim());
+        if (!matcher.matches()) {
+            return List.of();
+        }
+
+        String host = matcher.group(1);
+        if (matcher.group(2) != null) {
+            int port = Integer.parseInt(matcher.group(2));
+            return port > 0 && port <= 65535 ? List.of(new ServiceProber.ProbeTarget(host, port)) : List.of();
+        }
+
+        List<ServiceProber.ProbeTarget> targets = new ArrayList<>();
+        switch (component.getType()) {
+            case "DATABASE" -> {
+                String technology = component.getTechnology() != null ? component.getTechnology().toLowerCase() : "";
+                DATABASE_PORTS.forEach((name, port) -> {
+                    if (technology.contains(name)) {
+                        targets.add(new ServiceProber.ProbeTarget(host, port));
+                    }
+                });
+                if (targets.isEmpty()) {
+                    for (int port : new int[]{5432, 3306, 1521, 1433}) {
+                        targets.add(new ServiceProber.ProbeTarget(host, port));
+                    }
+                }
+            }
+            case "WEB_SYSTEM" -> {
+                targets.add(new ServiceProber.ProbeTarget(host, 80));
+                targets.add(new ServiceProber.ProbeTarget(host, 443));
+            }
+            default -> targets.add(new ServiceProber.ProbeTarget(host, 22));
+        }
+        return targets;
+    }
+
+    private static void applyResults(SystemComponent component, List<ServiceProber.ProbeResult> results) {
+        boolean reachable = false;
+        for (ServiceProber.ProbeResult result : results) {
+            if (!result.reachable()) {
+                continue;
+            }
+            reachable = true;
+            if (result.banner() != null && component.getProbeBanner() == null) {
+                component.setProbeBanner(result.banner().length() > 255 ? result.banner().substring(0, 255) : result.banner());
+            }
+            // La version annoncée par le service prime sur celle déduite du texte
+            if (result.version() != null) {
+                component.setVersion(result.version());
+            }
+            if (result.technology() != null && (component.getTechnology() == null
+                    || !component.getTechnology().toLowerCase().contains(result.technology().toLowerCase()))) {
+                component.setTechnology(result.technology());
+            }
+        }
+        component.setReachable(reachable);
+    }
+
+    /**
+     * Résultat d'une sonde rattaché au composant sondé.
+     */
+    public record ComponentProbe(Long componentId, ServiceProber.ProbeResult result) {
+    }
+}
@@ -0,0 +1,326 @@
+package numres.diginext.poc.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.net.SocketClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sondage concurrent de services réseau (hôte, port) : joignabilité, bannière et version annoncée.
+ * Chaque sonde est bornée par un délai de connexion et un délai de lecture stricts ; le nombre de
+ * sondes simultanées est plafonné globalement et par hôte.
+ * <p>
+ * Les hôtes sondés sont cités dans des documents déposés : seules les adresses des réseaux autorisés
+ * ({@code diginext.probe.allowed-networks}, en notation CIDR) sont contactées, et la connexion est
+ * ouverte vers l'adresse vérifiée, sans nouvelle résolution du nom.
+ */
+@Component
+public class ServiceProber {
+
+    // Ports sur lesquels une requête HTTP est nécessaire pour obtenir une réponse
+    private static final Set<Integer> HTTP_PORTS = Set.of(80, 8000, 8008, 8080, 8081, 8888);
+
+    // Ports TLS : seule la joignabilité est vérifiée
+    private static final Set<Integer> TLS_PORTS = Set.of(443, 636, 993, 995, 8443);
+
+    private static final int MAX_BANNER_BYTES = 1024;
+
+    private static final Pattern SSH_BANNER =
+            Pattern.compile("SSH-[\\d.]+-([A-Za-z]+)[_-](\\d[\\w.]*)");
+    private static final Pattern HTTP_SERVER_HEADER =
+            Pattern.compile("(?im)^Server:\\s*([^/\\s]+)(?:/(\\S+))?");
+    private static final Pattern PRODUCT_VERSION =
+            Pattern.compile("([A-Za-z][\\w-]*)[/ _-]v?(\\d+(?:\\.\\d+)+[\\w.-]*)");
+    private static final Pattern BARE_VERSION =
+            Pattern.compile("(\\d+\\.\\d+(?:\\.\\d+)*)");
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxPerHost;
+    private final List<Network> allowedNetworks;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param allowedNetworks Réseaux autorisés (ex. 10.20.0.0/16) ; aucune cible n'est sondée si la liste est vide
+     */
+    public ServiceProber(@Value("${diginext.probe.connect-timeout:1500ms}") Duration connectTimeout,
+                         @Value("${diginext.probe.read-timeout:1500ms}") Duration readTimeout,
+                         @Value("${diginext.probe.max-concurrency:128}") int maxConcurrency,
+                         @Value("${diginext.probe.max-per-host:4}") int maxPerHost,
+                         @Value("${diginext.probe.allowed-networks:}") List<String> allowedNetworks) {
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+        this.maxPerHost = maxPerHost;
+        this.allowedNetworks = allowedNetworks.stream()
+                .filter(network -> !network.isBlank())
+                .map(Network::parse)
+                .toList();
+        // Java 17 : pas de threads virtuels, un pool plafonné dont les threads inactifs sont libérés
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("service-probe-"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sonde les cibles en parallèle. Les résultats sont retournés dans l'ordre des cibles.
+     */
+    public List<ProbeResult> probe(List<ProbeTarget> targets) {
+        Map<String, Semaphore> hostPermits = new HashMap<>();
+        List<Future<ProbeResult>> futures = new ArrayList<>(targets.size());
+        try {
+            for (ProbeTarget target : targets) {
+                Semaphore permits = hostPermits.computeIfAbsent(target.host().toLowerCase(Locale.ROOT),
+                        h -> new Semaphore(maxPerHost));
+                // Le permis est pris avant la soumission : aucun thread du pool n'attend un hôte saturé
+                permits.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return probe(target);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+        }
+
+        List<ProbeResult> results = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            ProbeTarget target = targets.get(i);
+            if (i >= futures.size() || Thread.currentThread().isInterrupted()) {
+                results.add(ProbeResult.unreachable(target, "interrompu"));
+                continue;
+            }
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                results.add(ProbeResult.unreachable(target, "interrompu"));
+            } catch (CancellationException e) {
+                results.add(ProbeResult.unreachable(target, "interrompu"));
+            } catch (ExecutionException e) {
+                results.add(ProbeResult.unreachable(target, String.valueOf(e.getCause())));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sonde une cible : connexion, puis lecture de la bannière (après une requête HEAD sur les ports HTTP).
+     * Une cible dont une adresse est hors des réseaux autorisés n'est pas contactée.
+     */
+    public ProbeResult probe(ProbeTarget target) {
+        InetAddress address;
+        try {
+            address = allowedAddress(target.host());
+        } catch (UnknownHostException e) {
+            return ProbeResult.unreachable(target, "hôte inconnu");
+        }
+        if (address == null) {
+            return ProbeResult.unreachable(target, "hors des réseaux autorisés");
+        }
+
+        BannerClient client = new BannerClient();
+        client.setConnectTimeout(connectTimeoutMillis);
+        client.setDefaultTimeout(readTimeoutMillis);
+        long start = System.nanoTime();
+        try {
+            client.connect(address, target.port());
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (TLS_PORTS.contains(target.port())) {
+                return new ProbeResult(target, true, latencyMillis, null, null, null, null);
+            }
+
+            String banner = client.readBanner(HTTP_PORTS.contains(target.port()) ? target.host() : null);
+            String[] identification = identify(banner);
+            return new ProbeResult(target, true, latencyMillis, banner, identification[0], identification[1], null);
+        } catch (IOException e) {
+            return ProbeResult.unreachable(target, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            try {
+                client.disconnect();
+            } catch (IOException e) {
+                // Rien à faire, la sonde est terminée
+            }
+        }
+    }
+
+    /**
+     * Adresse à contacter pour un hôte, ou null si l'une de ses adresses sort des réseaux autorisés
+     * (un nom résolu à la fois vers un réseau autorisé et vers un autre est refusé).
+     */
+    private InetAddress allowedAddress(String host) throws UnknownHostException {
+        InetAddress[] addresses = InetAddress.getAllByName(host);
+        for (InetAddress address : addresses) {
+            if (allowedNetworks.stream().noneMatch(network -> network.contains(address))) {
+                return null;
+            }
+        }
+        return addresses[0];
+    }
+
+    /**
+     * Déduit la technologie et la version d'une bannière : {technologie, version}, chaque élément pouvant être null.
+     */
+    static String[] identify(String banner) {
+        if (banner == null || banner.isEmpty()) {
+            return new String[2];
+        }
+        Matcher ssh = SSH_BANNER.matcher(banner);
+        if (ssh.find()) {
+            return new String[]{ssh.group(1), ssh.group(2)};
+        }
+        Matcher server = HTTP_SERVER_HEADER.matcher(banner);
+        if (server.find()) {
+            return new String[]{server.group(1), server.group(2)};
+        }
+        Matcher product = PRODUCT_VERSION.matcher(banner);
+        if (product.find()) {
+            return new String[]{product.group(1), product.group(2)};
+        }
+        Matcher version = BARE_VERSION.matcher(banner);
+        return new String[]{null, version.find() ? version.group(1) : null};
+    }
+
+    /**
+     * Client commons-net minimal : lit ce que le service envoie après la connexion.
+     */
+    private static final class BannerClient extends SocketClient {
+
+        String readBanner(String httpHost) throws IOException {
+            if (httpHost != null) {
+                _output_.write(("HEAD / HTTP/1.0\r\nHost: " + httpHost + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                _output_.flush();
+            }
+
+            byte[] buffer = new byte[MAX_BANNER_BYTES];
+            int length = 0;
+            try {
+                int read;
+                while (length < buffer.length && (read = _input_.read(buffer, length, buffer.length - length)) > 0) {
+                    length += read;
+                    // Hors HTTP, la première réponse suffit : inutile d'attendre la fin du délai
+                    if (httpHost == null) {
+                        break;
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                // Service silencieux (ex. PostgreSQL) : joignable mais sans bannière
+            }
+            return printable(buffer, length);
+        }
+
+        private static String printable(byte[] bytes, int length) {
+            StringBuilder text = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                char c = (char) (bytes[i] & 0xFF);
+                if (c == '\n' || c == '\r' || (c >= 0x20 && c < 0x7F)) {
+                    text.append(c);
+                } else if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                    text.append(' ');
+                }
+            }
+            String banner = text.toString().trim();
+            return banner.isEmpty() ? null : banner;
+        }
+    }
+
+    /**
+     * Réseau en notation CIDR (adresse/longueur de préfixe, ou adresse seule).
+     */
+    static final class Network {
+        private final byte[] prefix;
+        private final int prefixLength;
+
+        private Network(byte[] prefix, int prefixLength) {
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+        }
+
+        static Network parse(String cidr) {
+            String trimmed = cidr.trim();
+            int slash = trimmed.indexOf('/');
+            String address = slash < 0 ? trimmed : trimmed.substring(0, slash);
+            // Seules les adresses littérales sont acceptées : aucune résolution DNS à la configuration
+            if (!address.matches("[0-9A-Fa-f.:]+")) {
+                throw new IllegalArgumentException("Réseau invalide: " + cidr);
+            }
+            try {
+                byte[] bytes = InetAddress.getByName(address).getAddress();
+                int length = slash < 0 ? bytes.length * 8 : Integer.parseInt(trimmed.substring(slash + 1));
+                if (length < 0 || length > bytes.length * 8) {
+                    throw new IllegalArgumentException("Longueur de préfixe invalide: " + cidr);
+                }
+                return new Network(bytes, length);
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Réseau invalide: " + cidr, e);
+            }
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != prefix.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != prefix[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits) & 0xFF;
+            return (bytes[fullBytes] & mask) == (prefix[fullBytes] & mask);
+        }
+    }
+
+    /**
+     * Service à sonder.
+     */
+    public record ProbeTarget(String host, int port) {
+    }
+
+    /**
+     * Résultat d'une sonde ; {@code technology} et {@code version} sont déduites de la bannière.
+     */
+    public record ProbeResult(ProbeTarget target, boolean reachable, long latencyMillis, String banner,
+                              String technology, String version, String error) {
+
+        static ProbeResult unreachable(ProbeTarget target, String error) {
+            return new ProbeResult(target, false, -1, null, null, null, error);
+        }
+    }
+}
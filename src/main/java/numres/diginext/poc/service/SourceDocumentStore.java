@@ -0,0 +1,144 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.config.StorageLocation;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Conserve le texte extrait des documents analysés afin de pouvoir reconstruire, à la demande,
+ * le contexte des mentions de composants.
+ * Le texte est stocké en UTF-16LE : une position de caractère correspond directement à un
+ * décalage en octets, ce qui permet de lire un extrait sans décoder le document entier.
+ * Les fichiers sont rangés dans le répertoire propre à la base de données ({@link StorageLocation}) :
+ * les identifiants ne sont jamais partagés avec une autre instance.
+ */
+@Service
+public class SourceDocumentStore {
+
+    private static final String DOCUMENT_SUFFIX = ".utf16";
+
+    // Nombre de caractères conservés de chaque côté d'une mention
+    private static final int CONTEXT_RADIUS = 50;
+
+    private final AtomicInteger nextDocumentId = new AtomicInteger(1);
+
+    private final Path documentsDirectory;
+
+    public SourceDocumentStore(StorageLocation storageLocation) throws IOException {
+        documentsDirectory = storageLocation.directory("documents");
+        try (Stream<Path> files = Files.list(documentsDirectory)) {
+            int maxId = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(DOCUMENT_SUFFIX))
+                    .mapToInt(name -> parseId(name.substring(0, name.length() - DOCUMENT_SUFFIX.length())))
+                    .max()
+                    .orElse(0);
+            nextDocumentId.set(maxId + 1);
+        }
+    }
+
+    /**
+     * Enregistre le texte d'un document et retourne son identifiant.
+     */
+    public int store(String text) throws IOException {
+        int documentId = nextDocumentId.getAndIncrement();
+        try (Writer writer = Files.newBufferedWriter(documentPath(documentId), StandardCharsets.UTF_16LE)) {
+            writer.write(text);
+        }
+        return documentId;
+    }
+
+    /**
+     * Supprime le texte d'un document, par exemple avec la cartographie qui en est issue.
+     */
+    public void delete(int documentId) throws IOException {
+        Files.deleteIfExists(documentPath(documentId));
+    }
+
+    /**
+     * Reconstruit l'extrait de texte autour d'une mention.
+     *
+     * @return L'extrait normalisé, ou une chaîne vide si le document n'est plus disponible
+     */
+    public String snippet(int documentId, int start, int end) throws IOException {
+        Path path = documentPath(documentId);
+        if (!Files.exists(path)) {
+            return "";
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size() / 2;
+            long from = Math.max(0, start - CONTEXT_RADIUS);
+            long to = Math.min(length, end + CONTEXT_RADIUS);
+            if (from >= to) {
+                return "";
+            }
+            CharBuffer chars = channel.map(FileChannel.MapMode.READ_ONLY, from * 2, (to - from) * 2)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asCharBuffer();
+            return normalizeWhitespace(chars);
+        }
+    }
+
+    /**
+     * Lit une plage brute du texte d'un document, bornée à sa longueur.
+     *
+     * @return Le texte de la plage, ou une chaîne vide si le document n'est plus disponible
+     */
+    public String excerpt(int documentId, int start, int end) throws IOException {
+        Path path = documentPath(documentId);
+        if (!Files.exists(path)) {
+            return "";
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long from = Math.max(0, start);
+            long to = Math.min(channel.size() / 2, end);
+            if (from >= to) {
+                return "";
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, from * 2, (to - from) * 2)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asCharBuffer()
+                    .toString();
+        }
+    }
+
+    private String normalizeWhitespace(CharSequence chars) {
+        StringBuilder snippet = new StringBuilder(chars.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = snippet.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    snippet.append(' ');
+                    pendingSpace = false;
+                }
+                snippet.append(c);
+            }
+        }
+        return snippet.toString();
+    }
+
+    private Path documentPath(int documentId) {
+        return documentsDirectory.resolve(documentId + DOCUMENT_SUFFIX);
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.graph.ForceLayout;
+import numres.diginext.poc.graph.MapGraph;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+/**
+ * Rendu SVG natif des grandes cartographies, sans passer par PlantUML.
+ * Le placement est calculé par {@link ForceLayout} directement sur le graphe compact ; le SVG produit
+ * reste compact : styles en classes CSS partagées, coordonnées entières et une balise courte par relation.
+ */
+@Service
+public class SvgDiagramRenderer {
+
+    private static final int MARGIN = 40;
+    private static final int NODE_HEIGHT = 24;
+    private static final int MAX_LABEL_LENGTH = 28;
+
+    @Value("${diginext.diagram.svg-threshold:300}")
+    private int svgThreshold;
+
+    @Value("${diginext.diagram.layout-iterations:100}")
+    private int layoutIterations;
+
+    /**
+     * Le rendu SVG est choisi au-delà du seuil de composants, PlantUML restant utilisé en dessous.
+     */
+    public boolean prefersSvg(int componentCount) {
+        return componentCount > svgThreshold;
+    }
+
+    /**
+     * Produit le diagramme SVG d'un graphe.
+     */
+    public String render(String title, MapGraph graph) {
+        int n = graph.nodeCount();
+        double[] positions = ForceLayout.layout(graph, layoutIterations);
+
+        // Boîte englobante et taille des composants (largeur selon le libellé)
+        String[] labels = new String[n];
+        int[] halfWidths = new int[n];
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int node = 0; node < n; node++) {
+            labels[node] = label(graph.name(node));
+            halfWidths[node] = (labels[node].length() * 7 + 16) / 2;
+            minX = Math.min(minX, positions[2 * node] - halfWidths[node]);
+            maxX = Math.max(maxX, positions[2 * node] + halfWidths[node]);
+            minY = Math.min(minY, positions[2 * node + 1] - NODE_HEIGHT / 2.0);
+            maxY = Math.max(maxY, positions[2 * node + 1] + NODE_HEIGHT / 2.0);
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        double offsetX = MARGIN - minX;
+        double offsetY = MARGIN + 30 - minY;
+        long width = Math.round(maxX - minX) + 2 * MARGIN;
+        long height = Math.round(maxY - minY) + 2 * MARGIN + 30;
+
+        StringBuilder svg = new StringBuilder(256 + n * 160 + graph.edgeCount() * 24);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" font-family=\"sans-serif\" font-size=\"11\">\n");
+        // Mêmes couleurs que les stéréotypes du diagramme PlantUML
+        svg.append("<style>rect{stroke:#000;stroke-width:1}.db{fill:lightblue}.srv{fill:lightgreen}")
+                .append(".app{fill:lightyellow}.saas{fill:#ccf}.agent{fill:#cfc}.tech{fill:#ffc}.sys{fill:#fcc}")
+                .append(".crit{stroke:red;stroke-width:2}.e{stroke:#555;stroke-width:1;fill:none;marker-end:url(#a)}")
+                .append("text{text-anchor:middle;dominant-baseline:central}</style>\n");
+        svg.append("<defs><marker id=\"a\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" markerWidth=\"6\" markerHeight=\"6\" orient=\"auto\">")
+                .append("<path d=\"M0,0L10,5L0,10z\" fill=\"#555\"/></marker></defs>\n");
+        svg.append("<text x=\"").append(width / 2).append("\" y=\"").append(MARGIN / 2 + 6)
+                .append("\" font-size=\"16\">").append(escape(title + " - Cartographie du SI")).append("</text>\n");
+
+        // Relations : segments de centre à bord, le type de relation en info-bulle
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            int source = graph.edgeSource(edge);
+            int target = graph.edgeTarget(edge);
+            if (source == target) {
+                continue;
+            }
+            double x1 = positions[2 * source] + offsetX;
+            double y1 = positions[2 * source + 1] + offsetY;
+            double x2 = positions[2 * target] + offsetX;
+            double y2 = positions[2 * target + 1] + offsetY;
+            double dx = x2 - x1;
+            double dy = y2 - y1;
+            // La flèche s'arrête sur le bord du rectangle de la cible
+            double clip = Math.min(dx == 0 ? Double.MAX_VALUE : halfWidths[target] / Math.abs(dx),
+                    dy == 0 ? Double.MAX_VALUE : (NODE_HEIGHT / 2.0) / Math.abs(dy));
+            if (clip >= 1) {
+                continue;
+            }
+            svg.append("<path class=\"e\" d=\"M").append(Math.round(x1)).append(',').append(Math.round(y1))
+                    .append('L').append(Math.round(x2 - dx * clip)).append(',').append(Math.round(y2 - dy * clip))
+                    .append("\"><title>").append(escape(graph.edgeType(edge))).append("</title></path>\n");
+        }
+
+        // Composants, dessinés après les relations pour les recouvrir
+        for (int node = 0; node < n; node++) {
+            long x = Math.round(positions[2 * node] + offsetX);
+            long y = Math.round(positions[2 * node + 1] + offsetY);
+            svg.append("<g><title>").append(escape(tooltip(graph, node))).append("</title><rect class=\"")
+                    .append(styleClass(graph.type(node))).append(graph.critical(node) ? " crit" : "")
+                    .append("\" x=\"").append(x - halfWidths[node]).append("\" y=\"").append(y - NODE_HEIGHT / 2)
+                    .append("\" width=\"").append(2 * halfWidths[node]).append("\" height=\"").append(NODE_HEIGHT)
+                    .append("\" rx=\"4\"/><text x=\"").append(x).append("\" y=\"").append(y).append("\">")
+                    .append(escape(labels[node])).append("</text></g>\n");
+        }
+
+        svg.append("</svg>\n");
+        return svg.toString();
+    }
+
+    private static String label(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.length() > MAX_LABEL_LENGTH ? name.substring(0, MAX_LABEL_LENGTH - 1) + "…" : name;
+    }
+
+    private static String tooltip(MapGraph graph, int node) {
+        StringBuilder tooltip = new StringBuilder();
+        tooltip.append(graph.name(node)).append(" (").append(graph.type(node)).append(')');
+        if (graph.technology(node) != null) {
+            tooltip.append(" - ").append(graph.technology(node));
+        }
+        if (graph.version(node) != null) {
+            tooltip.append(" v").append(graph.version(node));
+        }
+        if (graph.environment(node) != null) {
+            tooltip.append(" - ").append(graph.environment(node));
+        }
+        return tooltip.toString();
+    }
+
+    private static String styleClass(String type) {
+        switch (type != null ? type.toUpperCase(Locale.ROOT) : "") {
+            case "DATABASE":
+            case "BASE DE DONNÉES":
+                return "db";
+            case "SERVER":
+            case "SERVEUR":
+                return "srv";
+            case "APPLICATION":
+            case "APP":
+                return "app";
+            case "SAAS":
+                return "saas";
+            case "AGENT":
+                return "agent";
+            case "TECHNOLOGY":
+                return "tech";
+            default:
+                return "sys";
+        }
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                default -> {
+                    // Les caractères de contrôle sont interdits en XML
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package numres.diginext.poc.service;
+
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.MapRecommendationRepository;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Suppression d'une cartographie avec ses données dérivées : recommandations enregistrées et texte
+ * du document source. Le texte n'est supprimé qu'après la validation de la transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class SystemMapDeletionService {
+
+    private final SystemMapRepository systemMapRepository;
+    private final MapRecommendationRepository mapRecommendationRepository;
+    private final SourceDocumentStore sourceDocumentStore;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @return Faux si la cartographie n'existe pas
+     */
+    public boolean delete(Long mapId) throws IOException {
+        DeletedMap deleted = transactionTemplate.execute(status -> {
+            SystemMap systemMap = systemMapRepository.findById(mapId).orElse(null);
+            if (systemMap == null) {
+                return null;
+            }
+            mapRecommendationRepository.deleteByMapIds(List.of(mapId));
+            systemMapRepository.delete(systemMap);
+            return new DeletedMap(systemMap.getSourceDocumentId());
+        });
+        if (deleted == null) {
+            return false;
+        }
+        if (deleted.sourceDocumentId() != null) {
+            sourceDocumentStore.delete(deleted.sourceDocumentId());
+        }
+        return true;
+    }
+
+    private record DeletedMap(Integer sourceDocumentId) {
+    }
+}
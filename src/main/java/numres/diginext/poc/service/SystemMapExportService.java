@@ -0,0 +1,249 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Export en flux d'une cartographie enregistrée au format JSON ou GraphML.
+ * Les composants et relations sont lus par pages de colonnes, sans charger les entités,
+ * et chaque élément est écrit directement sur le flux de sortie, sans construire d'arbre en mémoire.
+ */
+@Service
+@RequiredArgsConstructor
+public class SystemMapExportService {
+
+    static final String GRAPHML_NAMESPACE = "http://graphml.graphdrawing.org/xmlns";
+    static final String DIGINEXT_NAMESPACE = "https://diginext.fr/graphml";
+
+    // Attributs GraphML des composants et des relations
+    static final String[] NODE_KEYS = {"name", "type", "description", "technology", "version", "environment", "critical"};
+    static final String[] EDGE_KEYS = {"relationType", "relationDescription", "relationConfidence"};
+    static final String[] GRAPH_KEYS = {"mapName", "mapDescription", "createdBy", "createdDate"};
+
+    // Taille des pages de composants et de relations lues
+    private static final int PAGE_SIZE = 5000;
+
+    private final ObjectMapper objectMapper;
+    private final SystemMapRepository systemMapRepository;
+
+    /**
+     * Écrit la cartographie au format JSON.
+     */
+    public void exportJson(SystemMap systemMap, List<RecommendationService.Recommendation> recommendations,
+                           OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.writeStartObject();
+            writeField(json, "name", systemMap.getName());
+            writeField(json, "description", systemMap.getDescription());
+            writeField(json, "createdBy", systemMap.getCreatedBy());
+            writeField(json, "createdDate", systemMap.getCreatedDate());
+
+            json.writeArrayFieldStart("components");
+            forEachComponent(systemMap.getId(), row -> {
+                json.writeStartObject();
+                json.writeStringField("id", idOf(row[0]));
+                writeField(json, "name", (String) row[1]);
+                writeField(json, "type", (String) row[2]);
+                writeField(json, "description", (String) row[3]);
+                writeField(json, "technology", (String) row[4]);
+                writeField(json, "version", (String) row[5]);
+                writeField(json, "environment", (String) row[6]);
+                if (Boolean.TRUE.equals(row[7])) {
+                    json.writeBooleanField("critical", true);
+                }
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("relationships");
+            forEachRelationship(systemMap.getId(), row -> {
+                json.writeStartObject();
+                json.writeStringField("source", idOf(row[1]));
+                json.writeStringField("target", idOf(row[2]));
+                writeField(json, "type", (String) row[3]);
+                writeField(json, "description", (String) row[4]);
+                if (row[5] != null) {
+                    json.writeNumberField("confidence", (Double) row[5]);
+                }
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("recommendations");
+            for (RecommendationService.Recommendation recommendation : recommendations) {
+                json.writeStartObject();
+                writeField(json, "title", recommendation.getTitle());
+                writeField(json, "description", recommendation.getDescription());
+                writeField(json, "priority", recommendation.getPriority());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Écrit la cartographie au format GraphML. Les recommandations sont portées par un
+     * attribut du graphe dans l'espace de noms DigiNext.
+     */
+    public void exportGraphMl(SystemMap systemMap, List<RecommendationService.Recommendation> recommendations,
+                              OutputStream out) throws IOException {
+        try {
+            XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("graphml");
+            xml.writeDefaultNamespace(GRAPHML_NAMESPACE);
+            xml.writeNamespace("dn", DIGINEXT_NAMESPACE);
+
+            for (String key : GRAPH_KEYS) {
+                writeKey(xml, key, "graph");
+            }
+            writeKey(xml, "recommendations", "graph");
+            for (String key : NODE_KEYS) {
+                writeKey(xml, key, "node");
+            }
+            for (String key : EDGE_KEYS) {
+                writeKey(xml, key, "edge");
+            }
+
+            xml.writeStartElement("graph");
+            xml.writeAttribute("id", "G");
+            xml.writeAttribute("edgedefault", "directed");
+            writeData(xml, "mapName", systemMap.getName());
+            writeData(xml, "mapDescription", systemMap.getDescription());
+            writeData(xml, "createdBy", systemMap.getCreatedBy());
+            writeData(xml, "createdDate", systemMap.getCreatedDate());
+
+            xml.writeStartElement("data");
+            xml.writeAttribute("key", "recommendations");
+            for (RecommendationService.Recommendation recommendation : recommendations) {
+                xml.writeStartElement("dn", "recommendation", DIGINEXT_NAMESPACE);
+                xml.writeAttribute("title", recommendation.getTitle());
+                xml.writeAttribute("priority", recommendation.getPriority());
+                xml.writeCharacters(recommendation.getDescription());
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+
+            forEachComponent(systemMap.getId(), row -> {
+                xml.writeStartElement("node");
+                xml.writeAttribute("id", idOf(row[0]));
+                writeData(xml, "name", (String) row[1]);
+                writeData(xml, "type", (String) row[2]);
+                writeData(xml, "description", (String) row[3]);
+                writeData(xml, "technology", (String) row[4]);
+                writeData(xml, "version", (String) row[5]);
+                writeData(xml, "environment", (String) row[6]);
+                if (Boolean.TRUE.equals(row[7])) {
+                    writeData(xml, "critical", "true");
+                }
+                xml.writeEndElement();
+            });
+
+            forEachRelationship(systemMap.getId(), row -> {
+                xml.writeStartElement("edge");
+                xml.writeAttribute("source", idOf(row[1]));
+                xml.writeAttribute("target", idOf(row[2]));
+                writeData(xml, "relationType", (String) row[3]);
+                writeData(xml, "relationDescription", (String) row[4]);
+                if (row[5] != null) {
+                    writeData(xml, "relationConfidence", row[5].toString());
+                }
+                xml.writeEndElement();
+            });
+
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Erreur lors de l'export GraphML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Colonnes des composants de la cartographie, par pages
+     * (id, nom, type, description, technologie, version, environnement, criticité).
+     */
+    private <E extends Exception> void forEachComponent(Long mapId, RowWriter<E> writer) throws E {
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            rows = systemMapRepository.findComponentRowsAfter(mapId, lastId, Pageable.ofSize(PAGE_SIZE));
+            for (Object[] row : rows) {
+                writer.write(row);
+                lastId = (Long) row[0];
+            }
+        } while (rows.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Colonnes des relations de la cartographie, par pages (id, source, cible, type, description, confiance).
+     */
+    private <E extends Exception> void forEachRelationship(Long mapId, RowWriter<E> writer) throws E {
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            rows = systemMapRepository.findRelationshipRowsAfter(mapId, lastId, Pageable.ofSize(PAGE_SIZE));
+            for (Object[] row : rows) {
+                writer.write(row);
+                lastId = (Long) row[0];
+            }
+        } while (rows.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Identifiant d'un composant dans l'export, dérivé de son identifiant persistant.
+     */
+    private static String idOf(Object componentId) {
+        return "n" + componentId;
+    }
+
+    private void writeField(JsonGenerator json, String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    private void writeKey(XMLStreamWriter xml, String key, String domain) throws XMLStreamException {
+        xml.writeEmptyElement("key");
+        xml.writeAttribute("id", key);
+        xml.writeAttribute("for", domain);
+        xml.writeAttribute("attr.name", key);
+        xml.writeAttribute("attr.type", switch (key) {
+            case "critical" -> "boolean";
+            case "relationConfidence" -> "double";
+            default -> "string";
+        });
+    }
+
+    private void writeData(XMLStreamWriter xml, String key, String value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeStartElement("data");
+            xml.writeAttribute("key", key);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<E extends Exception> {
+        void write(Object[] row) throws E;
+    }
+}
@@ -0,0 +1,33 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.model.SystemComponent;
+
+/**
+ * Reçoit les éléments d'une cartographie au fil de leur lecture par un importeur en flux.
+ * Les composants et relations sont transmis un par un, sans arbre intermédiaire.
+ */
+public interface SystemMapImportHandler {
+
+    /**
+     * Propriété de la cartographie (name, description, createdBy, createdDate).
+     */
+    void onMapProperty(String property, String value);
+
+    /**
+     * Composant lu, identifié par son identifiant dans le fichier importé.
+     */
+    void onComponent(String id, SystemComponent component);
+
+    /**
+     * Relation lue entre deux identifiants de composants du fichier importé.
+     *
+     * @param confidence Confiance dans la relation, null si le fichier ne la précise pas
+     */
+    void onRelationship(String sourceId, String targetId, String type, String description, Double confidence);
+
+    /**
+     * Recommandation lue. Les recommandations sont recalculées après import, elles sont donc ignorées par défaut.
+     */
+    default void onRecommendation(RecommendationService.Recommendation recommendation) {
+    }
+}
@@ -0,0 +1,316 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import numres.diginext.poc.graph.ArrayMapGraph;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Import en flux de cartographies au format JSON ou GraphML (formats produits par
+ * {@link SystemMapExportService}). Les éléments sont transmis un par un au
+ * {@link SystemMapImportHandler} au fur et à mesure de la lecture, et enregistrés
+ * par lots ({@link SystemMapWriter}).
+ */
+@Service
+@RequiredArgsConstructor
+public class SystemMapImportService {
+
+    // Nombre d'éléments enregistrés entre deux vidages du contexte de persistance
+    private static final int BATCH_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final DiagramGenerationService diagramGenerationService;
+    private final SystemMapRepository systemMapRepository;
+    private final MapGraphService mapGraphService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Importe et enregistre une cartographie, le format étant déduit du nom de fichier.
+     *
+     * @param in          Flux du fichier importé
+     * @param fileName    Nom du fichier (.json, .graphml ou .xml)
+     * @param defaultName Nom utilisé si le fichier n'en précise pas
+     * @return L'identifiant et la taille de la cartographie enregistrée
+     */
+    public ImportedMap importMap(InputStream in, String fileName, String defaultName) throws IOException {
+        String lowerName = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        boolean graphMl = lowerName.endsWith(".graphml") || lowerName.endsWith(".xml");
+
+        SavedImport saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                SystemMap systemMap = new SystemMap();
+                systemMap.setName(defaultName);
+                Long mapId = systemMapRepository.save(systemMap).getId();
+
+                SystemMapWriter writer = new SystemMapWriter(entityManager, systemMapRepository, mapId, BATCH_SIZE);
+                try {
+                    if (graphMl) {
+                        importGraphMl(in, writer);
+                    } else {
+                        importJson(in, writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                SystemMap savedMap = writer.finish(defaultName);
+                // Le diagramme est généré à partir des colonnes enregistrées, sans recharger les entités
+                ArrayMapGraph graph = mapGraphService.build(mapId);
+                savedMap.setPlantUmlDiagram(diagramGenerationService.generatePlantUML(savedMap.getName(), graph));
+                return new SavedImport(new ImportedMap(mapId, writer.componentCount(), writer.relationshipCount()), graph);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Le graphe est écrit après validation, pour la révision enregistrée
+        mapGraphService.write(saved.map().id(), saved.graph());
+        return saved.map();
+    }
+
+    /**
+     * Lit une cartographie JSON.
+     */
+    public void importJson(InputStream in, SystemMapImportHandler handler) throws IOException {
+        try (JsonParser json = objectMapper.getFactory().createParser(in)) {
+            if (json.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Format JSON invalide: objet attendu");
+            }
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.currentName();
+                JsonToken value = json.nextToken();
+                switch (field) {
+                    case "components" -> readArray(json, value, () -> readComponent(json, handler));
+                    case "relationships" -> readArray(json, value, () -> readRelationship(json, handler));
+                    case "recommendations" -> readArray(json, value, () -> readRecommendation(json, handler));
+                    default -> {
+                        if (value.isScalarValue()) {
+                            handler.onMapProperty(field, json.getValueAsString());
+                        } else {
+                            json.skipChildren();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lit une cartographie GraphML.
+     */
+    public void importGraphMl(InputStream in, SystemMapImportHandler handler) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        try {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            Map<String, String> data = new HashMap<>();
+            String nodeId = null;
+            String edgeSource = null;
+            String edgeTarget = null;
+            String dataKey = null;
+            String recommendationTitle = null;
+            String recommendationPriority = null;
+            StringBuilder text = new StringBuilder();
+
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    text.setLength(0);
+                    switch (xml.getLocalName()) {
+                        case "node" -> {
+                            nodeId = xml.getAttributeValue(null, "id");
+                            data.clear();
+                        }
+                        case "edge" -> {
+                            edgeSource = xml.getAttributeValue(null, "source");
+                            edgeTarget = xml.getAttributeValue(null, "target");
+                            data.clear();
+                        }
+                        case "data" -> dataKey = xml.getAttributeValue(null, "key");
+                        case "recommendation" -> {
+                            recommendationTitle = xml.getAttributeValue(null, "title");
+                            recommendationPriority = xml.getAttributeValue(null, "priority");
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(xml.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "recommendation" -> handler.onRecommendation(new RecommendationService.Recommendation(
+                                recommendationTitle, text.toString(), recommendationPriority));
+                        case "data" -> {
+                            if (nodeId == null && edgeSource == null) {
+                                applyGraphData(dataKey, text.toString(), handler);
+                            } else {
+                                if (dataKey != null) {
+                                    data.put(dataKey, text.toString());
+                                }
+                            }
+                            dataKey = null;
+                        }
+                        case "node" -> {
+                            handler.onComponent(nodeId, toComponent(data));
+                            nodeId = null;
+                        }
+                        case "edge" -> {
+                            handler.onRelationship(edgeSource, edgeTarget, data.get("relationType"),
+                                    data.get("relationDescription"), parseConfidence(data.get("relationConfidence")));
+                            edgeSource = null;
+                            edgeTarget = null;
+                        }
+                        default -> {
+                        }
+                    }
+                    text.setLength(0);
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Format GraphML invalide: " + e.getMessage(), e);
+        }
+    }
+
+    private void applyGraphData(String key, String value, SystemMapImportHandler handler) {
+        if (key == null) {
+            return;
+        }
+        switch (key) {
+            case "mapName" -> handler.onMapProperty("name", value);
+            case "mapDescription" -> handler.onMapProperty("description", value);
+            case "createdBy", "createdDate" -> handler.onMapProperty(key, value);
+            default -> {
+            }
+        }
+    }
+
+    private static Double parseConfidence(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private SystemComponent toComponent(Map<String, String> data) {
+        SystemComponent component = new SystemComponent();
+        component.setName(data.get("name"));
+        component.setType(data.get("type"));
+        component.setDescription(data.get("description"));
+        component.setTechnology(data.get("technology"));
+        component.setVersion(data.get("version"));
+        component.setEnvironment(data.get("environment"));
+        component.setCritical(Boolean.parseBoolean(data.get("critical")));
+        return component;
+    }
+
+    private void readComponent(JsonParser json, SystemMapImportHandler handler) throws IOException {
+        String id = null;
+        SystemComponent component = new SystemComponent();
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.currentName();
+            json.nextToken();
+            switch (field) {
+                case "id" -> id = json.getValueAsString();
+                case "name" -> component.setName(json.getValueAsString());
+                case "type" -> component.setType(json.getValueAsString());
+                case "description" -> component.setDescription(json.getValueAsString());
+                case "technology" -> component.setTechnology(json.getValueAsString());
+                case "version" -> component.setVersion(json.getValueAsString());
+                case "environment" -> component.setEnvironment(json.getValueAsString());
+                case "critical" -> component.setCritical(json.getValueAsBoolean());
+                default -> json.skipChildren();
+            }
+        }
+        handler.onComponent(id != null ? id : component.getName(), component);
+    }
+
+    private void readRelationship(JsonParser json, SystemMapImportHandler handler) throws IOException {
+        String source = null;
+        String target = null;
+        String type = null;
+        String description = null;
+        Double confidence = null;
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.currentName();
+            JsonToken value = json.nextToken();
+            switch (field) {
+                case "source" -> source = json.getValueAsString();
+                case "target" -> target = json.getValueAsString();
+                case "type" -> type = json.getValueAsString();
+                case "description" -> description = json.getValueAsString();
+                case "confidence" -> confidence = value.isNumeric() ? json.getDoubleValue() : null;
+                default -> json.skipChildren();
+            }
+        }
+        if (source != null && target != null) {
+            handler.onRelationship(source, target, type, description, confidence);
+        }
+    }
+
+    private void readRecommendation(JsonParser json, SystemMapImportHandler handler) throws IOException {
+        String title = null;
+        String description = null;
+        String priority = null;
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.currentName();
+            json.nextToken();
+            switch (field) {
+                case "title" -> title = json.getValueAsString();
+                case "description" -> description = json.getValueAsString();
+                case "priority" -> priority = json.getValueAsString();
+                default -> json.skipChildren();
+            }
+        }
+        handler.onRecommendation(new RecommendationService.Recommendation(title, description, priority));
+    }
+
+    private void readArray(JsonParser json, JsonToken start, ElementReader reader) throws IOException {
+        if (start != JsonToken.START_ARRAY) {
+            json.skipChildren();
+            return;
+        }
+        while (json.nextToken() == JsonToken.START_OBJECT) {
+            reader.read();
+        }
+    }
+
+    /**
+     * Cartographie importée : identifiant et nombres d'éléments enregistrés.
+     */
+    public record ImportedMap(Long id, int components, int relationships) {
+    }
+
+    private record SavedImport(ImportedMap map, ArrayMapGraph graph) {
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+}
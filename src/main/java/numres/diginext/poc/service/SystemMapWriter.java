@@ -0,0 +1,138 @@
+package numres.diginext.poc.service;
+
+import jakarta.persistence.EntityManager;
+import numres.diginext.poc.model.ComponentRelationship;
+import numres.diginext.poc.model.SystemComponent;
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enregistre une cartographie au fil de la lecture d'un importeur, dans la transaction appelante.
+ * Les composants et relations sont insérés et rattachés à la cartographie par lots, puis le contexte
+ * de persistance est vidé : seul l'index des identifiants du fichier vers les identifiants enregistrés
+ * est conservé pendant la lecture. Une relation référençant un composant pas encore lu crée un
+ * composant provisoire, complété lorsqu'il est lu.
+ */
+class SystemMapWriter implements SystemMapImportHandler {
+
+    private final EntityManager entityManager;
+    private final SystemMapRepository systemMapRepository;
+    private final Long mapId;
+    private final int batchSize;
+
+    private final Map<String, Long> componentIds = new HashMap<>();
+    private final Map<String, String> properties = new HashMap<>();
+    private final List<Long> pendingComponents = new ArrayList<>();
+    private final List<Long> pendingRelationships = new ArrayList<>();
+    private int relationshipCount;
+
+    /**
+     * @param mapId Identifiant de la cartographie déjà enregistrée qui reçoit les éléments lus
+     */
+    SystemMapWriter(EntityManager entityManager, SystemMapRepository systemMapRepository, Long mapId, int batchSize) {
+        this.entityManager = entityManager;
+        this.systemMapRepository = systemMapRepository;
+        this.mapId = mapId;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onMapProperty(String property, String value) {
+        properties.put(property, value);
+    }
+
+    @Override
+    public void onComponent(String id, SystemComponent component) {
+        Long existingId = componentIds.get(id);
+        if (existingId == null) {
+            entityManager.persist(component);
+            componentIds.put(id, component.getId());
+            pendingComponents.add(component.getId());
+        } else {
+            SystemComponent placeholder = entityManager.find(SystemComponent.class, existingId);
+            placeholder.setName(component.getName());
+            placeholder.setType(component.getType());
+            placeholder.setDescription(component.getDescription());
+            placeholder.setTechnology(component.getTechnology());
+            placeholder.setVersion(component.getVersion());
+            placeholder.setEnvironment(component.getEnvironment());
+            placeholder.setCritical(component.isCritical());
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void onRelationship(String sourceId, String targetId, String type, String description, Double confidence) {
+        ComponentRelationship relationship = new ComponentRelationship();
+        relationship.setSource(entityManager.getReference(SystemComponent.class, componentFor(sourceId)));
+        relationship.setTarget(entityManager.getReference(SystemComponent.class, componentFor(targetId)));
+        relationship.setType(type);
+        relationship.setDescription(description);
+        relationship.setConfidence(confidence);
+        entityManager.persist(relationship);
+        pendingRelationships.add(relationship.getId());
+        relationshipCount++;
+        flushIfFull();
+    }
+
+    /**
+     * Enregistre le dernier lot et les propriétés lues.
+     *
+     * @return La cartographie enregistrée, sans ses collections chargées
+     */
+    SystemMap finish(String defaultName) {
+        flush();
+        SystemMap systemMap = entityManager.find(SystemMap.class, mapId);
+        systemMap.setName(properties.getOrDefault("name", defaultName));
+        systemMap.setDescription(properties.get("description"));
+        systemMap.setCreatedBy(properties.getOrDefault("createdBy", "DigiNext POC"));
+        systemMap.setCreatedDate(properties.get("createdDate"));
+        return systemMap;
+    }
+
+    int componentCount() {
+        return componentIds.size();
+    }
+
+    int relationshipCount() {
+        return relationshipCount;
+    }
+
+    private Long componentFor(String id) {
+        Long existingId = componentIds.get(id);
+        if (existingId != null) {
+            return existingId;
+        }
+        SystemComponent placeholder = new SystemComponent();
+        placeholder.setName(id);
+        placeholder.setType("UNKNOWN");
+        entityManager.persist(placeholder);
+        componentIds.put(id, placeholder.getId());
+        pendingComponents.add(placeholder.getId());
+        return placeholder.getId();
+    }
+
+    private void flushIfFull() {
+        if (pendingComponents.size() + pendingRelationships.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        entityManager.flush();
+        if (!pendingComponents.isEmpty()) {
+            systemMapRepository.attachComponents(mapId, pendingComponents);
+            pendingComponents.clear();
+        }
+        if (!pendingRelationships.isEmpty()) {
+            systemMapRepository.attachRelationships(mapId, pendingRelationships);
+            pendingRelationships.clear();
+        }
+        entityManager.clear();
+    }
+}
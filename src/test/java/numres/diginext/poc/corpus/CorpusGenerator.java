@@ -0,0 +1,317 @@
+package numres.diginext.poc.corpus;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.xwpf.usermodel.BreakType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Générateur de documents d'architecture SI synthétiques (français ou anglais) accompagnés de leur vérité terrain.
+ * <p>
+ * Les composants sont nommés avec les vocabulaires reconnus par {@code ComponentExtractionService}
+ * (mot-clé suivi d'un identifiant unique, ex. {@code serveur srv-00012}) et les relations avec les tournures
+ * reconnues par {@code RelationshipExtractionService} ({@code app-00003 dépend de db-00007}).
+ * La génération est déterministe pour une graine donnée.
+ */
+public class CorpusGenerator {
+
+    // Taille approximative d'une page de texte
+    public static final int PAGE_CHARACTERS = 3000;
+
+    /**
+     * Catégorie de composant : type attendu, mots-clés des patterns d'extraction et préfixe d'identifiant.
+     */
+    private record Category(String type, String[] keywords, String prefix) {
+    }
+
+    private static final Category[] CATEGORIES = {
+            new Category("SERVER", new String[]{"serveur", "server"}, "srv"),
+            new Category("DATABASE", new String[]{"postgresql", "oracle", "mysql", "mongodb"}, "db"),
+            new Category("APPLICATION", new String[]{"application", "portail"}, "app"),
+            new Category("WEB_SYSTEM", new String[]{"nginx", "intranet"}, "web"),
+            new Category("MIDDLEWARE", new String[]{"Kafka", "RabbitMQ"}, "mq"),
+            new Category("ENTERPRISE_SYSTEM", new String[]{"SAP", "Salesforce"}, "erp"),
+            new Category("SECURITY", new String[]{"bastion", "VPN"}, "sec"),
+            new Category("FILE_STORAGE", new String[]{"NAS"}, "nas"),
+            new Category("DATA_WAREHOUSE", new String[]{"hadoop", "snowflake"}, "dwh"),
+            new Category("NETWORK_DEVICE", new String[]{"routeur", "switch"}, "net")
+    };
+
+    private static final String[] ENVIRONMENTS = {"production", "recette", "développement", "qualification"};
+
+    /**
+     * Tournures de relation reconnues : type attendu, tournure française, tournure anglaise.
+     */
+    private static final String[][] RELATION_PHRASES = {
+            {"dépend de", "dépend de", "depends on"},
+            {"communique avec", "communique avec", "connects to"},
+            {"est déployé sur", "est déployé sur", "runs on"}
+    };
+
+    // Phrases de remplissage sans vocabulaire reconnu par l'extraction
+    private static final String[] FILLER_FR = {
+            "Les équipes projet ont validé ce périmètre lors du dernier comité.",
+            "Les flux sont supervisés en continu et les incidents sont tracés dans l'outil de ticketing.",
+            "Une revue trimestrielle permet de vérifier la cohérence des évolutions prévues.",
+            "Les exigences de disponibilité ont été revues avec les responsables métier.",
+            "Les sauvegardes sont réalisées chaque nuit et testées une fois par mois.",
+            "Le plan de continuité prévoit une bascule manuelle en cas de sinistre majeur."
+    };
+    private static final String[] FILLER_EN = {
+            "Project teams approved this scope during the last steering committee.",
+            "Flows are monitored continuously and incidents are tracked in the ticketing tool.",
+            "A quarterly review checks the consistency of planned changes.",
+            "Availability requirements were reviewed with business owners.",
+            "Backups run every night and are tested once a month.",
+            "The continuity plan provides for a manual failover in case of a major disaster."
+    };
+
+    private final Random random;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Génère un document.
+     *
+     * @param componentCount    Nombre de composants distincts mentionnés
+     * @param relationshipCount Nombre de relations distinctes exprimées
+     * @param pages             Nombre de pages (environ {@link #PAGE_CHARACTERS} caractères chacune)
+     * @param french            Document en français, sinon en anglais
+     */
+    public SyntheticDocument generate(int componentCount, int relationshipCount, int pages, boolean french) {
+        // 1. Vérité terrain : composants
+        List<ExpectedComponent> components = new ArrayList<>(componentCount);
+        for (int i = 0; i < componentCount; i++) {
+            Category category = CATEGORIES[i % CATEGORIES.length];
+            String keyword = category.keywords()[random.nextInt(category.keywords().length)];
+            String identifier = String.format(Locale.ROOT, "%s-%05d", category.prefix(), i);
+            String version = random.nextInt(3) == 0 ? (1 + random.nextInt(12)) + "." + random.nextInt(10) : null;
+            String environment = random.nextInt(3) == 0 ? ENVIRONMENTS[random.nextInt(ENVIRONMENTS.length)] : null;
+            components.add(new ExpectedComponent(keyword + " " + identifier, identifier, category.type(), version, environment));
+        }
+
+        // 2. Vérité terrain : relations distinctes entre composants distincts
+        Set<ExpectedRelationship> relationships = new LinkedHashSet<>();
+        int maxRelationships = componentCount * (componentCount - 1) * RELATION_PHRASES.length;
+        while (relationships.size() < Math.min(relationshipCount, maxRelationships)) {
+            ExpectedComponent source = components.get(random.nextInt(componentCount));
+            ExpectedComponent target = components.get(random.nextInt(componentCount));
+            if (source != target) {
+                String[] phrase = RELATION_PHRASES[random.nextInt(RELATION_PHRASES.length)];
+                relationships.add(new ExpectedRelationship(source.name(), target.name(), phrase[0]));
+            }
+        }
+
+        // 3. Phrases : chaque composant et chaque relation apparaissent au moins une fois
+        Map<String, ExpectedComponent> byName = new HashMap<>();
+        components.forEach(c -> byName.put(c.name(), c));
+        List<String> sentences = new ArrayList<>();
+        for (ExpectedComponent component : components) {
+            sentences.add(introduce(component, french));
+        }
+        for (ExpectedRelationship relationship : relationships) {
+            sentences.add(relate(byName.get(relationship.source()), byName.get(relationship.target()),
+                    relationship.type(), french));
+        }
+
+        // 4. Pagination : les phrases utiles sont réparties sur les pages, complétées par du remplissage
+        // et des rappels de composants déjà présentés
+        String[] filler = french ? FILLER_FR : FILLER_EN;
+        List<String> pageTexts = new ArrayList<>(pages);
+        int perPage = (int) Math.ceil(sentences.size() / (double) Math.max(1, pages));
+        int next = 0;
+        for (int page = 0; page < pages; page++) {
+            StringBuilder text = new StringBuilder(PAGE_CHARACTERS + 256);
+            text.append("Section ").append(page + 1).append("\n\n");
+            for (int i = 0; i < perPage && next < sentences.size(); i++) {
+                text.append(sentences.get(next++)).append(' ');
+            }
+            while (text.length() < PAGE_CHARACTERS) {
+                if (!components.isEmpty() && random.nextInt(4) == 0) {
+                    text.append(remind(components.get(random.nextInt(componentCount)), french)).append(' ');
+                } else {
+                    text.append(filler[random.nextInt(filler.length)]).append(' ');
+                }
+            }
+            pageTexts.add(text.toString().trim());
+        }
+        // Les phrases restantes (pages trop peu nombreuses) complètent la dernière page
+        if (next < sentences.size()) {
+            StringBuilder last = new StringBuilder(pageTexts.remove(pageTexts.size() - 1));
+            while (next < sentences.size()) {
+                last.append(' ').append(sentences.get(next++));
+            }
+            pageTexts.add(last.toString());
+        }
+
+        return new SyntheticDocument(pageTexts, components, new ArrayList<>(relationships), french);
+    }
+
+    private String introduce(ExpectedComponent component, boolean french) {
+        StringBuilder sentence = new StringBuilder();
+        sentence.append(french ? "Le périmètre comprend " : "The scope includes ").append(component.name());
+        if (component.version() != null) {
+            sentence.append(" en version ").append(component.version());
+        }
+        if (component.environment() != null) {
+            sentence.append(french ? " en environnement de " : " in environment ").append(component.environment());
+        }
+        return sentence.append('.').toString();
+    }
+
+    private String remind(ExpectedComponent component, boolean french) {
+        return (french ? "Pour rappel, " : "As a reminder, ") + component.name()
+                + (french ? " reste dans le périmètre." : " remains in scope.");
+    }
+
+    private String relate(ExpectedComponent source, ExpectedComponent target, String type, boolean french) {
+        for (String[] phrase : RELATION_PHRASES) {
+            if (phrase[0].equals(type)) {
+                // Les patterns de relation ne capturent qu'un mot de part et d'autre : l'identifiant
+                return (french ? "Dans ce découpage, " : "In this design, ") + source.identifier() + " "
+                        + (french ? phrase[1] : phrase[2]) + " " + target.identifier() + ".";
+            }
+        }
+        throw new IllegalArgumentException("Type de relation inconnu: " + type);
+    }
+
+    /**
+     * Document généré, page par page, avec sa vérité terrain.
+     */
+    public record SyntheticDocument(List<String> pages, List<ExpectedComponent> components,
+                                    List<ExpectedRelationship> relationships, boolean french) {
+
+        public String text() {
+            return String.join("\n\n", pages);
+        }
+
+        public void writeTxt(Path file) throws IOException {
+            Files.writeString(file, text(), StandardCharsets.UTF_8);
+        }
+
+        public void writeDocx(Path file) throws IOException {
+            try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+                for (int i = 0; i < pages.size(); i++) {
+                    XWPFParagraph paragraph = document.createParagraph();
+                    paragraph.createRun().setText(pages.get(i));
+                    if (i < pages.size() - 1) {
+                        paragraph.createRun().addBreak(BreakType.PAGE);
+                    }
+                }
+                document.write(out);
+            }
+        }
+
+        public void writePdf(Path file) throws IOException {
+            PDFont font = PDType1Font.HELVETICA;
+            float fontSize = 10;
+            float leading = 13;
+            float margin = 50;
+            try (PDDocument document = new PDDocument()) {
+                for (String page : pages) {
+                    List<String> lines = wrap(page, 95);
+                    int lineIndex = 0;
+                    // Une page générée peut occuper plusieurs pages PDF
+                    do {
+                        PDPage pdfPage = new PDPage(PDRectangle.A4);
+                        document.addPage(pdfPage);
+                        try (PDPageContentStream content = new PDPageContentStream(document, pdfPage)) {
+                            content.beginText();
+                            content.setFont(font, fontSize);
+                            content.setLeading(leading);
+                            content.newLineAtOffset(margin, PDRectangle.A4.getHeight() - margin);
+                            float y = PDRectangle.A4.getHeight() - margin;
+                            while (lineIndex < lines.size() && y > margin) {
+                                content.showText(lines.get(lineIndex++));
+                                content.newLine();
+                                y -= leading;
+                            }
+                            content.endText();
+                        }
+                    } while (lineIndex < lines.size());
+                }
+                document.save(file.toFile());
+            }
+        }
+
+        /**
+         * Écrit la vérité terrain (composants et relations attendus) au format JSON.
+         */
+        public void writeGroundTruth(Path file) throws IOException {
+            try (JsonGenerator json = new JsonFactory().createGenerator(file.toFile(), JsonEncoding.UTF8)) {
+                json.useDefaultPrettyPrinter();
+                json.writeStartObject();
+                json.writeStringField("language", french ? "fr" : "en");
+                json.writeNumberField("pages", pages.size());
+                json.writeArrayFieldStart("components");
+                for (ExpectedComponent component : components) {
+                    json.writeStartObject();
+                    json.writeStringField("name", component.name());
+                    json.writeStringField("type", component.type());
+                    json.writeStringField("version", component.version());
+                    json.writeStringField("environment", component.environment());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("relationships");
+                for (ExpectedRelationship relationship : relationships) {
+                    json.writeStartObject();
+                    json.writeStringField("source", relationship.source());
+                    json.writeStringField("target", relationship.target());
+                    json.writeStringField("type", relationship.type());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        }
+
+        private static List<String> wrap(String text, int width) {
+            List<String> lines = new ArrayList<>();
+            for (String paragraph : text.split("\n")) {
+                StringBuilder line = new StringBuilder();
+                for (String word : paragraph.split(" ")) {
+                    if (line.length() + word.length() + 1 > width && line.length() > 0) {
+                        lines.add(line.toString());
+                        line.setLength(0);
+                    }
+                    if (line.length() > 0) {
+                        line.append(' ');
+                    }
+                    line.append(word);
+                }
+                lines.add(line.toString());
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Composant attendu : nom complet tel que l'extraction doit le produire, identifiant et type.
+     */
+    public record ExpectedComponent(String name, String identifier, String type, String version, String environment) {
+    }
+
+    /**
+     * Relation attendue entre deux composants (noms complets).
+     */
+    public record ExpectedRelationship(String source, String target, String type) {
+    }
+}
@@ -0,0 +1,113 @@
+package numres.diginext.poc.corpus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import numres.diginext.poc.model.ExtractedComponent;
+import numres.diginext.poc.model.ExtractedRelationship;
+import numres.diginext.poc.service.ComponentExtractionService;
+import numres.diginext.poc.search.TextSegmentation;
+import numres.diginext.poc.service.CooccurrenceInference;
+import numres.diginext.poc.service.LanguageDetector;
+import numres.diginext.poc.service.PatternDictionary;
+import numres.diginext.poc.service.PatternSnapshot;
+import numres.diginext.poc.service.RelationshipExtractionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mesure conjointe du débit et de la qualité (précision / rappel) de l'extraction sur des documents
+ * synthétiques de taille croissante.
+ * <p>
+ * Exclu du build par défaut, il s'exécute avec {@code mvn test -Pbenchmark}. Paramètres (propriétés système) :
+ * {@code corpus.pages} (tailles en pages), {@code corpus.components}, {@code corpus.relationships},
+ * {@code corpus.language} (fr ou en) et {@code corpus.output} (répertoire où écrire les documents TXT, DOCX,
+ * PDF et leur vérité terrain).
+ */
+@Tag("benchmark")
+class ExtractionBenchmarkTest {
+
+    @Test
+    void extractionThroughputAndQuality() throws Exception {
+        PatternDictionary dictionary = new PatternDictionary(new DefaultResourceLoader(), new ObjectMapper(),
+                "classpath:dictionaries/extraction.json");
+        dictionary.reload();
+        ComponentExtractionService componentExtractionService = new ComponentExtractionService(dictionary);
+        RelationshipExtractionService relationshipExtractionService = new RelationshipExtractionService(
+                dictionary, new CooccurrenceInference(0.75, 0.2, 8, 500_000));
+
+        int[] pageCounts = Arrays.stream(System.getProperty("corpus.pages", "1,10,100,1000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        int componentCount = Integer.getInteger("corpus.components", 200);
+        int relationshipCount = Integer.getInteger("corpus.relationships", 300);
+        boolean french = !"en".equalsIgnoreCase(System.getProperty("corpus.language", "fr"));
+        String output = System.getProperty("corpus.output");
+
+        System.out.println("pages | Mo | ms | pages/s | composants P/R | relations P/R");
+        for (int pages : pageCounts) {
+            CorpusGenerator.SyntheticDocument document =
+                    new CorpusGenerator(pages).generate(componentCount, relationshipCount, pages, french);
+            String text = document.text();
+
+            if (output != null) {
+                Path directory = Files.createDirectories(Path.of(output));
+                String base = "corpus-" + pages + "p";
+                document.writeTxt(directory.resolve(base + ".txt"));
+                document.writeDocx(directory.resolve(base + ".docx"));
+                document.writePdf(directory.resolve(base + ".pdf"));
+                document.writeGroundTruth(directory.resolve(base + ".truth.json"));
+            }
+
+            // Même enchaînement que l'analyse : un seul découpage du texte, règles de la langue détectée
+            long start = System.nanoTime();
+            TextSegmentation segments = TextSegmentation.of(text);
+            PatternSnapshot patterns = dictionary.snapshot().forLanguage(LanguageDetector.detect(text));
+            List<ExtractedComponent> components = componentExtractionService.extractComponents(segments, 0, patterns);
+            Set<ExtractedRelationship> relationships =
+                    relationshipExtractionService.extractRelationships(segments, components, patterns);
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            Set<String> expectedComponents = new HashSet<>();
+            document.components().forEach(c -> expectedComponents.add(componentKey(c.name(), c.type())));
+            Set<String> foundComponents = new HashSet<>();
+            components.forEach(c -> foundComponents.add(componentKey(c.name(), c.type())));
+
+            Set<String> expectedRelationships = new HashSet<>();
+            document.relationships().forEach(r -> expectedRelationships.add(relationshipKey(r.source(), r.target(), r.type())));
+            Set<String> foundRelationships = new HashSet<>();
+            relationships.forEach(r -> foundRelationships.add(
+                    relationshipKey(r.source().name(), r.target().name(), r.type())));
+
+            System.out.println(String.format(Locale.ROOT, "%5d | %.1f | %d | %.1f | %s | %s",
+                    pages, text.length() / 1e6, elapsedMillis, pages * 1000.0 / elapsedMillis,
+                    precisionRecall(expectedComponents, foundComponents),
+                    precisionRecall(expectedRelationships, foundRelationships)));
+
+            assertThat(foundComponents).isNotEmpty();
+        }
+    }
+
+    private static String componentKey(String name, String type) {
+        return type + "|" + name.toLowerCase().replaceAll("\\s+", " ").trim();
+    }
+
+    private static String relationshipKey(String source, String target, String type) {
+        return source.toLowerCase() + "|" + target.toLowerCase() + "|" + type;
+    }
+
+    private static String precisionRecall(Set<String> expected, Set<String> found) {
+        long truePositives = found.stream().filter(expected::contains).count();
+        double precision = found.isEmpty() ? 0 : truePositives / (double) found.size();
+        double recall = expected.isEmpty() ? 0 : truePositives / (double) expected.size();
+        return String.format(Locale.ROOT, "%.3f/%.3f", precision, recall);
+    }
+}
@@ -0,0 +1,129 @@
+package numres.diginext.poc.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Écriture puis relecture par mappage mémoire des fichiers de graphe.
+ */
+class GraphStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mappedGraphMatchesWrittenGraph() throws IOException {
+        ArrayMapGraph written = sampleGraph();
+
+        new GraphStore(directory).write("map-1", 3, written);
+        // Nouvelle instance : le graphe est relu depuis le fichier et non depuis le cache
+        MapGraph mapped = new GraphStore(directory).open("map-1", 3).orElseThrow();
+
+        assertThat(mapped.nodeCount()).isEqualTo(written.nodeCount());
+        assertThat(mapped.edgeCount()).isEqualTo(written.edgeCount());
+        for (int node = 0; node < written.nodeCount(); node++) {
+            assertThat(mapped.componentId(node)).isEqualTo(written.componentId(node));
+            assertThat(mapped.name(node)).isEqualTo(written.name(node));
+            assertThat(mapped.type(node)).isEqualTo(written.type(node));
+            assertThat(mapped.description(node)).isEqualTo(written.description(node));
+            assertThat(mapped.technology(node)).isEqualTo(written.technology(node));
+            assertThat(mapped.version(node)).isEqualTo(written.version(node));
+            assertThat(mapped.environment(node)).isEqualTo(written.environment(node));
+            assertThat(mapped.critical(node)).isEqualTo(written.critical(node));
+            assertThat(mapped.inDegree(node)).isEqualTo(written.inDegree(node));
+            assertThat(mapped.outStart(node)).isEqualTo(written.outStart(node));
+            assertThat(mapped.outEnd(node)).isEqualTo(written.outEnd(node));
+        }
+        for (int edge = 0; edge < written.edgeCount(); edge++) {
+            assertThat(mapped.edgeSource(edge)).isEqualTo(written.edgeSource(edge));
+            assertThat(mapped.edgeTarget(edge)).isEqualTo(written.edgeTarget(edge));
+            assertThat(mapped.edgeType(edge)).isEqualTo(written.edgeType(edge));
+            assertThat(mapped.edgeDescription(edge)).isEqualTo(written.edgeDescription(edge));
+        }
+    }
+
+    @Test
+    void graphOfAnotherRevisionIsIgnored() throws IOException {
+        GraphStore graphStore = new GraphStore(directory);
+        graphStore.write("map-1", 3, sampleGraph());
+
+        assertThat(graphStore.open("map-1", 4)).isEmpty();
+        assertThat(new GraphStore(directory).open("map-1", 4)).isEmpty();
+        assertThat(new GraphStore(directory).open("map-2", 3)).isEmpty();
+    }
+
+    @Test
+    void graphOfAnEarlierFormatIsIgnored() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve("map-1.graph")))) {
+            out.writeInt(MappedMapGraph.MAGIC);
+            out.writeInt(MappedMapGraph.FORMAT_VERSION - 1);
+            out.write(new byte[MappedMapGraph.HEADER_SIZE]);
+        }
+
+        Optional<MapGraph> graph = new GraphStore(directory).open("map-1", 0);
+
+        assertThat(graph).isEmpty();
+    }
+
+    @Test
+    void similarNamesUseDistinctFiles() throws IOException {
+        GraphStore graphStore = new GraphStore(directory);
+        String[] names = {"estate-Acme Corp", "estate-Acme_Corp", "estate-Acme/Corp", "estate-acme corp"};
+        for (int i = 0; i < names.length; i++) {
+            graphStore.write(names[i], i, sampleGraph());
+        }
+
+        // Chaque nom retrouve son propre fichier, y compris depuis une nouvelle instance
+        for (int i = 0; i < names.length; i++) {
+            assertThat(new GraphStore(directory).open(names[i], i)).isPresent();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".graph")).count()).isEqualTo(names.length);
+        }
+        assertThat(GraphStore.fileName("map-12")).isEqualTo("map-12");
+    }
+
+    @Test
+    void openGraphsCacheIsBounded() throws IOException {
+        GraphStore graphStore = new GraphStore(directory, 2);
+        for (int i = 0; i < 5; i++) {
+            graphStore.write("map-" + i, 1, sampleGraph());
+        }
+
+        assertThat(graphStore.cachedGraphCount()).isEqualTo(2);
+        // Un graphe évincé reste lisible : il est simplement relu depuis son fichier
+        assertThat(graphStore.open("map-0", 1)).isPresent();
+        assertThat(graphStore.cachedGraphCount()).isEqualTo(2);
+    }
+
+    @Test
+    void oneShotReadsBypassTheCache() throws IOException {
+        new GraphStore(directory).write("map-1", 1, sampleGraph());
+        GraphStore graphStore = new GraphStore(directory, 2);
+
+        assertThat(graphStore.open("map-1", 1, false)).isPresent();
+        graphStore.write("map-2", 1, sampleGraph(), false);
+
+        assertThat(graphStore.cachedGraphCount()).isZero();
+    }
+
+    private static ArrayMapGraph sampleGraph() {
+        GraphBuilder builder = new GraphBuilder();
+        int web = builder.addNode(10, "portail-web", "WEB_SYSTEM", "Portail client", "nginx", "1.24", "production", true);
+        int app = builder.addNode(11, "srv-app-01", "SERVER", null, "Tomcat", "10.1", "production", false);
+        int db = builder.addNode(12, "Base clients", "DATABASE", "Données clients é", "PostgreSQL", "15", null, true);
+        builder.addEdge(web, app, "appelle", "HTTPS");
+        builder.addEdge(app, db, "lit", null);
+        builder.addEdge(web, db, "lit", "consultation");
+        return builder.build();
+    }
+}
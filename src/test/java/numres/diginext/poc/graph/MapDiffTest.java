@@ -0,0 +1,150 @@
+package numres.diginext.poc.graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Appariement des composants et des relations entre deux versions d'une cartographie.
+ */
+class MapDiffTest {
+
+    @Test
+    void identicalMapsHaveNoDifference() {
+        MapDiff diff = MapDiff.compute(sampleGraph(), sampleGraph());
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(diff.afterOf(0)).isZero();
+        assertThat(diff.beforeOf(2)).isEqualTo(2);
+    }
+
+    @Test
+    void addedRemovedAndChangedComponentsAreReported() {
+        GraphBuilder after = new GraphBuilder();
+        after.addNode(1, "portail-web", "WEB_SYSTEM", "Portail client", "nginx", "1.26", "production", true);
+        after.addNode(2, "srv-app-01", "SERVER", null, "Tomcat", "10.1", "production", false);
+        after.addNode(4, "srv-batch", "SERVER", null, null, null, null, false);
+        after.addEdge(0, 1, "appelle", "HTTPS");
+
+        MapDiff diff = MapDiff.compute(sampleGraph(), after.build());
+
+        assertThat(diff.addedComponents()).containsExactly(2);
+        assertThat(diff.removedComponents()).containsExactly(2);
+        assertThat(diff.changedComponents()).containsExactly(0);
+        assertThat(diff.afterOf(2)).isEqualTo(-1);
+        assertThat(diff.beforeOf(2)).isEqualTo(-1);
+        // Les relations vers la base retirée disparaissent avec elle
+        assertThat(diff.removedRelationships()).containsExactlyInAnyOrder(1, 2);
+        assertThat(diff.addedRelationships()).isEmpty();
+    }
+
+    @Test
+    void renamedComponentIsRemovedThenAdded() {
+        GraphBuilder after = portalOnly();
+        after.addNode(2, "srv-app-02", "SERVER", null, "Tomcat", "10.1", "production", false);
+        after.addNode(3, "Base clients", "DATABASE", "Données clients", "PostgreSQL", "15", null, true);
+        after.addEdge(0, 1, "appelle", "HTTPS");
+        after.addEdge(1, 2, "lit", null);
+        after.addEdge(0, 2, "lit", "consultation");
+
+        MapDiff diff = MapDiff.compute(sampleGraph(), after.build());
+
+        assertThat(diff.removedComponents()).containsExactly(1);
+        assertThat(diff.addedComponents()).containsExactly(1);
+        // Les relations sont rangées par source : 0 → 1, 0 → 2 puis 1 → 2
+        assertThat(diff.removedRelationships()).containsExactlyInAnyOrder(0, 2);
+        assertThat(diff.addedRelationships()).containsExactlyInAnyOrder(0, 2);
+        assertThat(diff.changedRelationships()).isEmpty();
+    }
+
+    @Test
+    void namesAreComparedWithoutCaseOrWhitespace() {
+        GraphBuilder after = portalOnly();
+        after.addNode(2, "SRV-APP-01", "server", null, "Tomcat", "10.1", "production", false);
+        after.addNode(3, " Base  Clients ", "Database", "Données clients", "PostgreSQL", "15", null, true);
+        after.addEdge(0, 1, "APPELLE", "HTTPS");
+        after.addEdge(1, 2, "lit", null);
+        after.addEdge(0, 2, "lit", "consultation");
+
+        MapDiff diff = MapDiff.compute(sampleGraph(), after.build());
+
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    void hashesFoldCaseLikeComparisons() {
+        // "ı" (i sans point) et "I" sont égaux sans tenir compte de la casse : leurs empreintes doivent l'être aussi
+        GraphBuilder before = new GraphBuilder();
+        before.addNode(1, "srv-01", "LINUX", null, null, null, null, false);
+        GraphBuilder after = new GraphBuilder();
+        after.addNode(1, "srv-01", "lınux", null, null, null, null, false);
+
+        MapDiff diff = MapDiff.compute(before.build(), after.build());
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(MapDiff.fold('ı')).isEqualTo(MapDiff.fold('I'));
+    }
+
+    @Test
+    void addedRemovedAndChangedRelationshipsAreReported() {
+        GraphBuilder after = portalOnly();
+        after.addNode(2, "srv-app-01", "SERVER", null, "Tomcat", "10.1", "production", false);
+        after.addNode(3, "Base clients", "DATABASE", "Données clients", "PostgreSQL", "15", null, true);
+        after.addEdge(0, 1, "appelle", "HTTP/2");
+        after.addEdge(1, 2, "écrit", null);
+        after.addEdge(0, 2, "lit", "consultation");
+
+        MapDiff diff = MapDiff.compute(sampleGraph(), after.build());
+
+        assertThat(diff.addedComponents()).isEmpty();
+        assertThat(diff.removedComponents()).isEmpty();
+        assertThat(diff.changedRelationships()).containsExactly(0);
+        assertThat(diff.addedRelationships()).containsExactly(2);
+        assertThat(diff.removedRelationships()).containsExactly(2);
+    }
+
+    @Test
+    void duplicatesAreMergedWithTheirFirstOccurrence() {
+        GraphBuilder before = new GraphBuilder();
+        before.addNode(1, "srv-01", "SERVER", null, null, null, null, false);
+        before.addNode(2, "SRV-01", "SERVER", null, null, null, null, false);
+        GraphBuilder after = new GraphBuilder();
+        after.addNode(1, "srv-01", "SERVER", null, null, null, null, false);
+
+        MapDiff diff = MapDiff.compute(before.build(), after.build());
+
+        assertThat(diff.removedComponents()).isEmpty();
+        assertThat(diff.afterOf(0)).isZero();
+        assertThat(diff.afterOf(1)).isZero();
+    }
+
+    @Test
+    void collidingHashesAreConfirmedByKey() {
+        MapDiff.HashTable table = new MapDiff.HashTable(4);
+        table.put(42L, 0);
+        table.put(42L, 1);
+        table.put(42L ^ 0x1L, 2);
+
+        assertThat(table.find(42L, value -> value == 1)).isEqualTo(1);
+        assertThat(table.find(42L, value -> value == 0)).isZero();
+        // Une entrée d'une autre empreinte n'est jamais proposée, même si la clé la confirmerait
+        assertThat(table.find(42L, value -> value == 2)).isEqualTo(-1);
+        assertThat(table.find(7L, value -> true)).isEqualTo(-1);
+    }
+
+    private static ArrayMapGraph sampleGraph() {
+        GraphBuilder builder = portalOnly();
+        builder.addNode(2, "srv-app-01", "SERVER", null, "Tomcat", "10.1", "production", false);
+        builder.addNode(3, "Base clients", "DATABASE", "Données clients", "PostgreSQL", "15", null, true);
+        builder.addEdge(0, 1, "appelle", "HTTPS");
+        builder.addEdge(1, 2, "lit", null);
+        builder.addEdge(0, 2, "lit", "consultation");
+        return builder.build();
+    }
+
+    private static GraphBuilder portalOnly() {
+        GraphBuilder builder = new GraphBuilder();
+        builder.addNode(1, "portail-web", "WEB_SYSTEM", "Portail client", "nginx", "1.24", "production", true);
+        return builder;
+    }
+}
@@ -0,0 +1,258 @@
+package numres.diginext.poc.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de charge du parcours web complet : upload multipart sur /analyze, analyse, puis rendu de result.html.
+ * <p>
+ * Exclu du build par défaut, il s'exécute avec {@code mvn test -Pload-test}. Paramètres (propriétés système) :
+ * {@code load.concurrency}, {@code load.requests}, {@code load.warmup}, {@code load.sizes} (tailles de documents
+ * en Ko, tirées à tour de rôle) et {@code load.baseline} (fichier de seuils, par défaut load-baseline.properties).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "diginext.analysis.small-queue-capacity=1024"})
+class AnalyzeLoadTest {
+
+    private static final String BOUNDARY = "diginext-load-test";
+
+    // Phrases reconnues par les services d'extraction, répétées pour atteindre la taille voulue
+    private static final String[] SENTENCES = {
+            "Le serveur srv-app-%d héberge l'application Portail Client %d en version 2.%d. ",
+            "L'application Portail Client %d dépend de PostgreSQL %d. ",
+            "Le système de gestion RH %d est déployé sur srv-web-%d en environnement de production. ",
+            "The ERP module %d connects to Oracle Database %d through the Kafka middleware %d. ",
+            "La base de données MySQL %d est critique pour le CRM %d. "
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void analyzeUnderConcurrentLoad() throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 8);
+        int requests = Integer.getInteger("load.requests", 200);
+        int warmup = Integer.getInteger("load.warmup", 20);
+        int[] sizesKb = Arrays.stream(System.getProperty("load.sizes", "10,100,1000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+
+        byte[][] documents = new byte[sizesKb.length][];
+        for (int i = 0; i < sizesKb.length; i++) {
+            documents[i] = document(sizesKb[i] * 1024);
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Préchauffage (JIT, pools, caches Thymeleaf), non mesuré
+        run(client, documents, warmup, concurrency, new long[warmup], new AtomicInteger());
+
+        GcPauses gcPauses = new GcPauses();
+        long gcTimeBefore = totalGcTime();
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        run(client, documents, requests, concurrency, latencies, errors);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long gcTime = totalGcTime() - gcTimeBefore;
+        gcPauses.close();
+
+        Arrays.sort(latencies);
+        Properties report = new Properties();
+        report.setProperty("requests", String.valueOf(requests));
+        report.setProperty("concurrency", String.valueOf(concurrency));
+        report.setProperty("throughput", String.format(Locale.ROOT, "%.2f", requests / elapsedSeconds));
+        report.setProperty("p50-ms", String.valueOf(percentile(latencies, 50)));
+        report.setProperty("p95-ms", String.valueOf(percentile(latencies, 95)));
+        report.setProperty("p99-ms", String.valueOf(percentile(latencies, 99)));
+        report.setProperty("max-ms", String.valueOf(latencies[latencies.length - 1]));
+        report.setProperty("error-rate", String.format(Locale.ROOT, "%.4f", errors.get() / (double) requests));
+        report.setProperty("gc-time-ms", String.valueOf(gcTime));
+        report.setProperty("gc-pauses", String.valueOf(gcPauses.count.get()));
+        report.setProperty("gc-max-pause-ms", String.valueOf(gcPauses.maxPause.get()));
+
+        System.out.println("Test de charge /analyze : " + new TreeMap<>(report));
+        Path reportFile = Path.of("target", "load-report.properties");
+        Files.createDirectories(reportFile.getParent());
+        try (OutputStream out = Files.newOutputStream(reportFile)) {
+            report.store(out, "Resultats du test de charge /analyze");
+        }
+
+        Properties baseline = baseline();
+        assertThat(requests / elapsedSeconds).as("débit (requêtes/s)")
+                .isGreaterThanOrEqualTo(Double.parseDouble(baseline.getProperty("min-throughput")));
+        assertThat(percentile(latencies, 50)).as("latence p50 (ms)")
+                .isLessThanOrEqualTo(Long.parseLong(baseline.getProperty("max-p50-ms")));
+        assertThat(percentile(latencies, 95)).as("latence p95 (ms)")
+                .isLessThanOrEqualTo(Long.parseLong(baseline.getProperty("max-p95-ms")));
+        assertThat(percentile(latencies, 99)).as("latence p99 (ms)")
+                .isLessThanOrEqualTo(Long.parseLong(baseline.getProperty("max-p99-ms")));
+        assertThat(gcPauses.maxPause.get()).as("pause GC maximale (ms)")
+                .isLessThanOrEqualTo(Long.parseLong(baseline.getProperty("max-gc-pause-ms")));
+        assertThat(errors.get() / (double) requests).as("taux d'erreur")
+                .isLessThanOrEqualTo(Double.parseDouble(baseline.getProperty("max-error-rate")));
+    }
+
+    /**
+     * Exécute les requêtes avec la concurrence demandée ; chaque latence couvre l'upload et le rendu du résultat.
+     */
+    private void run(HttpClient client, byte[][] documents, int requests, int concurrency,
+                     long[] latencies, AtomicInteger errors) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger next = new AtomicInteger();
+        for (int t = 0; t < concurrency; t++) {
+            executor.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long start = System.nanoTime();
+                    try {
+                        if (!analyzeAndRender(client, documents[i % documents.length], i)) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.MINUTES)).isTrue();
+    }
+
+    private boolean analyzeAndRender(HttpClient client, byte[] document, int index)
+            throws IOException, InterruptedException {
+        HttpRequest upload = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/analyze"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(document, "charge-" + index)))
+                .build();
+        HttpResponse<Void> uploaded = client.send(upload, HttpResponse.BodyHandlers.discarding());
+        Optional<String> location = uploaded.headers().firstValue("Location");
+        if (uploaded.statusCode() != 302 || location.isEmpty()) {
+            return false;
+        }
+
+        HttpRequest result = HttpRequest.newBuilder(URI.create("http://localhost:" + port).resolve(location.get())).build();
+        HttpResponse<InputStream> rendered = client.send(result, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = rendered.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        return rendered.statusCode() == 200;
+    }
+
+    private static byte[] multipart(byte[] document, String name) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(document.length + 512);
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"name\"\r\n\r\n" + name + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + name + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n";
+        body.writeBytes(head.getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(document);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private static byte[] document(int size) {
+        StringBuilder text = new StringBuilder(size + 256);
+        Random random = new Random(size);
+        while (text.length() < size) {
+            int n = random.nextInt(50);
+            text.append(String.format(SENTENCES[random.nextInt(SENTENCES.length)], n, n, n));
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long totalGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static Properties baseline() throws IOException {
+        Properties baseline = new Properties();
+        String location = System.getProperty("load.baseline");
+        try (InputStream in = location != null
+                ? Files.newInputStream(Path.of(location))
+                : AnalyzeLoadTest.class.getResourceAsStream("/load-baseline.properties")) {
+            baseline.load(in);
+        }
+        return baseline;
+    }
+
+    /**
+     * Collecte des pauses GC individuelles via les notifications des collecteurs.
+     */
+    private static final class GcPauses implements AutoCloseable {
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong maxPause = new AtomicLong();
+        private final Map<NotificationEmitter, NotificationListener> listeners = new HashMap<>();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter emitter) {
+                    NotificationListener listener = (notification, handback) -> {
+                        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                            GarbageCollectionNotificationInfo info =
+                                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                            // Les cycles concurrents ne suspendent pas l'application
+                            if (!info.getGcName().contains("Concurrent") && !info.getGcName().contains("Cycles")) {
+                                count.incrementAndGet();
+                                maxPause.accumulateAndGet(info.getGcInfo().getDuration(), Math::max);
+                            }
+                        }
+                    };
+                    emitter.addNotificationListener(listener, null, null);
+                    listeners.put(emitter, listener);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            for (Map.Entry<NotificationEmitter, NotificationListener> entry : listeners.entrySet()) {
+                entry.getKey().removeNotificationListener(entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package numres.diginext.poc.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Écriture des segments, fusion par niveaux et recherche de termes ou d'expressions.
+ */
+class PositionalIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void largeIdentifiersAndOffsetsSurviveVarintEncoding() throws IOException {
+        // Positions au-delà de 127 et décalages au-delà de 16383 : varints sur deux puis trois octets
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 40000) {
+            text.append("lorem ipsum dolor ");
+        }
+        int start = text.length();
+        text.append("srv-batch-07");
+        PositionalIndex index = index(10);
+        index.add(300000, text);
+
+        List<PositionalIndex.DocumentMatches> matches = index.search(TextTokenizer.terms("srv-batch-07"), true, null, 10);
+
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).documentId()).isEqualTo(300000);
+        assertThat(matches.get(0).spans()).containsExactly(start, start + "srv-batch-07".length());
+    }
+
+    @Test
+    void fullLevelsAreMergedWithoutLosingDocuments() throws IOException {
+        PositionalIndex index = index(2);
+        for (int document = 1; document <= 4; document++) {
+            index.add(document, "Le serveur srv-0" + document + " héberge la base oracle.");
+        }
+
+        // 1 + 1 → niveau 1, puis deux segments de niveau 1 → un segment de niveau 2
+        assertThat(index.segmentCount()).isEqualTo(1);
+        assertThat(index.documentCount()).isEqualTo(4);
+        assertThat(documents(index.search(TextTokenizer.terms("oracle"), false, null, 10))).containsExactly(4, 3, 2, 1);
+        assertThat(documents(index.search(TextTokenizer.terms("srv-03"), true, null, 10))).containsExactly(3);
+
+        // Relecture depuis le manifeste par une nouvelle instance
+        PositionalIndex reopened = index(2);
+        assertThat(reopened.documentCount()).isEqualTo(4);
+        assertThat(documents(reopened.search(TextTokenizer.terms("base"), false, null, 10))).containsExactly(4, 3, 2, 1);
+    }
+
+    @Test
+    void phraseRequiresConsecutiveTerms() throws IOException {
+        String consecutive = "Le serveur oracle principal.";
+        PositionalIndex index = index(10);
+        index.add(1, consecutive);
+        index.add(2, "La base oracle tourne sur un serveur dédié.");
+
+        List<String> terms = TextTokenizer.terms("serveur oracle");
+
+        assertThat(documents(index.search(terms, false, null, 10))).containsExactlyInAnyOrder(1, 2);
+        List<PositionalIndex.DocumentMatches> phrase = index.search(terms, true, null, 10);
+        assertThat(documents(phrase)).containsExactly(1);
+        int start = consecutive.indexOf("serveur");
+        assertThat(phrase.get(0).spans()).containsExactly(start, start + "serveur oracle".length());
+    }
+
+    @Test
+    void searchIsRestrictedToTheGivenDocuments() throws IOException {
+        PositionalIndex index = index(2);
+        for (int document = 1; document <= 5; document++) {
+            index.add(document, "Passerelle gw-" + document + " vers le serveur central.");
+        }
+        List<String> terms = TextTokenizer.terms("serveur central");
+
+        assertThat(documents(index.search(terms, true, new int[]{2, 5}, 10))).containsExactly(5, 2);
+        assertThat(documents(index.search(terms, true, new int[]{6}, 10))).isEmpty();
+        assertThat(index.search(terms, true, new int[0], 10)).isEmpty();
+    }
+
+    private PositionalIndex index(int mergeFactor) throws IOException {
+        PositionalIndex index = new PositionalIndex(directory, mergeFactor);
+        index.init();
+        return index;
+    }
+
+    private static List<Integer> documents(List<PositionalIndex.DocumentMatches> matches) {
+        return matches.stream().map(PositionalIndex.DocumentMatches::documentId).toList();
+    }
+}
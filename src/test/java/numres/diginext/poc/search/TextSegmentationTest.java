@@ -0,0 +1,65 @@
+package numres.diginext.poc.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Découpage en mots, phrases et paragraphes, et normalisation partagée avec les requêtes.
+ */
+class TextSegmentationTest {
+
+    @Test
+    void versionsAndHostNamesDoNotEndTheSentence() {
+        String text = "La base Oracle 19.3 tourne sur srv.prod.local. Le portail est en DMZ! Est-ce sauvegardé ?";
+        TextSegmentation segmentation = TextSegmentation.of(text);
+
+        assertThat(segmentation.sentenceCount()).isEqualTo(4);
+        assertThat(segmentation.sentenceAt(text.indexOf("19.3"))).isZero();
+        assertThat(segmentation.sentenceAt(text.indexOf("local"))).isZero();
+        // La ponctuation appartient à la phrase qu'elle termine
+        assertThat(segmentation.sentenceEnd(0)).isEqualTo(text.indexOf("local.") + "local.".length());
+        assertThat(segmentation.sentenceAt(text.indexOf("portail"))).isEqualTo(1);
+        assertThat(segmentation.sentenceAt(text.indexOf("Est-ce"))).isEqualTo(2);
+        // Texte terminé par la ponctuation : la dernière phrase est vide
+        assertThat(segmentation.sentenceStart(3)).isEqualTo(text.length());
+    }
+
+    @Test
+    void lineBreaksEndSentencesAndParagraphs() {
+        String text = "srv-web appelle srv-app\nsrv-app lit oracle-db. Puis écrit.\n\nAnnexe";
+        TextSegmentation segmentation = TextSegmentation.of(text);
+
+        assertThat(segmentation.paragraphAt(text.indexOf("srv-web"))).isZero();
+        assertThat(segmentation.paragraphAt(text.indexOf("oracle-db"))).isEqualTo(1);
+        assertThat(segmentation.paragraphAt(text.indexOf("Puis"))).isEqualTo(1);
+        assertThat(segmentation.paragraphAt(text.indexOf("Annexe"))).isEqualTo(3);
+        assertThat(segmentation.sentenceAt(text.indexOf("srv-app\n"))).isZero();
+        assertThat(segmentation.sentenceAt(text.indexOf("oracle-db"))).isEqualTo(1);
+        assertThat(segmentation.sentenceAt(text.indexOf("Puis"))).isEqualTo(2);
+        // Un saut de ligne termine à la fois la phrase et le paragraphe
+        assertThat(segmentation.sentenceStart(1)).isEqualTo(text.indexOf("srv-app\n") + "srv-app\n".length());
+    }
+
+    @Test
+    void termsAreFoldedAndLongTokensSkipped() {
+        String generated = "a".repeat(TextTokenizer.MAX_TERM_LENGTH + 1);
+        String text = "Sécurité du Serveur srv-01 " + generated + " ÉTÉ";
+        TextSegmentation segmentation = TextSegmentation.of(text);
+
+        assertThat(segmentation.tokenCount()).isEqualTo(7);
+        assertThat(segmentation.term(0)).isEqualTo("securite");
+        assertThat(segmentation.tokenStart(3)).isEqualTo(text.indexOf("srv"));
+        assertThat(segmentation.tokenEnd(3)).isEqualTo(text.indexOf("srv") + 3);
+        assertThat(segmentation.term(5)).isNull();
+        assertThat(segmentation.terms()).containsExactlyInAnyOrder("securite", "du", "serveur", "srv", "01", "ete");
+    }
+
+    @Test
+    void queriesUseTheDocumentNormalization() {
+        String text = "Le Répartiteur de charge LB-01";
+
+        assertThat(TextTokenizer.terms(text)).containsExactly("le", "repartiteur", "de", "charge", "lb", "01");
+        assertThat(TextSegmentation.of(text).terms()).containsExactlyInAnyOrderElementsOf(TextTokenizer.terms(text));
+    }
+}
@@ -0,0 +1,117 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.model.ExtractedComponent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Pondération des cooccurrences et élagage de la matrice des paires.
+ */
+class CooccurrenceInferenceTest {
+
+    @Test
+    void pairInTheSameSentenceIsInferred() {
+        String text = "Le portail srv-web appelle srv-app pour chaque requête.\nLa base oracle-db est sauvegardée la nuit.\n";
+        ExtractedComponent web = component(0, "srv-web", text);
+        ExtractedComponent app = component(1, "srv-app", text);
+        ExtractedComponent db = component(2, "oracle-db", text);
+
+        List<CooccurrenceInference.InferredPair> pairs = inference(0.75).infer(text, List.of(db, app, web));
+
+        // Un paragraphe différent ne compte pas : seule la paire du portail et du serveur est retenue
+        assertThat(pairs).hasSize(1);
+        assertThat(pairs.get(0).first()).isEqualTo(web);
+        assertThat(pairs.get(0).second()).isEqualTo(app);
+        assertThat(pairs.get(0).confidence()).isEqualTo(1.0);
+    }
+
+    @Test
+    void otherSentenceOfTheParagraphIsWeightedDown() {
+        String text = "Le portail srv-web est en DMZ. Le serveur srv-app est interne.";
+        List<ExtractedComponent> components = List.of(component(0, "srv-web", text), component(1, "srv-app", text));
+
+        // Poids réduit à 0,4 puis par la distance : sous le seuil par défaut, au-dessus d'un seuil bas
+        assertThat(inference(0.75).infer(text, components)).isEmpty();
+        assertThat(inference(0.3).infer(text, components)).hasSize(1);
+    }
+
+    @Test
+    void repeatedCooccurrencesAccumulate() {
+        String once = "srv-web appelle srv-app.";
+        String twice = once + " Puis srv-web appelle encore srv-app.";
+
+        assertThat(inference(1.5).infer(once, List.of(component(0, "srv-web", once), component(1, "srv-app", once))))
+                .isEmpty();
+        assertThat(inference(1.5).infer(twice, List.of(component(0, "srv-web", twice), component(1, "srv-app", twice))))
+                .hasSize(1);
+    }
+
+    @Test
+    void matrixAccumulatesWeightsPerPair() {
+        CooccurrenceInference.PairMatrix matrix = new CooccurrenceInference.PairMatrix(1000);
+        matrix.add(1, 2, 0.5f);
+        matrix.add(1, 2, 0.25f);
+        matrix.add(2, 3, 1f);
+
+        Map<Long, Double> weights = weights(matrix);
+
+        assertThat(matrix.size()).isEqualTo(2);
+        assertThat(weights.get(key(1, 2))).isCloseTo(0.75, within(1e-6));
+        assertThat(weights.get(key(2, 3))).isCloseTo(1.0, within(1e-6));
+    }
+
+    @Test
+    void fullMatrixPrunesItsWeakestPairs() {
+        CooccurrenceInference.PairMatrix matrix = new CooccurrenceInference.PairMatrix(16);
+        for (int a = 0; a < 10; a++) {
+            matrix.add(a, a + 1, 5f);
+        }
+        for (int a = 100; a < 2100; a++) {
+            matrix.add(a, a + 1, 0.1f);
+        }
+
+        Map<Long, Double> weights = weights(matrix);
+
+        // La table plafonne à sa capacité initiale : les paires faibles sont élaguées, les fortes conservées
+        assertThat(matrix.size()).isLessThanOrEqualTo(1024 / 2);
+        assertThat(weights).hasSize(matrix.size());
+        for (int a = 0; a < 10; a++) {
+            assertThat(weights.get(key(a, a + 1))).isEqualTo(5.0);
+        }
+    }
+
+    private static CooccurrenceInference inference(double minWeight) {
+        return new CooccurrenceInference(minWeight, 0.2, 8, 500000);
+    }
+
+    /**
+     * Composant mentionné à chaque occurrence de son nom dans le texte (document 0).
+     */
+    private static ExtractedComponent component(int id, String name, String text) {
+        List<Integer> spans = new ArrayList<>();
+        for (int start = text.indexOf(name); start >= 0; start = text.indexOf(name, start + 1)) {
+            spans.add(0);
+            spans.add(start);
+            spans.add(start + name.length());
+        }
+        int[] mentions = spans.stream().mapToInt(Integer::intValue).toArray();
+        return new ExtractedComponent(id, name, "SERVER", null, null, null, false, mentions);
+    }
+
+    private static Map<Long, Double> weights(CooccurrenceInference.PairMatrix matrix) {
+        Map<Long, Double> weights = new HashMap<>();
+        matrix.forEach((a, b, weight) -> weights.put(key(a, b), weight));
+        return weights;
+    }
+
+    private static long key(int a, int b) {
+        return ((long) a << 32) | b;
+    }
+}
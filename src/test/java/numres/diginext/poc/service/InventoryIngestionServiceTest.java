@@ -0,0 +1,57 @@
+package numres.diginext.poc.service;
+
+import numres.diginext.poc.model.SystemMap;
+import numres.diginext.poc.repository.SystemMapRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Ingestion d'inventaires : un fichier illisible ne doit bloquer ni l'écrivain ni la cartographie.
+ */
+@SpringBootTest
+class InventoryIngestionServiceTest {
+
+    @Autowired
+    private InventoryIngestionService inventoryIngestionService;
+
+    @Autowired
+    private SystemMapRepository systemMapRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void corruptSpreadsheetDoesNotBlockTheNextIngestion() throws IOException {
+        SystemMap systemMap = new SystemMap();
+        systemMap.setName("inventaire");
+        Long mapId = systemMapRepository.save(systemMap).getId();
+        Path corrupt = Files.writeString(directory.resolve("inventaire.xlsx"), "pas un classeur");
+
+        // Plus d'échecs que de threads d'écriture : chacun doit libérer son écrivain et le verrou
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertThatThrownBy(() -> inventoryIngestionService.ingestSpreadsheet(mapId, corrupt, "inventaire.xlsx"))
+                    .isInstanceOf(RuntimeException.class);
+        }
+
+        String ndjson = "{\"kind\":\"host\",\"name\":\"srv-01\"}\n{\"kind\":\"host\",\"name\":\"srv-02\"}\n";
+        InventoryIngestionService.IngestionResult result = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> inventoryIngestionService.ingest(mapId,
+                        new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(result.records()).isEqualTo(2);
+        assertThat(result.createdComponents()).isEqualTo(2);
+    }
+}
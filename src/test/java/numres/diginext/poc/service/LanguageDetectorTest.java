@@ -0,0 +1,57 @@
+package numres.diginext.poc.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Classement des documents en français, en anglais ou mixtes, par fenêtres réparties sur le texte.
+ */
+class LanguageDetectorTest {
+
+    private static final String FRENCH = "Le portail client est hébergé sur le serveur srv-web-01 de la DMZ. "
+            + "Il communique avec la base de données des contrats, qui est sauvegardée chaque nuit par "
+            + "l'équipe d'exploitation. Les flux sont chiffrés et passent par le pare-feu du centre de données. ";
+    private static final String ENGLISH = "The customer portal is hosted on the srv-web-01 server in the DMZ. "
+            + "It connects to the contracts database, which is backed up every night by the operations team "
+            + "and the storage administrators. All the flows are encrypted and go through the firewall. ";
+
+    @Test
+    void frenchProseIsFrench() {
+        assertThat(LanguageDetector.detect(repeat(FRENCH, 30_000))).isEqualTo(PatternSnapshot.Language.FR);
+    }
+
+    @Test
+    void englishProseIsEnglish() {
+        assertThat(LanguageDetector.detect(repeat(ENGLISH, 30_000))).isEqualTo(PatternSnapshot.Language.EN);
+    }
+
+    @Test
+    void shortTextIsClassifiedOnItsOnlyWindow() {
+        assertThat(LanguageDetector.detect(FRENCH + FRENCH + FRENCH)).isEqualTo(PatternSnapshot.Language.FR);
+    }
+
+    @Test
+    void textWithoutProseIsMixed() {
+        // Liste de noms de serveurs : trop peu de trigrammes reconnus pour décider
+        assertThat(LanguageDetector.detect(repeat("srv-01 srv-02 10.0.0.1 10.0.0.2 ", 20_000)))
+                .isEqualTo(PatternSnapshot.Language.MIXED);
+        assertThat(LanguageDetector.detect("")).isEqualTo(PatternSnapshot.Language.MIXED);
+    }
+
+    @Test
+    void annexInAnotherLanguageFarFromTheStartMakesTheDocumentMixed() {
+        // Annexe anglaise au-delà des premières pages : elle doit être échantillonnée elle aussi
+        String document = repeat(FRENCH, 200_000) + repeat(ENGLISH, 30_000);
+
+        assertThat(LanguageDetector.detect(document)).isEqualTo(PatternSnapshot.Language.MIXED);
+    }
+
+    private static String repeat(String paragraph, int length) {
+        StringBuilder text = new StringBuilder(length + paragraph.length());
+        while (text.length() < length) {
+            text.append(paragraph);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package numres.diginext.poc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import numres.diginext.poc.search.TextSegmentation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Jeux de règles par langue compilés depuis le dictionnaire livré.
+ */
+class PatternSnapshotTest {
+
+    @Test
+    void establishedAnglicismsAreMatchedInFrenchDocuments() throws IOException {
+        PatternSnapshot french = dictionary().forLanguage(PatternSnapshot.Language.FR);
+
+        assertThat(matches(french, "SERVER", "le server srv-01 héberge le portail")).isTrue();
+        assertThat(matches(french, "SERVER", "chaque node du cluster")).isTrue();
+        assertThat(matches(french, "NETWORK_DEVICE", "derrière le load balancer lb-01")).isTrue();
+        assertThat(matches(french, "NETWORK_DEVICE", "la gateway gw-01")).isTrue();
+        assertThat(matches(french, "DATABASE", "la database des contrats")).isTrue();
+    }
+
+    @Test
+    void localizedTermsStayInTheirLanguage() throws IOException {
+        PatternSnapshot english = dictionary().forLanguage(PatternSnapshot.Language.EN);
+        PatternSnapshot french = dictionary().forLanguage(PatternSnapshot.Language.FR);
+
+        assertThat(matches(english, "SERVER", "le serveur srv-01")).isFalse();
+        assertThat(matches(french, "NETWORK_DEVICE", "the router rt-01")).isFalse();
+        assertThat(matches(english, "NETWORK_DEVICE", "the router rt-01")).isTrue();
+    }
+
+    @Test
+    void rulesWithoutAnyKeywordInTheDocumentAreSkipped() throws IOException {
+        PatternSnapshot french = dictionary().forLanguage(PatternSnapshot.Language.FR);
+        TextSegmentation document = TextSegmentation.of("La Base de Données clients est hébergée sur le serveur srv-01.");
+
+        assertThat(rule(french, "DATABASE").appliesTo(document.terms())).isTrue();
+        assertThat(rule(french, "SERVER").appliesTo(document.terms())).isTrue();
+        assertThat(rule(french, "CLOUD_SERVICE").appliesTo(document.terms())).isFalse();
+        assertThat(rule(french, "MIDDLEWARE").appliesTo(document.terms())).isFalse();
+        // Une règle écartée ne reconnaît effectivement rien dans le document
+        assertThat(rule(french, "MIDDLEWARE").pattern().matcher(document.text()).find()).isFalse();
+    }
+
+    private static PatternSnapshot.ComponentRule rule(PatternSnapshot snapshot, String type) {
+        return snapshot.getComponentRules().stream()
+                .filter(rule -> rule.type().equals(type))
+                .findFirst().orElseThrow();
+    }
+
+    private static boolean matches(PatternSnapshot snapshot, String type, String text) {
+        return snapshot.getComponentRules().stream()
+                .filter(rule -> rule.type().equals(type))
+                .anyMatch(rule -> rule.pattern().matcher(text).find());
+    }
+
+    private static PatternSnapshot dictionary() throws IOException {
+        try (InputStream json = PatternSnapshotTest.class.getResourceAsStream("/dictionaries/extraction.json")) {
+            return PatternSnapshot.compile(json.readAllBytes(), "test", new ObjectMapper());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package numres.diginext.poc.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sondes contre des services de substitution ouverts sur l'interface de bouclage.
+ */
+class ServiceProberTest {
+
+    private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+    private final List<ServerSocket> servers = new ArrayList<>();
+    private ServiceProber prober;
+
+    @BeforeEach
+    void setUp() {
+        prober = prober(4, List.of("127.0.0.0/8", "::1"));
+    }
+
+    private ServiceProber prober(int maxPerHost, List<String> allowedNetworks) {
+        return new ServiceProber(Duration.ofMillis(500), Duration.ofMillis(500), 32, maxPerHost, allowedNetworks);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        prober.shutdown();
+        for (ServerSocket server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void readsBannerAndVersion() throws IOException {
+        int port = standIn(false, "SSH-2.0-OpenSSH_8.9p1 Ubuntu-3ubuntu0.6\r\n");
+
+        ServiceProber.ProbeResult result = prober.probe(new ServiceProber.ProbeTarget(LOOPBACK, port));
+
+        assertThat(result.reachable()).isTrue();
+        assertThat(result.technology()).isEqualTo("OpenSSH");
+        assertThat(result.version()).isEqualTo("8.9p1");
+    }
+
+    @Test
+    void readsHttpServerHeader() {
+        assertThat(ServiceProber.identify("HTTP/1.0 200 OK\r\nServer: nginx/1.24.0 (Ubuntu)\r\n"))
+                .containsExactly("nginx", "1.24.0");
+    }
+
+    @Test
+    void silentServiceIsReachableWithoutBanner() throws IOException {
+        int port = standIn(true, null);
+
+        ServiceProber.ProbeResult result = prober.probe(new ServiceProber.ProbeTarget(LOOPBACK, port));
+
+        assertThat(result.reachable()).isTrue();
+        assertThat(result.banner()).isNull();
+    }
+
+    @Test
+    void targetOutsideAllowedNetworksIsNotContacted() throws IOException {
+        int port = standIn(false, "SSH-2.0-OpenSSH_8.9p1\r\n");
+        prober.shutdown();
+        prober = prober(4, List.of("10.0.0.0/8"));
+
+        ServiceProber.ProbeResult result = prober.probe(new ServiceProber.ProbeTarget(LOOPBACK, port));
+
+        assertThat(result.reachable()).isFalse();
+        assertThat(result.error()).isEqualTo("hors des réseaux autorisés");
+    }
+
+    @Test
+    void networkMatchesPrefixBits() throws IOException {
+        ServiceProber.Network network = ServiceProber.Network.parse("192.168.4.0/22");
+
+        assertThat(network.contains(InetAddress.getByName("192.168.7.254"))).isTrue();
+        assertThat(network.contains(InetAddress.getByName("192.168.8.1"))).isFalse();
+        assertThat(network.contains(InetAddress.getByName("::1"))).isFalse();
+    }
+
+    @Test
+    void probesManyTargetsConcurrently() throws IOException {
+        int silentPort = standIn(true, null);
+        int closedPort;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = unused.getLocalPort();
+        }
+
+        // Un seul hôte : le plafond par hôte est relevé pour mesurer le parallélisme global
+        prober.shutdown();
+        prober = prober(32, List.of("127.0.0.0/8", "::1"));
+        List<ServiceProber.ProbeTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            targets.add(new ServiceProber.ProbeTarget(LOOPBACK, i % 2 == 0 ? silentPort : closedPort));
+        }
+
+        long start = System.currentTimeMillis();
+        List<ServiceProber.ProbeResult> results = prober.probe(targets);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertThat(results).hasSize(100);
+        assertThat(results.get(1).reachable()).isFalse();
+        // 50 services silencieux à 500 ms séquentiellement prendraient 25 s
+        assertThat(elapsed).isLessThan(10_000);
+    }
+
+    /**
+     * Service de substitution : envoie une bannière à chaque connexion, ou reste silencieux.
+     */
+    private int standIn(boolean silent, String banner) throws IOException {
+        ServerSocket server = new ServerSocket(0, 200, InetAddress.getLoopbackAddress());
+        servers.add(server);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    new Thread(() -> serve(socket, silent, banner)).start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server.getLocalPort();
+    }
+
+    private static void serve(Socket socket, boolean silent, String banner) {
+        try (socket) {
+            if (!silent) {
+                OutputStream out = socket.getOutputStream();
+                out.write(banner.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+            InputStream in = socket.getInputStream();
+            while (in.read() >= 0) {
+                // Attente de la fermeture par le client
+            }
+        } catch (IOException e) {
+            // Connexion fermée par le client
+        }
+    }
+}